@@ -55,7 +55,8 @@ import com.helger.schematron.pure.errorhandler.CollectingPSErrorHandler;
 import com.helger.schematron.svrl.AbstractSVRLMessage;
 import com.helger.schematron.svrl.DefaultSVRLErrorLevelDeterminator;
 import com.helger.schematron.svrl.SVRLHelper;
-import com.helger.schematron.svrl.SVRLMarshaller;
+import com.helger.schematron.svrl.SVRLSharedMarshaller;
+import com.helger.schematron.svrl.SVRLSummary;
 import com.helger.schematron.xslt.SchematronResourceSCH;
 import com.helger.schematron.xslt.SchematronResourceXSLT;
 import com.helger.xml.transform.CollectingTransformErrorListener;
@@ -397,17 +398,18 @@ public class Schematron extends Task
               if (!aSVRLFile.getParentFile ().mkdirs ())
                 log ("Failed to create parent directory of '" + aSVRLFile.getAbsolutePath () + "'!", Project.MSG_ERR);
 
-              if (new SVRLMarshaller ().write (aSOT, aSVRLFile).isSuccess ())
+              if (SVRLSharedMarshaller.getInstance ().write (aSOT, aSVRLFile, false).isSuccess ())
                 log ("Successfully saved SVRL file '" + aSVRLFile.getPath () + "'", Project.MSG_INFO);
               else
                 log ("Error saving SVRL file '" + aSVRLFile.getPath () + "'", Project.MSG_ERR);
             }
 
             if (false)
-              System.out.println (new SVRLMarshaller ().getAsString (aSOT));
+              System.out.println (SVRLSharedMarshaller.getInstance ().getAsString (aSOT, false));
 
-            final ICommonsList <AbstractSVRLMessage> aMessages = SVRLHelper.getAllFailedAssertionsAndSuccessfulReports (aSOT);
-            final int nErrorMessages = aMessages.getCount (x -> x.getFlag ().isError ());
+            final SVRLSummary aSummary = SVRLHelper.getSummary (aSOT);
+            final ICommonsList <AbstractSVRLMessage> aMessages = aSummary.getAllFailedAssertionsAndSuccessfulReports ();
+            final int nErrorMessages = aSummary.getMessageCountMoreOrEqualSevereThan (EErrorLevel.ERROR);
             final int nWarningMessages = aMessages.size () - nErrorMessages;
             final String sErrors = nErrorMessages + " Schematron error" + (nErrorMessages == 1 ? "" : "s");
             final String sWarnings = nWarningMessages + " Schematron warning" + (nWarningMessages == 1 ? "" : "s");
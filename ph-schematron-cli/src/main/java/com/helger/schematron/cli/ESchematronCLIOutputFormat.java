@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.cli;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.lang.EnumHelper;
+
+/**
+ * The result output formats of the command line validator.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+public enum ESchematronCLIOutputFormat implements IHasID <String>
+{
+  /** Only print the summary */
+  NONE ("none"),
+  /** One SVRL file per input and Schematron in the output directory */
+  SVRL ("svrl"),
+  /** One JSON object per input and Schematron per line */
+  JSON ("json"),
+  /** One CSV row per finding */
+  CSV ("csv");
+
+  private final String m_sID;
+
+  private ESchematronCLIOutputFormat (@Nonnull @Nonempty final String sID)
+  {
+    m_sID = sID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  @Nullable
+  public static ESchematronCLIOutputFormat getFromIDOrNull (@Nullable final String sID)
+  {
+    return EnumHelper.getFromIDCaseInsensitiveOrNull (ESchematronCLIOutputFormat.class, sID);
+  }
+}
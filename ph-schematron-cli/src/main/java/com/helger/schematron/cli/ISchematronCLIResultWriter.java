@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+
+/**
+ * Streaming output of the results of the {@link SchematronCLIValidator}. The
+ * methods are always invoked from the thread that started the validation, in
+ * the order of the inputs, so implementations don't need to be thread-safe.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+public interface ISchematronCLIResultWriter extends Closeable
+{
+  /**
+   * Called for the result of a single input file validated against a single
+   * Schematron.
+   *
+   * @param aFile
+   *        The validated file. Never <code>null</code>.
+   * @param sSchematronID
+   *        The ID of the Schematron. Never <code>null</code>.
+   * @param aSVRL
+   *        The validation result. <code>null</code> if an error occurred.
+   * @param aError
+   *        The error that occurred. <code>null</code> if the validation
+   *        succeeded.
+   * @throws IOException
+   *         In case writing fails
+   */
+  void onResult (@Nonnull Path aFile,
+                 @Nonnull String sSchematronID,
+                 @Nullable SchematronOutputType aSVRL,
+                 @Nullable Throwable aError) throws IOException;
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.cli;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.concurrent.BasicThreadFactory;
+import com.helger.commons.string.StringParser;
+import com.helger.schematron.ESchematronMode;
+import com.helger.schematron.ISchematronResource;
+import com.helger.schematron.pure.SchematronResourcePure;
+import com.helger.schematron.xslt.SchematronResourceSCH;
+import com.helger.schematron.xslt.SchematronResourceXSLT;
+
+/**
+ * Command line entry point of the parallel Schematron validator.<br>
+ * Usage:
+ * <code>(--pure|--sch|--xslt id=path)+ [--threads n] [--virtual-threads] [--in-flight n] [--format none|svrl|json|csv] [--output file] [--output-dir dir] input+</code><br>
+ * Inputs may be files, directories (searched recursively for
+ * <code>*.xml</code>) or glob patterns. The summary is printed to stderr. The
+ * exit code is 0 if all files are valid, 1 if at least one file has a failed
+ * assertion and 2 if at least one file could not be validated.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+public final class MainSchematronCLI
+{
+  private static final String USAGE = "Usage: (--pure|--sch|--xslt id=path)+ [--threads n] [--virtual-threads] [--in-flight n]" +
+                                      " [--format none|svrl|json|csv] [--output file] [--output-dir dir] input+";
+
+  private MainSchematronCLI ()
+  {}
+
+  @Nonnull
+  private static ISchematronResource _createSchematron (@Nonnull final ESchematronMode eMode, @Nonnull final String sPath)
+  {
+    switch (eMode)
+    {
+      case PURE:
+        return SchematronResourcePure.fromFile (sPath);
+      case SCHEMATRON:
+        return SchematronResourceSCH.fromFile (sPath);
+      default:
+        return SchematronResourceXSLT.fromFile (sPath);
+    }
+  }
+
+  /**
+   * @return An executor using virtual threads or <code>null</code> if the
+   *         runtime does not support them.
+   */
+  @Nullable
+  private static ExecutorService _createVirtualThreadExecutor ()
+  {
+    try
+    {
+      // Resolved dynamically, to stay compatible with older runtimes
+      return (ExecutorService) Executors.class.getMethod ("newVirtualThreadPerTaskExecutor").invoke (null);
+    }
+    catch (final ReflectiveOperationException | RuntimeException ex)
+    {
+      return null;
+    }
+  }
+
+  private static int _usage (@Nonnull final String sMessage)
+  {
+    System.err.println (sMessage);
+    System.err.println (USAGE);
+    return 2;
+  }
+
+  /**
+   * Run the validation with the passed arguments.
+   *
+   * @param aArgs
+   *        The command line arguments. May not be <code>null</code>.
+   * @return The exit code.
+   * @throws Exception
+   *         in case of an unexpected error
+   */
+  public static int run (@Nonnull final String [] aArgs) throws Exception
+  {
+    final ICommonsOrderedMap <String, Supplier <ISchematronResource>> aSchematrons = new CommonsLinkedHashMap <> ();
+    final ICommonsList <String> aInputs = new CommonsArrayList <> ();
+    int nThreads = Runtime.getRuntime ().availableProcessors ();
+    boolean bVirtualThreads = false;
+    int nInFlight = -1;
+    ESchematronCLIOutputFormat eFormat = ESchematronCLIOutputFormat.NONE;
+    String sOutputFile = null;
+    String sOutputDir = null;
+
+    for (int i = 0; i < aArgs.length; ++i)
+    {
+      final String sArg = aArgs[i];
+      if (!sArg.startsWith ("--"))
+      {
+        aInputs.add (sArg);
+        continue;
+      }
+      if (sArg.equals ("--virtual-threads"))
+      {
+        bVirtualThreads = true;
+        continue;
+      }
+      if (i + 1 >= aArgs.length)
+        return _usage ("Missing value for " + sArg);
+      final String sValue = aArgs[++i];
+      switch (sArg)
+      {
+        case "--threads":
+          nThreads = StringParser.parseInt (sValue, -1);
+          if (nThreads <= 0)
+            return _usage ("Invalid thread count '" + sValue + "'");
+          break;
+        case "--in-flight":
+          nInFlight = StringParser.parseInt (sValue, -1);
+          if (nInFlight <= 0)
+            return _usage ("Invalid in-flight count '" + sValue + "'");
+          break;
+        case "--format":
+          eFormat = ESchematronCLIOutputFormat.getFromIDOrNull (sValue);
+          if (eFormat == null)
+            return _usage ("Invalid format '" + sValue + "'");
+          break;
+        case "--output":
+          sOutputFile = sValue;
+          break;
+        case "--output-dir":
+          sOutputDir = sValue;
+          break;
+        case "--pure":
+        case "--sch":
+        case "--xslt":
+        {
+          final int nEquals = sValue.indexOf ('=');
+          if (nEquals <= 0)
+            return _usage ("Expected id=path but got '" + sValue + "'");
+          final ESchematronMode eMode = ESchematronMode.getFromIDOrNull (sArg.substring (2));
+          final String sPath = sValue.substring (nEquals + 1);
+          // A new resource per concurrent validation
+          aSchematrons.put (sValue.substring (0, nEquals), () -> _createSchematron (eMode, sPath));
+          break;
+        }
+        default:
+          return _usage ("Unknown argument " + sArg);
+      }
+    }
+    if (aSchematrons.isEmpty ())
+      return _usage ("At least one Schematron is required");
+    if (aInputs.isEmpty ())
+      return _usage ("At least one input is required");
+    if (eFormat == ESchematronCLIOutputFormat.SVRL && sOutputDir == null)
+      return _usage ("The SVRL format requires an output directory");
+
+    ExecutorService aExecutor = null;
+    if (bVirtualThreads)
+    {
+      aExecutor = _createVirtualThreadExecutor ();
+      if (aExecutor == null)
+        System.err.println ("Virtual threads are not supported by this runtime - using " + nThreads + " platform threads");
+    }
+    if (aExecutor == null)
+      aExecutor = Executors.newFixedThreadPool (nThreads,
+                                                new BasicThreadFactory.Builder ().setNamingPattern ("schematron-cli-%d")
+                                                                                 .setDaemon (true)
+                                                                                 .build ());
+    if (nInFlight < 0)
+      nInFlight = nThreads * 4;
+
+    final long nCompileStart = System.nanoTime ();
+    final SchematronCLIValidator aValidator = new SchematronCLIValidator (aSchematrons, aExecutor, nInFlight);
+    System.err.println ("Compiled " +
+                        aSchematrons.size () +
+                        " Schematron(s) in " +
+                        (System.nanoTime () - nCompileStart) / 1_000_000 +
+                        "ms");
+
+    final Writer aOut = new BufferedWriter (sOutputFile != null ? new OutputStreamWriter (new FileOutputStream (sOutputFile),
+                                                                                          StandardCharsets.UTF_8)
+                                                                : new OutputStreamWriter (System.out, StandardCharsets.UTF_8),
+                                            64 * 1024);
+    final SchematronCLIStatistics aStats;
+    try (final Stream <Path> aFiles = SchematronCLIFileCollector.getAllFiles (aInputs))
+    {
+      ISchematronCLIResultWriter aResultWriter = null;
+      switch (eFormat)
+      {
+        case SVRL:
+          aResultWriter = new SchematronCLIResultWriterSVRL (Paths.get (sOutputDir));
+          break;
+        case JSON:
+          aResultWriter = new SchematronCLIResultWriterJson (aOut);
+          break;
+        case CSV:
+          aResultWriter = new SchematronCLIResultWriterCSV (aOut);
+          break;
+        default:
+          break;
+      }
+      aStats = aValidator.validateAll (aFiles::iterator, aResultWriter);
+      if (aResultWriter != null)
+        aResultWriter.close ();
+    }
+    finally
+    {
+      aExecutor.shutdown ();
+      if (sOutputFile != null)
+        aOut.close ();
+      else
+        aOut.flush ();
+    }
+
+    System.err.println (aStats.getAsText ());
+    if (aStats.getErrorFileCount () > 0)
+      return 2;
+    return aStats.getInvalidFileCount () > 0 ? 1 : 0;
+  }
+
+  public static void main (final String [] aArgs) throws Exception
+  {
+    System.exit (run (aArgs));
+  }
+}
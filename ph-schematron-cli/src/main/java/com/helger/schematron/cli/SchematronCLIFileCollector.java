@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.cli;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.PresentForCodeCoverage;
+
+/**
+ * Resolve the command line input arguments to the files to be validated. An
+ * argument may be a single file, a directory (all <code>*.xml</code> files are
+ * searched recursively) or a glob pattern like
+ * <code>archive/2017/**&#47;*.xml</code>.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public final class SchematronCLIFileCollector
+{
+  /** The glob used for directory arguments */
+  public static final String DEFAULT_DIRECTORY_GLOB = "**.xml";
+
+  @PresentForCodeCoverage
+  private static final SchematronCLIFileCollector s_aInstance = new SchematronCLIFileCollector ();
+
+  private SchematronCLIFileCollector ()
+  {}
+
+  private static boolean _isGlob (@Nonnull final String s)
+  {
+    return s.indexOf ('*') >= 0 || s.indexOf ('?') >= 0 || s.indexOf ('[') >= 0 || s.indexOf ('{') >= 0;
+  }
+
+  @Nonnull
+  private static Stream <Path> _walk (@Nonnull final Path aBaseDir, @Nonnull final String sGlob)
+  {
+    final PathMatcher aMatcher = FileSystems.getDefault ().getPathMatcher ("glob:" + sGlob);
+    try
+    {
+      // Files.walk is lazy, so even huge directory trees are not held in
+      // memory
+      return Files.walk (aBaseDir)
+                  .filter (Files::isRegularFile)
+                  .filter (x -> aMatcher.matches (aBaseDir.relativize (x)));
+    }
+    catch (final IOException ex)
+    {
+      throw new UncheckedIOException ("Failed to read directory " + aBaseDir, ex);
+    }
+  }
+
+  /**
+   * Get all files matching the passed argument.
+   *
+   * @param sArg
+   *        A file, a directory or a glob pattern. May not be <code>null</code>.
+   * @return A lazy stream of all matching files. The stream must be closed
+   *         after usage. Never <code>null</code>.
+   * @throws UncheckedIOException
+   *         If a directory cannot be read
+   */
+  @Nonnull
+  public static Stream <Path> getAllFiles (@Nonnull final String sArg)
+  {
+    ValueEnforcer.notEmpty (sArg, "Arg");
+
+    final String sNormalized = sArg.replace ('\\', '/');
+    if (!_isGlob (sNormalized))
+    {
+      final Path aPath = Paths.get (sArg);
+      if (Files.isDirectory (aPath))
+        return _walk (aPath, DEFAULT_DIRECTORY_GLOB);
+      return Stream.of (aPath);
+    }
+
+    // Split into the static base directory and the glob part
+    int nGlobStart = 0;
+    int nSlash;
+    while ((nSlash = sNormalized.indexOf ('/', nGlobStart)) >= 0 && !_isGlob (sNormalized.substring (nGlobStart, nSlash)))
+      nGlobStart = nSlash + 1;
+    final Path aBaseDir = nGlobStart == 0 ? Paths.get (".") : Paths.get (sNormalized.substring (0, nGlobStart));
+    if (!Files.isDirectory (aBaseDir))
+      return Stream.empty ();
+    return _walk (aBaseDir, sNormalized.substring (nGlobStart));
+  }
+
+  /**
+   * Get all files matching all the passed arguments.
+   *
+   * @param aArgs
+   *        The arguments. May not be <code>null</code>.
+   * @return A lazy stream of all matching files. Never <code>null</code>.
+   * @see #getAllFiles(String)
+   */
+  @Nonnull
+  public static Stream <Path> getAllFiles (@Nonnull final Iterable <String> aArgs)
+  {
+    ValueEnforcer.notNull (aArgs, "Args");
+
+    Stream <Path> ret = Stream.empty ();
+    for (final String sArg : aArgs)
+      ret = Stream.concat (ret, Stream.of (sArg).flatMap (SchematronCLIFileCollector::getAllFiles));
+    return ret;
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.cli;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.oclc.purl.dsdl.svrl.FailedAssert;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.oclc.purl.dsdl.svrl.SuccessfulReport;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.schematron.svrl.SVRLHelper;
+
+/**
+ * Write the results as CSV with one row per finding (failed assert, successful
+ * report or error). Files without findings produce no row.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class SchematronCLIResultWriterCSV implements ISchematronCLIResultWriter
+{
+  public static final char SEPARATOR = ',';
+
+  private final Writer m_aWriter;
+  private final StringBuilder m_aSB = new StringBuilder ();
+
+  public SchematronCLIResultWriterCSV (@Nonnull final Writer aWriter) throws IOException
+  {
+    ValueEnforcer.notNull (aWriter, "Writer");
+    m_aWriter = aWriter;
+    m_aWriter.write ("file,schematron,type,flag,location,test,text\n");
+  }
+
+  private void _appendField (@Nullable final String s)
+  {
+    if (s == null)
+      return;
+    if (s.indexOf (SEPARATOR) < 0 && s.indexOf ('"') < 0 && s.indexOf ('\n') < 0 && s.indexOf ('\r') < 0)
+      m_aSB.append (s);
+    else
+      m_aSB.append ('"').append (s.replace ("\"", "\"\"")).append ('"');
+  }
+
+  private void _appendRow (@Nonnull final Path aFile,
+                           @Nonnull final String sSchematronID,
+                           @Nonnull final String sType,
+                           @Nullable final String sFlag,
+                           @Nullable final String sLocation,
+                           @Nullable final String sTest,
+                           @Nullable final String sText)
+  {
+    _appendField (aFile.toString ());
+    m_aSB.append (SEPARATOR);
+    _appendField (sSchematronID);
+    m_aSB.append (SEPARATOR);
+    _appendField (sType);
+    m_aSB.append (SEPARATOR);
+    _appendField (sFlag);
+    m_aSB.append (SEPARATOR);
+    _appendField (SVRLHelper.getBeautifiedLocation (sLocation));
+    m_aSB.append (SEPARATOR);
+    _appendField (sTest);
+    m_aSB.append (SEPARATOR);
+    _appendField (sText == null ? null : sText.trim ());
+    m_aSB.append ('\n');
+  }
+
+  public void onResult (@Nonnull final Path aFile,
+                        @Nonnull final String sSchematronID,
+                        @Nullable final SchematronOutputType aSVRL,
+                        @Nullable final Throwable aError) throws IOException
+  {
+    m_aSB.setLength (0);
+    if (aSVRL == null)
+      _appendRow (aFile, sSchematronID, "error", null, null, null, aError == null ? "No result" : aError.getMessage ());
+    else
+      for (final Object aObj : aSVRL.getActivePatternAndFiredRuleAndFailedAssert ())
+        if (aObj instanceof FailedAssert)
+        {
+          final FailedAssert aFA = (FailedAssert) aObj;
+          _appendRow (aFile,
+                      sSchematronID,
+                      "failed-assert",
+                      aFA.getFlag (),
+                      aFA.getLocation (),
+                      aFA.getTest (),
+                      aFA.getText ());
+        }
+        else
+          if (aObj instanceof SuccessfulReport)
+          {
+            final SuccessfulReport aSR = (SuccessfulReport) aObj;
+            _appendRow (aFile,
+                        sSchematronID,
+                        "successful-report",
+                        aSR.getFlag (),
+                        aSR.getLocation (),
+                        aSR.getTest (),
+                        aSR.getText ());
+          }
+    m_aWriter.write (m_aSB.toString ());
+  }
+
+  public void close () throws IOException
+  {
+    m_aWriter.flush ();
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.cli;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.schematron.svrl.SVRLJsonWriter;
+
+/**
+ * Write the results as JSON Lines - one JSON object per file and Schematron.
+ * The validation results are contained in the <code>result</code> member in the
+ * format of {@link SVRLJsonWriter}.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class SchematronCLIResultWriterJson implements ISchematronCLIResultWriter
+{
+  private final Writer m_aWriter;
+  private final StringBuilder m_aSB = new StringBuilder ();
+
+  public SchematronCLIResultWriterJson (@Nonnull final Writer aWriter)
+  {
+    ValueEnforcer.notNull (aWriter, "Writer");
+    m_aWriter = aWriter;
+  }
+
+  public void onResult (@Nonnull final Path aFile,
+                        @Nonnull final String sSchematronID,
+                        @Nullable final SchematronOutputType aSVRL,
+                        @Nullable final Throwable aError) throws IOException
+  {
+    m_aSB.setLength (0);
+    m_aSB.append ("{\"file\":");
+    SVRLJsonWriter.appendJsonString (m_aSB, aFile.toString ());
+    m_aSB.append (",\"schematron\":");
+    SVRLJsonWriter.appendJsonString (m_aSB, sSchematronID);
+    if (aSVRL == null)
+    {
+      m_aSB.append (",\"error\":");
+      SVRLJsonWriter.appendJsonString (m_aSB, aError == null ? "No result" : aError.getMessage ());
+      m_aSB.append ("}\n");
+      m_aWriter.write (m_aSB.toString ());
+    }
+    else
+    {
+      m_aSB.append (",\"result\":");
+      m_aWriter.write (m_aSB.toString ());
+      final SVRLJsonWriter aJsonWriter = new SVRLJsonWriter (m_aWriter);
+      aJsonWriter.writeSVRL (aSVRL);
+      aJsonWriter.finish ();
+      m_aWriter.write ("}\n");
+    }
+  }
+
+  public void close () throws IOException
+  {
+    m_aWriter.flush ();
+  }
+}
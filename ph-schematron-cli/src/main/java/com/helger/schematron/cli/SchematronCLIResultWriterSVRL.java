@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.schematron.svrl.SVRLSharedMarshaller;
+
+/**
+ * Write one SVRL file per input file and Schematron into an output directory.
+ * The directory structure of the inputs is retained, and the file name is
+ * <code>{input file name}.{Schematron ID}.svrl</code>.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class SchematronCLIResultWriterSVRL implements ISchematronCLIResultWriter
+{
+  private final Path m_aOutputDir;
+
+  public SchematronCLIResultWriterSVRL (@Nonnull final Path aOutputDir)
+  {
+    ValueEnforcer.notNull (aOutputDir, "OutputDir");
+    m_aOutputDir = aOutputDir;
+  }
+
+  /**
+   * Get the SVRL file for the passed input.
+   *
+   * @param aFile
+   *        The validated file. May not be <code>null</code>.
+   * @param sSchematronID
+   *        The Schematron ID. May not be <code>null</code>.
+   * @return The output file. Never <code>null</code>.
+   */
+  @Nonnull
+  public Path getSVRLFile (@Nonnull final Path aFile, @Nonnull final String sSchematronID)
+  {
+    Path aRelative = aFile.normalize ();
+    if (aRelative.getRoot () != null)
+      aRelative = aRelative.getRoot ().relativize (aRelative);
+    // Don't leave the output directory
+    while (aRelative.getNameCount () > 1 && aRelative.getName (0).toString ().equals (".."))
+      aRelative = aRelative.subpath (1, aRelative.getNameCount ());
+    return m_aOutputDir.resolve (aRelative.toString () + "." + sSchematronID + ".svrl");
+  }
+
+  public void onResult (@Nonnull final Path aFile,
+                        @Nonnull final String sSchematronID,
+                        @Nullable final SchematronOutputType aSVRL,
+                        @Nullable final Throwable aError) throws IOException
+  {
+    if (aSVRL != null)
+    {
+      final Path aSVRLFile = getSVRLFile (aFile, sSchematronID);
+      final Path aParent = aSVRLFile.getParent ();
+      if (aParent != null)
+        Files.createDirectories (aParent);
+      if (SVRLSharedMarshaller.getInstance ().write (aSVRL, aSVRLFile.toFile (), false).isFailure ())
+        throw new IOException ("Failed to write SVRL file " + aSVRLFile);
+    }
+  }
+
+  public void close ()
+  {}
+}
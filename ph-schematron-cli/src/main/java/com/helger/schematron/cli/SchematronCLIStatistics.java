@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.cli;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The statistics of a single run of the {@link SchematronCLIValidator}. The
+ * duration of each file is recorded, so that percentiles can be calculated.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class SchematronCLIStatistics
+{
+  private long [] m_aDurations = new long [1024];
+  private int m_nFiles;
+  private int m_nInvalidFiles;
+  private int m_nErrorFiles;
+  private long m_nFailedAsserts;
+  private long m_nStartNanos;
+  private long m_nEndNanos;
+
+  public SchematronCLIStatistics ()
+  {}
+
+  void onStart ()
+  {
+    m_nStartNanos = System.nanoTime ();
+  }
+
+  void onEnd ()
+  {
+    m_nEndNanos = System.nanoTime ();
+  }
+
+  void onFile (final long nDurationNanos, final int nFailedAsserts, final boolean bError)
+  {
+    if (m_nFiles == m_aDurations.length)
+      m_aDurations = Arrays.copyOf (m_aDurations, m_aDurations.length * 2);
+    m_aDurations[m_nFiles++] = nDurationNanos;
+    m_nFailedAsserts += nFailedAsserts;
+    if (bError)
+      m_nErrorFiles++;
+    else
+      if (nFailedAsserts > 0)
+        m_nInvalidFiles++;
+  }
+
+  /**
+   * @return The number of processed files.
+   */
+  @Nonnegative
+  public int getFileCount ()
+  {
+    return m_nFiles;
+  }
+
+  /**
+   * @return The number of files with at least one failed assertion.
+   */
+  @Nonnegative
+  public int getInvalidFileCount ()
+  {
+    return m_nInvalidFiles;
+  }
+
+  /**
+   * @return The number of files that could not be read or validated.
+   */
+  @Nonnegative
+  public int getErrorFileCount ()
+  {
+    return m_nErrorFiles;
+  }
+
+  /**
+   * @return The total number of failed assertions of all files.
+   */
+  @Nonnegative
+  public long getFailedAssertCount ()
+  {
+    return m_nFailedAsserts;
+  }
+
+  /**
+   * @return The wall clock time of the whole run in nanoseconds.
+   */
+  @Nonnegative
+  public long getElapsedNanos ()
+  {
+    return Math.max (m_nEndNanos - m_nStartNanos, 0);
+  }
+
+  /**
+   * @return The number of processed files per second.
+   */
+  public double getFilesPerSecond ()
+  {
+    final long nElapsed = getElapsedNanos ();
+    return nElapsed == 0 ? 0 : m_nFiles * (double) TimeUnit.SECONDS.toNanos (1) / nElapsed;
+  }
+
+  /**
+   * Get the percentile of the per file processing time (parsing and
+   * validation against all Schematrons).
+   *
+   * @param dPercentile
+   *        The percentile between 0 and 100.
+   * @return The duration in nanoseconds. 0 if no file was processed.
+   */
+  @Nonnegative
+  public long getPercentileNanos (final double dPercentile)
+  {
+    ValueEnforcer.isBetweenInclusive (dPercentile, "Percentile", 0, 100);
+    if (m_nFiles == 0)
+      return 0;
+    final long [] aSorted = Arrays.copyOf (m_aDurations, m_nFiles);
+    Arrays.sort (aSorted);
+    // Nearest rank method
+    final int nRank = (int) Math.ceil (dPercentile / 100 * m_nFiles);
+    return aSorted[Math.max (nRank, 1) - 1];
+  }
+
+  @Nonnull
+  private static String _ms (final long nNanos)
+  {
+    return String.format (Locale.US, "%.2fms", Double.valueOf (nNanos / 1_000_000d));
+  }
+
+  /**
+   * @return The human readable summary. Never <code>null</code>.
+   */
+  @Nonnull
+  public String getAsText ()
+  {
+    return String.format (Locale.US,
+                          "%d files (%d invalid, %d errors, %d failed asserts) in %.2fs - %.1f files/s, p50 %s, p99 %s",
+                          Integer.valueOf (m_nFiles),
+                          Integer.valueOf (m_nInvalidFiles),
+                          Integer.valueOf (m_nErrorFiles),
+                          Long.valueOf (m_nFailedAsserts),
+                          Double.valueOf (getElapsedNanos () / (double) TimeUnit.SECONDS.toNanos (1)),
+                          Double.valueOf (getFilesPerSecond ()),
+                          _ms (getPercentileNanos (50)),
+                          _ms (getPercentileNanos (99)));
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("files", m_nFiles)
+                                       .append ("invalidFiles", m_nInvalidFiles)
+                                       .append ("errorFiles", m_nErrorFiles)
+                                       .append ("failedAsserts", m_nFailedAsserts)
+                                       .append ("elapsedNanos", getElapsedNanos ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.cli;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.oclc.purl.dsdl.svrl.FailedAssert;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.io.IHasInputStream;
+import com.helger.commons.io.resource.FileSystemResource;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.ISchematronResource;
+import com.helger.schematron.SchematronBatchValidator;
+import com.helger.schematron.SchematronMultiValidator;
+
+/**
+ * Validate many files against one or more Schematrons in parallel, based on a
+ * {@link SchematronBatchValidator} with a {@link SchematronMultiValidator} per
+ * concurrent validation. Each file is parsed only once and validated against
+ * all Schematrons on the same worker. The Schematron resources are not
+ * thread-safe, so each concurrent validation uses its own resources, created
+ * by the provided factories. All Schematrons are checked once upfront. The
+ * results are delivered to the result writer in the calling thread in the
+ * order of the inputs, while at most a configurable number of files is in
+ * flight.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@ThreadSafe
+public class SchematronCLIValidator
+{
+  private final ICommonsOrderedMap <String, Supplier <? extends ISchematronResource>> m_aSchematrons;
+  private final ICommonsList <String> m_aIDs;
+  private final SchematronBatchValidator m_aBatchValidator;
+
+  /**
+   * Constructor
+   *
+   * @param aSchematrons
+   *        The factories for the Schematrons to validate against, mapped by
+   *        their ID. Each invocation of a factory must return a new resource.
+   *        May neither be <code>null</code> nor empty. All Schematrons must be
+   *        valid.
+   * @param aExecutor
+   *        The executor to run the validations on. May not be
+   *        <code>null</code>.
+   * @param nMaxInFlight
+   *        The maximum number of files being validated or waiting for their
+   *        delivery. Must be &gt; 0.
+   * @throws IllegalArgumentException
+   *         If a Schematron is invalid
+   */
+  public SchematronCLIValidator (@Nonnull final Map <String, ? extends Supplier <? extends ISchematronResource>> aSchematrons,
+                                 @Nonnull final Executor aExecutor,
+                                 @Nonnegative final int nMaxInFlight)
+  {
+    ValueEnforcer.notEmpty (aSchematrons, "Schematrons");
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    ValueEnforcer.isGT0 (nMaxInFlight, "MaxInFlight");
+
+    m_aSchematrons = new CommonsLinkedHashMap <> (aSchematrons);
+    m_aIDs = new CommonsArrayList <> (m_aSchematrons.keySet ());
+
+    // Compile all Schematrons before the first file is processed and use them
+    // for the first concurrent validation
+    final SchematronMultiValidator aFirst = _createMultiValidator ();
+    final ICommonsList <ISchematronResource> aResources = aFirst.getAllSchematrons ();
+    for (int i = 0; i < aResources.size (); ++i)
+      if (!aResources.get (i).isValidSchematron ())
+        throw new IllegalArgumentException ("The Schematron '" + m_aIDs.get (i) + "' is invalid: " + aResources.get (i));
+    final AtomicReference <SchematronMultiValidator> aUnused = new AtomicReference <> (aFirst);
+    m_aBatchValidator = new SchematronBatchValidator ( () -> {
+      final SchematronMultiValidator ret = aUnused.getAndSet (null);
+      return ret != null ? ret : _createMultiValidator ();
+    }, aExecutor, nMaxInFlight);
+  }
+
+  @Nonnull
+  private SchematronMultiValidator _createMultiValidator ()
+  {
+    final ICommonsList <ISchematronResource> aResources = new CommonsArrayList <> (m_aSchematrons.size ());
+    for (final Supplier <? extends ISchematronResource> aFactory : m_aSchematrons.values ())
+      aResources.add (aFactory.get ());
+    return new SchematronMultiValidator (aResources);
+  }
+
+  /**
+   * @return The maximum number of files in flight. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getMaxInFlight ()
+  {
+    return m_aBatchValidator.getMaxConcurrent ();
+  }
+
+  private void _deliver (@Nonnull final Path aFile,
+                         @Nullable final ICommonsList <SchematronOutputType> aSVRLs,
+                         @Nullable final Throwable aError,
+                         final long nDurationNanos,
+                         @Nullable final ISchematronCLIResultWriter aResultWriter,
+                         @Nonnull final SchematronCLIStatistics aStats) throws IOException
+  {
+    int nFailedAsserts = 0;
+    boolean bError = false;
+    for (int i = 0; i < m_aIDs.size (); ++i)
+    {
+      final SchematronOutputType aSVRL = aSVRLs == null ? null : aSVRLs.get (i);
+      if (aSVRL == null)
+        bError = true;
+      else
+        for (final Object aObj : aSVRL.getActivePatternAndFiredRuleAndFailedAssert ())
+          if (aObj instanceof FailedAssert)
+            nFailedAsserts++;
+      if (aResultWriter != null)
+        aResultWriter.onResult (aFile, m_aIDs.get (i), aSVRL, aError);
+    }
+    aStats.onFile (nDurationNanos, nFailedAsserts, bError);
+  }
+
+  /**
+   * Validate all passed files.
+   *
+   * @param aFiles
+   *        The files to validate. Only a bounded number of elements is taken
+   *        from the iterable in advance, so it may be lazy. May not be
+   *        <code>null</code>.
+   * @param aResultWriter
+   *        The result writer. May be <code>null</code> if only the statistics
+   *        are of interest. It is not closed by this method.
+   * @return The statistics of this run. Never <code>null</code>.
+   * @throws IOException
+   *         If writing a result failed or if the calling thread was
+   *         interrupted
+   */
+  @Nonnull
+  public SchematronCLIStatistics validateAll (@Nonnull final Iterable <? extends Path> aFiles,
+                                              @Nullable final ISchematronCLIResultWriter aResultWriter) throws IOException
+  {
+    ValueEnforcer.notNull (aFiles, "Files");
+
+    final SchematronCLIStatistics aStats = new SchematronCLIStatistics ();
+    // The result writer may not throw from within the result handler
+    final AtomicReference <IOException> aWriteError = new AtomicReference <> ();
+    final Iterable <IHasInputStream> aResources = () -> {
+      final Iterator <? extends Path> it = aFiles.iterator ();
+      return new Iterator <IHasInputStream> ()
+      {
+        public boolean hasNext ()
+        {
+          // Stop after the first write error
+          return aWriteError.get () == null && it.hasNext ();
+        }
+
+        public IHasInputStream next ()
+        {
+          return new FileSystemResource (it.next ().toFile ());
+        }
+      };
+    };
+
+    aStats.onStart ();
+    try
+    {
+      m_aBatchValidator.validateAll (aResources, true, (nIndex, aXMLResource, aSVRLs, aError, nDurationNanos) -> {
+        if (aWriteError.get () == null)
+          try
+          {
+            _deliver (((FileSystemResource) aXMLResource).getAsFile ().toPath (),
+                      aSVRLs,
+                      aError,
+                      nDurationNanos,
+                      aResultWriter,
+                      aStats);
+          }
+          catch (final IOException ex)
+          {
+            aWriteError.set (ex);
+          }
+      });
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new IOException ("Interrupted while validating", ex);
+    }
+    if (aWriteError.get () != null)
+      throw aWriteError.get ();
+    aStats.onEnd ();
+    return aStats;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("schematronIDs", m_aIDs)
+                                       .append ("batchValidator", m_aBatchValidator)
+                                       .getToString ();
+  }
+}
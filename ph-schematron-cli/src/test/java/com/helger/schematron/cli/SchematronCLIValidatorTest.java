@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.schematron.ISchematronResource;
+import com.helger.schematron.pure.SchematronResourcePure;
+
+/**
+ * Test class for class {@link SchematronCLIValidator}.
+ *
+ * @author Philip Helger
+ */
+public final class SchematronCLIValidatorTest
+{
+  private static final String SCH = "<schema xmlns='http://purl.oclc.org/dsdl/schematron'>" +
+                                    "<pattern><rule context='inv'><assert test='line'>No lines</assert></rule></pattern>" +
+                                    "</schema>";
+
+  @Rule
+  public final TemporaryFolder m_aTempFolder = new TemporaryFolder ();
+
+  private static void _write (final File aFile, final String sContent) throws Exception
+  {
+    aFile.getParentFile ().mkdirs ();
+    Files.write (aFile.toPath (), sContent.getBytes (StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testValidateAll () throws Exception
+  {
+    final File aRoot = m_aTempFolder.getRoot ();
+    _write (new File (aRoot, "a.xml"), "<inv><line/></inv>");
+    _write (new File (aRoot, "sub/b.xml"), "<inv/>");
+    _write (new File (aRoot, "sub/c.xml"), "<inv");
+    _write (new File (aRoot, "sub/ignored.txt"), "<inv/>");
+
+    // Directory and glob inputs
+    try (final Stream <Path> aFiles = SchematronCLIFileCollector.getAllFiles (aRoot.getAbsolutePath ()))
+    {
+      assertEquals (3, aFiles.count ());
+    }
+    try (final Stream <Path> aFiles = SchematronCLIFileCollector.getAllFiles (aRoot.getAbsolutePath () + "/sub/b*.xml"))
+    {
+      assertEquals (1, aFiles.count ());
+    }
+
+    final ICommonsOrderedMap <String, Supplier <ISchematronResource>> aSchematrons = new CommonsLinkedHashMap <> ();
+    aSchematrons.put ("inv", () -> SchematronResourcePure.fromString (SCH, StandardCharsets.UTF_8));
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (2);
+    try
+    {
+      final SchematronCLIValidator aValidator = new SchematronCLIValidator (aSchematrons, aExecutor, 2);
+      final StringWriter aSW = new StringWriter ();
+      final SchematronCLIStatistics aStats;
+      try (final Stream <Path> aFiles = SchematronCLIFileCollector.getAllFiles (aRoot.getAbsolutePath ()).sorted ();
+           final SchematronCLIResultWriterJson aWriter = new SchematronCLIResultWriterJson (aSW))
+      {
+        aStats = aValidator.validateAll (aFiles.collect (Collectors.toList ()), aWriter);
+      }
+
+      assertEquals (3, aStats.getFileCount ());
+      assertEquals (1, aStats.getInvalidFileCount ());
+      assertEquals (1, aStats.getErrorFileCount ());
+      assertEquals (1, aStats.getFailedAssertCount ());
+      assertTrue (aStats.getPercentileNanos (99) >= aStats.getPercentileNanos (50));
+
+      // One line per file in input order
+      final String [] aLines = aSW.toString ().split ("\n");
+      assertEquals (3, aLines.length);
+      assertTrue (aLines[0], aLines[0].contains ("a.xml\",\"schematron\":\"inv\",\"result\":{\"results\":[]"));
+      assertTrue (aLines[1], aLines[1].contains ("\"text\":\"No lines\""));
+      assertTrue (aLines[2], aLines[2].contains ("\"error\":"));
+    }
+    finally
+    {
+      aExecutor.shutdown ();
+    }
+  }
+}
@@ -54,7 +54,7 @@ import com.helger.schematron.pure.SchematronResourcePure;
 import com.helger.schematron.pure.errorhandler.CollectingPSErrorHandler;
 import com.helger.schematron.svrl.SVRLFailedAssert;
 import com.helger.schematron.svrl.SVRLHelper;
-import com.helger.schematron.svrl.SVRLMarshaller;
+import com.helger.schematron.svrl.SVRLSharedMarshaller;
 import com.helger.schematron.xslt.SchematronResourceSCH;
 import com.helger.schematron.xslt.SchematronResourceXSLT;
 import com.helger.xml.transform.AbstractTransformErrorListener;
@@ -426,7 +426,7 @@ public final class SchematronValidationMojo extends AbstractMojo
             if (!aSVRLFile.getParentFile ().mkdirs ())
               getLog ().error ("Failed to create parent directory of '" + aSVRLFile.getAbsolutePath () + "'!");
 
-            if (new SVRLMarshaller ().write (aSOT, aSVRLFile).isSuccess ())
+            if (SVRLSharedMarshaller.getInstance ().write (aSOT, aSVRLFile, false).isSuccess ())
               getLog ().info ("Successfully saved SVRL file '" + aSVRLFile.getPath () + "'");
             else
               getLog ().error ("Error saving SVRL file '" + aSVRLFile.getPath () + "'");
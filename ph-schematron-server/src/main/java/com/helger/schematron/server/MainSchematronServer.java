@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.server;
+
+import javax.annotation.Nonnull;
+
+import com.helger.commons.io.resource.FileSystemResource;
+import com.helger.commons.string.StringParser;
+import com.helger.schematron.xslt.SchematronResourceSCH;
+import com.helger.schematron.xslt.SchematronResourceXSLT;
+
+/**
+ * Command line entry point to start a {@link SchematronServer}.<br>
+ * Usage:
+ * <code>[--host name] [--port n] [--workers n] [--queue n] [--max-bytes n] (--pure|--sch|--xslt id=path)+</code>
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+public final class MainSchematronServer
+{
+  private MainSchematronServer ()
+  {}
+
+  private static void _usage (@Nonnull final String sMessage)
+  {
+    System.err.println (sMessage);
+    System.err.println ("Usage: [--host name] [--port n] [--workers n] [--queue n] [--max-bytes n] (--pure|--sch|--xslt id=path)+");
+    System.exit (1);
+  }
+
+  public static void main (final String [] aArgs) throws Exception
+  {
+    final SchematronServerSettings aSettings = new SchematronServerSettings ();
+    final SchematronServer aServer = new SchematronServer (aSettings);
+    for (int i = 0; i < aArgs.length; ++i)
+    {
+      final String sArg = aArgs[i];
+      if (i + 1 >= aArgs.length)
+      {
+        _usage ("Missing value for " + sArg);
+        return;
+      }
+      final String sValue = aArgs[++i];
+      switch (sArg)
+      {
+        case "--host":
+          aSettings.setHost (sValue);
+          break;
+        case "--port":
+          aSettings.setPort (StringParser.parseInt (sValue, SchematronServerSettings.DEFAULT_PORT));
+          break;
+        case "--workers":
+          aSettings.setWorkerThreads (StringParser.parseInt (sValue, aSettings.getWorkerThreads ()));
+          break;
+        case "--queue":
+          aSettings.setQueueSize (StringParser.parseInt (sValue, SchematronServerSettings.DEFAULT_QUEUE_SIZE));
+          break;
+        case "--max-bytes":
+          aSettings.setMaxRequestBytes (StringParser.parseLong (sValue, SchematronServerSettings.DEFAULT_MAX_REQUEST_BYTES));
+          break;
+        case "--pure":
+        case "--sch":
+        case "--xslt":
+        {
+          final int nEquals = sValue.indexOf ('=');
+          if (nEquals <= 0)
+          {
+            _usage ("Expected id=path but got '" + sValue + "'");
+            return;
+          }
+          final String sID = sValue.substring (0, nEquals);
+          final String sPath = sValue.substring (nEquals + 1);
+          if (sArg.equals ("--pure"))
+            aServer.registerSchematron (sID, new FileSystemResource (sPath));
+          else
+            if (sArg.equals ("--sch"))
+              aServer.registerSchematron (sID, () -> SchematronResourceSCH.fromFile (sPath));
+            else
+              aServer.registerSchematron (sID, () -> SchematronResourceXSLT.fromFile (sPath));
+          break;
+        }
+        default:
+          _usage ("Unknown argument " + sArg);
+          return;
+      }
+    }
+    if (aServer.getAllSchematronIDs ().isEmpty ())
+    {
+      _usage ("At least one Schematron must be registered");
+      return;
+    }
+    aServer.start ();
+    Runtime.getRuntime ().addShutdownHook (new Thread (aServer::stop, "schematron-server-shutdown"));
+  }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.string.StringHelper;
+
+/**
+ * Minimal parser for <code>multipart/form-data</code> request bodies.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+final class MultipartHelper
+{
+  /**
+   * A single part of a multipart body.
+   */
+  static final class Part
+  {
+    private final ICommonsMap <String, String> m_aHeaders;
+    private final byte [] m_aBody;
+
+    Part (@Nonnull final ICommonsMap <String, String> aHeaders, @Nonnull final byte [] aBody)
+    {
+      m_aHeaders = aHeaders;
+      m_aBody = aBody;
+    }
+
+    /**
+     * @return The value of the passed header (name in lower case) or
+     *         <code>null</code>.
+     */
+    @Nullable
+    String getHeader (@Nonnull final String sLowerCaseName)
+    {
+      return m_aHeaders.get (sLowerCaseName);
+    }
+
+    /**
+     * @return The filename or name from the Content-Disposition header or
+     *         <code>null</code>.
+     */
+    @Nullable
+    String getName ()
+    {
+      final String sDisposition = getHeader ("content-disposition");
+      final String sFilename = getHeaderParameter (sDisposition, "filename");
+      return sFilename != null ? sFilename : getHeaderParameter (sDisposition, "name");
+    }
+
+    @Nonnull
+    byte [] getBody ()
+    {
+      return m_aBody;
+    }
+  }
+
+  private MultipartHelper ()
+  {}
+
+  /**
+   * Get a parameter of a header value like
+   * <code>multipart/form-data; boundary=xyz</code>.
+   *
+   * @param sHeaderValue
+   *        The header value. May be <code>null</code>.
+   * @param sParamName
+   *        The parameter name (case insensitive). May not be
+   *        <code>null</code>.
+   * @return The unquoted value or <code>null</code> if the parameter is not
+   *         present.
+   */
+  @Nullable
+  static String getHeaderParameter (@Nullable final String sHeaderValue, @Nonnull final String sParamName)
+  {
+    if (sHeaderValue == null)
+      return null;
+    for (final String sPart : StringHelper.getExploded (';', sHeaderValue))
+    {
+      final String sTrimmed = sPart.trim ();
+      final int nEquals = sTrimmed.indexOf ('=');
+      if (nEquals > 0 && sTrimmed.substring (0, nEquals).trim ().equalsIgnoreCase (sParamName))
+      {
+        String sValue = sTrimmed.substring (nEquals + 1).trim ();
+        if (sValue.length () >= 2 && sValue.startsWith ("\"") && sValue.endsWith ("\""))
+          sValue = sValue.substring (1, sValue.length () - 1);
+        return sValue;
+      }
+    }
+    return null;
+  }
+
+  private static int _indexOf (@Nonnull final byte [] aData, @Nonnull final byte [] aSearch, final int nFrom)
+  {
+    final int nMax = aData.length - aSearch.length;
+    outer: for (int i = Math.max (nFrom, 0); i <= nMax; ++i)
+    {
+      for (int j = 0; j < aSearch.length; ++j)
+        if (aData[i + j] != aSearch[j])
+          continue outer;
+      return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Split the passed multipart body into its parts.
+   *
+   * @param aBody
+   *        The complete request body. May not be <code>null</code>.
+   * @param sBoundary
+   *        The boundary from the content type. May not be <code>null</code>.
+   * @return All parts in the order of the body. Never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If the body is malformed
+   */
+  @Nonnull
+  static ICommonsList <Part> getAllParts (@Nonnull final byte [] aBody, @Nonnull final String sBoundary)
+  {
+    ValueEnforcer.notNull (aBody, "Body");
+    ValueEnforcer.notEmpty (sBoundary, "Boundary");
+
+    final byte [] aDelimiter = ("--" + sBoundary).getBytes (StandardCharsets.ISO_8859_1);
+    final byte [] aPartDelimiter = ("\r\n--" + sBoundary).getBytes (StandardCharsets.ISO_8859_1);
+    final byte [] aHeaderEnd = "\r\n\r\n".getBytes (StandardCharsets.ISO_8859_1);
+
+    final ICommonsList <Part> ret = new CommonsArrayList <> ();
+    int nPos = _indexOf (aBody, aDelimiter, 0);
+    if (nPos < 0)
+      throw new IllegalArgumentException ("Multipart boundary not found");
+    nPos += aDelimiter.length;
+    while (true)
+    {
+      // Closing delimiter?
+      if (nPos + 1 < aBody.length && aBody[nPos] == '-' && aBody[nPos + 1] == '-')
+        break;
+      // Skip the line break after the delimiter
+      if (nPos + 1 < aBody.length && aBody[nPos] == '\r' && aBody[nPos + 1] == '\n')
+        nPos += 2;
+      else
+        throw new IllegalArgumentException ("Malformed multipart delimiter line");
+
+      final int nHeaderEnd = _indexOf (aBody, aHeaderEnd, nPos);
+      final int nBodyStart;
+      final ICommonsMap <String, String> aHeaders = new CommonsHashMap <> ();
+      if (nHeaderEnd == nPos - 2)
+        nBodyStart = nPos;
+      else
+      {
+        if (nHeaderEnd < 0)
+          throw new IllegalArgumentException ("Multipart headers are not terminated");
+        final String sHeaders = new String (aBody, nPos, nHeaderEnd - nPos, StandardCharsets.ISO_8859_1);
+        for (final String sLine : StringHelper.getExploded ("\r\n", sHeaders))
+        {
+          final int nColon = sLine.indexOf (':');
+          if (nColon > 0)
+            aHeaders.put (sLine.substring (0, nColon).trim ().toLowerCase (Locale.US),
+                          sLine.substring (nColon + 1).trim ());
+        }
+        nBodyStart = nHeaderEnd + aHeaderEnd.length;
+      }
+
+      final int nBodyEnd = _indexOf (aBody, aPartDelimiter, nBodyStart);
+      if (nBodyEnd < 0)
+        throw new IllegalArgumentException ("Multipart part is not terminated");
+      ret.add (new Part (aHeaders, Arrays.copyOfRange (aBody, nBodyStart, nBodyEnd)));
+      nPos = nBodyEnd + aPartDelimiter.length;
+    }
+    return ret;
+  }
+}
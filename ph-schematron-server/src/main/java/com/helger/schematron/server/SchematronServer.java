@@ -0,0 +1,749 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.server;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.xml.sax.EntityResolver;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsTreeSet;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsSortedSet;
+import com.helger.commons.concurrent.BasicThreadFactory;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.StringParser;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.ISchematronResource;
+import com.helger.schematron.SchematronException;
+import com.helger.schematron.pure.SchematronPureValidator;
+import com.helger.schematron.svrl.SVRLJsonWriter;
+import com.helger.schematron.svrl.SVRLSharedMarshaller;
+import com.helger.xml.serialize.read.DOMReader;
+import com.helger.xml.serialize.read.DOMReaderSettings;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A small embedded HTTP server that validates XML documents against a set of
+ * pre-compiled Schematrons. It is based on the HTTP server contained in the
+ * JDK, so no servlet container is required. Each registered
+ * {@link SchematronPureValidator} is shared by all worker threads. As other
+ * {@link ISchematronResource} implementations are not thread-safe, they are
+ * registered via a factory and each concurrent validation uses its own
+ * instance.<br>
+ * Endpoints:
+ * <ul>
+ * <li><code>POST /validate/{id}</code> - validate the request body against the
+ * Schematron registered with the passed ID. A
+ * <code>multipart/form-data</code> body is handled as a batch with one
+ * document per part. The response format is chosen by the <code>format</code>
+ * query parameter (<code>svrl</code> or <code>json</code>) or the
+ * <code>Accept</code> header.</li>
+ * <li><code>GET /schematrons</code> - list all registered IDs</li>
+ * <li><code>GET /metrics</code> - metrics in the Prometheus text format</li>
+ * </ul>
+ * Requests are handed to a bounded worker pool. If the queue is full, the
+ * request is answered with HTTP 503 immediately. Single documents are parsed
+ * directly from the request body and all results are streamed to the response
+ * body.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@ThreadSafe
+public class SchematronServer implements AutoCloseable
+{
+  public static final String PATH_VALIDATE = "/validate/";
+  public static final String PATH_SCHEMATRONS = "/schematrons";
+  public static final String PATH_METRICS = "/metrics";
+
+  public static final String MIME_SVRL = "application/svrl+xml";
+  public static final String MIME_JSON = "application/json";
+  public static final String MIME_TEXT = "text/plain";
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (SchematronServer.class);
+
+  private final SchematronServerSettings m_aSettings;
+  private final SchematronServerMetrics m_aMetrics = new SchematronServerMetrics ();
+  private final Map <String, IDocumentValidator> m_aSchematrons = new ConcurrentHashMap <> ();
+  private HttpServer m_aHttpServer;
+  private volatile ThreadPoolExecutor m_aWorkers;
+
+  /**
+   * Validate a single XML document from a stream.
+   */
+  @FunctionalInterface
+  private interface IDocumentValidator
+  {
+    @Nonnull
+    SchematronOutputType validate (@Nonnull InputStream aIS) throws Exception;
+  }
+
+  /**
+   * A validator for Schematron resources that are not thread-safe. Idle
+   * resources are reused, so the factory is invoked at most once per
+   * concurrent validation.
+   */
+  private static final class PooledResourceValidator implements IDocumentValidator
+  {
+    private final Supplier <? extends ISchematronResource> m_aFactory;
+    private final Queue <ISchematronResource> m_aIdleResources = new ConcurrentLinkedQueue <> ();
+
+    PooledResourceValidator (@Nonnull final String sID,
+                             @Nonnull final Supplier <? extends ISchematronResource> aFactory)
+    {
+      m_aFactory = aFactory;
+      // Compile the first resource immediately, so that the first request
+      // does not pay for it
+      final ISchematronResource aSchematron = aFactory.get ();
+      if (aSchematron == null || !aSchematron.isValidSchematron ())
+        throw new IllegalArgumentException ("The Schematron '" + sID + "' is invalid: " + aSchematron);
+      m_aIdleResources.add (aSchematron);
+    }
+
+    @Nonnull
+    public SchematronOutputType validate (@Nonnull final InputStream aIS) throws Exception
+    {
+      ISchematronResource aSchematron = m_aIdleResources.poll ();
+      if (aSchematron == null)
+        aSchematron = m_aFactory.get ();
+      try
+      {
+        final Document aDoc = _readDocument (aIS, aSchematron.getEntityResolver ());
+        final SchematronOutputType ret = aSchematron.applySchematronValidationToSVRL (aDoc, null);
+        if (ret == null)
+          throw new IllegalStateException ("The Schematron " + aSchematron + " is invalid");
+        return ret;
+      }
+      finally
+      {
+        m_aIdleResources.add (aSchematron);
+      }
+    }
+  }
+
+  public SchematronServer (@Nonnull final SchematronServerSettings aSettings)
+  {
+    ValueEnforcer.notNull (aSettings, "Settings");
+    m_aSettings = aSettings;
+  }
+
+  /**
+   * @return The metrics of this server. Never <code>null</code>.
+   */
+  @Nonnull
+  public SchematronServerMetrics getMetrics ()
+  {
+    return m_aMetrics;
+  }
+
+  /**
+   * Register a validator. As validators are immutable and already bound, the
+   * first request does not pay for compiling the Schematron.
+   *
+   * @param sID
+   *        The ID used in the request path. May neither be <code>null</code>
+   *        nor empty.
+   * @param aValidator
+   *        The validator to use. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public SchematronServer registerSchematron (@Nonnull final String sID,
+                                              @Nonnull final SchematronPureValidator aValidator)
+  {
+    ValueEnforcer.notEmpty (sID, "ID");
+    ValueEnforcer.isFalse (sID.indexOf ('/') >= 0, "ID may not contain a slash");
+    ValueEnforcer.notNull (aValidator, "Validator");
+
+    // The validator is thread-safe, so it is shared between all workers
+    m_aSchematrons.put (sID, aIS -> {
+      final Document aDoc = _readDocument (aIS, aValidator.getEntityResolver ());
+      return aValidator.applySchematronValidationToSVRL (aDoc, null);
+    });
+    return this;
+  }
+
+  /**
+   * Register a Schematron resource that is not thread-safe, like
+   * {@link com.helger.schematron.xslt.SchematronResourceSCH} or
+   * {@link com.helger.schematron.xslt.SchematronResourceXSLT}. Each concurrent
+   * validation uses its own resource created by the passed factory. The first
+   * resource is created and compiled immediately, so that the first request
+   * does not pay for it.
+   *
+   * @param sID
+   *        The ID used in the request path. May neither be <code>null</code>
+   *        nor empty.
+   * @param aFactory
+   *        The factory for the Schematron resources. Each invocation must
+   *        return a new resource for the same Schematron. May not be
+   *        <code>null</code>.
+   * @return this for chaining
+   * @throws IllegalArgumentException
+   *         if the Schematron is invalid
+   */
+  @Nonnull
+  public SchematronServer registerSchematron (@Nonnull final String sID,
+                                              @Nonnull final Supplier <? extends ISchematronResource> aFactory)
+  {
+    ValueEnforcer.notEmpty (sID, "ID");
+    ValueEnforcer.isFalse (sID.indexOf ('/') >= 0, "ID may not contain a slash");
+    ValueEnforcer.notNull (aFactory, "Factory");
+
+    m_aSchematrons.put (sID, new PooledResourceValidator (sID, aFactory));
+    return this;
+  }
+
+  /**
+   * Build a validator with the default settings for the passed Schematron
+   * resource and register it.
+   *
+   * @param sID
+   *        The ID used in the request path. May neither be <code>null</code>
+   *        nor empty.
+   * @param aSchematron
+   *        The Schematron resource to use. May not be <code>null</code>.
+   * @return this for chaining
+   * @throws SchematronException
+   *         if the passed Schematron is invalid
+   * @see #registerSchematron(String, SchematronPureValidator)
+   */
+  @Nonnull
+  public SchematronServer registerSchematron (@Nonnull final String sID,
+                                              @Nonnull final IReadableResource aSchematron) throws SchematronException
+  {
+    return registerSchematron (sID, SchematronPureValidator.builder (aSchematron).build ());
+  }
+
+  /**
+   * @return A sorted copy of all registered Schematron IDs. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public ICommonsSortedSet <String> getAllSchematronIDs ()
+  {
+    return new CommonsTreeSet <> (m_aSchematrons.keySet ());
+  }
+
+  /**
+   * Start the server.
+   *
+   * @return this for chaining
+   * @throws IOException
+   *         If binding the socket failed
+   * @throws IllegalStateException
+   *         If the server is already running
+   */
+  @Nonnull
+  public synchronized SchematronServer start () throws IOException
+  {
+    if (m_aHttpServer != null)
+      throw new IllegalStateException ("The server is already running");
+
+    final String sHost = m_aSettings.getHost ();
+    final InetSocketAddress aAddress = sHost == null ? new InetSocketAddress (m_aSettings.getPort ())
+                                                     : new InetSocketAddress (sHost, m_aSettings.getPort ());
+    final int nWorkers = m_aSettings.getWorkerThreads ();
+    m_aWorkers = new ThreadPoolExecutor (nWorkers,
+                                         nWorkers,
+                                         60,
+                                         TimeUnit.SECONDS,
+                                         new ArrayBlockingQueue <> (m_aSettings.getQueueSize ()),
+                                         new BasicThreadFactory.Builder ().setNamingPattern ("schematron-worker-%d")
+                                                                          .setDaemon (true)
+                                                                          .build ());
+    m_aHttpServer = HttpServer.create (aAddress, 0);
+    // The handler itself runs on the dispatcher thread and only enqueues
+    m_aHttpServer.createContext ("/", this::_dispatch);
+    m_aHttpServer.start ();
+    s_aLogger.info ("Schematron server started on port " + getPort () + " with " + nWorkers + " workers");
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if the server is running.
+   */
+  public synchronized boolean isRunning ()
+  {
+    return m_aHttpServer != null;
+  }
+
+  /**
+   * @return The port the server is bound to. This differs from the configured
+   *         port if port 0 was used. Only valid while the server is running.
+   */
+  @Nonnegative
+  public synchronized int getPort ()
+  {
+    if (m_aHttpServer == null)
+      throw new IllegalStateException ("The server is not running");
+    return m_aHttpServer.getAddress ().getPort ();
+  }
+
+  /**
+   * Stop the server. Running requests get one second to finish.
+   */
+  public synchronized void stop ()
+  {
+    if (m_aHttpServer != null)
+    {
+      m_aHttpServer.stop (1);
+      m_aHttpServer = null;
+      m_aWorkers.shutdown ();
+      m_aWorkers = null;
+      s_aLogger.info ("Schematron server stopped");
+    }
+  }
+
+  public void close ()
+  {
+    stop ();
+  }
+
+  private static void _send (@Nonnull final HttpExchange aExchange,
+                             final int nStatus,
+                             @Nonnull final String sContentType,
+                             @Nonnull final byte [] aBody) throws IOException
+  {
+    aExchange.getResponseHeaders ().set ("Content-Type", sContentType);
+    aExchange.sendResponseHeaders (nStatus, aBody.length == 0 ? -1 : aBody.length);
+    try (final OutputStream aOS = aExchange.getResponseBody ())
+    {
+      aOS.write (aBody);
+    }
+  }
+
+  private void _sendError (@Nonnull final HttpExchange aExchange, final int nStatus, @Nonnull final String sMessage)
+  {
+    m_aMetrics.onError ();
+    try
+    {
+      _send (aExchange, nStatus, MIME_TEXT + ";charset=UTF-8", (sMessage + "\n").getBytes (StandardCharsets.UTF_8));
+    }
+    catch (final IOException ex)
+    {
+      s_aLogger.warn ("Failed to send error response: " + ex.getMessage ());
+    }
+    finally
+    {
+      aExchange.close ();
+    }
+  }
+
+  private void _dispatch (@Nonnull final HttpExchange aExchange)
+  {
+    m_aMetrics.onRequest ();
+    final ThreadPoolExecutor aWorkers = m_aWorkers;
+    try
+    {
+      if (aWorkers == null)
+        throw new RejectedExecutionException ("Server is stopping");
+      aWorkers.execute ( () -> _handle (aExchange));
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      m_aMetrics.onRejected ();
+      aExchange.getResponseHeaders ().set ("Retry-After", "1");
+      _sendError (aExchange, 503, "The server is overloaded - please retry later");
+    }
+  }
+
+  private void _handle (@Nonnull final HttpExchange aExchange)
+  {
+    try
+    {
+      final String sMethod = aExchange.getRequestMethod ();
+      final String sPath = aExchange.getRequestURI ().getPath ();
+      if (sPath.startsWith (PATH_VALIDATE))
+      {
+        if (!"POST".equals (sMethod))
+          _sendError (aExchange, 405, "Only POST is supported");
+        else
+          _handleValidate (aExchange, sPath.substring (PATH_VALIDATE.length ()));
+      }
+      else
+        if (sPath.equals (PATH_SCHEMATRONS) && "GET".equals (sMethod))
+        {
+          final String sBody = StringHelper.getImploded ('\n', getAllSchematronIDs ()) + "\n";
+          _send (aExchange, 200, MIME_TEXT + ";charset=UTF-8", sBody.getBytes (StandardCharsets.UTF_8));
+        }
+        else
+          if (sPath.equals (PATH_METRICS) && "GET".equals (sMethod))
+          {
+            final ThreadPoolExecutor aWorkers = m_aWorkers;
+            final String sBody = m_aMetrics.getAsText (aWorkers == null ? 0 : aWorkers.getQueue ().size (),
+                                                       aWorkers == null ? 0 : aWorkers.getActiveCount ());
+            _send (aExchange, 200, MIME_TEXT + ";version=0.0.4;charset=UTF-8", sBody.getBytes (StandardCharsets.UTF_8));
+          }
+          else
+            _sendError (aExchange, 404, "Not found");
+    }
+    catch (final IOException | RuntimeException ex)
+    {
+      s_aLogger.error ("Failed to handle request " + aExchange.getRequestURI (), ex);
+      _sendError (aExchange, 500, "Internal error");
+    }
+    finally
+    {
+      aExchange.close ();
+    }
+  }
+
+  /**
+   * An input stream that fails as soon as more than the allowed number of
+   * bytes are read.
+   */
+  private static final class LimitedInputStream extends FilterInputStream
+  {
+    private final long m_nMax;
+    private long m_nTotal = 0;
+    private boolean m_bLimitExceeded = false;
+
+    LimitedInputStream (@Nonnull final InputStream aIS, final long nMax)
+    {
+      super (aIS);
+      m_nMax = nMax;
+    }
+
+    private void _count (final long nRead) throws IOException
+    {
+      if (nRead > 0)
+      {
+        m_nTotal += nRead;
+        if (m_nTotal > m_nMax)
+        {
+          m_bLimitExceeded = true;
+          throw new IOException ("The request body exceeds " + m_nMax + " bytes");
+        }
+      }
+    }
+
+    @Override
+    public int read () throws IOException
+    {
+      final int ret = super.read ();
+      if (ret >= 0)
+        _count (1);
+      return ret;
+    }
+
+    @Override
+    public int read (final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+    {
+      final int ret = super.read (aBuf, nOfs, nLen);
+      _count (ret);
+      return ret;
+    }
+
+    @Override
+    public long skip (final long n) throws IOException
+    {
+      final long ret = super.skip (n);
+      _count (ret);
+      return ret;
+    }
+
+    boolean isLimitExceeded ()
+    {
+      return m_bLimitExceeded;
+    }
+  }
+
+  private boolean _isContentLengthExceeded (@Nonnull final HttpExchange aExchange)
+  {
+    final String sContentLength = aExchange.getRequestHeaders ().getFirst ("Content-Length");
+    return sContentLength != null && StringParser.parseLong (sContentLength, 0) > m_aSettings.getMaxRequestBytes ();
+  }
+
+  @Nullable
+  private byte [] _readBody (@Nonnull final HttpExchange aExchange) throws IOException
+  {
+    try (final LimitedInputStream aIS = new LimitedInputStream (aExchange.getRequestBody (),
+                                                                m_aSettings.getMaxRequestBytes ());
+         final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ())
+    {
+      if (StreamHelper.copyInputStreamToOutputStream (aIS, aBAOS).isFailure ())
+      {
+        if (aIS.isLimitExceeded ())
+          return null;
+        throw new IOException ("Failed to read the request body");
+      }
+      return aBAOS.toByteArray ();
+    }
+  }
+
+  private static boolean _isJson (@Nonnull final HttpExchange aExchange)
+  {
+    final URI aURI = aExchange.getRequestURI ();
+    final String sQuery = aURI.getQuery ();
+    if (sQuery != null)
+      for (final String sParam : StringHelper.getExploded ('&', sQuery))
+      {
+        if (sParam.equals ("format=json"))
+          return true;
+        if (sParam.equals ("format=svrl"))
+          return false;
+      }
+    final String sAccept = aExchange.getRequestHeaders ().getFirst ("Accept");
+    return sAccept != null && sAccept.contains (MIME_JSON);
+  }
+
+  @Nonnull
+  private static Document _readDocument (@Nonnull final InputStream aIS,
+                                         @Nullable final EntityResolver aEntityResolver) throws Exception
+  {
+    final DOMReaderSettings aDRS = new DOMReaderSettings ();
+    if (aEntityResolver != null)
+      aDRS.setEntityResolver (aEntityResolver);
+    final Document ret = DOMReader.readXMLDOM (aIS, aDRS);
+    if (ret == null)
+      throw new IllegalArgumentException ("The document is not well-formed XML");
+    return ret;
+  }
+
+  /**
+   * Read and validate a single document.
+   *
+   * @return The SVRL. Never <code>null</code>.
+   */
+  @Nonnull
+  private SchematronOutputType _validate (@Nonnull final String sID,
+                                          @Nonnull final IDocumentValidator aValidator,
+                                          @Nonnull final InputStream aIS) throws Exception
+  {
+    final long nStart = System.nanoTime ();
+    boolean bSuccess = false;
+    try
+    {
+      final SchematronOutputType ret = aValidator.validate (aIS);
+      bSuccess = true;
+      return ret;
+    }
+    finally
+    {
+      m_aMetrics.onValidation (sID, System.nanoTime () - nStart, bSuccess);
+    }
+  }
+
+  /**
+   * Write the passed SVRL as SVRL or JSON to the passed stream, without closing
+   * it.
+   */
+  private static void _writeResult (@Nonnull final SchematronOutputType aSVRL,
+                                    final boolean bJson,
+                                    @Nonnull final OutputStream aOS) throws IOException
+  {
+    if (bJson)
+    {
+      final Writer aWriter = new OutputStreamWriter (aOS, StandardCharsets.UTF_8);
+      final SVRLJsonWriter aJsonWriter = new SVRLJsonWriter (aWriter);
+      aJsonWriter.writeSVRL (aSVRL);
+      aJsonWriter.finish ();
+      aWriter.flush ();
+    }
+    else
+      if (SVRLSharedMarshaller.getInstance ().write (aSVRL, aOS, false).isFailure ())
+        throw new IOException ("Failed to write the SVRL");
+  }
+
+  private void _handleValidate (@Nonnull final HttpExchange aExchange, @Nonnull final String sID) throws IOException
+  {
+    final IDocumentValidator aValidator = m_aSchematrons.get (sID);
+    if (aValidator == null)
+    {
+      _sendError (aExchange, 404, "No Schematron with ID '" + sID + "' is registered");
+      return;
+    }
+
+    if (_isContentLengthExceeded (aExchange))
+    {
+      _sendError (aExchange, 413, "The request body exceeds " + m_aSettings.getMaxRequestBytes () + " bytes");
+      return;
+    }
+
+    final boolean bJson = _isJson (aExchange);
+    final String sResultType = bJson ? MIME_JSON : MIME_SVRL;
+    final String sContentType = aExchange.getRequestHeaders ().getFirst ("Content-Type");
+    final boolean bMultipart = sContentType != null && sContentType.toLowerCase (Locale.US).startsWith ("multipart/form-data");
+
+    if (!bMultipart)
+    {
+      // Parse directly from the request body, that is closed together with
+      // the exchange
+      final LimitedInputStream aIS = new LimitedInputStream (aExchange.getRequestBody (),
+                                                             m_aSettings.getMaxRequestBytes ());
+      final SchematronOutputType aSVRL;
+      try
+      {
+        aSVRL = _validate (sID, aValidator, aIS);
+      }
+      catch (final Exception ex)
+      {
+        if (aIS.isLimitExceeded ())
+          _sendError (aExchange, 413, "The request body exceeds " + m_aSettings.getMaxRequestBytes () + " bytes");
+        else
+          _sendError (aExchange, 400, "Failed to validate document: " + ex.getMessage ());
+        return;
+      }
+
+      // Stream the result with chunked encoding
+      aExchange.getResponseHeaders ().set ("Content-Type", sResultType);
+      aExchange.sendResponseHeaders (200, 0);
+      try (final OutputStream aOS = aExchange.getResponseBody ())
+      {
+        _writeResult (aSVRL, bJson, aOS);
+      }
+      return;
+    }
+
+    // Batch - the parts must be known before the first one is validated
+    final byte [] aBody = _readBody (aExchange);
+    if (aBody == null)
+    {
+      _sendError (aExchange, 413, "The request body exceeds " + m_aSettings.getMaxRequestBytes () + " bytes");
+      return;
+    }
+    final String sBoundary = MultipartHelper.getHeaderParameter (sContentType, "boundary");
+    final ICommonsList <MultipartHelper.Part> aParts;
+    try
+    {
+      if (StringHelper.hasNoText (sBoundary))
+        throw new IllegalArgumentException ("The multipart boundary is missing");
+      aParts = MultipartHelper.getAllParts (aBody, sBoundary);
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      _sendError (aExchange, 400, ex.getMessage ());
+      return;
+    }
+
+    // Stream the result of each part as soon as it is available
+    final String sResponseBoundary = "svrl-" + UUID.randomUUID ().toString ();
+    aExchange.getResponseHeaders ().set ("Content-Type",
+                                         bJson ? MIME_JSON : "multipart/mixed; boundary=" + sResponseBoundary);
+    aExchange.sendResponseHeaders (200, 0);
+    try (final OutputStream aOut = new BufferedOutputStream (aExchange.getResponseBody ()))
+    {
+      if (bJson)
+        aOut.write ('[');
+      int nIndex = 0;
+      for (final MultipartHelper.Part aPart : aParts)
+      {
+        final String sName = aPart.getName ();
+        SchematronOutputType aSVRL = null;
+        String sError = null;
+        try
+        {
+          aSVRL = _validate (sID, aValidator, new NonBlockingByteArrayInputStream (aPart.getBody ()));
+        }
+        catch (final Exception ex)
+        {
+          sError = "Failed to validate document: " + ex.getMessage ();
+        }
+
+        if (bJson)
+        {
+          final StringBuilder aSB = new StringBuilder ();
+          if (nIndex > 0)
+            aSB.append (',');
+          aSB.append ("{\"index\":").append (nIndex).append (",\"name\":");
+          SVRLJsonWriter.appendJsonString (aSB, sName);
+          if (sError != null)
+          {
+            aSB.append (",\"error\":");
+            SVRLJsonWriter.appendJsonString (aSB, sError);
+            aSB.append ('}');
+            aOut.write (aSB.toString ().getBytes (StandardCharsets.UTF_8));
+          }
+          else
+          {
+            aSB.append (",\"result\":");
+            aOut.write (aSB.toString ().getBytes (StandardCharsets.UTF_8));
+            _writeResult (aSVRL, true, aOut);
+            aOut.write ('}');
+          }
+        }
+        else
+        {
+          final StringBuilder aHeader = new StringBuilder ();
+          aHeader.append ("--").append (sResponseBoundary).append ("\r\n");
+          aHeader.append ("Content-Type: ").append (sError != null ? MIME_TEXT + ";charset=UTF-8" : MIME_SVRL).append ("\r\n");
+          if (sName != null)
+            aHeader.append ("Content-Disposition: inline; name=\"").append (sName.replace ("\"", "")).append ("\"\r\n");
+          aHeader.append ("\r\n");
+          aOut.write (aHeader.toString ().getBytes (StandardCharsets.UTF_8));
+          if (sError != null)
+            aOut.write (sError.getBytes (StandardCharsets.UTF_8));
+          else
+            _writeResult (aSVRL, false, aOut);
+          aOut.write ("\r\n".getBytes (StandardCharsets.ISO_8859_1));
+        }
+        aOut.flush ();
+        ++nIndex;
+      }
+
+      if (bJson)
+        aOut.write (']');
+      else
+        aOut.write (("--" + sResponseBoundary + "--\r\n").getBytes (StandardCharsets.ISO_8859_1));
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("settings", m_aSettings)
+                                       .append ("schematronIDs", getAllSchematronIDs ())
+                                       .append ("metrics", m_aMetrics)
+                                       .getToString ();
+  }
+}
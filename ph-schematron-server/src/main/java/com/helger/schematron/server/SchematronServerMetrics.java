@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsTreeMap;
+import com.helger.commons.collection.impl.ICommonsSortedMap;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The runtime metrics of a {@link SchematronServer}. All counters are
+ * cumulative since the creation of this object.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@ThreadSafe
+public class SchematronServerMetrics
+{
+  private static final class SchematronCounter
+  {
+    private final LongAdder m_aValidations = new LongAdder ();
+    private final LongAdder m_aFailures = new LongAdder ();
+    private final LongAdder m_aNanos = new LongAdder ();
+  }
+
+  private final LongAdder m_aRequests = new LongAdder ();
+  private final LongAdder m_aRejected = new LongAdder ();
+  private final LongAdder m_aErrors = new LongAdder ();
+  private final Map <String, SchematronCounter> m_aPerSchematron = new ConcurrentHashMap <> ();
+
+  public SchematronServerMetrics ()
+  {}
+
+  void onRequest ()
+  {
+    m_aRequests.increment ();
+  }
+
+  void onRejected ()
+  {
+    m_aRejected.increment ();
+  }
+
+  void onError ()
+  {
+    m_aErrors.increment ();
+  }
+
+  void onValidation (@Nonnull final String sSchematronID, final long nDurationNanos, final boolean bSuccess)
+  {
+    ValueEnforcer.notNull (sSchematronID, "SchematronID");
+    final SchematronCounter aCounter = m_aPerSchematron.computeIfAbsent (sSchematronID, k -> new SchematronCounter ());
+    aCounter.m_aValidations.increment ();
+    if (!bSuccess)
+      aCounter.m_aFailures.increment ();
+    aCounter.m_aNanos.add (nDurationNanos);
+  }
+
+  /**
+   * @return The number of received requests.
+   */
+  @Nonnegative
+  public long getRequestCount ()
+  {
+    return m_aRequests.sum ();
+  }
+
+  /**
+   * @return The number of requests rejected because the queue was full.
+   */
+  @Nonnegative
+  public long getRejectedCount ()
+  {
+    return m_aRejected.sum ();
+  }
+
+  /**
+   * @return The number of requests that failed with an error status.
+   */
+  @Nonnegative
+  public long getErrorCount ()
+  {
+    return m_aErrors.sum ();
+  }
+
+  /**
+   * @return The number of validated documents per Schematron ID. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public ICommonsSortedMap <String, Long> getAllValidationCounts ()
+  {
+    final ICommonsSortedMap <String, Long> ret = new CommonsTreeMap <> ();
+    for (final Map.Entry <String, SchematronCounter> aEntry : m_aPerSchematron.entrySet ())
+      ret.put (aEntry.getKey (), Long.valueOf (aEntry.getValue ().m_aValidations.sum ()));
+    return ret;
+  }
+
+  /**
+   * Get all metrics in the Prometheus text exposition format.
+   *
+   * @param nQueueSize
+   *        The current number of queued requests.
+   * @param nActiveWorkers
+   *        The current number of busy workers.
+   * @return The metrics as text. Never <code>null</code>.
+   */
+  @Nonnull
+  public String getAsText (@Nonnegative final int nQueueSize, @Nonnegative final int nActiveWorkers)
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    aSB.append ("schematron_requests_total ").append (getRequestCount ()).append ('\n');
+    aSB.append ("schematron_requests_rejected_total ").append (getRejectedCount ()).append ('\n');
+    aSB.append ("schematron_requests_error_total ").append (getErrorCount ()).append ('\n');
+    aSB.append ("schematron_queue_size ").append (nQueueSize).append ('\n');
+    aSB.append ("schematron_active_workers ").append (nActiveWorkers).append ('\n');
+    for (final Map.Entry <String, SchematronCounter> aEntry : new CommonsTreeMap <> (m_aPerSchematron).entrySet ())
+    {
+      final String sLabel = "{schematron=\"" + aEntry.getKey ().replace ("\\", "\\\\").replace ("\"", "\\\"") + "\"}";
+      final SchematronCounter aCounter = aEntry.getValue ();
+      aSB.append ("schematron_validations_total").append (sLabel).append (' ').append (aCounter.m_aValidations.sum ()).append ('\n');
+      aSB.append ("schematron_validations_failed_total").append (sLabel).append (' ').append (aCounter.m_aFailures.sum ()).append ('\n');
+      aSB.append ("schematron_validation_seconds_total")
+         .append (sLabel)
+         .append (' ')
+         .append (aCounter.m_aNanos.sum () / (double) TimeUnit.SECONDS.toNanos (1))
+         .append ('\n');
+    }
+    return aSB.toString ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("requests", getRequestCount ())
+                                       .append ("rejected", getRejectedCount ())
+                                       .append ("errors", getErrorCount ())
+                                       .getToString ();
+  }
+}
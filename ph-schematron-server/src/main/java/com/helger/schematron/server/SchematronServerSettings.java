@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.server;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The settings of a {@link SchematronServer}.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class SchematronServerSettings
+{
+  public static final int DEFAULT_PORT = 8080;
+  public static final int DEFAULT_QUEUE_SIZE = 100;
+  public static final long DEFAULT_MAX_REQUEST_BYTES = 20L * 1024 * 1024;
+
+  private String m_sHost;
+  private int m_nPort = DEFAULT_PORT;
+  private int m_nWorkerThreads = Runtime.getRuntime ().availableProcessors ();
+  private int m_nQueueSize = DEFAULT_QUEUE_SIZE;
+  private long m_nMaxRequestBytes = DEFAULT_MAX_REQUEST_BYTES;
+
+  public SchematronServerSettings ()
+  {}
+
+  /**
+   * @return The host name to bind to. <code>null</code> to bind to all
+   *         interfaces.
+   */
+  @Nullable
+  public String getHost ()
+  {
+    return m_sHost;
+  }
+
+  @Nonnull
+  public SchematronServerSettings setHost (@Nullable final String sHost)
+  {
+    m_sHost = sHost;
+    return this;
+  }
+
+  /**
+   * @return The port to listen on. 0 means an ephemeral port.
+   */
+  @Nonnegative
+  public int getPort ()
+  {
+    return m_nPort;
+  }
+
+  @Nonnull
+  public SchematronServerSettings setPort (@Nonnegative final int nPort)
+  {
+    ValueEnforcer.isBetweenInclusive (nPort, "Port", 0, 65535);
+    m_nPort = nPort;
+    return this;
+  }
+
+  /**
+   * @return The number of worker threads performing the validations.
+   */
+  @Nonnegative
+  public int getWorkerThreads ()
+  {
+    return m_nWorkerThreads;
+  }
+
+  @Nonnull
+  public SchematronServerSettings setWorkerThreads (@Nonnegative final int nWorkerThreads)
+  {
+    ValueEnforcer.isGT0 (nWorkerThreads, "WorkerThreads");
+    m_nWorkerThreads = nWorkerThreads;
+    return this;
+  }
+
+  /**
+   * @return The maximum number of requests waiting for a worker. Further
+   *         requests are rejected with HTTP status 503.
+   */
+  @Nonnegative
+  public int getQueueSize ()
+  {
+    return m_nQueueSize;
+  }
+
+  @Nonnull
+  public SchematronServerSettings setQueueSize (@Nonnegative final int nQueueSize)
+  {
+    ValueEnforcer.isGT0 (nQueueSize, "QueueSize");
+    m_nQueueSize = nQueueSize;
+    return this;
+  }
+
+  /**
+   * @return The maximum size of a request body in bytes. Larger requests are
+   *         rejected with HTTP status 413.
+   */
+  @Nonnegative
+  public long getMaxRequestBytes ()
+  {
+    return m_nMaxRequestBytes;
+  }
+
+  @Nonnull
+  public SchematronServerSettings setMaxRequestBytes (@Nonnegative final long nMaxRequestBytes)
+  {
+    ValueEnforcer.isGT0 (nMaxRequestBytes, "MaxRequestBytes");
+    m_nMaxRequestBytes = nMaxRequestBytes;
+    return this;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).appendIfNotNull ("host", m_sHost)
+                                       .append ("port", m_nPort)
+                                       .append ("workerThreads", m_nWorkerThreads)
+                                       .append ("queueSize", m_nQueueSize)
+                                       .append ("maxRequestBytes", m_nMaxRequestBytes)
+                                       .getToString ();
+  }
+}
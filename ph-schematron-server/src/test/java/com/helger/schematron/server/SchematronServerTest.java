@@ -0,0 +1,214 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.helger.commons.io.resource.inmemory.ReadableResourceString;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.schematron.pure.SchematronPureValidator;
+import com.helger.schematron.xslt.SchematronResourceSCH;
+
+/**
+ * Test class for class {@link SchematronServer}.
+ *
+ * @author Philip Helger
+ */
+public final class SchematronServerTest
+{
+  private static final String SCH = "<schema xmlns='http://purl.oclc.org/dsdl/schematron'>" +
+                                    "<pattern><rule context='inv'><assert test='line' flag='ERROR'>No lines</assert></rule></pattern>" +
+                                    "</schema>";
+
+  private static final class Response
+  {
+    private final int m_nStatus;
+    private final String m_sContentType;
+    private final String m_sBody;
+
+    Response (final int nStatus, final String sContentType, final String sBody)
+    {
+      m_nStatus = nStatus;
+      m_sContentType = sContentType;
+      m_sBody = sBody;
+    }
+  }
+
+  @Nonnull
+  private static Response _request (@Nonnull final String sURL,
+                                    @Nullable final String sContentType,
+                                    @Nullable final String sBody) throws IOException
+  {
+    final HttpURLConnection aConn = (HttpURLConnection) new URL (sURL).openConnection ();
+    if (sBody != null)
+    {
+      aConn.setRequestMethod ("POST");
+      aConn.setDoOutput (true);
+      aConn.setRequestProperty ("Content-Type", sContentType);
+      try (final OutputStream aOS = aConn.getOutputStream ())
+      {
+        aOS.write (sBody.getBytes (StandardCharsets.UTF_8));
+      }
+    }
+    final int nStatus = aConn.getResponseCode ();
+    try (final InputStream aIS = nStatus < 400 ? aConn.getInputStream () : aConn.getErrorStream ();
+         final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ())
+    {
+      if (aIS != null)
+        StreamHelper.copyInputStreamToOutputStream (aIS, aBAOS);
+      return new Response (nStatus, aConn.getContentType (), new String (aBAOS.toByteArray (), StandardCharsets.UTF_8));
+    }
+    finally
+    {
+      aConn.disconnect ();
+    }
+  }
+
+  @Test
+  public void testValidate () throws Exception
+  {
+    try (final SchematronServer aServer = new SchematronServer (new SchematronServerSettings ().setHost ("localhost")
+                                                                                                .setPort (0)
+                                                                                                .setWorkerThreads (2)))
+    {
+      aServer.registerSchematron ("inv",
+                                  SchematronPureValidator.builder (new ReadableResourceString (SCH,
+                                                                                               StandardCharsets.UTF_8))
+                                                         .build ());
+      aServer.start ();
+      final String sBase = "http://localhost:" + aServer.getPort ();
+
+      // Single document as JSON
+      Response aResp = _request (sBase + "/validate/inv?format=json", "application/xml", "<inv/>");
+      assertEquals (200, aResp.m_nStatus);
+      assertTrue (aResp.m_sContentType.startsWith (SchematronServer.MIME_JSON));
+      assertTrue (aResp.m_sBody, aResp.m_sBody.startsWith ("{\"results\":[{\"type\":\"assert\",\"rule\":0,"));
+      assertTrue (aResp.m_sBody, aResp.m_sBody.contains ("\"text\":\"No lines\""));
+      assertTrue (aResp.m_sBody, aResp.m_sBody.contains ("\"rules\":[{\"pattern\":0,\"context\":\"//inv\"}]"));
+
+      // Single document as SVRL
+      aResp = _request (sBase + "/validate/inv", "application/xml", "<inv><line/></inv>");
+      assertEquals (200, aResp.m_nStatus);
+      assertTrue (aResp.m_sBody, aResp.m_sBody.contains ("schematron-output"));
+      assertTrue (aResp.m_sBody, !aResp.m_sBody.contains ("failed-assert"));
+
+      // Batch
+      final String sMultipart = "--b\r\n" +
+                                "Content-Disposition: form-data; name=\"doc\"; filename=\"a.xml\"\r\n\r\n" +
+                                "<inv/>\r\n" +
+                                "--b\r\n" +
+                                "Content-Disposition: form-data; name=\"doc\"; filename=\"b.xml\"\r\n\r\n" +
+                                "<inv><line/></inv>\r\n" +
+                                "--b--\r\n";
+      aResp = _request (sBase + "/validate/inv?format=json", "multipart/form-data; boundary=b", sMultipart);
+      assertEquals (200, aResp.m_nStatus);
+      assertTrue (aResp.m_sBody, aResp.m_sBody.startsWith ("[{\"index\":0,\"name\":\"a.xml\",\"result\":"));
+      assertTrue (aResp.m_sBody, aResp.m_sBody.contains ("{\"index\":1,\"name\":\"b.xml\",\"result\":{\"results\":[]"));
+
+      // Errors
+      assertEquals (404, _request (sBase + "/validate/unknown", "application/xml", "<inv/>").m_nStatus);
+      assertEquals (400, _request (sBase + "/validate/inv", "application/xml", "<inv").m_nStatus);
+
+      aResp = _request (sBase + "/metrics", null, null);
+      assertEquals (200, aResp.m_nStatus);
+      assertTrue (aResp.m_sBody, aResp.m_sBody.contains ("schematron_validations_total{schematron=\"inv\"} 5"));
+      assertEquals (Long.valueOf (5), aServer.getMetrics ().getAllValidationCounts ().get ("inv"));
+    }
+  }
+
+  @Test
+  public void testRequestTooLarge () throws Exception
+  {
+    try (final SchematronServer aServer = new SchematronServer (new SchematronServerSettings ().setHost ("localhost")
+                                                                                                .setPort (0)
+                                                                                                .setWorkerThreads (1)
+                                                                                                .setMaxRequestBytes (10)))
+    {
+      aServer.registerSchematron ("inv", new ReadableResourceString (SCH, StandardCharsets.UTF_8));
+      aServer.start ();
+      final String sBase = "http://localhost:" + aServer.getPort ();
+
+      assertEquals (413, _request (sBase + "/validate/inv", "application/xml", "<inv><line/></inv>").m_nStatus);
+      assertEquals (200, _request (sBase + "/validate/inv", "application/xml", "<inv/>").m_nStatus);
+    }
+  }
+
+  @Test
+  public void testPooledSCH () throws Exception
+  {
+    final AtomicInteger aCreated = new AtomicInteger (0);
+    try (final SchematronServer aServer = new SchematronServer (new SchematronServerSettings ().setHost ("localhost")
+                                                                                                .setPort (0)
+                                                                                                .setWorkerThreads (4)))
+    {
+      aServer.registerSchematron ("inv", () -> {
+        aCreated.incrementAndGet ();
+        return new SchematronResourceSCH (new ReadableResourceString (SCH, StandardCharsets.UTF_8));
+      });
+      // Compiled on registration
+      assertEquals (1, aCreated.get ());
+      aServer.start ();
+      final String sBase = "http://localhost:" + aServer.getPort ();
+
+      final ExecutorService aES = Executors.newFixedThreadPool (4);
+      try
+      {
+        final ICommonsList <Future <Response>> aFutures = new CommonsArrayList <> ();
+        for (int i = 0; i < 20; ++i)
+        {
+          final boolean bValid = (i % 2) == 0;
+          aFutures.add (aES.submit ( () -> _request (sBase + "/validate/inv",
+                                                     "application/xml",
+                                                     bValid ? "<inv><line/></inv>" : "<inv/>")));
+        }
+        for (int i = 0; i < aFutures.size (); ++i)
+        {
+          final Response aResp = aFutures.get (i).get ();
+          assertEquals (200, aResp.m_nStatus);
+          assertEquals (aResp.m_sBody, (i % 2) != 0, aResp.m_sBody.contains ("failed-assert"));
+        }
+      }
+      finally
+      {
+        aES.shutdown ();
+      }
+
+      // At most one resource per worker
+      assertTrue (aCreated.get () <= 4);
+    }
+  }
+}
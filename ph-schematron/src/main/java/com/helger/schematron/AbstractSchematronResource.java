@@ -17,6 +17,8 @@
 package com.helger.schematron;
 
 import java.io.InputStream;
+import java.io.Writer;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -35,6 +37,7 @@ import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.io.IHasInputStream;
 import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.state.ESuccess;
 import com.helger.commons.state.EValidity;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.xml.EXMLParserFeature;
@@ -256,6 +259,20 @@ public abstract class AbstractSchematronResource implements ISchematronResource
     return applySchematronValidationToSVRL (aXMLNode.m_aDoc, aXMLNode.m_sBaseURI);
   }
 
+  @Nonnull
+  public ESuccess applySchematronValidationToJson (@Nonnull final IHasInputStream aXMLResource,
+                                                   @Nonnull final Writer aWriter) throws Exception
+  {
+    if (!isValidSchematron ())
+      return ESuccess.FAILURE;
+
+    final NodeAndBaseURI aXMLNode = getAsNode (aXMLResource);
+    if (aXMLNode == null)
+      return ESuccess.FAILURE;
+
+    return applySchematronValidationToJson (aXMLNode.m_aDoc, aXMLNode.m_sBaseURI, (Map <String, ?>) null, aWriter);
+  }
+
   @Nullable
   public SchematronOutputType applySchematronValidationToSVRL (@Nonnull final Source aXMLSource) throws Exception
   {
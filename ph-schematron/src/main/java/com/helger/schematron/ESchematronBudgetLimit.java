@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.lang.EnumHelper;
+
+/**
+ * The reasons why a validation was stopped by a
+ * {@link SchematronValidationBudgetTracker}.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+public enum ESchematronBudgetLimit implements IHasID <String>
+{
+  /** The maximum duration was exceeded */
+  DURATION ("duration"),
+  /** The maximum number of evaluated nodes was exceeded */
+  EVALUATED_NODES ("evaluated-nodes"),
+  /** The maximum number of findings was exceeded */
+  FINDINGS ("findings"),
+  /** The validation was cancelled explicitly */
+  CANCELLED ("cancelled");
+
+  private final String m_sID;
+
+  private ESchematronBudgetLimit (@Nonnull @Nonempty final String sID)
+  {
+    m_sID = sID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  @Nullable
+  public static ESchematronBudgetLimit getFromIDOrNull (@Nullable final String sID)
+  {
+    return EnumHelper.getFromIDOrNull (ESchematronBudgetLimit.class, sID);
+  }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.IHasInputStream;
+
+/**
+ * Callback interface for the results of {@link SchematronBatchValidator} when
+ * validating against multiple Schematrons. It is always invoked from the
+ * thread that started the batch validation, so implementations don't need to
+ * be thread-safe.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@FunctionalInterface
+public interface ISchematronMultiBatchResultHandler
+{
+  /**
+   * Called for the validation results of a single input.
+   *
+   * @param nIndex
+   *        The 0-based index of the input.
+   * @param aXMLResource
+   *        The validated input. Never <code>null</code>.
+   * @param aSVRLs
+   *        The validation results with one SVRL per Schematron in the order of
+   *        the Schematrons. May be <code>null</code> if reading, parsing or
+   *        validating the input failed with an exception. An element is
+   *        <code>null</code> if the respective Schematron is invalid.
+   * @param aError
+   *        The exception of the validation. <code>null</code> if the
+   *        validation succeeded.
+   * @param nDurationNanos
+   *        The time in nanoseconds needed to read, parse and validate the
+   *        input.
+   */
+  void onResult (@Nonnegative int nIndex,
+                 @Nonnull IHasInputStream aXMLResource,
+                 @Nullable ICommonsList <SchematronOutputType> aSVRLs,
+                 @Nullable Throwable aError,
+                 long nDurationNanos);
+}
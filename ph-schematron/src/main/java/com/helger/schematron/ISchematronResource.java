@@ -16,6 +16,12 @@
  */
 package com.helger.schematron;
 
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.xml.transform.Source;
@@ -25,10 +31,13 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.xml.sax.EntityResolver;
 
+import com.helger.commons.ValueEnforcer;
 import com.helger.commons.id.IHasID;
 import com.helger.commons.io.IHasInputStream;
 import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.state.ESuccess;
 import com.helger.commons.state.EValidity;
+import com.helger.schematron.svrl.SVRLJsonWriter;
 
 /**
  * Base interface for a Schematron resource. The implementation can e.g. be a
@@ -115,6 +124,31 @@ public interface ISchematronResource extends IHasID <String>
   @Nonnull
   EValidity getSchematronValidity (@Nonnull Node aXMLNode, @Nullable String sBaseURI) throws Exception;
 
+  /**
+   * A method to check if the passed DOM node matches the Schematron rules or
+   * not, using the provided external parameters for this validation only.
+   *
+   * @param aXMLNode
+   *        The source DOM node to validate against the Schematron. May not be
+   *        <code>null</code>.
+   * @param sBaseURI
+   *        The Base URI of the XML document to be validated. May be
+   *        <code>null</code>.
+   * @param aParameters
+   *        The external parameters to be used for this validation. Parameters
+   *        not declared by the Schematron are ignored. May be
+   *        <code>null</code>.
+   * @return {@link EValidity#VALID} if the document is valid,
+   *         {@link EValidity#INVALID} if it is invalid.
+   * @throws Exception
+   *         in case of a sever error validating the schema
+   * @since 5.0.5
+   */
+  @Nonnull
+  EValidity getSchematronValidity (@Nonnull Node aXMLNode,
+                                   @Nullable String sBaseURI,
+                                   @Nullable Map <String, ?> aParameters) throws Exception;
+
   /**
    * A method to check if the passed XML DOM node matches the Schematron rules
    * or not. This is the quick check method, as it breaks upon the first failed
@@ -220,6 +254,33 @@ public interface ISchematronResource extends IHasID <String>
   SchematronOutputType applySchematronValidationToSVRL (@Nonnull Node aXMLNode,
                                                         @Nullable String sBaseURI) throws Exception;
 
+  /**
+   * Apply the Schematron validation on the passed DOM Node and return a
+   * {@link SchematronOutputType} object, using the provided external
+   * parameters for this validation only. That allows a single compiled
+   * Schematron to be used with request specific values.
+   *
+   * @param aXMLNode
+   *        The DOM node to be validated via Schematron. May not be
+   *        <code>null</code>.
+   * @param sBaseURI
+   *        The Base URI of the XML document to be validated. May be
+   *        <code>null</code>.
+   * @param aParameters
+   *        The external parameters to be used for this validation. Parameters
+   *        not declared by the Schematron are ignored. May be
+   *        <code>null</code>.
+   * @return The SVRL object containing the result. May be <code>null</code>
+   *         when interpreting the Schematron failed.
+   * @throws Exception
+   *         In case the transformation somehow goes wrong.
+   * @since 5.0.5
+   */
+  @Nullable
+  SchematronOutputType applySchematronValidationToSVRL (@Nonnull Node aXMLNode,
+                                                        @Nullable String sBaseURI,
+                                                        @Nullable Map <String, ?> aParameters) throws Exception;
+
   /**
    * Apply the Schematron validation on the passed XML source and return a
    * {@link SchematronOutputType} object.
@@ -234,4 +295,181 @@ public interface ISchematronResource extends IHasID <String>
    */
   @Nullable
   SchematronOutputType applySchematronValidationToSVRL (@Nonnull Source aXMLSource) throws Exception;
+
+  /**
+   * Apply the Schematron validation on the passed XML resource and write the
+   * result as compact JSON (see {@link SVRLJsonWriter}) to the passed writer.
+   * This default implementation converts the result of
+   * {@link #applySchematronValidationToSVRL(IHasInputStream)}, whereas
+   * {@link AbstractSchematronResource} streams the results directly.
+   *
+   * @param aXMLResource
+   *        The XML resource to be validated via Schematron. May not be
+   *        <code>null</code>.
+   * @param aWriter
+   *        The writer to write the JSON to. May not be <code>null</code>. It
+   *        is flushed but not closed.
+   * @return {@link ESuccess#FAILURE} if interpreting the Schematron failed or
+   *         the XML resource does not exist. In that case nothing is written.
+   * @throws Exception
+   *         In case the transformation somehow goes wrong.
+   * @since 5.0.5
+   */
+  @Nonnull
+  default ESuccess applySchematronValidationToJson (@Nonnull final IHasInputStream aXMLResource,
+                                                    @Nonnull final Writer aWriter) throws Exception
+  {
+    ValueEnforcer.notNull (aWriter, "Writer");
+
+    final SchematronOutputType aSVRL = applySchematronValidationToSVRL (aXMLResource);
+    if (aSVRL == null)
+      return ESuccess.FAILURE;
+
+    final SVRLJsonWriter aJsonWriter = new SVRLJsonWriter (aWriter);
+    aJsonWriter.writeSVRL (aSVRL);
+    aJsonWriter.finish ();
+    return ESuccess.SUCCESS;
+  }
+
+  /**
+   * Apply the Schematron validation on the passed DOM Node and write the
+   * result as compact JSON (see {@link SVRLJsonWriter}) to the passed writer.
+   * This default implementation converts the result of
+   * {@link #applySchematronValidationToSVRL(Node, String, Map)}, whereas the
+   * pure and the XSLT based implementations stream the results directly
+   * without creating an SVRL object.
+   *
+   * @param aXMLNode
+   *        The DOM node to be validated via Schematron. May not be
+   *        <code>null</code>.
+   * @param sBaseURI
+   *        The Base URI of the XML document to be validated. May be
+   *        <code>null</code>.
+   * @param aParameters
+   *        The external parameters to be used for this validation. May be
+   *        <code>null</code>.
+   * @param aWriter
+   *        The writer to write the JSON to. May not be <code>null</code>. It
+   *        is flushed but not closed.
+   * @return {@link ESuccess#FAILURE} if interpreting the Schematron failed. In
+   *         that case nothing is written.
+   * @throws Exception
+   *         In case the transformation somehow goes wrong.
+   * @since 5.0.5
+   */
+  @Nonnull
+  default ESuccess applySchematronValidationToJson (@Nonnull final Node aXMLNode,
+                                                    @Nullable final String sBaseURI,
+                                                    @Nullable final Map <String, ?> aParameters,
+                                                    @Nonnull final Writer aWriter) throws Exception
+  {
+    ValueEnforcer.notNull (aWriter, "Writer");
+
+    final SchematronOutputType aSVRL = applySchematronValidationToSVRL (aXMLNode, sBaseURI, aParameters);
+    if (aSVRL == null)
+      return ESuccess.FAILURE;
+
+    final SVRLJsonWriter aJsonWriter = new SVRLJsonWriter (aWriter);
+    aJsonWriter.writeSVRL (aSVRL);
+    aJsonWriter.finish ();
+    return ESuccess.SUCCESS;
+  }
+
+  /**
+   * Run
+   * {@link #applySchematronValidationToSVRL(IHasInputStream)}
+   * asynchronously on the passed executor. This requires that this resource can
+   * be used concurrently (e.g. because it is already bound).
+   *
+   * @param aXMLResource
+   *        The XML resource to be validated via Schematron. May not be
+   *        <code>null</code>.
+   * @param aExecutor
+   *        The executor to run the validation on. May not be
+   *        <code>null</code>.
+   * @return The future with the SVRL object, that may be <code>null</code> when
+   *         interpreting the Schematron failed. The future is completed
+   *         exceptionally if the validation fails or the executor rejects it.
+   *         Never <code>null</code>.
+   * @see SchematronBatchValidator for a version with backpressure
+   * @since 5.0.5
+   */
+  @Nonnull
+  default CompletableFuture <SchematronOutputType> applySchematronValidationToSVRLAsync (@Nonnull final IHasInputStream aXMLResource,
+                                                                                        @Nonnull final Executor aExecutor)
+  {
+    ValueEnforcer.notNull (aXMLResource, "XMLResource");
+    ValueEnforcer.notNull (aExecutor, "Executor");
+
+    final CompletableFuture <SchematronOutputType> ret = new CompletableFuture <> ();
+    try
+    {
+      aExecutor.execute ( () -> {
+        try
+        {
+          ret.complete (applySchematronValidationToSVRL (aXMLResource));
+        }
+        catch (final Exception ex)
+        {
+          ret.completeExceptionally (ex);
+        }
+      });
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      ret.completeExceptionally (ex);
+    }
+    return ret;
+  }
+
+  /**
+   * Run {@link #applySchematronValidationToSVRL(Node, String, Map)}
+   * asynchronously on the passed executor. The passed node must not be
+   * modified until the future is completed.
+   *
+   * @param aXMLNode
+   *        The XML node to be validated via Schematron. May not be
+   *        <code>null</code>.
+   * @param sBaseURI
+   *        Base URI of the XML document to be validated. May be
+   *        <code>null</code>.
+   * @param aParameters
+   *        The external parameters to be used for this validation. May be
+   *        <code>null</code>.
+   * @param aExecutor
+   *        The executor to run the validation on. May not be
+   *        <code>null</code>.
+   * @return The future with the SVRL object, that may be <code>null</code> when
+   *         interpreting the Schematron failed. Never <code>null</code>.
+   * @since 5.0.5
+   */
+  @Nonnull
+  default CompletableFuture <SchematronOutputType> applySchematronValidationToSVRLAsync (@Nonnull final Node aXMLNode,
+                                                                                        @Nullable final String sBaseURI,
+                                                                                        @Nullable final Map <String, ?> aParameters,
+                                                                                        @Nonnull final Executor aExecutor)
+  {
+    ValueEnforcer.notNull (aXMLNode, "XMLNode");
+    ValueEnforcer.notNull (aExecutor, "Executor");
+
+    final CompletableFuture <SchematronOutputType> ret = new CompletableFuture <> ();
+    try
+    {
+      aExecutor.execute ( () -> {
+        try
+        {
+          ret.complete (applySchematronValidationToSVRL (aXMLNode, sBaseURI, aParameters));
+        }
+        catch (final Exception ex)
+        {
+          ret.completeExceptionally (ex);
+        }
+      });
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      ret.completeExceptionally (ex);
+    }
+    return ret;
+  }
 }
@@ -0,0 +1,524 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron;
+
+import java.io.FileNotFoundException;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.io.IHasInputStream;
+import com.helger.commons.state.ESuccess;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.pure.SchematronPureValidator;
+
+/**
+ * Validate many XML documents against a single Schematron or against multiple
+ * Schematrons on a caller supplied {@link Executor} (e.g. one using virtual
+ * threads) with bounded concurrency. If the maximum number of concurrent
+ * validations is reached, further submissions block until a validation
+ * finished (backpressure).<br>
+ * Note: {@link ISchematronResource} implementations are not thread-safe, so
+ * they are never shared between concurrent validations. Either use a
+ * thread-safe {@link SchematronPureValidator} or a factory that creates a new
+ * resource for each concurrent validation.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@ThreadSafe
+public class SchematronBatchValidator
+{
+  /** The default maximum number of concurrent validations */
+  public static final int DEFAULT_MAX_CONCURRENT = 16;
+
+  private static final class Result
+  {
+    private final int m_nIndex;
+    private final IHasInputStream m_aXMLResource;
+    private final SchematronOutputType m_aSVRL;
+    private final ICommonsList <SchematronOutputType> m_aSVRLs;
+    private final Throwable m_aError;
+    private final long m_nDurationNanos;
+
+    Result (final int nIndex,
+            @Nonnull final IHasInputStream aXMLResource,
+            @Nullable final SchematronOutputType aSVRL,
+            @Nullable final ICommonsList <SchematronOutputType> aSVRLs,
+            @Nullable final Throwable aError,
+            final long nDurationNanos)
+    {
+      m_nIndex = nIndex;
+      m_aXMLResource = aXMLResource;
+      m_aSVRL = aSVRL;
+      m_aSVRLs = aSVRLs;
+      m_aError = aError;
+      m_nDurationNanos = nDurationNanos;
+    }
+  }
+
+  /**
+   * Validate a single input against a single Schematron.
+   */
+  @FunctionalInterface
+  private interface ISingleValidator
+  {
+    @Nullable
+    SchematronOutputType validate (@Nonnull IHasInputStream aXMLResource) throws Exception;
+  }
+
+  /**
+   * Start the validation of a single input and invoke the callback with the
+   * result.
+   */
+  @FunctionalInterface
+  private interface ISubmitter
+  {
+    void submit (int nIndex, @Nonnull IHasInputStream aXMLResource, @Nonnull Consumer <Result> aCallback);
+  }
+
+  private final ISingleValidator m_aSingleValidator;
+  private final Supplier <? extends SchematronMultiValidator> m_aMultiValidatorFactory;
+  private final Executor m_aExecutor;
+  private final int m_nMaxConcurrent;
+  private final Semaphore m_aPermits;
+  // Multi validators not used by a running validation
+  private final Queue <SchematronMultiValidator> m_aIdleMultiValidators = new ConcurrentLinkedQueue <> ();
+
+  /**
+   * Constructor for validating against a single pure Schematron. The
+   * validator is thread-safe, so it is shared by all concurrent validations.
+   *
+   * @param aValidator
+   *        The validator to use. May not be <code>null</code>.
+   * @param aExecutor
+   *        The executor to run the validations on. May not be
+   *        <code>null</code>.
+   * @param nMaxConcurrent
+   *        The maximum number of concurrent validations. Must be &gt; 0.
+   */
+  public SchematronBatchValidator (@Nonnull final SchematronPureValidator aValidator,
+                                   @Nonnull final Executor aExecutor,
+                                   @Nonnegative final int nMaxConcurrent)
+  {
+    this (_createSharedValidator (aValidator), null, aExecutor, nMaxConcurrent);
+  }
+
+  /**
+   * Constructor for validating each input against multiple Schematrons. Each
+   * concurrent validation uses its own {@link SchematronMultiValidator}, so
+   * that Schematron resources that are not thread-safe are never used by two
+   * threads at the same time. Idle multi validators are reused, so the
+   * factory is invoked at most once per concurrent validation.
+   *
+   * @param aMultiValidatorFactory
+   *        The factory for the multi validators. Each invocation must return
+   *        a multi validator with the same Schematrons in the same order but
+   *        with resources not shared with previously created ones. May not be
+   *        <code>null</code>.
+   * @param aExecutor
+   *        The executor to run the validations on. May not be
+   *        <code>null</code>.
+   * @param nMaxConcurrent
+   *        The maximum number of concurrent validations. Must be &gt; 0.
+   * @see #validateAll(Iterable, boolean, ISchematronMultiBatchResultHandler)
+   */
+  public SchematronBatchValidator (@Nonnull final Supplier <? extends SchematronMultiValidator> aMultiValidatorFactory,
+                                   @Nonnull final Executor aExecutor,
+                                   @Nonnegative final int nMaxConcurrent)
+  {
+    this (null, ValueEnforcer.notNull (aMultiValidatorFactory, "MultiValidatorFactory"), aExecutor, nMaxConcurrent);
+  }
+
+  private SchematronBatchValidator (@Nullable final ISingleValidator aSingleValidator,
+                                    @Nullable final Supplier <? extends SchematronMultiValidator> aMultiValidatorFactory,
+                                    @Nonnull final Executor aExecutor,
+                                    @Nonnegative final int nMaxConcurrent)
+  {
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    ValueEnforcer.isGT0 (nMaxConcurrent, "MaxConcurrent");
+    m_aSingleValidator = aSingleValidator;
+    m_aMultiValidatorFactory = aMultiValidatorFactory;
+    m_aExecutor = aExecutor;
+    m_nMaxConcurrent = nMaxConcurrent;
+    m_aPermits = new Semaphore (nMaxConcurrent);
+  }
+
+  /**
+   * Create a validator for a single Schematron resource that is not
+   * thread-safe (e.g. a {@link com.helger.schematron.xslt.SchematronResourceSCH}
+   * or a {@link com.helger.schematron.pure.SchematronResourcePure}). Each
+   * concurrent validation uses its own resource. Idle resources are reused, so
+   * the factory is invoked at most once per concurrent validation.
+   *
+   * @param aSchematronFactory
+   *        The factory for the Schematron resources. Each invocation must
+   *        return a new resource for the same Schematron. May not be
+   *        <code>null</code>.
+   * @param aExecutor
+   *        The executor to run the validations on. May not be
+   *        <code>null</code>.
+   * @param nMaxConcurrent
+   *        The maximum number of concurrent validations. Must be &gt; 0.
+   * @return The new batch validator. Never <code>null</code>.
+   */
+  @Nonnull
+  public static SchematronBatchValidator createForSchematronFactory (@Nonnull final Supplier <? extends ISchematronResource> aSchematronFactory,
+                                                                     @Nonnull final Executor aExecutor,
+                                                                     @Nonnegative final int nMaxConcurrent)
+  {
+    ValueEnforcer.notNull (aSchematronFactory, "SchematronFactory");
+
+    final Queue <ISchematronResource> aIdleSchematrons = new ConcurrentLinkedQueue <> ();
+    final ISingleValidator aSingleValidator = aXMLResource -> {
+      ISchematronResource aSchematron = aIdleSchematrons.poll ();
+      if (aSchematron == null)
+        aSchematron = aSchematronFactory.get ();
+      try
+      {
+        return aSchematron.applySchematronValidationToSVRL (aXMLResource);
+      }
+      finally
+      {
+        aIdleSchematrons.add (aSchematron);
+      }
+    };
+    return new SchematronBatchValidator (aSingleValidator, null, aExecutor, nMaxConcurrent);
+  }
+
+  @Nonnull
+  private static ISingleValidator _createSharedValidator (@Nonnull final SchematronPureValidator aValidator)
+  {
+    ValueEnforcer.notNull (aValidator, "Validator");
+    return aXMLResource -> aValidator.applySchematronValidationToSVRL (aXMLResource, null);
+  }
+
+  /**
+   * @return <code>true</code> if this validator validates against a single
+   *         Schematron, <code>false</code> if it was created with a multi
+   *         validator factory.
+   */
+  public boolean isSingleSchematron ()
+  {
+    return m_aSingleValidator != null;
+  }
+
+  /**
+   * @return The maximum number of concurrent validations. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getMaxConcurrent ()
+  {
+    return m_nMaxConcurrent;
+  }
+
+  /**
+   * Validate a single XML asynchronously. If the maximum number of concurrent
+   * validations is reached, this method blocks until a running validation
+   * finished.
+   *
+   * @param aXMLResource
+   *        The XML resource to validate. May not be <code>null</code>.
+   * @return The future with the SVRL. Never <code>null</code>.
+   * @throws IllegalStateException
+   *         If this validator was created with a multi validator factory
+   * @see ISchematronResource#applySchematronValidationToSVRLAsync(IHasInputStream,
+   *      Executor)
+   */
+  @Nonnull
+  public CompletableFuture <SchematronOutputType> validateAsync (@Nonnull final IHasInputStream aXMLResource)
+  {
+    ValueEnforcer.notNull (aXMLResource, "XMLResource");
+    if (m_aSingleValidator == null)
+      throw new IllegalStateException ("This validator validates against multiple Schematrons");
+
+    m_aPermits.acquireUninterruptibly ();
+    final CompletableFuture <SchematronOutputType> ret = new CompletableFuture <> ();
+    try
+    {
+      m_aExecutor.execute ( () -> {
+        try
+        {
+          ret.complete (m_aSingleValidator.validate (aXMLResource));
+        }
+        catch (final Exception ex)
+        {
+          ret.completeExceptionally (ex);
+        }
+      });
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      ret.completeExceptionally (ex);
+    }
+    ret.whenComplete ( (aSVRL, aError) -> m_aPermits.release ());
+    return ret;
+  }
+
+  private void _validateSingle (final int nIndex,
+                                @Nonnull final IHasInputStream aXMLResource,
+                                @Nonnull final Consumer <Result> aCallback)
+  {
+    validateAsync (aXMLResource).whenComplete ( (aSVRL,
+                                                 aError) -> aCallback.accept (new Result (nIndex,
+                                                                                          aXMLResource,
+                                                                                          aSVRL,
+                                                                                          null,
+                                                                                          aError,
+                                                                                          0)));
+  }
+
+  private void _validateMulti (final int nIndex,
+                               @Nonnull final IHasInputStream aXMLResource,
+                               @Nonnull final Consumer <Result> aCallback)
+  {
+    m_aPermits.acquireUninterruptibly ();
+    final Runnable aTask = () -> {
+      final long nStart = System.nanoTime ();
+      ICommonsList <SchematronOutputType> aSVRLs = null;
+      Throwable aError = null;
+      SchematronMultiValidator aMultiValidator = m_aIdleMultiValidators.poll ();
+      try
+      {
+        if (aMultiValidator == null)
+          aMultiValidator = m_aMultiValidatorFactory.get ();
+        aSVRLs = aMultiValidator.applySchematronValidationToSVRL (aXMLResource);
+        if (aSVRLs == null)
+          aError = new FileNotFoundException ("XML resource " + aXMLResource + " does not exist");
+      }
+      catch (final Exception ex)
+      {
+        aError = ex;
+      }
+      finally
+      {
+        if (aMultiValidator != null)
+          m_aIdleMultiValidators.add (aMultiValidator);
+        m_aPermits.release ();
+      }
+      aCallback.accept (new Result (nIndex, aXMLResource, null, aSVRLs, aError, System.nanoTime () - nStart));
+    };
+    try
+    {
+      m_aExecutor.execute (aTask);
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      m_aPermits.release ();
+      aCallback.accept (new Result (nIndex, aXMLResource, null, null, ex, 0));
+    }
+  }
+
+  @Nonnull
+  private ESuccess _validateAll (@Nonnull final Iterable <? extends IHasInputStream> aXMLResources,
+                                 final boolean bOrdered,
+                                 @Nonnull final ISubmitter aSubmitter,
+                                 @Nonnull final Consumer <Result> aResultHandler) throws InterruptedException
+  {
+    final BlockingQueue <Result> aCompleted = new LinkedBlockingQueue <> ();
+    // Results waiting for their predecessors in ordered mode
+    final ICommonsMap <Integer, Result> aPending = new CommonsHashMap <> ();
+    int nSubmitted = 0;
+    int nDelivered = 0;
+    boolean bSuccess = true;
+    for (final IHasInputStream aXMLResource : aXMLResources)
+    {
+      // Limit the number of undelivered results
+      while (nSubmitted - nDelivered >= m_nMaxConcurrent)
+      {
+        final Result aResult = aCompleted.take ();
+        if (aResult.m_aError != null)
+          bSuccess = false;
+        nDelivered += _deliver (aResult, bOrdered, aPending, nDelivered, aResultHandler);
+      }
+
+      aSubmitter.submit (nSubmitted++, aXMLResource, aCompleted::add);
+    }
+
+    // Wait for the remaining results
+    while (nDelivered < nSubmitted)
+    {
+      final Result aResult = aCompleted.take ();
+      if (aResult.m_aError != null)
+        bSuccess = false;
+      nDelivered += _deliver (aResult, bOrdered, aPending, nDelivered, aResultHandler);
+    }
+    return ESuccess.valueOf (bSuccess);
+  }
+
+  /**
+   * Validate all passed XML resources with bounded concurrency. The results
+   * are passed to the handler in the calling thread.
+   *
+   * @param aXMLResources
+   *        The XML resources to validate. May not be <code>null</code>.
+   * @param bOrdered
+   *        <code>true</code> to deliver the results in the order of the
+   *        inputs, <code>false</code> to deliver them as soon as they are
+   *        available.
+   * @param aResultHandler
+   *        The result handler. May not be <code>null</code>.
+   * @return {@link ESuccess#SUCCESS} if all validations finished without an
+   *         exception.
+   * @throws InterruptedException
+   *         If the calling thread was interrupted while waiting for results
+   * @throws IllegalStateException
+   *         If this validator was created with a multi validator factory
+   */
+  @Nonnull
+  public ESuccess validateAll (@Nonnull final Iterable <? extends IHasInputStream> aXMLResources,
+                               final boolean bOrdered,
+                               @Nonnull final ISchematronBatchResultHandler aResultHandler) throws InterruptedException
+  {
+    ValueEnforcer.notNull (aXMLResources, "XMLResources");
+    ValueEnforcer.notNull (aResultHandler, "ResultHandler");
+    if (m_aSingleValidator == null)
+      throw new IllegalStateException ("This validator validates against multiple Schematrons");
+
+    return _validateAll (aXMLResources,
+                         bOrdered,
+                         this::_validateSingle,
+                         x -> aResultHandler.onResult (x.m_nIndex, x.m_aXMLResource, x.m_aSVRL, x.m_aError));
+  }
+
+  /**
+   * Validate all passed XML resources against all Schematrons with bounded
+   * concurrency. Each input is read and parsed only once (see
+   * {@link SchematronMultiValidator}) and validated against all Schematrons on
+   * the same worker. The results are passed to the handler in the calling
+   * thread.
+   *
+   * @param aXMLResources
+   *        The XML resources to validate. May not be <code>null</code>.
+   * @param bOrdered
+   *        <code>true</code> to deliver the results in the order of the
+   *        inputs, <code>false</code> to deliver them as soon as they are
+   *        available.
+   * @param aResultHandler
+   *        The result handler. May not be <code>null</code>.
+   * @return {@link ESuccess#SUCCESS} if all validations finished without an
+   *         exception.
+   * @throws InterruptedException
+   *         If the calling thread was interrupted while waiting for results
+   * @throws IllegalStateException
+   *         If this validator was not created with a multi validator factory
+   */
+  @Nonnull
+  public ESuccess validateAll (@Nonnull final Iterable <? extends IHasInputStream> aXMLResources,
+                               final boolean bOrdered,
+                               @Nonnull final ISchematronMultiBatchResultHandler aResultHandler) throws InterruptedException
+  {
+    ValueEnforcer.notNull (aXMLResources, "XMLResources");
+    ValueEnforcer.notNull (aResultHandler, "ResultHandler");
+    if (m_aMultiValidatorFactory == null)
+      throw new IllegalStateException ("This validator validates against a single Schematron");
+
+    return _validateAll (aXMLResources,
+                         bOrdered,
+                         this::_validateMulti,
+                         x -> aResultHandler.onResult (x.m_nIndex,
+                                                       x.m_aXMLResource,
+                                                       x.m_aSVRLs,
+                                                       x.m_aError,
+                                                       x.m_nDurationNanos));
+  }
+
+  /**
+   * Deliver the passed result, or in ordered mode all results that are next in
+   * order.
+   *
+   * @return The number of delivered results.
+   */
+  private static int _deliver (@Nonnull final Result aResult,
+                               final boolean bOrdered,
+                               @Nonnull final ICommonsMap <Integer, Result> aPending,
+                               final int nNextIndex,
+                               @Nonnull final Consumer <Result> aResultHandler)
+  {
+    if (!bOrdered)
+    {
+      aResultHandler.accept (aResult);
+      return 1;
+    }
+
+    aPending.put (Integer.valueOf (aResult.m_nIndex), aResult);
+    int ret = 0;
+    Result aNext;
+    while ((aNext = aPending.remove (Integer.valueOf (nNextIndex + ret))) != null)
+    {
+      aResultHandler.accept (aNext);
+      ret++;
+    }
+    return ret;
+  }
+
+  /**
+   * Validate all XML resources of the passed stream with bounded concurrency.
+   * The stream is consumed lazily, so that only a limited number of inputs is
+   * held in memory.
+   *
+   * @param aXMLResources
+   *        The XML resources to validate. May not be <code>null</code>.
+   * @param bOrdered
+   *        <code>true</code> to deliver the results in the order of the
+   *        inputs, <code>false</code> to deliver them as soon as they are
+   *        available.
+   * @param aResultHandler
+   *        The result handler. May not be <code>null</code>.
+   * @return {@link ESuccess#SUCCESS} if all validations finished without an
+   *         exception.
+   * @throws InterruptedException
+   *         If the calling thread was interrupted while waiting for results
+   * @see #validateAll(Iterable, boolean, ISchematronBatchResultHandler)
+   */
+  @Nonnull
+  public ESuccess validateAll (@Nonnull final Stream <? extends IHasInputStream> aXMLResources,
+                               final boolean bOrdered,
+                               @Nonnull final ISchematronBatchResultHandler aResultHandler) throws InterruptedException
+  {
+    ValueEnforcer.notNull (aXMLResources, "XMLResources");
+    final Iterable <IHasInputStream> aIterable = () -> aXMLResources.<IHasInputStream> map (x -> x).iterator ();
+    return validateAll (aIterable, bOrdered, aResultHandler);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("singleSchematron", isSingleSchematron ())
+                                       .append ("maxConcurrent", m_nMaxConcurrent)
+                                       .getToString ();
+  }
+}
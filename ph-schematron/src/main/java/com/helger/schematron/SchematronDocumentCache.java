@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.w3c.dom.Document;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.concurrent.SimpleReadWriteLock;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.xml.EXMLParserFeature;
+import com.helger.xml.serialize.read.DOMReader;
+import com.helger.xml.serialize.read.DOMReaderSettings;
+
+/**
+ * A bounded cache for parsed XML documents to be validated, keyed by the
+ * digest of their binary content. If the same input is validated against
+ * multiple Schematrons (see {@link SchematronMultiValidator}), it is parsed
+ * only once. A DOM is not thread-safe even for reading (e.g. Xerces caches
+ * node lists internally), so the cached documents are never handed out.
+ * Instead each caller receives its own deep copy, which is much cheaper than
+ * parsing the content again. The least recently used document is evicted if
+ * the maximum size is exceeded.<br>
+ * All documents of a cache are parsed with the same DOM reader settings, that
+ * are defined in the constructor. The cache key is therefore only the digest
+ * of the content.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@ThreadSafe
+public class SchematronDocumentCache
+{
+  /** The default maximum number of cached documents */
+  public static final int DEFAULT_MAX_SIZE = 16;
+  /** The message digest algorithm to use */
+  public static final String DIGEST_ALGORITHM = "SHA-256";
+
+  private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
+  private final int m_nMaxSize;
+  private final DOMReaderSettings m_aSettings;
+  private final Map <String, Document> m_aMap;
+  private final AtomicInteger m_aHits = new AtomicInteger (0);
+  private final AtomicInteger m_aMisses = new AtomicInteger (0);
+
+  public SchematronDocumentCache ()
+  {
+    this (DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Constructor using the settings of {@link #createDOMReaderSettings()}.
+   *
+   * @param nMaxSize
+   *        The maximum number of documents to keep. Must be &gt; 0.
+   */
+  public SchematronDocumentCache (@Nonnegative final int nMaxSize)
+  {
+    this (nMaxSize, (DOMReaderSettings) null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nMaxSize
+   *        The maximum number of documents to keep. Must be &gt; 0.
+   * @param aSettings
+   *        The DOM reader settings to parse all documents of this cache with.
+   *        The settings are copied and deferred node expansion is always
+   *        disabled, because the documents are shared. May be
+   *        <code>null</code> to use {@link #createDOMReaderSettings()}.
+   */
+  public SchematronDocumentCache (@Nonnegative final int nMaxSize, @Nullable final DOMReaderSettings aSettings)
+  {
+    ValueEnforcer.isGT0 (nMaxSize, "MaxSize");
+    m_nMaxSize = nMaxSize;
+    if (aSettings == null)
+      m_aSettings = createDOMReaderSettings ();
+    else
+    {
+      m_aSettings = aSettings.getClone ();
+      m_aSettings.setFeatureValue (EXMLParserFeature.DOM_DEFER_NODE_EXPANSION, false);
+    }
+    // Access order for LRU
+    m_aMap = new LinkedHashMap <String, Document> (16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry (final Map.Entry <String, Document> aEldest)
+      {
+        return size () > m_nMaxSize;
+      }
+    };
+  }
+
+  /**
+   * @return The maximum number of cached documents. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * @return A copy of the DOM reader settings used to parse all documents of
+   *         this cache. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public final DOMReaderSettings getDOMReaderSettings ()
+  {
+    return m_aSettings.getClone ();
+  }
+
+  /**
+   * @return The number of currently cached documents. Always &ge; 0.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aRWLock.readLocked ( () -> m_aMap.size ());
+  }
+
+  /**
+   * @return The number of cache hits so far.
+   */
+  @Nonnegative
+  public int getHitCount ()
+  {
+    return m_aHits.get ();
+  }
+
+  /**
+   * @return The number of cache misses so far.
+   */
+  @Nonnegative
+  public int getMissCount ()
+  {
+    return m_aMisses.get ();
+  }
+
+  /**
+   * Create the cache key of the passed content.
+   *
+   * @param aContent
+   *        The binary content. May not be <code>null</code>.
+   * @return The hex encoded digest of the content. Neither <code>null</code>
+   *         nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public static String getDigest (@Nonnull final byte [] aContent)
+  {
+    ValueEnforcer.notNull (aContent, "Content");
+    try
+    {
+      return StringHelper.getHexEncoded (MessageDigest.getInstance (DIGEST_ALGORITHM).digest (aContent));
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException ("Message digest algorithm " + DIGEST_ALGORITHM + " is not supported", ex);
+    }
+  }
+
+  /**
+   * Create the DOM reader settings used to parse documents that are shared.
+   * Deferred node expansion is disabled, so that reading the document does
+   * not modify it.
+   *
+   * @return New settings. Never <code>null</code>.
+   */
+  @Nonnull
+  public static DOMReaderSettings createDOMReaderSettings ()
+  {
+    final DOMReaderSettings ret = new DOMReaderSettings ();
+    ret.setFeatureValue (EXMLParserFeature.DOM_DEFER_NODE_EXPANSION, false);
+    return ret;
+  }
+
+  /**
+   * Get a copy of the passed document. Must be called with the write lock
+   * held, because copying reads the cached document.
+   */
+  @Nonnull
+  private static Document _getCopy (@Nonnull final Document aDoc)
+  {
+    return (Document) aDoc.cloneNode (true);
+  }
+
+  /**
+   * Get a copy of the parsed document of the passed content from the cache or
+   * parse it. The returned document is owned by the caller and is not shared
+   * with other callers.
+   *
+   * @param aContent
+   *        The binary XML content. May not be <code>null</code>.
+   * @return <code>null</code> if the content could not be parsed.
+   * @throws Exception
+   *         In case parsing fails
+   */
+  @Nullable
+  public Document getOrParseDocument (@Nonnull final byte [] aContent) throws Exception
+  {
+    final String sDigest = getDigest (aContent);
+    final Document aCached = m_aRWLock.writeLocked ( () -> {
+      final Document aDoc = m_aMap.get (sDigest);
+      return aDoc == null ? null : _getCopy (aDoc);
+    });
+    if (aCached != null)
+    {
+      m_aHits.incrementAndGet ();
+      return aCached;
+    }
+
+    // Parse outside of the lock
+    m_aMisses.incrementAndGet ();
+    final Document ret = DOMReader.readXMLDOM (aContent, m_aSettings);
+    if (ret != null)
+    {
+      // Cache a copy, so that the returned document stays private. If another
+      // thread was faster, keep the existing document
+      final Document aCopy = _getCopy (ret);
+      m_aRWLock.writeLocked ( () -> {
+        if (!m_aMap.containsKey (sDigest))
+          m_aMap.put (sDigest, aCopy);
+      });
+    }
+    return ret;
+  }
+
+  /**
+   * Remove all cached documents.
+   */
+  public void clearCache ()
+  {
+    m_aRWLock.writeLocked ( () -> m_aMap.clear ());
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxSize", m_nMaxSize)
+                                       .append ("Hits", m_aHits.get ())
+                                       .append ("Misses", m_aMisses.get ())
+                                       .getToString ();
+  }
+}
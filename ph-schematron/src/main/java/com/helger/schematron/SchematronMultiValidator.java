@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.transform.stream.StreamSource;
+
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.IHasInputStream;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.xml.serialize.read.DOMReader;
+import com.helger.xml.transform.TransformSourceFactory;
+
+/**
+ * Validate a single XML document against multiple Schematrons. The input is
+ * read and parsed only once. Optionally parsed documents are kept in a
+ * {@link SchematronDocumentCache}, so that the same input is not parsed again
+ * at all, and the validations may be performed concurrently by an
+ * {@link ExecutorService}. A DOM is not thread-safe even for reading, so each
+ * concurrent validation uses its own deep copy of the parsed document.<br>
+ * Note: concurrent validation requires all passed Schematron resources to be
+ * usable concurrently (e.g. because they are already bound).
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@ThreadSafe
+public class SchematronMultiValidator
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (SchematronMultiValidator.class);
+
+  private final ICommonsList <ISchematronResource> m_aSchematrons;
+  private final SchematronDocumentCache m_aDocumentCache;
+  private final ExecutorService m_aExecutor;
+
+  /**
+   * Constructor for sequential validation without document cache.
+   *
+   * @param aSchematrons
+   *        The Schematrons to validate against in the provided order. May
+   *        neither be <code>null</code> nor empty.
+   */
+  public SchematronMultiValidator (@Nonnull @Nonempty final Iterable <? extends ISchematronResource> aSchematrons)
+  {
+    this (aSchematrons, null, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aSchematrons
+   *        The Schematrons to validate against in the provided order. May
+   *        neither be <code>null</code> nor empty.
+   * @param aDocumentCache
+   *        The optional document cache to use. May be <code>null</code>.
+   * @param aExecutor
+   *        The optional executor to run the validations concurrently. May be
+   *        <code>null</code> to validate sequentially in the calling thread.
+   */
+  public SchematronMultiValidator (@Nonnull @Nonempty final Iterable <? extends ISchematronResource> aSchematrons,
+                                   @Nullable final SchematronDocumentCache aDocumentCache,
+                                   @Nullable final ExecutorService aExecutor)
+  {
+    ValueEnforcer.notNull (aSchematrons, "Schematrons");
+    m_aSchematrons = new CommonsArrayList <> (aSchematrons);
+    ValueEnforcer.notEmptyNoNullValue (m_aSchematrons, "Schematrons");
+    m_aDocumentCache = aDocumentCache;
+    m_aExecutor = aExecutor;
+  }
+
+  /**
+   * @return A copy of all Schematrons to validate against. Never
+   *         <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  @ReturnsMutableCopy
+  public ICommonsList <ISchematronResource> getAllSchematrons ()
+  {
+    return m_aSchematrons.getClone ();
+  }
+
+  /**
+   * @return The document cache as provided in the constructor. May be
+   *         <code>null</code>.
+   */
+  @Nullable
+  public SchematronDocumentCache getDocumentCache ()
+  {
+    return m_aDocumentCache;
+  }
+
+  /**
+   * Read the passed XML resource. If a document cache is present, a copy of
+   * the cached document is returned if available.
+   *
+   * @param aXMLResource
+   *        The XML resource to read. May not be <code>null</code>.
+   * @return <code>null</code> if the resource does not exist.
+   * @throws Exception
+   *         if parsing fails
+   */
+  @Nullable
+  public Document readDocument (@Nonnull final IHasInputStream aXMLResource) throws Exception
+  {
+    ValueEnforcer.notNull (aXMLResource, "XMLResource");
+
+    final byte [] aContent = StreamHelper.getAllBytes (aXMLResource);
+    if (aContent == null)
+    {
+      s_aLogger.warn ("XML resource " + aXMLResource + " does not exist!");
+      return null;
+    }
+
+    final Document ret = m_aDocumentCache != null ? m_aDocumentCache.getOrParseDocument (aContent)
+                                                  : DOMReader.readXMLDOM (aContent,
+                                                                          SchematronDocumentCache.createDOMReaderSettings ());
+    if (ret == null)
+      throw new IllegalArgumentException ("Failed to read resource " + aXMLResource + " as XML");
+    return ret;
+  }
+
+  /**
+   * Validate the passed XML resource against all Schematrons.
+   *
+   * @param aXMLResource
+   *        The XML resource to validate. May not be <code>null</code>.
+   * @return <code>null</code> if the resource does not exist. Otherwise a list
+   *         with one SVRL per Schematron in the order of the Schematrons. An
+   *         element is <code>null</code> if the respective Schematron is
+   *         invalid.
+   * @throws Exception
+   *         if parsing or validation fails
+   */
+  @Nullable
+  @ReturnsMutableCopy
+  public ICommonsList <SchematronOutputType> applySchematronValidationToSVRL (@Nonnull final IHasInputStream aXMLResource) throws Exception
+  {
+    final Document aDoc = readDocument (aXMLResource);
+    if (aDoc == null)
+      return null;
+
+    // Same base URI determination as in AbstractSchematronResource
+    final StreamSource aStreamSrc = TransformSourceFactory.create (aXMLResource);
+    return applySchematronValidationToSVRL (aDoc, aStreamSrc.getSystemId ());
+  }
+
+  /**
+   * Validate the passed XML document against all Schematrons.
+   *
+   * @param aDoc
+   *        The XML document to validate. It is not modified. Sequential
+   *        validations share it, concurrent validations use copies of it. May
+   *        not be <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the XML document. May be <code>null</code>.
+   * @return A list with one SVRL per Schematron in the order of the
+   *         Schematrons. An element is <code>null</code> if the respective
+   *         Schematron is invalid.
+   * @throws Exception
+   *         if validation fails
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <SchematronOutputType> applySchematronValidationToSVRL (@Nonnull final Document aDoc,
+                                                                              @Nullable final String sBaseURI) throws Exception
+  {
+    ValueEnforcer.notNull (aDoc, "Doc");
+
+    final ICommonsList <SchematronOutputType> ret = new CommonsArrayList <> (m_aSchematrons.size ());
+    if (m_aExecutor == null)
+    {
+      for (final ISchematronResource aSchematron : m_aSchematrons)
+        ret.add (aSchematron.applySchematronValidationToSVRL (aDoc, sBaseURI));
+      return ret;
+    }
+
+    // Create all copies before the first validation starts reading the
+    // original document
+    final ICommonsList <Document> aDocs = new CommonsArrayList <> (m_aSchematrons.size ());
+    aDocs.add (aDoc);
+    for (int i = 1; i < m_aSchematrons.size (); ++i)
+      aDocs.add ((Document) aDoc.cloneNode (true));
+
+    final ICommonsList <Future <SchematronOutputType>> aFutures = new CommonsArrayList <> (m_aSchematrons.size ());
+    for (int i = 0; i < m_aSchematrons.size (); ++i)
+    {
+      final ISchematronResource aSchematron = m_aSchematrons.get (i);
+      final Document aOwnDoc = aDocs.get (i);
+      final Callable <SchematronOutputType> aTask = () -> aSchematron.applySchematronValidationToSVRL (aOwnDoc, sBaseURI);
+      aFutures.add (m_aExecutor.submit (aTask));
+    }
+    for (final Future <SchematronOutputType> aFuture : aFutures)
+    {
+      try
+      {
+        ret.add (aFuture.get ());
+      }
+      catch (final ExecutionException ex)
+      {
+        final Throwable aCause = ex.getCause ();
+        if (aCause instanceof Exception)
+          throw (Exception) aCause;
+        throw ex;
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Schematrons", m_aSchematrons)
+                                       .appendIfNotNull ("DocumentCache", m_aDocumentCache)
+                                       .appendIfNotNull ("Executor", m_aExecutor)
+                                       .getToString ();
+  }
+}
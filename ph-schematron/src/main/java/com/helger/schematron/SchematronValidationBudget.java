@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The limits for a single validation. A validation that exceeds one of the
+ * limits is stopped cooperatively and returns a partial result, that is
+ * marked as truncated. All limits are checked between the evaluations of rules
+ * and asserts/reports, so a single long running XPath expression is not
+ * interrupted.<br>
+ * Use {@link #createTracker()} to create the per-validation state.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class SchematronValidationBudget
+{
+  /** The value indicating that a limit is not used */
+  public static final long UNLIMITED = 0;
+
+  /** A budget without any limits */
+  public static final SchematronValidationBudget NO_LIMITS = new SchematronValidationBudget (UNLIMITED,
+                                                                                             UNLIMITED,
+                                                                                             UNLIMITED);
+
+  private final long m_nMaxDurationMillis;
+  private final long m_nMaxEvaluatedNodes;
+  private final long m_nMaxFindings;
+
+  /**
+   * Constructor
+   *
+   * @param nMaxDurationMillis
+   *        The maximum wall-clock duration of a validation in milliseconds.
+   *        Use {@link #UNLIMITED} for no limit.
+   * @param nMaxEvaluatedNodes
+   *        The maximum number of evaluated nodes. For the pure implementation
+   *        each evaluation of an assert/report on a rule matching node counts,
+   *        for the XSLT based implementations each fired rule counts. Use
+   *        {@link #UNLIMITED} for no limit.
+   * @param nMaxFindings
+   *        The maximum number of failed asserts and successful reports. Use
+   *        {@link #UNLIMITED} for no limit.
+   */
+  public SchematronValidationBudget (@Nonnegative final long nMaxDurationMillis,
+                                     @Nonnegative final long nMaxEvaluatedNodes,
+                                     @Nonnegative final long nMaxFindings)
+  {
+    ValueEnforcer.isGE0 (nMaxDurationMillis, "MaxDurationMillis");
+    ValueEnforcer.isGE0 (nMaxEvaluatedNodes, "MaxEvaluatedNodes");
+    ValueEnforcer.isGE0 (nMaxFindings, "MaxFindings");
+    m_nMaxDurationMillis = nMaxDurationMillis;
+    m_nMaxEvaluatedNodes = nMaxEvaluatedNodes;
+    m_nMaxFindings = nMaxFindings;
+  }
+
+  /**
+   * @return The maximum duration in milliseconds or {@link #UNLIMITED}.
+   */
+  @Nonnegative
+  public long getMaxDurationMillis ()
+  {
+    return m_nMaxDurationMillis;
+  }
+
+  /**
+   * @return The maximum number of evaluated nodes or {@link #UNLIMITED}.
+   */
+  @Nonnegative
+  public long getMaxEvaluatedNodes ()
+  {
+    return m_nMaxEvaluatedNodes;
+  }
+
+  /**
+   * @return The maximum number of findings or {@link #UNLIMITED}.
+   */
+  @Nonnegative
+  public long getMaxFindings ()
+  {
+    return m_nMaxFindings;
+  }
+
+  /**
+   * @return <code>true</code> if at least one limit is defined.
+   */
+  public boolean hasAnyLimit ()
+  {
+    return m_nMaxDurationMillis != UNLIMITED || m_nMaxEvaluatedNodes != UNLIMITED || m_nMaxFindings != UNLIMITED;
+  }
+
+  /**
+   * Create the tracker for a single validation. The duration is measured from
+   * the time of this call.
+   *
+   * @return A new tracker. Never <code>null</code>.
+   */
+  @Nonnull
+  public SchematronValidationBudgetTracker createTracker ()
+  {
+    return new SchematronValidationBudgetTracker (this);
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final SchematronValidationBudget rhs = (SchematronValidationBudget) o;
+    return m_nMaxDurationMillis == rhs.m_nMaxDurationMillis &&
+           m_nMaxEvaluatedNodes == rhs.m_nMaxEvaluatedNodes &&
+           m_nMaxFindings == rhs.m_nMaxFindings;
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_nMaxDurationMillis)
+                                       .append (m_nMaxEvaluatedNodes)
+                                       .append (m_nMaxFindings)
+                                       .getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("maxDurationMillis", m_nMaxDurationMillis)
+                                       .append ("maxEvaluatedNodes", m_nMaxEvaluatedNodes)
+                                       .append ("maxFindings", m_nMaxFindings)
+                                       .getToString ();
+  }
+}
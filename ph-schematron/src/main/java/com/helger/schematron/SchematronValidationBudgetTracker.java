@@ -0,0 +1,240 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.state.EContinue;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The state of a {@link SchematronValidationBudget} during a single
+ * validation. The validation engines call {@link #onNodeEvaluation()},
+ * {@link #onFinding()} and {@link #checkContinue()} between evaluations and
+ * stop as soon as {@link EContinue#BREAK} is returned.<br>
+ * The counting methods must only be called from the validating thread, but
+ * {@link #cancel()} may be called from any thread.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class SchematronValidationBudgetTracker
+{
+  /** The prefix of the SVRL text added to truncated results */
+  public static final String TRUNCATED_TEXT_PREFIX = "Validation truncated: ";
+
+  private final SchematronValidationBudget m_aBudget;
+  private final long m_nStartNanos;
+  private final long m_nDeadlineNanos;
+  private final AtomicReference <ESchematronBudgetLimit> m_aExceededLimit = new AtomicReference <> ();
+  private long m_nEvaluatedNodes = 0;
+  private long m_nFindings = 0;
+
+  public SchematronValidationBudgetTracker (@Nonnull final SchematronValidationBudget aBudget)
+  {
+    ValueEnforcer.notNull (aBudget, "Budget");
+    m_aBudget = aBudget;
+    m_nStartNanos = System.nanoTime ();
+    m_nDeadlineNanos = aBudget.getMaxDurationMillis () == SchematronValidationBudget.UNLIMITED ? 0
+                                                                                               : m_nStartNanos +
+                                                                                                 TimeUnit.MILLISECONDS.toNanos (aBudget.getMaxDurationMillis ());
+  }
+
+  /**
+   * @return The budget this tracker belongs to. Never <code>null</code>.
+   */
+  @Nonnull
+  public SchematronValidationBudget getBudget ()
+  {
+    return m_aBudget;
+  }
+
+  @Nonnull
+  private EContinue _exceed (@Nonnull final ESchematronBudgetLimit eLimit)
+  {
+    // Keep the first reason
+    m_aExceededLimit.compareAndSet (null, eLimit);
+    return EContinue.BREAK;
+  }
+
+  /**
+   * Stop the validation at the next check. This method may be called from any
+   * thread.
+   */
+  public void cancel ()
+  {
+    _exceed (ESchematronBudgetLimit.CANCELLED);
+  }
+
+  /**
+   * Check if the validation was cancelled or the maximum duration was
+   * exceeded.
+   *
+   * @return {@link EContinue#BREAK} to stop the validation.
+   */
+  @Nonnull
+  public EContinue checkContinue ()
+  {
+    if (m_aExceededLimit.get () != null)
+      return EContinue.BREAK;
+    if (m_nDeadlineNanos != 0 && System.nanoTime () - m_nDeadlineNanos > 0)
+      return _exceed (ESchematronBudgetLimit.DURATION);
+    return EContinue.CONTINUE;
+  }
+
+  /**
+   * Called before a node is evaluated.
+   *
+   * @return {@link EContinue#BREAK} to stop the validation without evaluating
+   *         the node.
+   */
+  @Nonnull
+  public EContinue onNodeEvaluation ()
+  {
+    if (checkContinue ().isBreak ())
+      return EContinue.BREAK;
+    final long nMax = m_aBudget.getMaxEvaluatedNodes ();
+    if (nMax != SchematronValidationBudget.UNLIMITED && m_nEvaluatedNodes >= nMax)
+      return _exceed (ESchematronBudgetLimit.EVALUATED_NODES);
+    m_nEvaluatedNodes++;
+    return EContinue.CONTINUE;
+  }
+
+  /**
+   * Called before a finding (failed assert or successful report) is added to
+   * the result.
+   *
+   * @return {@link EContinue#BREAK} to stop the validation without adding the
+   *         finding.
+   */
+  @Nonnull
+  public EContinue onFinding ()
+  {
+    final long nMax = m_aBudget.getMaxFindings ();
+    if (nMax != SchematronValidationBudget.UNLIMITED && m_nFindings >= nMax)
+      return _exceed (ESchematronBudgetLimit.FINDINGS);
+    m_nFindings++;
+    return EContinue.CONTINUE;
+  }
+
+  /**
+   * @return <code>true</code> if the validation was stopped because a limit was
+   *         exceeded or it was cancelled.
+   */
+  public boolean isExceeded ()
+  {
+    return m_aExceededLimit.get () != null;
+  }
+
+  /**
+   * @return The limit that stopped the validation or <code>null</code> if the
+   *         validation was not stopped.
+   */
+  @Nullable
+  public ESchematronBudgetLimit getExceededLimit ()
+  {
+    return m_aExceededLimit.get ();
+  }
+
+  /**
+   * @return The number of evaluated nodes so far.
+   */
+  @Nonnegative
+  public long getEvaluatedNodeCount ()
+  {
+    return m_nEvaluatedNodes;
+  }
+
+  /**
+   * @return The number of findings so far.
+   */
+  @Nonnegative
+  public long getFindingCount ()
+  {
+    return m_nFindings;
+  }
+
+  /**
+   * @return The milliseconds since this tracker was created.
+   */
+  @Nonnegative
+  public long getDurationMillis ()
+  {
+    return TimeUnit.NANOSECONDS.toMillis (System.nanoTime () - m_nStartNanos);
+  }
+
+  /**
+   * @return The SVRL text to mark a truncated result or <code>null</code> if
+   *         the validation was not stopped.
+   */
+  @Nullable
+  public String getTruncationText ()
+  {
+    final ESchematronBudgetLimit eLimit = m_aExceededLimit.get ();
+    return eLimit == null ? null : TRUNCATED_TEXT_PREFIX + eLimit.getID ();
+  }
+
+  /**
+   * Mark the passed SVRL as truncated, if the validation was stopped.
+   *
+   * @param aSVRL
+   *        The SVRL to modify. May not be <code>null</code>.
+   */
+  public void markTruncated (@Nonnull final SchematronOutputType aSVRL)
+  {
+    ValueEnforcer.notNull (aSVRL, "SVRL");
+    final String sText = getTruncationText ();
+    if (sText != null)
+      aSVRL.getText ().add (0, sText);
+  }
+
+  /**
+   * Check if the passed SVRL was marked as truncated.
+   *
+   * @param aSVRL
+   *        The SVRL to check. May be <code>null</code>.
+   * @return <code>true</code> if the SVRL contains a truncation text.
+   */
+  public static boolean isTruncated (@Nullable final SchematronOutputType aSVRL)
+  {
+    if (aSVRL != null)
+      for (final String sText : aSVRL.getText ())
+        if (sText != null && sText.startsWith (TRUNCATED_TEXT_PREFIX))
+          return true;
+    return false;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("budget", m_aBudget)
+                                       .appendIfNotNull ("exceededLimit", m_aExceededLimit.get ())
+                                       .append ("evaluatedNodes", m_nEvaluatedNodes)
+                                       .append ("findings", m_nFindings)
+                                       .getToString ();
+  }
+}
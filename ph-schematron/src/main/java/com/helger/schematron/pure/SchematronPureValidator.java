@@ -0,0 +1,358 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.transform.stream.StreamSource;
+
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.SAXException;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.io.IHasInputStream;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.state.EValidity;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.SchematronDebug;
+import com.helger.schematron.SchematronDocumentCache;
+import com.helger.schematron.pure.binding.xpath.PSXPath1QueryBinding;
+import com.helger.schematron.pure.bound.IPSBoundSchema;
+import com.helger.schematron.pure.model.PSSchema;
+import com.helger.schematron.pure.validation.SchematronValidationException;
+import com.helger.schematron.svrl.SVRLSharedMarshaller;
+import com.helger.xml.serialize.read.DOMReader;
+import com.helger.xml.serialize.read.DOMReaderSettings;
+import com.helger.xml.transform.TransformSourceFactory;
+
+/**
+ * An immutable validator based on a pure Schematron bound schema. In contrast
+ * to {@link SchematronResourcePure} all configuration happens in
+ * {@link SchematronPureValidatorBuilder} and the validity of the Schematron is
+ * checked only once, when the validator is built. Afterwards an instance can be
+ * shared and used to validate concurrently from an arbitrary number of threads,
+ * as each validation uses its own validation handler and the bound schema is
+ * not modified after binding.
+ * <p>
+ * Caveats:
+ * <ul>
+ * <li>The lightweight XPath 1.0 query binding (see
+ * {@link PSXPath1QueryBinding}) uses the XPath implementation of the JDK,
+ * whose compiled expressions are not thread-safe. Validations of schemas
+ * bound with it are therefore serialized per validator instance. The Saxon
+ * based default binding is evaluated concurrently.</li>
+ * <li>A DOM node that is shared between concurrent validations must not be
+ * modified while reading. Parse such documents with
+ * {@link SchematronDocumentCache#createDOMReaderSettings()}, that disables
+ * deferred node expansion. Documents read by this class from an
+ * {@link IHasInputStream} are never shared.</li>
+ * <li>Using the bound schema from {@link #getBoundSchema()} directly bypasses
+ * the serialization mentioned above.</li>
+ * </ul>
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@ThreadSafe
+public class SchematronPureValidator
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (SchematronPureValidator.class);
+
+  private final IReadableResource m_aResource;
+  private final IPSBoundSchema m_aBoundSchema;
+  private final EntityResolver m_aEntityResolver;
+  // Only present, if the bound schema may not be used concurrently
+  private final Lock m_aLock;
+
+  /**
+   * Constructor. Use {@link SchematronPureValidatorBuilder} to create
+   * instances.
+   *
+   * @param aResource
+   *        The Schematron resource. May not be <code>null</code>.
+   * @param aBoundSchema
+   *        The bound and valid schema. May not be <code>null</code>.
+   * @param aEntityResolver
+   *        The entity resolver to be used when reading XML documents to be
+   *        validated. May be <code>null</code>.
+   */
+  protected SchematronPureValidator (@Nonnull final IReadableResource aResource,
+                                     @Nonnull final IPSBoundSchema aBoundSchema,
+                                     @Nullable final EntityResolver aEntityResolver)
+  {
+    ValueEnforcer.notNull (aResource, "Resource");
+    ValueEnforcer.notNull (aBoundSchema, "BoundSchema");
+    m_aResource = aResource;
+    m_aBoundSchema = aBoundSchema;
+    m_aEntityResolver = aEntityResolver;
+    m_aLock = isConcurrentValidationSupported (aBoundSchema) ? null : new ReentrantLock ();
+  }
+
+  /**
+   * Check if the passed bound schema can be used to validate from multiple
+   * threads concurrently.
+   *
+   * @param aBoundSchema
+   *        The bound schema to check. May not be <code>null</code>.
+   * @return <code>false</code> if the bound schema uses the JDK XPath
+   *         implementation, whose compiled expressions are not thread-safe.
+   */
+  public static boolean isConcurrentValidationSupported (@Nonnull final IPSBoundSchema aBoundSchema)
+  {
+    return !(aBoundSchema.getQueryBinding () instanceof PSXPath1QueryBinding);
+  }
+
+  /**
+   * @return The Schematron resource this validator was built from. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public final IReadableResource getResource ()
+  {
+    return m_aResource;
+  }
+
+  /**
+   * @return The bound schema used for validation. Never <code>null</code>.
+   */
+  @Nonnull
+  public final IPSBoundSchema getBoundSchema ()
+  {
+    return m_aBoundSchema;
+  }
+
+  /**
+   * @return The entity resolver used to read XML documents. May be
+   *         <code>null</code>.
+   */
+  @Nullable
+  public final EntityResolver getEntityResolver ()
+  {
+    return m_aEntityResolver;
+  }
+
+  /**
+   * Check if the passed node is valid. This is the quick check, that stops at
+   * the first failed assertion or successful report.
+   *
+   * @param aXMLNode
+   *        The node to be validated. May not be <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the XML document. May be <code>null</code>.
+   * @return {@link EValidity#VALID} if the document is valid,
+   *         {@link EValidity#INVALID} if it is invalid.
+   * @throws SchematronValidationException
+   *         In case of a validation error
+   */
+  @Nonnull
+  public EValidity getSchematronValidity (@Nonnull final Node aXMLNode,
+                                          @Nullable final String sBaseURI) throws SchematronValidationException
+  {
+    return getSchematronValidity (aXMLNode, sBaseURI, (Map <String, ?>) null);
+  }
+
+  /**
+   * Check if the passed node is valid using the provided external parameters.
+   *
+   * @param aXMLNode
+   *        The node to be validated. May not be <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the XML document. May be <code>null</code>.
+   * @param aParameters
+   *        The external parameters for this validation. May be
+   *        <code>null</code>.
+   * @return {@link EValidity#VALID} if the document is valid,
+   *         {@link EValidity#INVALID} if it is invalid.
+   * @throws SchematronValidationException
+   *         In case of a validation error
+   */
+  @Nonnull
+  public EValidity getSchematronValidity (@Nonnull final Node aXMLNode,
+                                          @Nullable final String sBaseURI,
+                                          @Nullable final Map <String, ?> aParameters) throws SchematronValidationException
+  {
+    ValueEnforcer.notNull (aXMLNode, "XMLNode");
+    if (m_aLock != null)
+      m_aLock.lock ();
+    try
+    {
+      return m_aBoundSchema.validatePartially (aXMLNode, sBaseURI, aParameters);
+    }
+    finally
+    {
+      if (m_aLock != null)
+        m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * Validate the passed node and create the SVRL.
+   *
+   * @param aXMLNode
+   *        The node to be validated. May not be <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the XML document. May be <code>null</code>.
+   * @return The SVRL. Never <code>null</code>.
+   * @throws SchematronValidationException
+   *         In case of a validation error
+   */
+  @Nonnull
+  public SchematronOutputType applySchematronValidationToSVRL (@Nonnull final Node aXMLNode,
+                                                               @Nullable final String sBaseURI) throws SchematronValidationException
+  {
+    return applySchematronValidationToSVRL (aXMLNode, sBaseURI, (Map <String, ?>) null);
+  }
+
+  /**
+   * Validate the passed node with the provided external parameters and create
+   * the SVRL.
+   *
+   * @param aXMLNode
+   *        The node to be validated. May not be <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the XML document. May be <code>null</code>.
+   * @param aParameters
+   *        The external parameters for this validation. May be
+   *        <code>null</code>.
+   * @return The SVRL. Never <code>null</code>.
+   * @throws SchematronValidationException
+   *         In case of a validation error
+   */
+  @Nonnull
+  public SchematronOutputType applySchematronValidationToSVRL (@Nonnull final Node aXMLNode,
+                                                               @Nullable final String sBaseURI,
+                                                               @Nullable final Map <String, ?> aParameters) throws SchematronValidationException
+  {
+    ValueEnforcer.notNull (aXMLNode, "XMLNode");
+
+    final SchematronOutputType aSOT;
+    if (m_aLock != null)
+      m_aLock.lock ();
+    try
+    {
+      aSOT = m_aBoundSchema.validateComplete (aXMLNode, sBaseURI, aParameters);
+    }
+    finally
+    {
+      if (m_aLock != null)
+        m_aLock.unlock ();
+    }
+
+    // Debug print the created SVRL document
+    if (SchematronDebug.isShowCreatedSVRL ())
+      s_aLogger.info ("Created SVRL:\n" + SVRLSharedMarshaller.getInstance ().getAsString (aSOT, false));
+
+    return aSOT;
+  }
+
+  /**
+   * Read the passed XML resource, validate it and create the SVRL.
+   *
+   * @param aXMLResource
+   *        The XML resource to be read and validated. May not be
+   *        <code>null</code>.
+   * @param aParameters
+   *        The external parameters for this validation. May be
+   *        <code>null</code>.
+   * @return The SVRL or <code>null</code> if the XML resource does not exist.
+   * @throws SAXException
+   *         In case the XML cannot be parsed
+   * @throws SchematronValidationException
+   *         In case of a validation error
+   */
+  @Nullable
+  public SchematronOutputType applySchematronValidationToSVRL (@Nonnull final IHasInputStream aXMLResource,
+                                                               @Nullable final Map <String, ?> aParameters) throws SAXException,
+                                                                                                                  SchematronValidationException
+  {
+    ValueEnforcer.notNull (aXMLResource, "XMLResource");
+
+    final StreamSource aStreamSrc = TransformSourceFactory.create (aXMLResource);
+    InputStream aIS = null;
+    try
+    {
+      aIS = aStreamSrc.getInputStream ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // Fall through
+      // Happens e.g. for ResourceStreamSource with non-existing resources
+    }
+    if (aIS == null)
+    {
+      // Resource not found
+      s_aLogger.warn ("XML resource " + aXMLResource + " does not exist!");
+      return null;
+    }
+
+    final DOMReaderSettings aDRS = new DOMReaderSettings ();
+    if (m_aEntityResolver != null)
+      aDRS.setEntityResolver (m_aEntityResolver);
+    final Document aDoc = DOMReader.readXMLDOM (aIS, aDRS);
+    if (aDoc == null)
+      throw new IllegalArgumentException ("Failed to read resource " + aXMLResource + " as XML");
+
+    return applySchematronValidationToSVRL (aDoc, aStreamSrc.getSystemId (), aParameters);
+  }
+
+  /**
+   * Create a new builder for the passed Schematron resource.
+   *
+   * @param aResource
+   *        The Schematron resource. May not be <code>null</code>.
+   * @return The new builder. Never <code>null</code>.
+   */
+  @Nonnull
+  public static SchematronPureValidatorBuilder builder (@Nonnull final IReadableResource aResource)
+  {
+    return new SchematronPureValidatorBuilder (aResource);
+  }
+
+  /**
+   * Create a new builder for the passed in-memory Schematron.
+   *
+   * @param aSchema
+   *        The Schematron domain object. May not be <code>null</code>.
+   * @return The new builder. Never <code>null</code>.
+   */
+  @Nonnull
+  public static SchematronPureValidatorBuilder builder (@Nonnull final PSSchema aSchema)
+  {
+    return new SchematronPureValidatorBuilder (aSchema);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("resource", m_aResource)
+                                       .append ("boundSchema", m_aBoundSchema)
+                                       .appendIfNotNull ("entityResolver", m_aEntityResolver)
+                                       .append ("serialized", m_aLock != null)
+                                       .getToString ();
+  }
+}
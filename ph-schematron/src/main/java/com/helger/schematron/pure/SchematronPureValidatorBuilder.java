@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.xml.xpath.XPathFunctionResolver;
+import javax.xml.xpath.XPathVariableResolver;
+
+import org.xml.sax.EntityResolver;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.SchematronException;
+import com.helger.schematron.pure.binding.PSBindingSettings;
+import com.helger.schematron.pure.bound.IPSBoundSchema;
+import com.helger.schematron.pure.errorhandler.CollectingPSErrorHandler;
+import com.helger.schematron.pure.errorhandler.IPSErrorHandler;
+import com.helger.schematron.pure.model.PSSchema;
+
+/**
+ * Builder for {@link SchematronPureValidator} objects. The builder itself is
+ * not thread-safe, but the created validator is. Bound schemas are shared via
+ * {@link com.helger.schematron.pure.bound.PSBoundSchemaCache} unless the cache
+ * is disabled.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class SchematronPureValidatorBuilder
+{
+  private final IResourceFactory m_aSource;
+  private String m_sPhase;
+  private IPSErrorHandler m_aErrorHandler;
+  private XPathVariableResolver m_aVariableResolver;
+  private XPathFunctionResolver m_aFunctionResolver;
+  private EntityResolver m_aEntityResolver;
+  private boolean m_bUseCache = true;
+  private PSBindingSettings m_aBindingSettings = PSBindingSettings.DEFAULT;
+
+  /**
+   * Internal helper to create the Schematron resource from either a resource or
+   * a domain object.
+   */
+  @FunctionalInterface
+  private interface IResourceFactory
+  {
+    @Nonnull
+    SchematronResourcePure createResource (@Nullable String sPhase, @Nullable IPSErrorHandler aErrorHandler);
+  }
+
+  public SchematronPureValidatorBuilder (@Nonnull final IReadableResource aResource)
+  {
+    ValueEnforcer.notNull (aResource, "Resource");
+    m_aSource = (sPhase, aErrorHandler) -> new SchematronResourcePure (aResource, sPhase, aErrorHandler);
+  }
+
+  public SchematronPureValidatorBuilder (@Nonnull final PSSchema aSchema)
+  {
+    ValueEnforcer.notNull (aSchema, "Schema");
+    m_aSource = (sPhase, aErrorHandler) -> new SchematronResourcePureModel (aSchema, sPhase, aErrorHandler);
+  }
+
+  /**
+   * @param sPhase
+   *        The phase to use. May be <code>null</code> to use the default phase.
+   * @return this for chaining
+   */
+  @Nonnull
+  public SchematronPureValidatorBuilder setPhase (@Nullable final String sPhase)
+  {
+    m_sPhase = sPhase;
+    return this;
+  }
+
+  /**
+   * @param aErrorHandler
+   *        The error handler to use while reading, binding and checking the
+   *        Schematron. May be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public SchematronPureValidatorBuilder setErrorHandler (@Nullable final IPSErrorHandler aErrorHandler)
+  {
+    m_aErrorHandler = aErrorHandler;
+    return this;
+  }
+
+  /**
+   * @param aVariableResolver
+   *        The XPath variable resolver to use. It must be thread-safe. May be
+   *        <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public SchematronPureValidatorBuilder setVariableResolver (@Nullable final XPathVariableResolver aVariableResolver)
+  {
+    m_aVariableResolver = aVariableResolver;
+    return this;
+  }
+
+  /**
+   * @param aFunctionResolver
+   *        The XPath function resolver to use. It and the returned functions
+   *        must be thread-safe. May be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public SchematronPureValidatorBuilder setFunctionResolver (@Nullable final XPathFunctionResolver aFunctionResolver)
+  {
+    m_aFunctionResolver = aFunctionResolver;
+    return this;
+  }
+
+  /**
+   * @param aEntityResolver
+   *        The entity resolver to use when reading the Schematron and the XML
+   *        documents to be validated. May be <code>null</code> to use the
+   *        default.
+   * @return this for chaining
+   */
+  @Nonnull
+  public SchematronPureValidatorBuilder setEntityResolver (@Nullable final EntityResolver aEntityResolver)
+  {
+    m_aEntityResolver = aEntityResolver;
+    return this;
+  }
+
+  /**
+   * @param bUseCache
+   *        <code>true</code> to share the bound schema via the cache,
+   *        <code>false</code> to create a new one. Default is
+   *        <code>true</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public SchematronPureValidatorBuilder setUseCache (final boolean bUseCache)
+  {
+    m_bUseCache = bUseCache;
+    return this;
+  }
+
+  /**
+   * @param aBindingSettings
+   *        The binding settings to use. May not be <code>null</code>. Default
+   *        is {@link PSBindingSettings#DEFAULT}.
+   * @return this for chaining
+   */
+  @Nonnull
+  public SchematronPureValidatorBuilder setBindingSettings (@Nonnull final PSBindingSettings aBindingSettings)
+  {
+    ValueEnforcer.notNull (aBindingSettings, "BindingSettings");
+    m_aBindingSettings = aBindingSettings;
+    return this;
+  }
+
+  /**
+   * Bind the Schematron and check its validity. This is the only place where
+   * the Schematron model is checked.
+   *
+   * @return The new validator. Never <code>null</code>.
+   * @throws SchematronException
+   *         If the Schematron cannot be bound or is invalid.
+   */
+  @Nonnull
+  public SchematronPureValidator build () throws SchematronException
+  {
+    final SchematronResourcePure aRes = m_aSource.createResource (m_sPhase, m_aErrorHandler);
+    aRes.setVariableResolver (m_aVariableResolver);
+    aRes.setFunctionResolver (m_aFunctionResolver);
+    if (m_aEntityResolver != null)
+      aRes.setEntityResolver (m_aEntityResolver);
+    aRes.setUseCache (m_bUseCache);
+    aRes.setBindingSettings (m_aBindingSettings);
+
+    final IPSBoundSchema aBoundSchema;
+    try
+    {
+      aBoundSchema = aRes.getOrCreateBoundSchema ();
+    }
+    catch (final RuntimeException ex)
+    {
+      throw new SchematronException ("Failed to bind Schematron " + aRes.getResource (), ex);
+    }
+
+    // Check validity once
+    final CollectingPSErrorHandler aErrorHandler = new CollectingPSErrorHandler (m_aErrorHandler);
+    if (!aBoundSchema.getOriginalSchema ().isValid (aErrorHandler))
+      throw new SchematronException ("The Schematron " +
+                                     aRes.getResource () +
+                                     " is invalid: " +
+                                     aErrorHandler.getAllErrors ());
+
+    return new SchematronPureValidator (aRes.getResource (), aBoundSchema, aRes.getEntityResolver ());
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).appendIfNotNull ("phase", m_sPhase)
+                                       .appendIfNotNull ("errorHandler", m_aErrorHandler)
+                                       .appendIfNotNull ("variableResolver", m_aVariableResolver)
+                                       .appendIfNotNull ("functionResolver", m_aFunctionResolver)
+                                       .appendIfNotNull ("entityResolver", m_aEntityResolver)
+                                       .append ("useCache", m_bUseCache)
+                                       .append ("bindingSettings", m_aBindingSettings)
+                                       .getToString ();
+  }
+}
@@ -18,13 +18,16 @@ package com.helger.schematron.pure;
 
 import java.io.File;
 import java.io.InputStream;
+import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
+import javax.xml.transform.URIResolver;
 import javax.xml.xpath.XPathFunctionResolver;
 import javax.xml.xpath.XPathVariableResolver;
 
@@ -44,19 +47,21 @@ import com.helger.commons.io.resource.URLResource;
 import com.helger.commons.io.resource.inmemory.AbstractMemoryReadableResource;
 import com.helger.commons.io.resource.inmemory.ReadableResourceByteArray;
 import com.helger.commons.io.resource.inmemory.ReadableResourceInputStream;
+import com.helger.commons.state.ESuccess;
 import com.helger.commons.state.EValidity;
 import com.helger.schematron.AbstractSchematronResource;
 import com.helger.schematron.SchematronDebug;
 import com.helger.schematron.SchematronException;
+import com.helger.schematron.SchematronValidationBudgetTracker;
+import com.helger.schematron.pure.binding.PSBindingSettings;
 import com.helger.schematron.pure.bound.IPSBoundSchema;
 import com.helger.schematron.pure.bound.PSBoundSchemaCache;
 import com.helger.schematron.pure.bound.PSBoundSchemaCacheKey;
 import com.helger.schematron.pure.errorhandler.DoNothingPSErrorHandler;
 import com.helger.schematron.pure.errorhandler.IPSErrorHandler;
-import com.helger.schematron.pure.exchange.PSWriter;
 import com.helger.schematron.pure.model.PSSchema;
-import com.helger.schematron.svrl.SVRLMarshaller;
-import com.helger.xml.serialize.write.XMLWriterSettings;
+import com.helger.schematron.svrl.SVRLJsonWriter;
+import com.helger.schematron.svrl.SVRLSharedMarshaller;
 
 /**
  * A Schematron resource that is not XSLT based but using the pure (native Java)
@@ -80,6 +85,7 @@ public class SchematronResourcePure extends AbstractSchematronResource
   private IPSErrorHandler m_aErrorHandler;
   private XPathVariableResolver m_aVariableResolver;
   private XPathFunctionResolver m_aFunctionResolver;
+  private PSBindingSettings m_aBindingSettings = PSBindingSettings.DEFAULT;
   // Status var
   private IPSBoundSchema m_aBoundSchema;
 
@@ -204,6 +210,124 @@ public class SchematronResourcePure extends AbstractSchematronResource
     return this;
   }
 
+  /**
+   * @return The binding settings to be used. Never <code>null</code>.
+   * @since 5.0.5
+   */
+  @Nonnull
+  public PSBindingSettings getBindingSettings ()
+  {
+    return m_aBindingSettings;
+  }
+
+  /**
+   * Set the binding settings to be used. The settings are part of the cache
+   * key, so schemas bound with different settings are cached separately. This
+   * can only be set before the Schematron is bound. If it is already bound an
+   * exception is thrown to indicate the unnecessity of the call.
+   *
+   * @param aBindingSettings
+   *        The binding settings to use. May not be <code>null</code>.
+   * @return this
+   * @since 5.0.5
+   */
+  @Nonnull
+  public SchematronResourcePure setBindingSettings (@Nonnull final PSBindingSettings aBindingSettings)
+  {
+    ValueEnforcer.notNull (aBindingSettings, "BindingSettings");
+    if (m_aBoundSchema != null)
+      throw new IllegalStateException ("Schematron was already bound and can therefore not be altered!");
+    m_aBindingSettings = aBindingSettings;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if the fused rule evaluation is enabled.
+   * @see PSBindingSettings#isFusedRuleEvaluation()
+   * @since 5.0.5
+   */
+  public boolean isFusedRuleEvaluation ()
+  {
+    return m_aBindingSettings.isFusedRuleEvaluation ();
+  }
+
+  /**
+   * Enable or disable the fused rule evaluation, that evaluates all tests of a
+   * rule with a single XPath call per matching node (see
+   * {@link PSBindingSettings#isFusedRuleEvaluation()}). This changes the order
+   * of the SVRL elements from assert-major to node-major. This can only be set
+   * before the Schematron is bound.
+   *
+   * @param bFusedRuleEvaluation
+   *        <code>true</code> to enable, <code>false</code> to disable.
+   * @return this
+   * @since 5.0.5
+   */
+  @Nonnull
+  public SchematronResourcePure setFusedRuleEvaluation (final boolean bFusedRuleEvaluation)
+  {
+    return setBindingSettings (m_aBindingSettings.getWithFusedRuleEvaluation (bFusedRuleEvaluation));
+  }
+
+  /**
+   * @return <code>true</code> if the compiled test evaluation is enabled.
+   * @see PSBindingSettings#isCompiledTestEvaluation()
+   * @since 5.0.5
+   */
+  public boolean isCompiledTestEvaluation ()
+  {
+    return m_aBindingSettings.isCompiledTestEvaluation ();
+  }
+
+  /**
+   * Enable or disable the compiled test evaluation, that evaluates tests of a
+   * supported XPath subset directly on the DOM (see
+   * {@link PSBindingSettings#isCompiledTestEvaluation()}). This can only be
+   * set before the Schematron is bound.
+   *
+   * @param bCompiledTestEvaluation
+   *        <code>true</code> to enable, <code>false</code> to disable.
+   * @return this
+   * @since 5.0.5
+   */
+  @Nonnull
+  public SchematronResourcePure setCompiledTestEvaluation (final boolean bCompiledTestEvaluation)
+  {
+    return setBindingSettings (m_aBindingSettings.getWithCompiledTestEvaluation (bCompiledTestEvaluation));
+  }
+
+  /**
+   * @return The URI resolver to resolve documents loaded via
+   *         <code>doc()</code> or <code>document()</code>. May be
+   *         <code>null</code>.
+   * @see PSBindingSettings#getURIResolver()
+   * @since 5.0.5
+   */
+  @Nullable
+  public URIResolver getURIResolver ()
+  {
+    return m_aBindingSettings.getURIResolver ();
+  }
+
+  /**
+   * Set the URI resolver to resolve documents loaded via <code>doc()</code> or
+   * <code>document()</code>, e.g. a
+   * {@link com.helger.schematron.resolve.CachingTransformURIResolver}. This is
+   * only supported if Saxon is used as the XPath implementation. This can only
+   * be set before the Schematron is bound.
+   *
+   * @param aURIResolver
+   *        The URI resolver to use. May be <code>null</code> to use the default
+   *        resolution of the XPath implementation.
+   * @return this
+   * @since 5.0.5
+   */
+  @Nonnull
+  public SchematronResourcePure setURIResolver (@Nullable final URIResolver aURIResolver)
+  {
+    return setBindingSettings (m_aBindingSettings.getWithURIResolver (aURIResolver));
+  }
+
   /**
    * Set the XML entity resolver to be used when reading the Schematron or the
    * XML to be validated. This can only be set before the Schematron is bound.
@@ -234,7 +358,8 @@ public class SchematronResourcePure extends AbstractSchematronResource
                                                                        aErrorHandler,
                                                                        getVariableResolver (),
                                                                        getFunctionResolver (),
-                                                                       getEntityResolver ());
+                                                                       getEntityResolver (),
+                                                                       getBindingSettings ());
     if (aResource instanceof AbstractMemoryReadableResource || !isUseCache ())
     {
       // No need to cache anything for memory resources
@@ -327,13 +452,21 @@ public class SchematronResourcePure extends AbstractSchematronResource
   @Nonnull
   public EValidity getSchematronValidity (@Nonnull final Node aXMLNode,
                                           @Nullable final String sBaseURI) throws Exception
+  {
+    return getSchematronValidity (aXMLNode, sBaseURI, (Map <String, ?>) null);
+  }
+
+  @Nonnull
+  public EValidity getSchematronValidity (@Nonnull final Node aXMLNode,
+                                          @Nullable final String sBaseURI,
+                                          @Nullable final Map <String, ?> aParameters) throws Exception
   {
     ValueEnforcer.notNull (aXMLNode, "XMLNode");
 
     if (!isValidSchematron ())
       return EValidity.INVALID;
 
-    return getOrCreateBoundSchema ().validatePartially (aXMLNode, sBaseURI);
+    return getOrCreateBoundSchema ().validatePartially (aXMLNode, sBaseURI, aParameters);
   }
 
   /**
@@ -351,18 +484,122 @@ public class SchematronResourcePure extends AbstractSchematronResource
   @Nonnull
   public SchematronOutputType applySchematronValidationToSVRL (@Nonnull final Node aXMLNode,
                                                                @Nullable final String sBaseURI) throws SchematronException
+  {
+    return applySchematronValidationToSVRL (aXMLNode, sBaseURI, (Map <String, ?>) null);
+  }
+
+  /**
+   * The main method to convert a node to an SVRL document, using the provided
+   * external parameters. The parameters must be declared in the Schematron via
+   * top-level <code>xsl:param</code> elements. The bound schema is shared
+   * independent of the parameter values.
+   *
+   * @param aXMLNode
+   *        The source node to be validated. May not be <code>null</code>.
+   * @param sBaseURI
+   *        Base URI of the XML document to be validated. May be
+   *        <code>null</code>.
+   * @param aParameters
+   *        The external parameters to be used for this validation. May be
+   *        <code>null</code>.
+   * @return The SVRL document. Never <code>null</code>.
+   * @throws SchematronException
+   *         in case of a sever error validating the schema
+   * @since 5.0.5
+   */
+  @Nonnull
+  public SchematronOutputType applySchematronValidationToSVRL (@Nonnull final Node aXMLNode,
+                                                               @Nullable final String sBaseURI,
+                                                               @Nullable final Map <String, ?> aParameters) throws SchematronException
+  {
+    ValueEnforcer.notNull (aXMLNode, "XMLNode");
+
+    final SchematronOutputType aSOT = getOrCreateBoundSchema ().validateComplete (aXMLNode, sBaseURI, aParameters);
+
+    // Debug print the created SVRL document
+    if (SchematronDebug.isShowCreatedSVRL ())
+      s_aLogger.info ("Created SVRL:\n" + SVRLSharedMarshaller.getInstance ().getAsString (aSOT, false));
+
+    return aSOT;
+  }
+
+  /**
+   * Convert a node to an SVRL document, stopping as soon as the budget of the
+   * passed tracker is exceeded. A partial result is marked as truncated (see
+   * {@link SchematronValidationBudgetTracker#isTruncated(SchematronOutputType)}).
+   *
+   * @param aXMLNode
+   *        The source node to be validated. May not be <code>null</code>.
+   * @param sBaseURI
+   *        Base URI of the XML document to be validated. May be
+   *        <code>null</code>.
+   * @param aParameters
+   *        The external parameters to be used for this validation. May be
+   *        <code>null</code>.
+   * @param aTracker
+   *        The budget tracker for this validation. May not be
+   *        <code>null</code>.
+   * @return The (maybe truncated) SVRL document. Never <code>null</code>.
+   * @throws SchematronException
+   *         in case of a sever error validating the schema
+   * @since 5.0.5
+   */
+  @Nonnull
+  public SchematronOutputType applySchematronValidationToSVRL (@Nonnull final Node aXMLNode,
+                                                               @Nullable final String sBaseURI,
+                                                               @Nullable final Map <String, ?> aParameters,
+                                                               @Nonnull final SchematronValidationBudgetTracker aTracker) throws SchematronException
   {
     ValueEnforcer.notNull (aXMLNode, "XMLNode");
+    ValueEnforcer.notNull (aTracker, "Tracker");
 
-    final SchematronOutputType aSOT = getOrCreateBoundSchema ().validateComplete (aXMLNode, sBaseURI);
+    final SchematronOutputType aSOT = getOrCreateBoundSchema ().validateComplete (aXMLNode,
+                                                                                  sBaseURI,
+                                                                                  aParameters,
+                                                                                  aTracker);
 
     // Debug print the created SVRL document
     if (SchematronDebug.isShowCreatedSVRL ())
-      s_aLogger.info ("Created SVRL:\n" + new SVRLMarshaller (false).getAsString (aSOT));
+      s_aLogger.info ("Created SVRL:\n" + SVRLSharedMarshaller.getInstance ().getAsString (aSOT, false));
 
     return aSOT;
   }
 
+  /**
+   * Validate the passed node and stream the results as compact JSON to the
+   * passed writer. No SVRL object is created.
+   *
+   * @param aXMLNode
+   *        The source node to be validated. May not be <code>null</code>.
+   * @param sBaseURI
+   *        Base URI of the XML document to be validated. May be
+   *        <code>null</code>.
+   * @param aParameters
+   *        The external parameters to be used for this validation. May be
+   *        <code>null</code>.
+   * @param aWriter
+   *        The writer to write the JSON to. May not be <code>null</code>. It
+   *        is flushed but not closed.
+   * @return Always {@link ESuccess#SUCCESS}.
+   * @throws SchematronException
+   *         in case of a sever error validating the schema or if writing
+   *         fails
+   * @since 5.0.5
+   */
+  @Override
+  @Nonnull
+  public ESuccess applySchematronValidationToJson (@Nonnull final Node aXMLNode,
+                                                   @Nullable final String sBaseURI,
+                                                   @Nullable final Map <String, ?> aParameters,
+                                                   @Nonnull final Writer aWriter) throws SchematronException
+  {
+    ValueEnforcer.notNull (aXMLNode, "XMLNode");
+    ValueEnforcer.notNull (aWriter, "Writer");
+
+    getOrCreateBoundSchema ().validateToJson (aXMLNode, sBaseURI, aParameters, new SVRLJsonWriter (aWriter));
+    return ESuccess.SUCCESS;
+  }
+
   @Nullable
   public Document applySchematronValidation (@Nonnull final Node aXMLNode,
                                              @Nullable final String sBaseURI) throws Exception
@@ -370,7 +607,7 @@ public class SchematronResourcePure extends AbstractSchematronResource
     ValueEnforcer.notNull (aXMLNode, "XMLNode");
 
     final SchematronOutputType aSO = applySchematronValidationToSVRL (aXMLNode, sBaseURI);
-    return aSO == null ? null : new SVRLMarshaller ().getAsDocument (aSO);
+    return aSO == null ? null : SVRLSharedMarshaller.getInstance ().getAsDocument (aSO, false);
   }
 
   /**
@@ -498,16 +735,18 @@ public class SchematronResourcePure extends AbstractSchematronResource
 
   /**
    * Create a new {@link SchematronResourcePure} from Schematron rules provided
-   * by a domain model.<br>
+   * by a domain model. A copy of the model is bound directly without
+   * serializing it to XML.<br>
    * <b>Important:</b> in this case, no include resolution will be performed!!
    *
    * @param aSchematron
    *        The Schematron model to be used. May not be <code>null</code> .
    * @return Never <code>null</code>.
+   * @see SchematronResourcePureModel
    */
   @Nonnull
   public static SchematronResourcePure fromSchema (@Nonnull final PSSchema aSchematron)
   {
-    return fromString (new PSWriter ().getXMLString (aSchematron), XMLWriterSettings.DEFAULT_XML_CHARSET_OBJ);
+    return new SchematronResourcePureModel (aSchematron);
   }
 }
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.io.resource.inmemory.ReadableResourceByteArray;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.SchematronException;
+import com.helger.schematron.pure.bound.IPSBoundSchema;
+import com.helger.schematron.pure.bound.PSBoundSchemaCache;
+import com.helger.schematron.pure.bound.PSBoundSchemaModelCacheKey;
+import com.helger.schematron.pure.errorhandler.IPSErrorHandler;
+import com.helger.schematron.pure.exchange.PSReader;
+import com.helger.schematron.pure.exchange.PSSourceDigest;
+import com.helger.schematron.pure.exchange.SchematronReadException;
+import com.helger.schematron.pure.model.PSSchema;
+
+/**
+ * A pure Schematron resource that is based on an in-memory {@link PSSchema}
+ * domain object. The model is bound directly via
+ * {@link com.helger.schematron.pure.binding.IPSQueryBinding#bind(PSSchema, String, IPSErrorHandler, javax.xml.xpath.XPathVariableResolver, javax.xml.xpath.XPathFunctionResolver)}
+ * without serializing it to XML and reading it again. The passed schema is
+ * copied in the constructor, so later modifications of it have no effect on
+ * this resource.<br>
+ * By default the bound schema is not cached, as every distinct in-memory model
+ * would otherwise stay in the global {@link PSBoundSchemaCache} forever. If
+ * {@link #setUseCache(boolean)} is enabled, bound schemas are cached by the
+ * structural digest of the model, so that equal models (e.g. composed from the
+ * same fragments) share the pre-processing and binding work.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class SchematronResourcePureModel extends SchematronResourcePure
+{
+  private final PSSchema m_aSchema;
+  private final byte [] m_aModelDigest;
+
+  @Nonnull
+  private static IReadableResource _getResource (@Nonnull final PSSchema aSchema)
+  {
+    ValueEnforcer.notNull (aSchema, "Schema");
+    final IReadableResource ret = aSchema.getResource ();
+    // Placeholder resource that is never read
+    return ret != null ? ret : new ReadableResourceByteArray (new byte [0]);
+  }
+
+  public SchematronResourcePureModel (@Nonnull final PSSchema aSchema)
+  {
+    this (aSchema, (String) null, (IPSErrorHandler) null);
+  }
+
+  public SchematronResourcePureModel (@Nonnull final PSSchema aSchema,
+                                      @Nullable final String sPhase,
+                                      @Nullable final IPSErrorHandler aErrorHandler)
+  {
+    super (_getResource (aSchema), sPhase, aErrorHandler);
+    try
+    {
+      // Read the micro element representation - no XML serialization needed
+      m_aSchema = new PSReader (getResource ()).readSchemaFromXML (aSchema.getAsMicroElement ());
+    }
+    catch (final SchematronReadException ex)
+    {
+      throw new IllegalArgumentException ("Failed to copy the Schematron model", ex);
+    }
+    m_aModelDigest = PSSourceDigest.createModelDigest (m_aSchema);
+    setUseCache (false);
+  }
+
+  /**
+   * @return The copy of the schema passed in the constructor. It must not be
+   *         modified. Never <code>null</code>.
+   */
+  @Nonnull
+  public PSSchema getSchema ()
+  {
+    return m_aSchema;
+  }
+
+  /**
+   * @return A copy of the structural digest of the schema, that is used as the
+   *         cache key. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public byte [] getModelDigest ()
+  {
+    return m_aModelDigest.clone ();
+  }
+
+  @Override
+  @Nonnull
+  protected IPSBoundSchema createBoundSchema ()
+  {
+    final PSBoundSchemaModelCacheKey aCacheKey = new PSBoundSchemaModelCacheKey (m_aSchema,
+                                                                                 m_aModelDigest,
+                                                                                 getResource (),
+                                                                                 getPhase (),
+                                                                                 getErrorHandler (),
+                                                                                 getVariableResolver (),
+                                                                                 getFunctionResolver (),
+                                                                                 getBindingSettings ());
+    if (!isUseCache ())
+    {
+      try
+      {
+        return aCacheKey.createBoundSchema ();
+      }
+      catch (final SchematronException ex)
+      {
+        // Convert to runtime exception
+        throw new IllegalStateException ("Failed to bind Schematron", ex);
+      }
+    }
+
+    // Resolve from cache - inside the cacheKey the pre-processing and binding
+    // happens
+    return PSBoundSchemaCache.getInstance ().getFromCache (aCacheKey);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ()).append ("schema", m_aSchema).getToString ();
+  }
+}
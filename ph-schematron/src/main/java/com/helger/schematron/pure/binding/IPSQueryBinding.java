@@ -121,4 +121,39 @@ public interface IPSQueryBinding extends Serializable
                        @Nullable IPSErrorHandler aCustomErrorHandler,
                        @Nullable XPathVariableResolver aVariableResolver,
                        @Nullable XPathFunctionResolver aFunctionResolver) throws SchematronException;
+
+  /**
+   * Create a bound schema, which is like a precompiled schema, using the
+   * provided binding settings. The default implementation ignores the settings
+   * and calls
+   * {@link #bind(PSSchema, String, IPSErrorHandler, XPathVariableResolver, XPathFunctionResolver)}.
+   *
+   * @param aSchema
+   *        The schema to be bound. May not be <code>null</code>.
+   * @param sPhase
+   *        The phase to use. May be <code>null</code>.
+   * @param aCustomErrorHandler
+   *        An optional custom error handler to use. May be <code>null</code>.
+   * @param aVariableResolver
+   *        Custom variable resolver. May be <code>null</code>.
+   * @param aFunctionResolver
+   *        Custom function resolver. May be <code>null</code>.
+   * @param aSettings
+   *        The binding settings to use. May be <code>null</code> to use
+   *        {@link PSBindingSettings#DEFAULT}.
+   * @return The precompiled, bound schema. Never <code>null</code>.
+   * @throws SchematronException
+   *         In case of a binding error
+   * @since 5.0.5
+   */
+  @Nonnull
+  default IPSBoundSchema bind (@Nonnull final PSSchema aSchema,
+                               @Nullable final String sPhase,
+                               @Nullable final IPSErrorHandler aCustomErrorHandler,
+                               @Nullable final XPathVariableResolver aVariableResolver,
+                               @Nullable final XPathFunctionResolver aFunctionResolver,
+                               @Nullable final PSBindingSettings aSettings) throws SchematronException
+  {
+    return bind (aSchema, sPhase, aCustomErrorHandler, aVariableResolver, aFunctionResolver);
+  }
 }
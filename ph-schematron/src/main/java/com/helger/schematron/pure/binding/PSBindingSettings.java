@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.binding;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.xml.transform.URIResolver;
+
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.hashcode.IHashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Immutable settings that influence how a schema is bound and evaluated by a
+ * query binding (see
+ * {@link IPSQueryBinding#bind(com.helger.schematron.pure.model.PSSchema, String, com.helger.schematron.pure.errorhandler.IPSErrorHandler, javax.xml.xpath.XPathVariableResolver, javax.xml.xpath.XPathFunctionResolver, PSBindingSettings)}).
+ * The settings are part of the bound schema cache key, so that schemas bound
+ * with different settings are cached separately. Query bindings that do not
+ * support a setting ignore it.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class PSBindingSettings
+{
+  /** By default each test is evaluated separately */
+  public static final boolean DEFAULT_FUSED_RULE_EVALUATION = false;
+  /** By default all tests are evaluated with the XPath API */
+  public static final boolean DEFAULT_COMPILED_TEST_EVALUATION = false;
+
+  /** The default settings */
+  public static final PSBindingSettings DEFAULT = new PSBindingSettings (DEFAULT_FUSED_RULE_EVALUATION,
+                                                                        DEFAULT_COMPILED_TEST_EVALUATION,
+                                                                        (URIResolver) null);
+
+  private final boolean m_bFusedRuleEvaluation;
+  private final boolean m_bCompiledTestEvaluation;
+  private final URIResolver m_aURIResolver;
+  // Status vars
+  private transient int m_nHashCode = IHashCodeGenerator.ILLEGAL_HASHCODE;
+
+  /**
+   * Constructor.
+   *
+   * @param bFusedRuleEvaluation
+   *        <code>true</code> to evaluate all tests of a rule with a single
+   *        XPath call per matching node. See
+   *        {@link #isFusedRuleEvaluation()}.
+   * @param bCompiledTestEvaluation
+   *        <code>true</code> to evaluate supported tests without the XPath
+   *        API. See {@link #isCompiledTestEvaluation()}.
+   * @param aURIResolver
+   *        The URI resolver to use. May be <code>null</code>. See
+   *        {@link #getURIResolver()}.
+   */
+  public PSBindingSettings (final boolean bFusedRuleEvaluation,
+                            final boolean bCompiledTestEvaluation,
+                            @Nullable final URIResolver aURIResolver)
+  {
+    m_bFusedRuleEvaluation = bFusedRuleEvaluation;
+    m_bCompiledTestEvaluation = bCompiledTestEvaluation;
+    m_aURIResolver = aURIResolver;
+  }
+
+  /**
+   * In the fused rule evaluation mode, all tests of a rule are compiled into a
+   * single expression that is evaluated once per matching node, and the nodes
+   * are processed one after the other ("fired-rule" is reported once per node
+   * as in the XSLT implementation). The order of the SVRL elements is
+   * therefore node-major instead of assert-major. If the fused expression
+   * fails for a node, the tests of that node are evaluated separately, so that
+   * errors are reported exactly as in the default mode.
+   *
+   * @return <code>true</code> if the fused rule evaluation is enabled. Default
+   *         is {@value #DEFAULT_FUSED_RULE_EVALUATION}.
+   */
+  public boolean isFusedRuleEvaluation ()
+  {
+    return m_bFusedRuleEvaluation;
+  }
+
+  /**
+   * @param bFusedRuleEvaluation
+   *        The new fused rule evaluation mode.
+   * @return A copy of this settings with the passed fused rule evaluation mode
+   *         or <code>this</code> if nothing changes. Never <code>null</code>.
+   */
+  @Nonnull
+  public PSBindingSettings getWithFusedRuleEvaluation (final boolean bFusedRuleEvaluation)
+  {
+    if (bFusedRuleEvaluation == m_bFusedRuleEvaluation)
+      return this;
+    return new PSBindingSettings (bFusedRuleEvaluation, m_bCompiledTestEvaluation, m_aURIResolver);
+  }
+
+  /**
+   * In the compiled test evaluation mode, all assert and report tests that are
+   * part of the subset supported by
+   * {@link com.helger.schematron.pure.bound.xpath.compiled.PSCompiledXPathCompiler}
+   * are evaluated directly on the DOM. All other tests, and tests whose result
+   * may differ between XPath versions for a certain node, are evaluated with
+   * the XPath API.
+   *
+   * @return <code>true</code> if the compiled test evaluation is enabled.
+   *         Default is {@value #DEFAULT_COMPILED_TEST_EVALUATION}.
+   */
+  public boolean isCompiledTestEvaluation ()
+  {
+    return m_bCompiledTestEvaluation;
+  }
+
+  /**
+   * @param bCompiledTestEvaluation
+   *        The new compiled test evaluation mode.
+   * @return A copy of this settings with the passed compiled test evaluation
+   *         mode or <code>this</code> if nothing changes. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public PSBindingSettings getWithCompiledTestEvaluation (final boolean bCompiledTestEvaluation)
+  {
+    if (bCompiledTestEvaluation == m_bCompiledTestEvaluation)
+      return this;
+    return new PSBindingSettings (m_bFusedRuleEvaluation, bCompiledTestEvaluation, m_aURIResolver);
+  }
+
+  /**
+   * The URI resolver is used to resolve documents loaded via
+   * <code>doc()</code> or <code>document()</code>, e.g. a
+   * {@link com.helger.schematron.resolve.CachingTransformURIResolver}. This
+   * is only supported if Saxon is used as the XPath implementation. As the
+   * resolver is part of the cache key, the same instance should be reused for
+   * all resources that should share a bound schema.
+   *
+   * @return The URI resolver to use. May be <code>null</code> to use the
+   *         default resolution of the XPath implementation.
+   */
+  @Nullable
+  public URIResolver getURIResolver ()
+  {
+    return m_aURIResolver;
+  }
+
+  /**
+   * @param aURIResolver
+   *        The new URI resolver. May be <code>null</code>.
+   * @return A copy of this settings with the passed URI resolver or
+   *         <code>this</code> if nothing changes. Never <code>null</code>.
+   */
+  @Nonnull
+  public PSBindingSettings getWithURIResolver (@Nullable final URIResolver aURIResolver)
+  {
+    if (EqualsHelper.identityEqual (aURIResolver, m_aURIResolver))
+      return this;
+    return new PSBindingSettings (m_bFusedRuleEvaluation, m_bCompiledTestEvaluation, aURIResolver);
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final PSBindingSettings rhs = (PSBindingSettings) o;
+    return m_bFusedRuleEvaluation == rhs.m_bFusedRuleEvaluation &&
+           m_bCompiledTestEvaluation == rhs.m_bCompiledTestEvaluation &&
+           EqualsHelper.equals (m_aURIResolver, rhs.m_aURIResolver);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    int ret = m_nHashCode;
+    if (ret == IHashCodeGenerator.ILLEGAL_HASHCODE)
+      ret = m_nHashCode = new HashCodeGenerator (this).append (m_bFusedRuleEvaluation)
+                                                      .append (m_bCompiledTestEvaluation)
+                                                      .append (m_aURIResolver)
+                                                      .getHashCode ();
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("fusedRuleEvaluation", m_bFusedRuleEvaluation)
+                                       .append ("compiledTestEvaluation", m_bCompiledTestEvaluation)
+                                       .appendIfNotNull ("URIResolver", m_aURIResolver)
+                                       .getToString ();
+  }
+}
@@ -28,6 +28,8 @@ import com.helger.commons.collection.impl.CommonsHashMap;
 import com.helger.commons.collection.impl.ICommonsMap;
 import com.helger.commons.concurrent.SimpleReadWriteLock;
 import com.helger.commons.exception.InitializationException;
+import com.helger.commons.state.EChange;
+import com.helger.schematron.pure.binding.xpath.PSXPath1QueryBinding;
 import com.helger.schematron.pure.binding.xpath.PSXPathQueryBinding;
 
 /**
@@ -49,6 +51,14 @@ public final class PSQueryBindingRegistry
    */
   public static final String QUERY_BINDING_XSLT2 = "xslt2";
 
+  /**
+   * Name of the query binding for which the lightweight XPath 1.0 binding is
+   * registered.
+   *
+   * @since 5.0.5
+   */
+  public static final String QUERY_BINDING_XPATH = "xpath";
+
   /**
    * The default XPath binding object to be used
    */
@@ -63,6 +73,7 @@ public final class PSQueryBindingRegistry
     {
       registerQueryBinding (QUERY_BINDING_XSLT, DEFAULT_QUERY_BINDING);
       registerQueryBinding (QUERY_BINDING_XSLT2, DEFAULT_QUERY_BINDING);
+      registerQueryBinding (QUERY_BINDING_XPATH, PSXPath1QueryBinding.getInstance ());
     }
     catch (final SchematronBindException ex)
     {
@@ -89,6 +100,53 @@ public final class PSQueryBindingRegistry
     });
   }
 
+  /**
+   * Register the passed query binding for the specified name, replacing any
+   * query binding that was previously registered for this name in a single
+   * step. This can e.g. be used to register the lightweight
+   * {@link PSXPath1QueryBinding} for the name {@link #QUERY_BINDING_XSLT} if
+   * all schemas only use XPath 1.0. Other threads never see the name
+   * unregistered in between. Already bound (and cached) schemas are not
+   * affected.
+   *
+   * @param sName
+   *        The name of the query binding. May neither be <code>null</code> nor
+   *        empty.
+   * @param aQueryBinding
+   *        The query binding to register. May not be <code>null</code>.
+   * @return The previously registered query binding or <code>null</code> if
+   *         none was registered for this name.
+   * @since 5.0.5
+   */
+  @Nullable
+  public static IPSQueryBinding replaceQueryBinding (@Nonnull @Nonempty final String sName,
+                                                    @Nonnull final IPSQueryBinding aQueryBinding)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    ValueEnforcer.notNull (aQueryBinding, "QueryBinding");
+
+    return s_aRWLock.writeLocked ( () -> s_aMap.put (sName, aQueryBinding));
+  }
+
+  /**
+   * Remove the query binding with the specified name. Use
+   * {@link #replaceQueryBinding(String, IPSQueryBinding)} to exchange the
+   * query binding of a name atomically. Already bound (and cached) schemas are
+   * not affected.
+   *
+   * @param sName
+   *        The name of the query binding to remove. May be <code>null</code>.
+   * @return {@link EChange#CHANGED} if the query binding was removed.
+   * @since 5.0.5
+   */
+  @Nonnull
+  public static EChange unregisterQueryBinding (@Nullable final String sName)
+  {
+    if (sName == null)
+      return EChange.UNCHANGED;
+    return s_aRWLock.writeLocked ( () -> s_aMap.removeObject (sName));
+  }
+
   /**
    * Get the query binding with the specified name.
    *
@@ -31,6 +31,44 @@ public final class CXPath
   /** The namespace for XPath functions usually bound to the 'fn' prefix */
   public static final String NAMESPACE_XPATH_FUNCTIONS = "http://www.w3.org/2005/xpath-functions";
 
+  /**
+   * The XSLT namespace. Top-level elements in this namespace (e.g.
+   * <code>xsl:param</code>) are interpreted by the pure implementation.
+   *
+   * @since 5.0.5
+   */
+  public static final String NAMESPACE_XSLT = "http://www.w3.org/1999/XSL/Transform";
+
+  /**
+   * The local name of the XSLT element to declare external parameters.
+   *
+   * @since 5.0.5
+   */
+  public static final String XSLT_ELEMENT_PARAM = "param";
+
+  /**
+   * The local name of the XSLT element to declare keys.
+   *
+   * @since 5.0.5
+   */
+  public static final String XSLT_ELEMENT_KEY = "key";
+
+  /**
+   * The namespace of the built-in functions of the pure implementation. This
+   * namespace is reserved and automatically bound to a free prefix when
+   * needed.
+   *
+   * @since 5.0.5
+   */
+  public static final String NAMESPACE_PS_FUNCTIONS = "urn:com:helger:schematron:pure:functions";
+
+  /**
+   * The preferred prefix for {@link #NAMESPACE_PS_FUNCTIONS}.
+   *
+   * @since 5.0.5
+   */
+  public static final String DEFAULT_PREFIX_PS_FUNCTIONS = "phsch";
+
   @PresentForCodeCoverage
   private static final CXPath s_aInstance = new CXPath ();
 
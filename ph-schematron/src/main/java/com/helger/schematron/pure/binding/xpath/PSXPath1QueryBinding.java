@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.binding.xpath;
+
+import javax.annotation.Nonnull;
+import javax.xml.xpath.XPathFactory;
+import javax.xml.xpath.XPathFactoryConfigurationException;
+
+import com.helger.schematron.pure.binding.SchematronBindException;
+
+/**
+ * A lightweight XPath 1.0 query binding. Instead of Saxon, the default JAXP
+ * XPath implementation for the DOM object model is used, which is the one
+ * built into the JDK unless configured otherwise. It operates directly on the
+ * DOM without creating wrapper objects and has a much lower startup cost. It
+ * is registered for the query binding name
+ * {@link com.helger.schematron.pure.binding.PSQueryBindingRegistry#QUERY_BINDING_XPATH}
+ * and may be used explicitly for schemas that are declared with
+ * <code>queryBinding="xslt"</code> but only use XPath 1.0 expressions (see
+ * {@link com.helger.schematron.pure.binding.PSQueryBindingRegistry#replaceQueryBinding(String, com.helger.schematron.pure.binding.IPSQueryBinding)}).<br>
+ * The implementation is determined with the standard JAXP lookup of
+ * {@link XPathFactory#newInstance(String)}, so it can be configured with the
+ * system property
+ * <code>javax.xml.xpath.XPathFactory:http://java.sun.com/jaxp/xpath/dom</code>.
+ * Alternatively {@link #createXPathFactory()} can be overridden.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+public class PSXPath1QueryBinding extends PSXPathQueryBinding
+{
+  private static final PSXPath1QueryBinding s_aInstance = new PSXPath1QueryBinding ();
+
+  protected PSXPath1QueryBinding ()
+  {}
+
+  @Nonnull
+  public static PSXPath1QueryBinding getInstance ()
+  {
+    return s_aInstance;
+  }
+
+  /**
+   * @return A new XPath factory for the DOM object model, determined by the
+   *         standard JAXP lookup. Never <code>null</code>.
+   * @throws SchematronBindException
+   *         If no XPath implementation is available
+   */
+  @Nonnull
+  public static XPathFactory createXPathFactoryDefault () throws SchematronBindException
+  {
+    try
+    {
+      return XPathFactory.newInstance (XPathFactory.DEFAULT_OBJECT_MODEL_URI);
+    }
+    catch (final XPathFactoryConfigurationException | RuntimeException ex)
+    {
+      throw new SchematronBindException ("Failed to create default XPath factory", ex);
+    }
+  }
+
+  @Override
+  @Nonnull
+  protected XPathFactory createXPathFactory () throws SchematronBindException
+  {
+    return createXPathFactoryDefault ();
+  }
+}
@@ -21,6 +21,7 @@ import java.util.Map;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.xml.xpath.XPathFactory;
 import javax.xml.xpath.XPathFunctionResolver;
 import javax.xml.xpath.XPathVariableResolver;
 
@@ -35,6 +36,7 @@ import com.helger.commons.compare.IComparator;
 import com.helger.commons.string.StringHelper;
 import com.helger.schematron.SchematronException;
 import com.helger.schematron.pure.binding.IPSQueryBinding;
+import com.helger.schematron.pure.binding.PSBindingSettings;
 import com.helger.schematron.pure.binding.SchematronBindException;
 import com.helger.schematron.pure.bound.IPSBoundSchema;
 import com.helger.schematron.pure.bound.xpath.PSXPathBoundSchema;
@@ -56,7 +58,7 @@ public class PSXPathQueryBinding implements IPSQueryBinding
   private static final Logger s_aLogger = LoggerFactory.getLogger (PSXPathQueryBinding.class);
   private static final PSXPathQueryBinding s_aInstance = new PSXPathQueryBinding ();
 
-  private PSXPathQueryBinding ()
+  protected PSXPathQueryBinding ()
   {}
 
   @Nonnull
@@ -110,6 +112,21 @@ public class PSXPathQueryBinding implements IPSQueryBinding
     return getWithParamTextsReplacedStatic (sText, aStringReplacements);
   }
 
+  /**
+   * Create the XPath factory that is used to compile all expressions of a
+   * single schema. This method is called once per bound schema.
+   *
+   * @return A new XPath factory. Never <code>null</code>.
+   * @throws SchematronBindException
+   *         If no XPath factory could be created
+   * @since 5.0.5
+   */
+  @Nonnull
+  protected XPathFactory createXPathFactory () throws SchematronBindException
+  {
+    return PSXPathBoundSchema.createXPathFactorySaxonFirst ();
+  }
+
   @Nonnull
   public IPSBoundSchema bind (@Nonnull final PSSchema aSchema,
                               @Nullable final String sPhase,
@@ -124,6 +141,22 @@ public class PSXPathQueryBinding implements IPSQueryBinding
                               @Nullable final IPSErrorHandler aCustomErrorListener,
                               @Nullable final XPathVariableResolver aVariableResolver,
                               @Nullable final XPathFunctionResolver aFunctionResolver) throws SchematronException
+  {
+    return bind (aSchema,
+                 sPhase,
+                 aCustomErrorListener,
+                 aVariableResolver,
+                 aFunctionResolver,
+                 PSBindingSettings.DEFAULT);
+  }
+
+  @Nonnull
+  public IPSBoundSchema bind (@Nonnull final PSSchema aSchema,
+                              @Nullable final String sPhase,
+                              @Nullable final IPSErrorHandler aCustomErrorListener,
+                              @Nullable final XPathVariableResolver aVariableResolver,
+                              @Nullable final XPathFunctionResolver aFunctionResolver,
+                              @Nullable final PSBindingSettings aSettings) throws SchematronException
   {
     ValueEnforcer.notNull (aSchema, "Schema");
 
@@ -151,7 +184,9 @@ public class PSXPathQueryBinding implements IPSQueryBinding
                                                            sPhase,
                                                            aCustomErrorListener,
                                                            aVariableResolver,
-                                                           aFunctionResolver);
+                                                           aFunctionResolver,
+                                                           createXPathFactory (),
+                                                           aSettings);
     ret.bind ();
     return ret;
   }
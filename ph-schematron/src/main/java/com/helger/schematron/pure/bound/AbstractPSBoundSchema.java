@@ -16,6 +16,9 @@
  */
 package com.helger.schematron.pure.bound;
 
+import java.io.IOException;
+import java.util.Map;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.OverridingMethodsMustInvokeSuper;
@@ -31,6 +34,7 @@ import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.state.EValidity;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.schematron.CSchematron;
+import com.helger.schematron.SchematronValidationBudgetTracker;
 import com.helger.schematron.pure.binding.IPSQueryBinding;
 import com.helger.schematron.pure.errorhandler.IPSErrorHandler;
 import com.helger.schematron.pure.errorhandler.LoggingPSErrorHandler;
@@ -41,8 +45,11 @@ import com.helger.schematron.pure.model.PSPhase;
 import com.helger.schematron.pure.model.PSSchema;
 import com.helger.schematron.pure.validation.IPSPartialValidationHandler;
 import com.helger.schematron.pure.validation.PSValidationHandlerBreakOnFirstError;
+import com.helger.schematron.pure.validation.PSValidationHandlerBudget;
 import com.helger.schematron.pure.validation.SchematronValidationException;
+import com.helger.schematron.pure.validation.xpath.PSXPathValidationHandlerJson;
 import com.helger.schematron.pure.validation.xpath.PSXPathValidationHandlerSVRL;
+import com.helger.schematron.svrl.SVRLJsonWriter;
 import com.helger.xml.namespace.MapBasedNamespaceContext;
 
 /**
@@ -221,21 +228,68 @@ public abstract class AbstractPSBoundSchema implements IPSBoundSchema
   @Nonnull
   public EValidity validatePartially (@Nonnull final Node aNode,
                                       @Nullable final String sBaseURI) throws SchematronValidationException
+  {
+    return validatePartially (aNode, sBaseURI, (Map <String, ?>) null);
+  }
+
+  @Nonnull
+  public EValidity validatePartially (@Nonnull final Node aNode,
+                                      @Nullable final String sBaseURI,
+                                      @Nullable final Map <String, ?> aParameters) throws SchematronValidationException
   {
     final IPSPartialValidationHandler aValidationHandler = createPartialValidationHandler ();
-    validate (aNode, sBaseURI, aValidationHandler);
+    validate (aNode, sBaseURI, aValidationHandler, aParameters);
     return aValidationHandler.getValidity ();
   }
 
   @Nonnull
   public SchematronOutputType validateComplete (@Nonnull final Node aNode,
                                                 @Nullable final String sBaseURI) throws SchematronValidationException
+  {
+    return validateComplete (aNode, sBaseURI, (Map <String, ?>) null);
+  }
+
+  @Nonnull
+  public SchematronOutputType validateComplete (@Nonnull final Node aNode,
+                                                @Nullable final String sBaseURI,
+                                                @Nullable final Map <String, ?> aParameters) throws SchematronValidationException
   {
     final PSXPathValidationHandlerSVRL aValidationHandler = new PSXPathValidationHandlerSVRL (getErrorHandler ());
-    validate (aNode, sBaseURI, aValidationHandler);
+    validate (aNode, sBaseURI, aValidationHandler, aParameters);
     return aValidationHandler.getSVRL ();
   }
 
+  @Nonnull
+  public SchematronOutputType validateComplete (@Nonnull final Node aNode,
+                                                @Nullable final String sBaseURI,
+                                                @Nullable final Map <String, ?> aParameters,
+                                                @Nonnull final SchematronValidationBudgetTracker aTracker) throws SchematronValidationException
+  {
+    final PSXPathValidationHandlerSVRL aValidationHandler = new PSXPathValidationHandlerSVRL (getErrorHandler ());
+    validate (aNode, sBaseURI, new PSValidationHandlerBudget (aValidationHandler, aTracker), aParameters);
+    final SchematronOutputType ret = aValidationHandler.getSVRL ();
+    aTracker.markTruncated (ret);
+    return ret;
+  }
+
+  public void validateToJson (@Nonnull final Node aNode,
+                              @Nullable final String sBaseURI,
+                              @Nullable final Map <String, ?> aParameters,
+                              @Nonnull final SVRLJsonWriter aJsonWriter) throws SchematronValidationException
+  {
+    ValueEnforcer.notNull (aJsonWriter, "JsonWriter");
+
+    validate (aNode, sBaseURI, new PSXPathValidationHandlerJson (getErrorHandler (), aJsonWriter), aParameters);
+    try
+    {
+      aJsonWriter.finish ();
+    }
+    catch (final IOException ex)
+    {
+      throw new SchematronValidationException ("Failed to write JSON", ex);
+    }
+  }
+
   @Override
   public String toString ()
   {
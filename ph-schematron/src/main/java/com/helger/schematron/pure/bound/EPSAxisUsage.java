@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.lang.EnumHelper;
+
+/**
+ * The non-local constructs an expression may use, as determined by the
+ * locality analysis (see {@link PSLocality}). An expression that uses none of
+ * them only accesses its context node and the subtree below it (self, child,
+ * attribute and descendant axes).
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+public enum EPSAxisUsage implements IHasID <String>
+{
+  /**
+   * parent, ancestor or ancestor-or-self axis, <code>..</code> or functions
+   * reading inherited or in-scope state like lang()
+   */
+  ANCESTOR ("ancestor"),
+  /** preceding, following, preceding-sibling or following-sibling axis */
+  PRECEDING_FOLLOWING ("preceding-following"),
+  /** absolute path starting with a single <code>/</code> or root() */
+  ABSOLUTE_PATH ("absolute"),
+  /** absolute path starting with <code>//</code> */
+  ROOT_DESCENDANT ("root-descendant"),
+  /** document(), doc() and similar functions */
+  EXTERNAL_DOCUMENT ("document"),
+  /** key() function */
+  KEY ("key"),
+  /** id() or idref() function */
+  ID ("id"),
+  /** references to variables that are not resolved at bind time */
+  VARIABLE ("variable"),
+  /** the expression was not analyzed, so any node may be accessed */
+  UNKNOWN ("unknown");
+
+  private final String m_sID;
+
+  private EPSAxisUsage (@Nonnull @Nonempty final String sID)
+  {
+    m_sID = sID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  /**
+   * @return <code>true</code> if this usage accesses nodes of the same
+   *         document outside of the context subtree.
+   */
+  public boolean isDocumentWide ()
+  {
+    return this != EXTERNAL_DOCUMENT && this != VARIABLE;
+  }
+
+  @Nullable
+  public static EPSAxisUsage getFromIDOrNull (@Nullable final String sID)
+  {
+    return EnumHelper.getFromIDOrNull (EPSAxisUsage.class, sID);
+  }
+}
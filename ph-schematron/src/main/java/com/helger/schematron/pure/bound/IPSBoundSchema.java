@@ -16,22 +16,36 @@
  */
 package com.helger.schematron.pure.bound;
 
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Map;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.oclc.purl.dsdl.svrl.SchematronOutputType;
 import org.w3c.dom.Node;
 
+import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashSet;
 import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.collection.impl.ICommonsOrderedSet;
 import com.helger.commons.state.EValidity;
 import com.helger.schematron.CSchematron;
+import com.helger.schematron.SchematronValidationBudgetTracker;
 import com.helger.schematron.pure.binding.IPSQueryBinding;
+import com.helger.schematron.pure.model.PSAssertReport;
 import com.helger.schematron.pure.model.PSPattern;
 import com.helger.schematron.pure.model.PSPhase;
+import com.helger.schematron.pure.model.PSRule;
 import com.helger.schematron.pure.model.PSSchema;
 import com.helger.schematron.pure.validation.IPSValidationHandler;
 import com.helger.schematron.pure.validation.SchematronValidationException;
+import com.helger.schematron.svrl.SVRLJsonWriter;
 import com.helger.xml.namespace.MapBasedNamespaceContext;
 
 /**
@@ -121,6 +135,85 @@ public interface IPSBoundSchema
                  @Nullable String sBaseURI,
                  @Nonnull IPSValidationHandler aHandler) throws SchematronValidationException;
 
+  /**
+   * @return The names of all external parameters declared by the schema (via
+   *         top-level <code>xsl:param</code> elements). The values of these
+   *         parameters can be supplied per validation without re-binding the
+   *         schema. Never <code>null</code> but maybe empty. The default
+   *         implementation returns an empty set.
+   * @since 5.0.5
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  default ICommonsOrderedSet <String> getAllParameterNames ()
+  {
+    return new CommonsLinkedHashSet <> ();
+  }
+
+  /**
+   * Get the result of the static locality analysis of all relevant rules,
+   * that is performed when binding the schema. It determines for each rule
+   * context and each assert and report, whether only the subtree of the
+   * context node is accessed or which non-local constructs are used. The
+   * default implementation performs no analysis and reports all expressions
+   * as {@link EPSAxisUsage#UNKNOWN}.
+   *
+   * @return The locality report. Never <code>null</code>.
+   * @since 5.0.5
+   */
+  @Nonnull
+  default PSLocalityReport getLocalityReport ()
+  {
+    final PSLocality aUnknown = new PSLocality (EnumSet.of (EPSAxisUsage.UNKNOWN),
+                                                new CommonsArrayList <> (),
+                                                new CommonsArrayList <> ());
+    final ICommonsList <PSRuleLocality> aRuleLocalities = new CommonsArrayList <> ();
+    for (final PSPattern aPattern : getAllRelevantPatterns ())
+      for (final PSRule aRule : aPattern.getAllRules ())
+        if (aRule.getContext () != null)
+        {
+          final ICommonsOrderedMap <PSAssertReport, PSLocality> aAssertReportLocalities = new CommonsLinkedHashMap <> ();
+          for (final PSAssertReport aAssertReport : aRule.getAllAssertReports ())
+            aAssertReportLocalities.put (aAssertReport, aUnknown);
+          aRuleLocalities.add (new PSRuleLocality (aPattern,
+                                                   aRule,
+                                                   getValidationContext (aRule.getContext ()),
+                                                   aUnknown,
+                                                   aAssertReportLocalities));
+        }
+    return new PSLocalityReport (aRuleLocalities);
+  }
+
+  /**
+   * The generic validation method with external parameters. It validates the
+   * passed XML node to this bound schema.
+   *
+   * @param aNode
+   *        The node to be validated. May not be <code>null</code>.
+   * @param sBaseURI
+   *        Base URI of the XML to be validated. May be <code>null</code>.
+   * @param aHandler
+   *        The validation handler that receives the callback informations. May
+   *        not be <code>null</code>.
+   * @param aParameters
+   *        The values of the external parameters to be used for this
+   *        validation only. Only parameters declared in the schema (see
+   *        {@link #getAllParameterNames()}) are considered. Declared parameters
+   *        that are not contained use their default value. May be
+   *        <code>null</code>.
+   * @throws SchematronValidationException
+   *         In case a validation exception occurs
+   * @since 5.0.5
+   */
+  default void validate (@Nonnull final Node aNode,
+                         @Nullable final String sBaseURI,
+                         @Nonnull final IPSValidationHandler aHandler,
+                         @Nullable final Map <String, ?> aParameters) throws SchematronValidationException
+  {
+    // No parameters are declared by default, so all of them are ignored
+    validate (aNode, sBaseURI, aHandler);
+  }
+
   /**
    * Special validation that breaks on the first error. This is a specialized
    * call of {@link #validate(Node, String, IPSValidationHandler)}.
@@ -137,6 +230,32 @@ public interface IPSBoundSchema
   @Nonnull
   EValidity validatePartially (@Nonnull Node aNode, @Nullable String sBaseURI) throws SchematronValidationException;
 
+  /**
+   * Special validation that breaks on the first error. This is a specialized
+   * call of {@link #validate(Node, String, IPSValidationHandler, Map)}.
+   *
+   * @param aNode
+   *        The XML node to be validated. May not be <code>null</code>.
+   * @param sBaseURI
+   *        Base URI of the XML to be validated. May be <code>null</code>.
+   * @param aParameters
+   *        The values of the external parameters to be used for this
+   *        validation only. May be <code>null</code>.
+   * @return {@link EValidity#VALID} if the document is valid,
+   *         {@link EValidity#INVALID} if it is invalid.
+   * @throws SchematronValidationException
+   *         In case a validation exception occurs
+   * @since 5.0.5
+   */
+  @Nonnull
+  default EValidity validatePartially (@Nonnull final Node aNode,
+                                       @Nullable final String sBaseURI,
+                                       @Nullable final Map <String, ?> aParameters) throws SchematronValidationException
+  {
+    // No parameters are declared by default, so all of them are ignored
+    return validatePartially (aNode, sBaseURI);
+  }
+
   /**
    * Special validation that creates an SVRL document. This is a specialized
    * call of {@link #validate(Node, String, IPSValidationHandler)}.
@@ -152,4 +271,96 @@ public interface IPSBoundSchema
   @Nonnull
   SchematronOutputType validateComplete (@Nonnull Node aNode,
                                          @Nullable String sBaseURI) throws SchematronValidationException;
+
+  /**
+   * Special validation that creates an SVRL document. This is a specialized
+   * call of {@link #validate(Node, String, IPSValidationHandler, Map)}.
+   *
+   * @param aNode
+   *        The XML node to be validated. May not be <code>null</code>.
+   * @param sBaseURI
+   *        Base URI of the XML to be validated. May be <code>null</code>.
+   * @param aParameters
+   *        The values of the external parameters to be used for this
+   *        validation only. May be <code>null</code>.
+   * @return The SVRL domain object.
+   * @throws SchematronValidationException
+   *         In case a validation exception occurs
+   * @since 5.0.5
+   */
+  @Nonnull
+  default SchematronOutputType validateComplete (@Nonnull final Node aNode,
+                                                 @Nullable final String sBaseURI,
+                                                 @Nullable final Map <String, ?> aParameters) throws SchematronValidationException
+  {
+    // No parameters are declared by default, so all of them are ignored
+    return validateComplete (aNode, sBaseURI);
+  }
+
+  /**
+   * Special validation that creates an SVRL document and stops as soon as the
+   * budget of the passed tracker is exceeded. In that case the partial SVRL is
+   * marked as truncated (see
+   * {@link SchematronValidationBudgetTracker#isTruncated(SchematronOutputType)}).
+   *
+   * @param aNode
+   *        The XML node to be validated. May not be <code>null</code>.
+   * @param sBaseURI
+   *        Base URI of the XML to be validated. May be <code>null</code>.
+   * @param aParameters
+   *        The values of the external parameters to be used for this
+   *        validation only. May be <code>null</code>.
+   * @param aTracker
+   *        The budget tracker for this validation. May not be
+   *        <code>null</code>.
+   * @return The (maybe truncated) SVRL domain object.
+   * @throws SchematronValidationException
+   *         In case a validation exception occurs
+   * @since 5.0.5
+   */
+  @Nonnull
+  SchematronOutputType validateComplete (@Nonnull Node aNode,
+                                         @Nullable String sBaseURI,
+                                         @Nullable Map <String, ?> aParameters,
+                                         @Nonnull SchematronValidationBudgetTracker aTracker) throws SchematronValidationException;
+
+  /**
+   * Special validation that writes the results as compact JSON to the passed
+   * writer. The JSON writer is finished by this method. This default
+   * implementation converts the result of
+   * {@link #validateComplete(Node, String, Map)}, whereas
+   * {@link AbstractPSBoundSchema} streams the results without creating an SVRL
+   * document.
+   *
+   * @param aNode
+   *        The XML node to be validated. May not be <code>null</code>.
+   * @param sBaseURI
+   *        Base URI of the XML to be validated. May be <code>null</code>.
+   * @param aParameters
+   *        The values of the external parameters to be used for this
+   *        validation only. May be <code>null</code>.
+   * @param aJsonWriter
+   *        The JSON writer to write to. May not be <code>null</code>.
+   * @throws SchematronValidationException
+   *         In case a validation exception occurs or writing fails
+   * @since 5.0.5
+   */
+  default void validateToJson (@Nonnull final Node aNode,
+                               @Nullable final String sBaseURI,
+                               @Nullable final Map <String, ?> aParameters,
+                               @Nonnull final SVRLJsonWriter aJsonWriter) throws SchematronValidationException
+  {
+    ValueEnforcer.notNull (aJsonWriter, "JsonWriter");
+
+    final SchematronOutputType aSVRL = validateComplete (aNode, sBaseURI, aParameters);
+    try
+    {
+      aJsonWriter.writeSVRL (aSVRL);
+      aJsonWriter.finish ();
+    }
+    catch (final IOException ex)
+    {
+      throw new SchematronValidationException ("Failed to write JSON", ex);
+    }
+  }
 }
@@ -36,6 +36,7 @@ import com.helger.commons.string.ToStringGenerator;
 import com.helger.schematron.SchematronDebug;
 import com.helger.schematron.SchematronException;
 import com.helger.schematron.pure.binding.IPSQueryBinding;
+import com.helger.schematron.pure.binding.PSBindingSettings;
 import com.helger.schematron.pure.binding.PSQueryBindingRegistry;
 import com.helger.schematron.pure.errorhandler.IPSErrorHandler;
 import com.helger.schematron.pure.exchange.PSReader;
@@ -62,6 +63,7 @@ public class PSBoundSchemaCacheKey
   private final XPathVariableResolver m_aVariableResolver;
   private final XPathFunctionResolver m_aFunctionResolver;
   private final EntityResolver m_aEntityResolver;
+  private final PSBindingSettings m_aBindingSettings;
   // Status vars
   private transient int m_nHashCode = IHashCodeGenerator.ILLEGAL_HASHCODE;
 
@@ -71,6 +73,43 @@ public class PSBoundSchemaCacheKey
                                 @Nullable final XPathVariableResolver aVariableResolver,
                                 @Nullable final XPathFunctionResolver aFunctionResolver,
                                 @Nullable final EntityResolver aEntityResolver)
+  {
+    this (aResource,
+          sPhase,
+          aErrorHandler,
+          aVariableResolver,
+          aFunctionResolver,
+          aEntityResolver,
+          PSBindingSettings.DEFAULT);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aResource
+   *        The resource to read from. May not be <code>null</code>.
+   * @param sPhase
+   *        The phase to use. May be <code>null</code>.
+   * @param aErrorHandler
+   *        The error handler to use. May be <code>null</code>.
+   * @param aVariableResolver
+   *        The XPath variable resolver to use. May be <code>null</code>.
+   * @param aFunctionResolver
+   *        The XPath function resolver to use. May be <code>null</code>.
+   * @param aEntityResolver
+   *        The XML entity resolver to use. May be <code>null</code>.
+   * @param aBindingSettings
+   *        The binding settings to use. May be <code>null</code> to use
+   *        {@link PSBindingSettings#DEFAULT}.
+   * @since 5.0.5
+   */
+  public PSBoundSchemaCacheKey (@Nonnull final IReadableResource aResource,
+                                @Nullable final String sPhase,
+                                @Nullable final IPSErrorHandler aErrorHandler,
+                                @Nullable final XPathVariableResolver aVariableResolver,
+                                @Nullable final XPathFunctionResolver aFunctionResolver,
+                                @Nullable final EntityResolver aEntityResolver,
+                                @Nullable final PSBindingSettings aBindingSettings)
   {
     ValueEnforcer.notNull (aResource, "Resource");
 
@@ -80,6 +119,7 @@ public class PSBoundSchemaCacheKey
     m_aVariableResolver = aVariableResolver;
     m_aFunctionResolver = aFunctionResolver;
     m_aEntityResolver = aEntityResolver;
+    m_aBindingSettings = aBindingSettings != null ? aBindingSettings : PSBindingSettings.DEFAULT;
   }
 
   /**
@@ -137,6 +177,16 @@ public class PSBoundSchemaCacheKey
     return m_aEntityResolver;
   }
 
+  /**
+   * @return The binding settings to be used. Never <code>null</code>.
+   * @since 5.0.5
+   */
+  @Nonnull
+  public final PSBindingSettings getBindingSettings ()
+  {
+    return m_aBindingSettings;
+  }
+
   /**
    * Read the specified schema from the passed resource.
    *
@@ -231,7 +281,7 @@ public class PSBoundSchemaCacheKey
    * <li>pre-process the schema -
    * {@link #createPreprocessedSchema(PSSchema, IPSQueryBinding)}</li>
    * <li>and finally bind it -
-   * {@link IPSQueryBinding#bind(PSSchema, String, IPSErrorHandler, javax.xml.xpath.XPathVariableResolver, javax.xml.xpath.XPathFunctionResolver)}
+   * {@link IPSQueryBinding#bind(PSSchema, String, IPSErrorHandler, javax.xml.xpath.XPathVariableResolver, javax.xml.xpath.XPathFunctionResolver, PSBindingSettings)}
    * </li>
    * </ol>
    *
@@ -256,7 +306,8 @@ public class PSBoundSchemaCacheKey
                                getPhase (),
                                getErrorHandler (),
                                getVariableResolver (),
-                               getFunctionResolver ());
+                               getFunctionResolver (),
+                               getBindingSettings ());
   }
 
   @Override
@@ -270,7 +321,8 @@ public class PSBoundSchemaCacheKey
     return m_aResource.equals (rhs.m_aResource) &&
            EqualsHelper.equals (m_sPhase, rhs.m_sPhase) &&
            EqualsHelper.equals (m_aVariableResolver, rhs.m_aVariableResolver) &&
-           EqualsHelper.equals (m_aFunctionResolver, rhs.m_aFunctionResolver);
+           EqualsHelper.equals (m_aFunctionResolver, rhs.m_aFunctionResolver) &&
+           m_aBindingSettings.equals (rhs.m_aBindingSettings);
   }
 
   @Override
@@ -282,6 +334,7 @@ public class PSBoundSchemaCacheKey
                                                       .append (m_sPhase)
                                                       .append (m_aVariableResolver)
                                                       .append (m_aFunctionResolver)
+                                                      .append (m_aBindingSettings)
                                                       .getHashCode ();
     return ret;
   }
@@ -294,6 +347,7 @@ public class PSBoundSchemaCacheKey
                                        .appendIfNotNull ("errorHandler", m_aErrorHandler)
                                        .appendIfNotNull ("variableResolver", m_aVariableResolver)
                                        .appendIfNotNull ("functionResolver", m_aFunctionResolver)
+                                       .append ("bindingSettings", m_aBindingSettings)
                                        .getToString ();
   }
 }
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.xml.xpath.XPathFunctionResolver;
+import javax.xml.xpath.XPathVariableResolver;
+
+import org.xml.sax.EntityResolver;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.hashcode.IHashCodeGenerator;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.pure.binding.PSBindingSettings;
+import com.helger.schematron.pure.errorhandler.IPSErrorHandler;
+import com.helger.schematron.pure.exchange.PSSourceDigest;
+import com.helger.schematron.pure.model.PSSchema;
+
+/**
+ * A special {@link PSBoundSchemaCacheKey} for schemas that are already present
+ * as domain objects. Instead of reading the schema from the resource, the
+ * passed model is used directly. Keys are compared by the structural digest of
+ * the model (see {@link PSSourceDigest#createModelDigest(PSSchema)}) instead of
+ * the resource, so that equal models built independently share the same bound
+ * (and pre-processed) schema.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class PSBoundSchemaModelCacheKey extends PSBoundSchemaCacheKey
+{
+  private final PSSchema m_aSchema;
+  private final byte [] m_aModelDigest;
+  // Status vars
+  private transient int m_nHashCode = IHashCodeGenerator.ILLEGAL_HASHCODE;
+
+  public PSBoundSchemaModelCacheKey (@Nonnull final PSSchema aSchema,
+                                     @Nonnull final byte [] aModelDigest,
+                                     @Nonnull final IReadableResource aResource,
+                                     @Nullable final String sPhase,
+                                     @Nullable final IPSErrorHandler aErrorHandler,
+                                     @Nullable final XPathVariableResolver aVariableResolver,
+                                     @Nullable final XPathFunctionResolver aFunctionResolver)
+  {
+    this (aSchema,
+          aModelDigest,
+          aResource,
+          sPhase,
+          aErrorHandler,
+          aVariableResolver,
+          aFunctionResolver,
+          PSBindingSettings.DEFAULT);
+  }
+
+  public PSBoundSchemaModelCacheKey (@Nonnull final PSSchema aSchema,
+                                     @Nonnull final byte [] aModelDigest,
+                                     @Nonnull final IReadableResource aResource,
+                                     @Nullable final String sPhase,
+                                     @Nullable final IPSErrorHandler aErrorHandler,
+                                     @Nullable final XPathVariableResolver aVariableResolver,
+                                     @Nullable final XPathFunctionResolver aFunctionResolver,
+                                     @Nullable final PSBindingSettings aBindingSettings)
+  {
+    super (aResource,
+           sPhase,
+           aErrorHandler,
+           aVariableResolver,
+           aFunctionResolver,
+           (EntityResolver) null,
+           aBindingSettings);
+    ValueEnforcer.notNull (aSchema, "Schema");
+    ValueEnforcer.notNull (aModelDigest, "ModelDigest");
+    m_aSchema = aSchema;
+    m_aModelDigest = aModelDigest.clone ();
+  }
+
+  /**
+   * @return The schema passed in the constructor. Never <code>null</code>.
+   */
+  @Nonnull
+  public final PSSchema getSchema ()
+  {
+    return m_aSchema;
+  }
+
+  /**
+   * @return A copy of the structural digest of the schema. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public final byte [] getModelDigest ()
+  {
+    return m_aModelDigest.clone ();
+  }
+
+  /**
+   * {@inheritDoc} This implementation ignores the resource and returns the
+   * schema passed in the constructor.
+   */
+  @Override
+  @Nonnull
+  public PSSchema readSchema (@Nonnull final IReadableResource aResource,
+                              @Nullable final IPSErrorHandler aErrorHandler,
+                              @Nullable final EntityResolver aEntityResolver)
+  {
+    return m_aSchema;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final PSBoundSchemaModelCacheKey rhs = (PSBoundSchemaModelCacheKey) o;
+    return Arrays.equals (m_aModelDigest, rhs.m_aModelDigest) &&
+           EqualsHelper.equals (getPhase (), rhs.getPhase ()) &&
+           EqualsHelper.equals (getVariableResolver (), rhs.getVariableResolver ()) &&
+           EqualsHelper.equals (getFunctionResolver (), rhs.getFunctionResolver ()) &&
+           getBindingSettings ().equals (rhs.getBindingSettings ());
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    int ret = m_nHashCode;
+    if (ret == IHashCodeGenerator.ILLEGAL_HASHCODE)
+      ret = m_nHashCode = new HashCodeGenerator (this).append (Arrays.hashCode (m_aModelDigest))
+                                                      .append (getPhase ())
+                                                      .append (getVariableResolver ())
+                                                      .append (getFunctionResolver ())
+                                                      .append (getBindingSettings ())
+                                                      .getHashCode ();
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ()).append ("schema", m_aSchema).getToString ();
+  }
+}
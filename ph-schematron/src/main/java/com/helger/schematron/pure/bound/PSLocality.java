@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsLinkedHashSet;
+import com.helger.commons.collection.impl.CommonsTreeSet;
+import com.helger.commons.collection.impl.ICommonsOrderedSet;
+import com.helger.commons.collection.impl.ICommonsSortedSet;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The result of the static locality analysis of a single expression. It
+ * contains all non-local constructs used (see {@link EPSAxisUsage}) and the
+ * names of all referenced elements.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class PSLocality
+{
+  private final EnumSet <EPSAxisUsage> m_aUsages;
+  private final ICommonsSortedSet <String> m_aElementNames;
+  private final ICommonsSortedSet <String> m_aAbsolutePathElementNames;
+
+  /**
+   * Constructor
+   *
+   * @param aUsages
+   *        All non-local constructs used. May not be <code>null</code>.
+   * @param aElementNames
+   *        All referenced element names (as written in the expression,
+   *        including a prefix). May not be <code>null</code>.
+   * @param aAbsolutePathElementNames
+   *        All element names referenced within absolute paths. This is a
+   *        subset of the referenced element names. May not be
+   *        <code>null</code>.
+   */
+  public PSLocality (@Nonnull final Set <EPSAxisUsage> aUsages,
+                     @Nonnull final Iterable <String> aElementNames,
+                     @Nonnull final Iterable <String> aAbsolutePathElementNames)
+  {
+    ValueEnforcer.notNull (aUsages, "Usages");
+    ValueEnforcer.notNull (aElementNames, "ElementNames");
+    ValueEnforcer.notNull (aAbsolutePathElementNames, "AbsolutePathElementNames");
+    m_aUsages = aUsages.isEmpty () ? EnumSet.noneOf (EPSAxisUsage.class) : EnumSet.copyOf (aUsages);
+    m_aElementNames = new CommonsTreeSet <> (aElementNames);
+    m_aAbsolutePathElementNames = new CommonsTreeSet <> (aAbsolutePathElementNames);
+  }
+
+  /**
+   * @return <code>true</code> if the expression only accesses the context node
+   *         and its subtree, <code>false</code> if it uses at least one
+   *         non-local construct.
+   */
+  public boolean isSubtreeLocal ()
+  {
+    return m_aUsages.isEmpty ();
+  }
+
+  /**
+   * @return <code>true</code> if the expression only accesses nodes of the
+   *         context subtree or external documents, but no other nodes of the
+   *         same document.
+   */
+  public boolean isDocumentLocal ()
+  {
+    for (final EPSAxisUsage eUsage : m_aUsages)
+      if (eUsage.isDocumentWide ())
+        return false;
+    return true;
+  }
+
+  /**
+   * @param eUsage
+   *        The usage to check. May be <code>null</code>.
+   * @return <code>true</code> if the expression uses the passed construct.
+   */
+  public boolean hasUsage (@Nullable final EPSAxisUsage eUsage)
+  {
+    return eUsage != null && m_aUsages.contains (eUsage);
+  }
+
+  /**
+   * @return All non-local constructs used. Never <code>null</code> but empty
+   *         for subtree-local expressions.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedSet <EPSAxisUsage> getAllUsages ()
+  {
+    return new CommonsLinkedHashSet <> (m_aUsages);
+  }
+
+  /**
+   * @return All referenced element names. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsSortedSet <String> getAllElementNames ()
+  {
+    return m_aElementNames.getClone ();
+  }
+
+  /**
+   * @return All element names referenced within absolute paths. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsSortedSet <String> getAllAbsolutePathElementNames ()
+  {
+    return m_aAbsolutePathElementNames.getClone ();
+  }
+
+  /**
+   * @return A short textual representation like
+   *         <code>subtree-local [a, b]</code> or
+   *         <code>ancestor, key [a]</code>. Never <code>null</code>.
+   */
+  @Nonnull
+  public String getAsString ()
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    if (m_aUsages.isEmpty ())
+      aSB.append ("subtree-local");
+    else
+    {
+      boolean bFirst = true;
+      for (final EPSAxisUsage eUsage : m_aUsages)
+      {
+        if (bFirst)
+          bFirst = false;
+        else
+          aSB.append (", ");
+        aSB.append (eUsage.getID ());
+      }
+    }
+    return aSB.append (' ').append (m_aElementNames).toString ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("usages", m_aUsages)
+                                       .append ("elementNames", m_aElementNames)
+                                       .append ("absolutePathElementNames", m_aAbsolutePathElementNames)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound;
+
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.pure.model.PSAssertReport;
+
+/**
+ * The result of the static locality analysis of all rules of a bound schema.
+ * See {@link IPSBoundSchema#getLocalityReport()}.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class PSLocalityReport
+{
+  private final ICommonsList <PSRuleLocality> m_aRuleLocalities;
+
+  public PSLocalityReport (@Nonnull final Iterable <PSRuleLocality> aRuleLocalities)
+  {
+    ValueEnforcer.notNull (aRuleLocalities, "RuleLocalities");
+    m_aRuleLocalities = new CommonsArrayList <> (aRuleLocalities);
+  }
+
+  /**
+   * @return A copy of the localities of all rules in validation order. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <PSRuleLocality> getAllRuleLocalities ()
+  {
+    return m_aRuleLocalities.getClone ();
+  }
+
+  /**
+   * @return The number of analyzed rules.
+   */
+  @Nonnegative
+  public int getRuleCount ()
+  {
+    return m_aRuleLocalities.size ();
+  }
+
+  /**
+   * @return The number of rules whose tests only access the subtree of the
+   *         rule context node.
+   */
+  @Nonnegative
+  public int getSubtreeLocalRuleCount ()
+  {
+    return m_aRuleLocalities.getCount (PSRuleLocality::areAllTestsSubtreeLocal);
+  }
+
+  /**
+   * @return A human readable multi-line report with one block per rule. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public String getAsString ()
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    aSB.append (getSubtreeLocalRuleCount ())
+       .append (" of ")
+       .append (getRuleCount ())
+       .append (" rule(s) have subtree-local tests\n");
+    for (final PSRuleLocality aRuleLocality : m_aRuleLocalities)
+    {
+      aSB.append ("rule '")
+         .append (aRuleLocality.getContext ())
+         .append ("': ")
+         .append (aRuleLocality.getContextLocality ().getAsString ())
+         .append ('\n');
+      for (final Map.Entry <PSAssertReport, PSLocality> aEntry : aRuleLocality.getAllAssertReportLocalities ()
+                                                                               .entrySet ())
+      {
+        final PSAssertReport aAssertReport = aEntry.getKey ();
+        aSB.append ("  ")
+           .append (aAssertReport.isAssert () ? "assert" : "report")
+           .append (" '")
+           .append (aAssertReport.getTest ())
+           .append ("': ")
+           .append (aEntry.getValue ().getAsString ())
+           .append ('\n');
+      }
+    }
+    return aSB.toString ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ruleLocalities", m_aRuleLocalities).getToString ();
+  }
+}
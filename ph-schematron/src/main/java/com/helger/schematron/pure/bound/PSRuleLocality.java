@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.pure.model.PSAssertReport;
+import com.helger.schematron.pure.model.PSPattern;
+import com.helger.schematron.pure.model.PSRule;
+
+/**
+ * The locality of a single bound rule, consisting of the locality of the rule
+ * context and of each contained assert and report.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class PSRuleLocality
+{
+  private final PSPattern m_aPattern;
+  private final PSRule m_aRule;
+  private final String m_sContext;
+  private final PSLocality m_aContextLocality;
+  private final ICommonsOrderedMap <PSAssertReport, PSLocality> m_aAssertReportLocalities;
+
+  public PSRuleLocality (@Nonnull final PSPattern aPattern,
+                         @Nonnull final PSRule aRule,
+                         @Nonnull final String sContext,
+                         @Nonnull final PSLocality aContextLocality,
+                         @Nonnull final ICommonsOrderedMap <PSAssertReport, PSLocality> aAssertReportLocalities)
+  {
+    ValueEnforcer.notNull (aPattern, "Pattern");
+    ValueEnforcer.notNull (aRule, "Rule");
+    ValueEnforcer.notNull (sContext, "Context");
+    ValueEnforcer.notNull (aContextLocality, "ContextLocality");
+    ValueEnforcer.notNull (aAssertReportLocalities, "AssertReportLocalities");
+    m_aPattern = aPattern;
+    m_aRule = aRule;
+    m_sContext = sContext;
+    m_aContextLocality = aContextLocality;
+    m_aAssertReportLocalities = new CommonsLinkedHashMap <> (aAssertReportLocalities);
+  }
+
+  /**
+   * @return The pattern containing the rule. Never <code>null</code>.
+   */
+  @Nonnull
+  public PSPattern getPattern ()
+  {
+    return m_aPattern;
+  }
+
+  /**
+   * @return The rule. Never <code>null</code>.
+   */
+  @Nonnull
+  public PSRule getRule ()
+  {
+    return m_aRule;
+  }
+
+  /**
+   * @return The effective rule context expression. Never <code>null</code>.
+   */
+  @Nonnull
+  public String getContext ()
+  {
+    return m_sContext;
+  }
+
+  /**
+   * @return The locality of the rule context. Never <code>null</code>.
+   */
+  @Nonnull
+  public PSLocality getContextLocality ()
+  {
+    return m_aContextLocality;
+  }
+
+  /**
+   * @return A copy of the localities of all asserts and reports in the order
+   *         of the rule. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedMap <PSAssertReport, PSLocality> getAllAssertReportLocalities ()
+  {
+    return m_aAssertReportLocalities.getClone ();
+  }
+
+  /**
+   * @return <code>true</code> if all asserts and reports of this rule only
+   *         access the subtree of the rule context node. The rule context
+   *         itself is not considered, as it is always evaluated on the whole
+   *         document.
+   */
+  public boolean areAllTestsSubtreeLocal ()
+  {
+    for (final PSLocality aLocality : m_aAssertReportLocalities.values ())
+      if (!aLocality.isSubtreeLocal ())
+        return false;
+    return true;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("pattern", m_aPattern)
+                                       .append ("rule", m_aRule)
+                                       .append ("context", m_sContext)
+                                       .append ("contextLocality", m_aContextLocality)
+                                       .append ("assertReportLocalities", m_aAssertReportLocalities)
+                                       .getToString ();
+  }
+}
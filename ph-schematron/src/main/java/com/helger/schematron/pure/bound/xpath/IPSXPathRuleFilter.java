@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import javax.annotation.Nonnull;
+
+import org.w3c.dom.Node;
+
+/**
+ * Filter for the rules and rule matching nodes that are considered during a
+ * validation with {@link PSXPathBoundSchema}. This is e.g. used to validate
+ * only parts of a document.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+public interface IPSXPathRuleFilter
+{
+  /**
+   * Check if the passed rule should be evaluated at all.
+   *
+   * @param aBoundRule
+   *        The bound rule to check. Never <code>null</code>.
+   * @return <code>true</code> if the rule should be evaluated,
+   *         <code>false</code> if it should be skipped.
+   */
+  default boolean isRuleApplicable (@Nonnull final PSXPathBoundRule aBoundRule)
+  {
+    return true;
+  }
+
+  /**
+   * Check if the passed node, that matches the context of the passed rule,
+   * should be validated.
+   *
+   * @param aBoundRule
+   *        The bound rule that matched. Never <code>null</code>.
+   * @param aRuleMatchingNode
+   *        The node matching the rule context. Never <code>null</code>.
+   * @return <code>true</code> if the node should be validated,
+   *         <code>false</code> if it should be skipped.
+   */
+  default boolean isNodeApplicable (@Nonnull final PSXPathBoundRule aBoundRule, @Nonnull final Node aRuleMatchingNode)
+  {
+    return true;
+  }
+}
@@ -26,6 +26,7 @@ import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.collection.impl.ICommonsMap;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.pure.bound.xpath.compiled.IPSCompiledExpression;
 import com.helger.schematron.pure.model.PSAssertReport;
 
 /**
@@ -39,6 +40,7 @@ public class PSXPathBoundAssertReport
   private final PSAssertReport m_aAssertReport;
   private final String m_sTestExpression;
   private final XPathExpression m_aBoundTestExpression;
+  private final IPSCompiledExpression m_aCompiledTestExpression;
   private final ICommonsList <PSXPathBoundElement> m_aBoundContent;
   private final ICommonsMap <String, PSXPathBoundDiagnostic> m_aBoundDiagnostics;
 
@@ -47,6 +49,39 @@ public class PSXPathBoundAssertReport
                                    @Nonnull final XPathExpression aBoundTestExpression,
                                    @Nonnull final ICommonsList <PSXPathBoundElement> aBoundContent,
                                    @Nonnull final ICommonsMap <String, PSXPathBoundDiagnostic> aBoundDiagnostics)
+  {
+    this (aAssertReport,
+          sTestExpression,
+          aBoundTestExpression,
+          (IPSCompiledExpression) null,
+          aBoundContent,
+          aBoundDiagnostics);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aAssertReport
+   *        The source assert/report. May not be <code>null</code>.
+   * @param sTestExpression
+   *        The source XPath expression. May not be <code>null</code>.
+   * @param aBoundTestExpression
+   *        The pre-compiled XPath expression. May not be <code>null</code>.
+   * @param aCompiledTestExpression
+   *        The optional compiled test expression that is evaluated directly on
+   *        the DOM. May be <code>null</code>.
+   * @param aBoundContent
+   *        The bound content elements. May not be <code>null</code>.
+   * @param aBoundDiagnostics
+   *        The bound diagnostics. May not be <code>null</code>.
+   * @since 5.0.5
+   */
+  public PSXPathBoundAssertReport (@Nonnull final PSAssertReport aAssertReport,
+                                   @Nonnull final String sTestExpression,
+                                   @Nonnull final XPathExpression aBoundTestExpression,
+                                   @Nullable final IPSCompiledExpression aCompiledTestExpression,
+                                   @Nonnull final ICommonsList <PSXPathBoundElement> aBoundContent,
+                                   @Nonnull final ICommonsMap <String, PSXPathBoundDiagnostic> aBoundDiagnostics)
   {
     ValueEnforcer.notNull (aAssertReport, "AssertReport");
     ValueEnforcer.notNull (sTestExpression, "TestExpression");
@@ -54,8 +89,9 @@ public class PSXPathBoundAssertReport
     ValueEnforcer.notNull (aBoundContent, "BoundContent");
     ValueEnforcer.notNull (aBoundDiagnostics, "BoundDiagnostics");
     m_aAssertReport = aAssertReport;
-    m_sTestExpression = sTestExpression;
+    m_sTestExpression = sTestExpression.intern ();
     m_aBoundTestExpression = aBoundTestExpression;
+    m_aCompiledTestExpression = aCompiledTestExpression;
     m_aBoundContent = aBoundContent;
     m_aBoundDiagnostics = aBoundDiagnostics;
   }
@@ -88,6 +124,26 @@ public class PSXPathBoundAssertReport
     return m_aBoundTestExpression;
   }
 
+  /**
+   * @return The compiled test expression that can be evaluated without the
+   *         XPath API. May be <code>null</code>.
+   * @since 5.0.5
+   */
+  @Nullable
+  public IPSCompiledExpression getCompiledTestExpression ()
+  {
+    return m_aCompiledTestExpression;
+  }
+
+  /**
+   * @return <code>true</code> if a compiled test expression is present.
+   * @since 5.0.5
+   */
+  public boolean hasCompiledTestExpression ()
+  {
+    return m_aCompiledTestExpression != null;
+  }
+
   /**
    * @return All contained bound elements. It has the same amount of elements as
    *         the source assert/report.
@@ -118,6 +174,7 @@ public class PSXPathBoundAssertReport
     return new ToStringGenerator (this).append ("assertReport", m_aAssertReport)
                                        .append ("testExpression", m_sTestExpression)
                                        .append ("boundTestExpression", m_aBoundTestExpression)
+                                       .appendIfNotNull ("compiledTestExpression", m_aCompiledTestExpression)
                                        .append ("boundContent", m_aBoundContent)
                                        .append ("boundDiagnostics", m_aBoundDiagnostics)
                                        .getToString ();
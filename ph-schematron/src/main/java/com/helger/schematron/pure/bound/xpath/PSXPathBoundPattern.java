@@ -16,11 +16,13 @@
  */
 package com.helger.schematron.pure.bound.xpath;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.schematron.pure.model.PSPattern;
@@ -34,7 +36,8 @@ import com.helger.schematron.pure.model.PSPattern;
 public class PSXPathBoundPattern
 {
   private final PSPattern m_aPattern;
-  private final ICommonsList <PSXPathBoundRule> m_aBoundRules;
+  // Frozen after construction - avoids copying during validation
+  private final PSXPathBoundRule [] m_aBoundRules;
 
   public PSXPathBoundPattern (@Nonnull final PSPattern aPattern,
                               @Nonnull final ICommonsList <PSXPathBoundRule> aBoundRules)
@@ -42,7 +45,7 @@ public class PSXPathBoundPattern
     ValueEnforcer.notNull (aPattern, "Pattern");
     ValueEnforcer.notNull (aBoundRules, "BoundRules");
     m_aPattern = aPattern;
-    m_aBoundRules = aBoundRules;
+    m_aBoundRules = aBoundRules.toArray (new PSXPathBoundRule [aBoundRules.size ()]);
   }
 
   @Nonnull
@@ -55,7 +58,32 @@ public class PSXPathBoundPattern
   @ReturnsMutableCopy
   public ICommonsList <PSXPathBoundRule> getAllBoundRules ()
   {
-    return m_aBoundRules.getClone ();
+    return new CommonsArrayList <> (m_aBoundRules);
+  }
+
+  /**
+   * @return The number of bound rules. Always &ge; 0.
+   * @since 5.0.5
+   */
+  @Nonnegative
+  public int getBoundRuleCount ()
+  {
+    return m_aBoundRules.length;
+  }
+
+  /**
+   * Get the bound rule at the specified index without copying the list.
+   *
+   * @param nIndex
+   *        The 0-based index. Must be &ge; 0 and &lt;
+   *        {@link #getBoundRuleCount()}.
+   * @return The bound rule at the specified index. Never <code>null</code>.
+   * @since 5.0.5
+   */
+  @Nonnull
+  public PSXPathBoundRule getBoundRuleAtIndex (@Nonnegative final int nIndex)
+  {
+    return m_aBoundRules[nIndex];
   }
 
   @Override
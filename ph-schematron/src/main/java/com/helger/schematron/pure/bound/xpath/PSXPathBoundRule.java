@@ -16,12 +16,15 @@
  */
 package com.helger.schematron.pure.bound.xpath;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import javax.xml.xpath.XPathExpression;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.schematron.pure.model.PSRule;
@@ -38,21 +41,89 @@ public class PSXPathBoundRule
   private final String m_sRuleExpression;
   private final XPathExpression m_aBoundRuleExpression;
 
-  private final ICommonsList <PSXPathBoundAssertReport> m_aBoundAssertReports;
+  // Frozen after construction - avoids copying during validation
+  private final PSXPathBoundAssertReport [] m_aBoundAssertReports;
+  private final XPathExpression m_aBoundFusedTestExpression;
+  private final String m_sRuleContextKey;
 
   public PSXPathBoundRule (@Nonnull final PSRule aRule,
                            @Nonnull final String sRuleExpression,
                            @Nonnull final XPathExpression aBoundRuleExpression,
                            @Nonnull final ICommonsList <PSXPathBoundAssertReport> aBoundAssertReports)
+  {
+    this (aRule, sRuleExpression, aBoundRuleExpression, aBoundAssertReports, (XPathExpression) null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aRule
+   *        Source rule. May not be <code>null</code>.
+   * @param sRuleExpression
+   *        The rule context expression. May neither be <code>null</code> nor
+   *        empty.
+   * @param aBoundRuleExpression
+   *        The compiled rule context expression. May not be <code>null</code>.
+   * @param aBoundAssertReports
+   *        All bound asserts and reports. May not be <code>null</code>.
+   * @param aBoundFusedTestExpression
+   *        The optional compiled expression that evaluates all tests at once
+   *        and returns a string with one '0' or '1' character per test. May be
+   *        <code>null</code>.
+   * @since 5.0.5
+   */
+  public PSXPathBoundRule (@Nonnull final PSRule aRule,
+                           @Nonnull final String sRuleExpression,
+                           @Nonnull final XPathExpression aBoundRuleExpression,
+                           @Nonnull final ICommonsList <PSXPathBoundAssertReport> aBoundAssertReports,
+                           @Nullable final XPathExpression aBoundFusedTestExpression)
+  {
+    this (aRule,
+          sRuleExpression,
+          aBoundRuleExpression,
+          aBoundAssertReports,
+          aBoundFusedTestExpression,
+          (String) null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aRule
+   *        Source rule. May not be <code>null</code>.
+   * @param sRuleExpression
+   *        The rule context expression. May neither be <code>null</code> nor
+   *        empty.
+   * @param aBoundRuleExpression
+   *        The compiled rule context expression. May not be <code>null</code>.
+   * @param aBoundAssertReports
+   *        All bound asserts and reports. May not be <code>null</code>.
+   * @param aBoundFusedTestExpression
+   *        The optional compiled expression that evaluates all tests at once.
+   *        May be <code>null</code>.
+   * @param sRuleContextKey
+   *        The key under which the nodes matching the rule context may be
+   *        shared with other rules in a {@link PSXPathRuleContextCache}. May
+   *        be <code>null</code> if the result must not be shared.
+   * @since 5.0.5
+   */
+  public PSXPathBoundRule (@Nonnull final PSRule aRule,
+                           @Nonnull final String sRuleExpression,
+                           @Nonnull final XPathExpression aBoundRuleExpression,
+                           @Nonnull final ICommonsList <PSXPathBoundAssertReport> aBoundAssertReports,
+                           @Nullable final XPathExpression aBoundFusedTestExpression,
+                           @Nullable final String sRuleContextKey)
   {
     ValueEnforcer.notNull (aRule, "Rule");
     ValueEnforcer.notEmpty (sRuleExpression, "RuleExpression");
     ValueEnforcer.notNull (aBoundRuleExpression, "BoundRuleExpression");
     ValueEnforcer.notNull (aBoundAssertReports, "BoundAssertReports");
     m_aRule = aRule;
-    m_sRuleExpression = sRuleExpression;
+    m_sRuleExpression = sRuleExpression.intern ();
     m_aBoundRuleExpression = aBoundRuleExpression;
-    m_aBoundAssertReports = aBoundAssertReports;
+    m_aBoundAssertReports = aBoundAssertReports.toArray (new PSXPathBoundAssertReport [aBoundAssertReports.size ()]);
+    m_aBoundFusedTestExpression = aBoundFusedTestExpression;
+    m_sRuleContextKey = sRuleContextKey;
   }
 
   @Nonnull
@@ -77,7 +148,68 @@ public class PSXPathBoundRule
   @ReturnsMutableCopy
   public ICommonsList <PSXPathBoundAssertReport> getAllBoundAssertReports ()
   {
-    return m_aBoundAssertReports.getClone ();
+    return new CommonsArrayList <> (m_aBoundAssertReports);
+  }
+
+  /**
+   * @return The number of bound asserts and reports. Always &ge; 0.
+   * @since 5.0.5
+   */
+  @Nonnegative
+  public int getBoundAssertReportCount ()
+  {
+    return m_aBoundAssertReports.length;
+  }
+
+  /**
+   * Get the bound assert or report at the specified index without copying the
+   * list.
+   *
+   * @param nIndex
+   *        The 0-based index. Must be &ge; 0 and &lt;
+   *        {@link #getBoundAssertReportCount()}.
+   * @return The bound assert/report at the specified index. Never
+   *         <code>null</code>.
+   * @since 5.0.5
+   */
+  @Nonnull
+  public PSXPathBoundAssertReport getBoundAssertReportAtIndex (@Nonnegative final int nIndex)
+  {
+    return m_aBoundAssertReports[nIndex];
+  }
+
+  /**
+   * @return The compiled expression that evaluates all tests of this rule in
+   *         one call. It returns a string with one '0' or '1' character per
+   *         assert/report in the order of {@link #getBoundAssertReportAtIndex(int)}.
+   *         May be <code>null</code>.
+   * @since 5.0.5
+   */
+  @Nullable
+  public XPathExpression getBoundFusedTestExpression ()
+  {
+    return m_aBoundFusedTestExpression;
+  }
+
+  /**
+   * @return <code>true</code> if a fused test expression is present.
+   * @since 5.0.5
+   */
+  public boolean hasBoundFusedTestExpression ()
+  {
+    return m_aBoundFusedTestExpression != null;
+  }
+
+  /**
+   * @return The key under which the nodes matching the rule context can be
+   *         shared with other rules having the same key. May be
+   *         <code>null</code> if the result must not be shared.
+   * @since 5.0.5
+   */
+  @Nullable
+  public String getRuleContextKey ()
+  {
+    return m_sRuleContextKey;
   }
 
   @Override
@@ -87,6 +219,8 @@ public class PSXPathBoundRule
                                        .append ("ruleExpression", m_sRuleExpression)
                                        .append ("boundRuleExpression", m_aBoundRuleExpression)
                                        .append ("boundAssertReports", m_aBoundAssertReports)
+                                       .appendIfNotNull ("boundFusedTestExpression", m_aBoundFusedTestExpression)
+                                       .appendIfNotNull ("ruleContextKey", m_sRuleContextKey)
                                        .getToString ();
   }
 }
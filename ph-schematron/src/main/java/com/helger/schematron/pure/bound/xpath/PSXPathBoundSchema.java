@@ -21,6 +21,7 @@ import java.util.Map;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
+import javax.xml.transform.URIResolver;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
@@ -29,22 +30,42 @@ import javax.xml.xpath.XPathFactory;
 import javax.xml.xpath.XPathFunctionResolver;
 import javax.xml.xpath.XPathVariableResolver;
 
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Attr;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.OverrideOnDemand;
+import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.CommonsHashSet;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashSet;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.collection.impl.ICommonsOrderedSet;
+import com.helger.commons.collection.impl.ICommonsSet;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.CSchematronXML;
 import com.helger.schematron.pure.binding.IPSQueryBinding;
+import com.helger.schematron.pure.binding.PSBindingSettings;
 import com.helger.schematron.pure.binding.SchematronBindException;
+import com.helger.schematron.pure.binding.xpath.CXPath;
 import com.helger.schematron.pure.binding.xpath.IPSXPathVariables;
 import com.helger.schematron.pure.binding.xpath.PSXPathVariables;
 import com.helger.schematron.pure.bound.AbstractPSBoundSchema;
+import com.helger.schematron.pure.bound.EPSAxisUsage;
+import com.helger.schematron.pure.bound.PSLocality;
+import com.helger.schematron.pure.bound.PSLocalityReport;
+import com.helger.schematron.pure.bound.PSRuleLocality;
+import com.helger.schematron.pure.bound.xpath.compiled.IPSCompiledExpression;
+import com.helger.schematron.pure.bound.xpath.compiled.PSCompiledFallbackException;
+import com.helger.schematron.pure.bound.xpath.compiled.PSCompiledXPathCompiler;
 import com.helger.schematron.pure.errorhandler.IPSErrorHandler;
 import com.helger.schematron.pure.model.IPSElement;
 import com.helger.schematron.pure.model.IPSHasMixedContent;
@@ -58,9 +79,11 @@ import com.helger.schematron.pure.model.PSSchema;
 import com.helger.schematron.pure.model.PSValueOf;
 import com.helger.schematron.pure.validation.IPSValidationHandler;
 import com.helger.schematron.pure.validation.SchematronValidationException;
+import com.helger.schematron.pure.validation.xpath.PSXPathValidationHandlerSVRL;
 import com.helger.schematron.saxon.SaxonNamespaceContext;
 import com.helger.schematron.xpath.XPathEvaluationHelper;
 import com.helger.schematron.xslt.util.PSErrorListener;
+import com.helger.xml.microdom.IMicroElement;
 import com.helger.xml.namespace.MapBasedNamespaceContext;
 import com.helger.xml.xpath.XPathHelper;
 
@@ -79,7 +102,19 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
   private final XPathVariableResolver m_aXPathVariableResolver;
   private final XPathFunctionResolver m_aXPathFunctionResolver;
   private final XPathFactory m_aXPathFactory;
+  private final PSXPathParameterResolver m_aParameterResolver;
+  private final PSXPathFunctionResolver m_aBuiltinFunctionResolver;
+  private String m_sBuiltinFunctionPrefix;
+  private PSXPathKeyFunction m_aKeyFunction;
+  private final PSXPathCodeListFunction m_aCodeListFunction = new PSXPathCodeListFunction ();
+  private final PSBindingSettings m_aBindingSettings;
+  private final boolean m_bFusedRuleEvaluation;
+  private final boolean m_bCompiledTestEvaluation;
+  private final URIResolver m_aURIResolver;
   private ICommonsList <PSXPathBoundPattern> m_aBoundPatterns;
+  private boolean m_bHasSharedRuleContexts = false;
+  private PSLocalityReport m_aLocalityReport;
+  private final ICommonsSet <PSXPathBoundRule> m_aIncrementallyLocalRules = new CommonsHashSet <> ();
 
   /**
    * Compile an XPath expression string to an {@link XPathExpressionException}
@@ -96,13 +131,26 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
    *         If expression cannot be compiled.
    */
   @Nullable
-  private static XPathExpression _compileXPath (@Nonnull final XPath aXPathContext,
-                                                @Nonnull final String sXPathExpression) throws XPathExpressionException
+  private XPathExpression _compileXPath (@Nonnull final XPath aXPathContext,
+                                         @Nonnull final String sXPathExpression) throws XPathExpressionException
   {
+    String sRealExpression = sXPathExpression;
+    if (m_aKeyFunction != null)
+    {
+      // Redirect key(a,b) to the built-in implementation
+      sRealExpression = PSXPathRewriteHelper.getWithFunctionRenamed (sRealExpression,
+                                                                     PSXPathKeyFunction.FUNCTION_NAME,
+                                                                     _getBuiltinFunctionName (PSXPathKeyFunction.FUNCTION_NAME));
+    }
+
+    // Replace code list membership tests with hash set lookups
+    sRealExpression = m_aCodeListFunction.getRewrittenExpression (sRealExpression,
+                                                                  () -> _getBuiltinFunctionName (PSXPathCodeListFunction.FUNCTION_NAME));
+
     XPathExpression ret = null;
     try
     {
-      ret = aXPathContext.compile (sXPathExpression);
+      ret = aXPathContext.compile (sRealExpression);
     }
     catch (final XPathExpressionException ex)
     {
@@ -112,6 +160,53 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
     return ret;
   }
 
+  /**
+   * Compile all tests of a rule into a single expression, that returns a string
+   * with one '0' or '1' character per test. Only expressions that are
+   * available in XPath 1.0 are used.
+   *
+   * @param aXPathContext
+   *        Context to use. May not be <code>null</code>.
+   * @param aRule
+   *        The source rule for error messages. May not be <code>null</code>.
+   * @param aBoundAssertReports
+   *        The bound asserts and reports of the rule. May not be
+   *        <code>null</code>.
+   * @return <code>null</code> if the rule has less than 2 tests or if the
+   *         fused expression cannot be compiled.
+   */
+  @Nullable
+  private XPathExpression _compileFusedTests (@Nonnull final XPath aXPathContext,
+                                              @Nonnull final PSRule aRule,
+                                              @Nonnull final ICommonsList <PSXPathBoundAssertReport> aBoundAssertReports)
+  {
+    if (aBoundAssertReports.size () < 2)
+      return null;
+
+    final StringBuilder aSB = new StringBuilder ("concat(");
+    for (final PSXPathBoundAssertReport aBoundAssertReport : aBoundAssertReports)
+    {
+      if (aSB.length () > 7)
+        aSB.append (", ");
+      // '1' if the test is true, '0' otherwise
+      aSB.append ("substring('01', number(boolean((")
+         .append (aBoundAssertReport.getTestExpression ())
+         .append ("))) + 1, 1)");
+    }
+    aSB.append (')');
+
+    try
+    {
+      return _compileXPath (aXPathContext, aSB.toString ());
+    }
+    catch (final XPathExpressionException ex)
+    {
+      // Fall back to the separate evaluation
+      warn (aRule, "Failed to compile the fused test expression - evaluating the tests separately: " + ex.getMessage ());
+      return null;
+    }
+  }
+
   @Nullable
   private ICommonsList <PSXPathBoundElement> _createBoundElements (@Nonnull final IPSHasMixedContent aMixedContent,
                                                                    @Nonnull final XPath aXPathContext,
@@ -280,6 +375,9 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
           try
           {
             final XPathExpression aTestExpr = _compileXPath (aXPathContext, sTest);
+            final IPSCompiledExpression aCompiledTestExpr = m_bCompiledTestEvaluation ? PSCompiledXPathCompiler.compile (sTest,
+                                                                                                                        getNamespaceContext ())
+                                                                                      : null;
             final ICommonsList <PSXPathBoundElement> aBoundElements = _createBoundElements (aAssertReport,
                                                                                             aXPathContext,
                                                                                             aRuleVariables);
@@ -293,6 +391,7 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
               final PSXPathBoundAssertReport aBoundAssertReport = new PSXPathBoundAssertReport (aAssertReport,
                                                                                                 sTest,
                                                                                                 aTestExpr,
+                                                                                                aCompiledTestExpr,
                                                                                                 aBoundElements,
                                                                                                 aBoundDiagnostics);
               aBoundAssertReports.add (aBoundAssertReport);
@@ -318,7 +417,16 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
         try
         {
           final XPathExpression aRuleContext = _compileXPath (aXPathContext, sRuleContext);
-          aBoundRule = new PSXPathBoundRule (aRule, sRuleContext, aRuleContext, aBoundAssertReports);
+          final XPathExpression aFusedTests = m_bFusedRuleEvaluation ? _compileFusedTests (aXPathContext,
+                                                                                           aRule,
+                                                                                           aBoundAssertReports)
+                                                                     : null;
+          aBoundRule = new PSXPathBoundRule (aRule,
+                                             sRuleContext,
+                                             aRuleContext,
+                                             aBoundAssertReports,
+                                             aFusedTests,
+                                             _getRuleContextKey (sRuleContext));
           aBoundRules.add (aBoundRule);
         }
         catch (final XPathExpressionException ex)
@@ -357,7 +465,7 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
   /**
    * Create a new bound schema. All the XPath pre-compilation happens inside
    * this constructor, so that the
-   * {@link #validate(Node, String, IPSValidationHandler)} method can be called
+   * {@link #validate(Node, String, IPSValidationHandler, Map)} method can be called
    * many times without compiling the XPath statements again and again.
    *
    * @param aQueryBinding
@@ -387,11 +495,219 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
                              @Nullable final IPSErrorHandler aCustomErrorListener,
                              @Nullable final XPathVariableResolver aXPathVariableResolver,
                              @Nullable final XPathFunctionResolver aXPathFunctionResolver) throws SchematronBindException
+  {
+    this (aQueryBinding,
+          aOrigSchema,
+          sPhase,
+          aCustomErrorListener,
+          aXPathVariableResolver,
+          aXPathFunctionResolver,
+          createXPathFactorySaxonFirst ());
+  }
+
+  /**
+   * Create a new bound schema using a specific XPath implementation.
+   *
+   * @param aQueryBinding
+   *        The query binding to be used. May not be <code>null</code>.
+   * @param aOrigSchema
+   *        The original schema that should be bound. May not be
+   *        <code>null</code>.
+   * @param sPhase
+   *        The selected phase. May be <code>null</code>.
+   * @param aCustomErrorListener
+   *        A custom error listener to be used. May be <code>null</code>.
+   * @param aXPathVariableResolver
+   *        Custom XPath variable resolver. May be <code>null</code>.
+   * @param aXPathFunctionResolver
+   *        Custom XPath function resolver. May be <code>null</code>.
+   * @param aXPathFactory
+   *        The XPath factory to compile all expressions with. May not be
+   *        <code>null</code>.
+   * @throws SchematronBindException
+   *         In case XPath expressions are incorrect and pre-compilation fails
+   * @since 5.0.5
+   */
+  public PSXPathBoundSchema (@Nonnull final IPSQueryBinding aQueryBinding,
+                             @Nonnull final PSSchema aOrigSchema,
+                             @Nullable final String sPhase,
+                             @Nullable final IPSErrorHandler aCustomErrorListener,
+                             @Nullable final XPathVariableResolver aXPathVariableResolver,
+                             @Nullable final XPathFunctionResolver aXPathFunctionResolver,
+                             @Nonnull final XPathFactory aXPathFactory) throws SchematronBindException
+  {
+    this (aQueryBinding,
+          aOrigSchema,
+          sPhase,
+          aCustomErrorListener,
+          aXPathVariableResolver,
+          aXPathFunctionResolver,
+          aXPathFactory,
+          PSBindingSettings.DEFAULT);
+  }
+
+  /**
+   * Create a new bound schema using a specific XPath implementation and
+   * specific binding settings.
+   *
+   * @param aQueryBinding
+   *        The query binding to be used. May not be <code>null</code>.
+   * @param aOrigSchema
+   *        The original schema that should be bound. May not be
+   *        <code>null</code>.
+   * @param sPhase
+   *        The selected phase. May be <code>null</code>.
+   * @param aCustomErrorListener
+   *        A custom error listener to be used. May be <code>null</code>.
+   * @param aXPathVariableResolver
+   *        Custom XPath variable resolver. May be <code>null</code>.
+   * @param aXPathFunctionResolver
+   *        Custom XPath function resolver. May be <code>null</code>.
+   * @param aXPathFactory
+   *        The XPath factory to compile all expressions with. May not be
+   *        <code>null</code>.
+   * @param aBindingSettings
+   *        The binding settings to use. May be <code>null</code> to use
+   *        {@link PSBindingSettings#DEFAULT}.
+   * @throws SchematronBindException
+   *         In case XPath expressions are incorrect and pre-compilation fails
+   * @since 5.0.5
+   */
+  public PSXPathBoundSchema (@Nonnull final IPSQueryBinding aQueryBinding,
+                             @Nonnull final PSSchema aOrigSchema,
+                             @Nullable final String sPhase,
+                             @Nullable final IPSErrorHandler aCustomErrorListener,
+                             @Nullable final XPathVariableResolver aXPathVariableResolver,
+                             @Nullable final XPathFunctionResolver aXPathFunctionResolver,
+                             @Nonnull final XPathFactory aXPathFactory,
+                             @Nullable final PSBindingSettings aBindingSettings) throws SchematronBindException
   {
     super (aQueryBinding, aOrigSchema, sPhase, aCustomErrorListener);
+    ValueEnforcer.notNull (aXPathFactory, "XPathFactory");
     m_aXPathVariableResolver = aXPathVariableResolver;
     m_aXPathFunctionResolver = aXPathFunctionResolver;
-    m_aXPathFactory = createXPathFactorySaxonFirst ();
+    m_aXPathFactory = aXPathFactory;
+    m_aBindingSettings = aBindingSettings != null ? aBindingSettings : PSBindingSettings.DEFAULT;
+    m_bFusedRuleEvaluation = m_aBindingSettings.isFusedRuleEvaluation ();
+    m_bCompiledTestEvaluation = m_aBindingSettings.isCompiledTestEvaluation ();
+    m_aURIResolver = m_aBindingSettings.getURIResolver ();
+
+    // Are there any external parameters declared?
+    final ICommonsOrderedMap <String, Object> aParameters = PSXPathParameterResolver.getAllDeclaredParameters (aOrigSchema);
+    m_aParameterResolver = aParameters.isEmpty () ? null
+                                                  : new PSXPathParameterResolver (aParameters, aXPathVariableResolver);
+    m_aBuiltinFunctionResolver = new PSXPathFunctionResolver (aXPathFunctionResolver);
+    m_aBuiltinFunctionResolver.addFunction (PSXPathCodeListFunction.FUNCTION_NAME,
+                                            PSXPathCodeListFunction.FUNCTION_ARITY,
+                                            m_aCodeListFunction);
+  }
+
+  /**
+   * @return The prefix bound to {@link CXPath#NAMESPACE_PS_FUNCTIONS} in the
+   *         namespace context. A free prefix is chosen, if the default prefix
+   *         is already in use. Never <code>null</code>.
+   */
+  @Nonnull
+  private String _getOrCreateBuiltinFunctionPrefix ()
+  {
+    if (m_sBuiltinFunctionPrefix == null)
+    {
+      final MapBasedNamespaceContext aNamespaceContext = getNamespaceContext ();
+      String sPrefix = CXPath.DEFAULT_PREFIX_PS_FUNCTIONS;
+      int nIndex = 0;
+      while (aNamespaceContext.getCustomNamespaceURI (sPrefix) != null)
+        sPrefix = CXPath.DEFAULT_PREFIX_PS_FUNCTIONS + (++nIndex);
+      aNamespaceContext.addMapping (sPrefix, CXPath.NAMESPACE_PS_FUNCTIONS);
+      m_sBuiltinFunctionPrefix = sPrefix;
+    }
+    return m_sBuiltinFunctionPrefix;
+  }
+
+  /**
+   * @param sLocalName
+   *        Local name of the built-in function. May not be <code>null</code>.
+   * @return The prefixed name of the built-in function. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  private String _getBuiltinFunctionName (@Nonnull final String sLocalName)
+  {
+    return _getOrCreateBuiltinFunctionPrefix () + ':' + sLocalName;
+  }
+
+  /**
+   * Get the key under which the nodes matching the passed rule context can be
+   * shared with other rules (see {@link PSXPathRuleContextCache}). The key
+   * consists of the normalized expression and the namespace URIs of all used
+   * prefixes, so that equal expressions from different schemas with different
+   * prefix bindings are not mixed up.
+   *
+   * @param sRuleContext
+   *        The rule context with all global variables applied. May not be
+   *        <code>null</code>.
+   * @return <code>null</code> if the result of the expression depends on the
+   *         state of this schema (unresolved variables or the key function)
+   *         and must therefore not be shared.
+   */
+  @Nullable
+  private String _getRuleContextKey (@Nonnull final String sRuleContext)
+  {
+    if (sRuleContext.indexOf ('$') >= 0)
+      return null;
+    if (m_aKeyFunction != null &&
+        !sRuleContext.equals (PSXPathRewriteHelper.getWithFunctionRenamed (sRuleContext,
+                                                                          PSXPathKeyFunction.FUNCTION_NAME,
+                                                                          "_")))
+      return null;
+
+    final MapBasedNamespaceContext aNamespaceContext = getNamespaceContext ();
+    final StringBuilder aSB = new StringBuilder (PSXPathRewriteHelper.getNormalizedExpression (sRuleContext));
+    for (final String sPrefix : PSXPathRewriteHelper.getAllUsedPrefixes (sRuleContext))
+      aSB.append ('\u0000').append (sPrefix).append ('=').append (aNamespaceContext.getNamespaceURI (sPrefix));
+    return aSB.toString ();
+  }
+
+  /**
+   * Compile all <code>xsl:key</code> declarations of the schema and register
+   * the key function if at least one key is present. Keys that cannot be
+   * compiled are ignored with a warning.
+   *
+   * @param aXPathContext
+   *        The XPath context to use. May not be <code>null</code>.
+   */
+  private void _bindKeys (@Nonnull final XPath aXPathContext)
+  {
+    final PSSchema aSchema = getOriginalSchema ();
+    final ICommonsList <PSXPathKeyDefinition> aKeys = new CommonsArrayList <> ();
+    for (final IMicroElement eKey : PSXPathKeyDefinition.getAllKeyElements (aSchema))
+    {
+      final String sName = eKey.getAttributeValue (CSchematronXML.ATTR_NAME);
+      final String sMatch = eKey.getAttributeValue (PSXPathKeyDefinition.ATTR_MATCH);
+      final String sUse = eKey.getAttributeValue (PSXPathKeyDefinition.ATTR_USE);
+      try
+      {
+        final XPathExpression aMatchExpr = aXPathContext.compile (PSXPathKeyDefinition.getMatchAsSelect (sMatch));
+        final XPathExpression aUseExpr = aXPathContext.compile (sUse);
+        aKeys.add (new PSXPathKeyDefinition (sName,
+                                             sMatch,
+                                             sUse,
+                                             aMatchExpr,
+                                             aUseExpr,
+                                             PSXPathKeyDefinition.isNodeSetExpression (aUseExpr, sUse)));
+      }
+      catch (final XPathExpressionException ex)
+      {
+        warn (aSchema, "Failed to compile xsl:key '" + sName + "' - ignoring it: " + ex.getMessage ());
+      }
+    }
+
+    if (aKeys.isNotEmpty ())
+    {
+      m_aKeyFunction = new PSXPathKeyFunction (aKeys);
+      m_aBuiltinFunctionResolver.addFunction (PSXPathKeyFunction.FUNCTION_NAME,
+                                              PSXPathKeyFunction.FUNCTION_ARITY,
+                                              m_aKeyFunction);
+    }
   }
 
   @Nonnull
@@ -399,8 +715,9 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
   {
     final MapBasedNamespaceContext aNamespaceContext = getNamespaceContext ();
     final XPath aXPathContext = XPathHelper.createNewXPath (m_aXPathFactory,
-                                                            m_aXPathVariableResolver,
-                                                            m_aXPathFunctionResolver,
+                                                            m_aParameterResolver != null ? m_aParameterResolver
+                                                                                         : m_aXPathVariableResolver,
+                                                            m_aBuiltinFunctionResolver,
                                                             aNamespaceContext);
 
     if ("net.sf.saxon.xpath.XPathEvaluator".equals (aXPathContext.getClass ().getName ()))
@@ -413,6 +730,10 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
 
       // Wrap the PSErrorHandler to a ErrorListener
       aSaxonXPath.getConfiguration ().setErrorListener (new PSErrorListener (getErrorHandler ()));
+
+      // Resolve doc() and document()
+      if (m_aURIResolver != null)
+        aSaxonXPath.getConfiguration ().setURIResolver (m_aURIResolver);
     }
     return aXPathContext;
   }
@@ -447,6 +768,9 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
 
     final XPath aXPathContext = _createXPathContext ();
 
+    // Compile all keys
+    _bindKeys (aXPathContext);
+
     // Pre-compile all diagnostics first
     final ICommonsMap <String, PSXPathBoundDiagnostic> aBoundDiagnostics = _createBoundDiagnostics (aXPathContext,
                                                                                                     aGlobalVariables);
@@ -460,9 +784,163 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
     m_aBoundPatterns = _createBoundPatterns (aXPathContext, aBoundDiagnostics, aGlobalVariables);
     if (m_aBoundPatterns == null)
       throw new SchematronBindException ("Failed to precompile the supplied schema.");
+
+    // Check if at least two rules share the same context, so that the matching
+    // nodes can be evaluated only once per validation
+    final ICommonsSet <String> aRuleContextKeys = new CommonsHashSet <> ();
+    for (final PSXPathBoundPattern aBoundPattern : m_aBoundPatterns)
+      for (final PSXPathBoundRule aBoundRule : aBoundPattern.getAllBoundRules ())
+      {
+        final String sKey = aBoundRule.getRuleContextKey ();
+        if (sKey != null && !aRuleContextKeys.add (sKey))
+          m_bHasSharedRuleContexts = true;
+      }
+
+    m_aLocalityReport = _createLocalityReport ();
+    for (final PSXPathBoundPattern aBoundPattern : m_aBoundPatterns)
+      for (final PSXPathBoundRule aBoundRule : aBoundPattern.getAllBoundRules ())
+        if (_isIncrementallyLocal (aBoundRule))
+          m_aIncrementallyLocalRules.add (aBoundRule);
     return this;
   }
 
+  /**
+   * @return <code>true</code> if the expression only accesses the subtree of
+   *         the context node or external documents.
+   */
+  private static boolean _isIncrementallyLocal (@Nullable final String sExpr)
+  {
+    if (sExpr == null)
+      return true;
+    for (final EPSAxisUsage eUsage : PSXPathLocalityAnalyzer.getLocality (sExpr).getAllUsages ())
+      if (eUsage != EPSAxisUsage.EXTERNAL_DOCUMENT)
+        return false;
+    return true;
+  }
+
+  private static boolean _isIncrementallyLocal (@Nonnull final Iterable <PSXPathBoundElement> aBoundElements)
+  {
+    for (final PSXPathBoundElement aBoundElement : aBoundElements)
+      if (!_isIncrementallyLocal (aBoundElement.getExpression ()))
+        return false;
+    return true;
+  }
+
+  /**
+   * Check if the results of the passed rule for a node only depend on the
+   * subtree of that node. This is the case if the rule context (apart from the
+   * leading absolute path), all tests and all message expressions only access
+   * the subtree of the context node.
+   */
+  private static boolean _isIncrementallyLocal (@Nonnull final PSXPathBoundRule aBoundRule)
+  {
+    String sContext = aBoundRule.getRuleExpression ();
+    if (sContext.startsWith ("//"))
+      sContext = sContext.substring (2);
+    else
+      if (sContext.startsWith ("/"))
+        sContext = sContext.substring (1);
+    if (!_isIncrementallyLocal (sContext))
+      return false;
+
+    for (final PSXPathBoundAssertReport aBoundAssertReport : aBoundRule.getAllBoundAssertReports ())
+    {
+      if (!_isIncrementallyLocal (aBoundAssertReport.getTestExpression ()))
+        return false;
+      if (!_isIncrementallyLocal (aBoundAssertReport.getAllBoundContentElements ()))
+        return false;
+      final ICommonsList <String> aDiagnostics = aBoundAssertReport.getAssertReport ().getAllDiagnostics ();
+      if (aDiagnostics != null)
+        for (final String sDiagnosticID : aDiagnostics)
+        {
+          final PSXPathBoundDiagnostic aBoundDiagnostic = aBoundAssertReport.getBoundDiagnosticOfID (sDiagnosticID);
+          if (aBoundDiagnostic != null && !_isIncrementallyLocal (aBoundDiagnostic.getAllBoundContentElements ()))
+            return false;
+        }
+    }
+    return true;
+  }
+
+  /**
+   * Check if the results of the passed rule for a node only depend on the
+   * subtree of that node, so that incremental validation can reuse previous
+   * results for unchanged nodes.
+   *
+   * @param aBoundRule
+   *        The bound rule of this schema to check. May be <code>null</code>.
+   * @return <code>true</code> if the rule is local.
+   * @since 5.0.5
+   */
+  public boolean isIncrementallyLocal (@Nullable final PSXPathBoundRule aBoundRule)
+  {
+    return aBoundRule != null && m_aIncrementallyLocalRules.contains (aBoundRule);
+  }
+
+  @Nonnull
+  private PSLocalityReport _createLocalityReport ()
+  {
+    final ICommonsList <PSRuleLocality> aRuleLocalities = new CommonsArrayList <> ();
+    for (final PSXPathBoundPattern aBoundPattern : m_aBoundPatterns)
+      for (final PSXPathBoundRule aBoundRule : aBoundPattern.getAllBoundRules ())
+      {
+        final ICommonsOrderedMap <PSAssertReport, PSLocality> aAssertReportLocalities = new CommonsLinkedHashMap <> ();
+        for (final PSXPathBoundAssertReport aBoundAssertReport : aBoundRule.getAllBoundAssertReports ())
+          aAssertReportLocalities.put (aBoundAssertReport.getAssertReport (),
+                                       PSXPathLocalityAnalyzer.getLocality (aBoundAssertReport.getTestExpression ()));
+        aRuleLocalities.add (new PSRuleLocality (aBoundPattern.getPattern (),
+                                                 aBoundRule.getRule (),
+                                                 aBoundRule.getRuleExpression (),
+                                                 PSXPathLocalityAnalyzer.getLocality (aBoundRule.getRuleExpression ()),
+                                                 aAssertReportLocalities));
+      }
+    return new PSLocalityReport (aRuleLocalities);
+  }
+
+  @Nonnull
+  public PSLocalityReport getLocalityReport ()
+  {
+    if (m_aLocalityReport == null)
+      throw new IllegalStateException ("bind was never called!");
+    return m_aLocalityReport;
+  }
+
+  /**
+   * @return <code>true</code> if at least two rules of this schema share the
+   *         same rule context. In this case the nodes matching the rule context
+   *         are evaluated only once per validation.
+   * @since 5.0.5
+   */
+  public boolean hasSharedRuleContexts ()
+  {
+    return m_bHasSharedRuleContexts;
+  }
+
+  /**
+   * @return A copy of all bound patterns. Never <code>null</code>.
+   * @throws IllegalStateException
+   *         if bind was never called
+   * @since 5.0.5
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <PSXPathBoundPattern> getAllBoundPatterns ()
+  {
+    if (m_aBoundPatterns == null)
+      throw new IllegalStateException ("bind was never called!");
+    return m_aBoundPatterns.getClone ();
+  }
+
+  /**
+   * @return The binding settings used to bind this schema. Never
+   *         <code>null</code>.
+   * @since 5.0.5
+   */
+  @Nonnull
+  public PSBindingSettings getBindingSettings ()
+  {
+    return m_aBindingSettings;
+  }
+
   @Nullable
   public XPathVariableResolver getXPathVariableResolver ()
   {
@@ -475,6 +953,15 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
     return m_aXPathFunctionResolver;
   }
 
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedSet <String> getAllParameterNames ()
+  {
+    if (m_aParameterResolver == null)
+      return new CommonsLinkedHashSet <> ();
+    return new CommonsLinkedHashSet <> (m_aParameterResolver.getAllDeclaredParameters ().keySet ());
+  }
+
   @Nonnull
   public String getValidationContext (@Nonnull final String sRuleContext)
   {
@@ -489,13 +976,485 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
   public void validate (@Nonnull final Node aNode,
                         @Nullable final String sBaseURI,
                         @Nonnull final IPSValidationHandler aValidationHandler) throws SchematronValidationException
+  {
+    validate (aNode, sBaseURI, aValidationHandler, (Map <String, ?>) null);
+  }
+
+  public void validate (@Nonnull final Node aNode,
+                        @Nullable final String sBaseURI,
+                        @Nonnull final IPSValidationHandler aValidationHandler,
+                        @Nullable final Map <String, ?> aParameters) throws SchematronValidationException
+  {
+    validate (aNode, sBaseURI, aValidationHandler, aParameters, (PSXPathRuleContextCache) null);
+  }
+
+  /**
+   * Validate the passed node and share the nodes matching the rule contexts
+   * via the passed cache. This is used to validate one document against
+   * several schemas, evaluating each distinct rule context only once.
+   *
+   * @param aNode
+   *        The node to validate. May not be <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the node. May be <code>null</code>.
+   * @param aValidationHandler
+   *        The validation handler to use. May not be <code>null</code>.
+   * @param aParameters
+   *        External parameters. May be <code>null</code>.
+   * @param aRuleContextCache
+   *        The rule context cache to use. It must have been created for the
+   *        same node. May be <code>null</code> in which case results are only
+   *        shared between the rules of this schema.
+   * @throws SchematronValidationException
+   *         In case of a validation error
+   * @since 5.0.5
+   */
+  public void validate (@Nonnull final Node aNode,
+                        @Nullable final String sBaseURI,
+                        @Nonnull final IPSValidationHandler aValidationHandler,
+                        @Nullable final Map <String, ?> aParameters,
+                        @Nullable final PSXPathRuleContextCache aRuleContextCache) throws SchematronValidationException
+  {
+    validate (aNode, sBaseURI, aValidationHandler, aParameters, aRuleContextCache, (IPSXPathRuleFilter) null);
+  }
+
+  /**
+   * Create the cache that shares the nodes matching identical rule contexts
+   * within a single validation, if no cache was passed explicitly. Override
+   * this method in a derived class to modify the behavior.
+   *
+   * @param aNode
+   *        The node to be validated. May not be <code>null</code>.
+   * @return The rule context cache to use or <code>null</code> to evaluate
+   *         each rule context separately. This implementation returns a new
+   *         cache only if the schema contains shared rule contexts (see
+   *         {@link #hasSharedRuleContexts()}).
+   * @since 5.0.5
+   */
+  @Nullable
+  @OverrideOnDemand
+  protected PSXPathRuleContextCache createRuleContextCache (@Nonnull final Node aNode)
+  {
+    return m_bHasSharedRuleContexts ? new PSXPathRuleContextCache (aNode) : null;
+  }
+
+  /**
+   * Validate the passed node, considering only the rules and rule matching
+   * nodes accepted by the passed filter.
+   *
+   * @param aNode
+   *        The node to validate. May not be <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the node. May be <code>null</code>.
+   * @param aValidationHandler
+   *        The validation handler to use. May not be <code>null</code>.
+   * @param aParameters
+   *        External parameters. May be <code>null</code>.
+   * @param aRuleContextCache
+   *        The rule context cache to use. It must have been created for the
+   *        same node. May be <code>null</code>.
+   * @param aRuleFilter
+   *        The rule filter to use. May be <code>null</code> to validate all
+   *        rules on all nodes.
+   * @throws SchematronValidationException
+   *         In case of a validation error
+   * @since 5.0.5
+   */
+  public void validate (@Nonnull final Node aNode,
+                        @Nullable final String sBaseURI,
+                        @Nonnull final IPSValidationHandler aValidationHandler,
+                        @Nullable final Map <String, ?> aParameters,
+                        @Nullable final PSXPathRuleContextCache aRuleContextCache,
+                        @Nullable final IPSXPathRuleFilter aRuleFilter) throws SchematronValidationException
   {
     ValueEnforcer.notNull (aNode, "Node");
     ValueEnforcer.notNull (aValidationHandler, "ValidationHandler");
+    if (aRuleContextCache != null)
+      ValueEnforcer.isTrue (aRuleContextCache.getNode () == aNode, "The rule context cache belongs to a different node");
 
     if (m_aBoundPatterns == null)
       throw new IllegalStateException ("bind was never called!");
 
+    if (m_aParameterResolver == null && aParameters != null && !aParameters.isEmpty ())
+      s_aLogger.warn ("Ignoring the parameters " +
+                      aParameters.keySet () +
+                      " because the Schematron declares no external parameters");
+
+    // Remember the previous state in case of nested validations
+    final Map <String, ?> aOldParameters = m_aParameterResolver == null ? null
+                                                                        : m_aParameterResolver.setCurrentParameters (aParameters);
+    final PSXPathKeyFunction.State aOldKeyState = m_aKeyFunction == null ? null
+                                                                         : m_aKeyFunction.beginValidation (aNode,
+                                                                                                           sBaseURI);
+    try
+    {
+      // Identical rule contexts of different patterns are evaluated only once
+      final PSXPathRuleContextCache aRealRuleContextCache = aRuleContextCache != null ? aRuleContextCache
+                                                                                      : createRuleContextCache (aNode);
+      _validate (aNode, sBaseURI, aValidationHandler, aRealRuleContextCache, aRuleFilter);
+    }
+    finally
+    {
+      if (m_aKeyFunction != null)
+        m_aKeyFunction.endValidation (aOldKeyState);
+      if (m_aParameterResolver != null)
+        m_aParameterResolver.setCurrentParameters (aOldParameters);
+    }
+  }
+
+  /**
+   * Validate the passed node completely and create the SVRL, sharing the nodes
+   * matching the rule contexts via the passed cache.
+   *
+   * @param aNode
+   *        The node to validate. May not be <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the node. May be <code>null</code>.
+   * @param aParameters
+   *        External parameters. May be <code>null</code>.
+   * @param aRuleContextCache
+   *        The rule context cache to use. May be <code>null</code>.
+   * @return The SVRL. Never <code>null</code>.
+   * @throws SchematronValidationException
+   *         In case of a validation error
+   * @since 5.0.5
+   */
+  @Nonnull
+  public SchematronOutputType validateComplete (@Nonnull final Node aNode,
+                                                @Nullable final String sBaseURI,
+                                                @Nullable final Map <String, ?> aParameters,
+                                                @Nullable final PSXPathRuleContextCache aRuleContextCache) throws SchematronValidationException
+  {
+    final PSXPathValidationHandlerSVRL aValidationHandler = new PSXPathValidationHandlerSVRL (getErrorHandler ());
+    validate (aNode, sBaseURI, aValidationHandler, aParameters, aRuleContextCache);
+    return aValidationHandler.getSVRL ();
+  }
+
+  /**
+   * Validate the passed node and create the SVRL, considering only the rules
+   * and rule matching nodes accepted by the passed filter.
+   *
+   * @param aNode
+   *        The node to validate. May not be <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the node. May be <code>null</code>.
+   * @param aParameters
+   *        External parameters. May be <code>null</code>.
+   * @param aRuleContextCache
+   *        The rule context cache to use. May be <code>null</code>.
+   * @param aRuleFilter
+   *        The rule filter to use. May be <code>null</code> to validate all
+   *        rules on all nodes.
+   * @return The SVRL. Never <code>null</code>.
+   * @throws SchematronValidationException
+   *         In case of a validation error
+   * @since 5.0.5
+   */
+  @Nonnull
+  public SchematronOutputType validateComplete (@Nonnull final Node aNode,
+                                                @Nullable final String sBaseURI,
+                                                @Nullable final Map <String, ?> aParameters,
+                                                @Nullable final PSXPathRuleContextCache aRuleContextCache,
+                                                @Nullable final IPSXPathRuleFilter aRuleFilter) throws SchematronValidationException
+  {
+    final PSXPathValidationHandlerSVRL aValidationHandler = new PSXPathValidationHandlerSVRL (getErrorHandler ());
+    validate (aNode, sBaseURI, aValidationHandler, aParameters, aRuleContextCache, aRuleFilter);
+    return aValidationHandler.getSVRL ();
+  }
+
+  /**
+   * Validate the passed node again after some subtrees were edited, reusing
+   * the results of the previous validation for all nodes that are not affected
+   * by the changes. The rule contexts are always evaluated on the whole
+   * document, but the tests of rules that only access the subtree of the
+   * context node (see {@link #isIncrementallyLocal(PSXPathBoundRule)}) are
+   * only evaluated on rule matching nodes that are inside or above a changed
+   * subtree. All other rules are evaluated completely. The created SVRL is
+   * equivalent to the one of {@link #validateComplete(Node, String, Map)}.
+   *
+   * @param aNode
+   *        The node to validate. Must be the same (modified) node as in the
+   *        previous validation to reuse results. May not be <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the node. May be <code>null</code>.
+   * @param aParameters
+   *        External parameters. May be <code>null</code>.
+   * @param aPrevious
+   *        The result of the previous validation of the same node with the same
+   *        parameters. It must not be used anymore after this call. May be
+   *        <code>null</code> for a full validation.
+   * @param aChangedSubtrees
+   *        The roots of all subtrees that were changed since the previous
+   *        validation. For removed nodes, the former parent node must be
+   *        passed. May be <code>null</code> for a full validation.
+   * @return The incremental result that can be passed to the next call of this
+   *         method. Never <code>null</code>.
+   * @throws SchematronValidationException
+   *         In case of a validation error
+   * @since 5.0.5
+   */
+  @Nonnull
+  public PSXPathIncrementalResult validateIncrementally (@Nonnull final Node aNode,
+                                                         @Nullable final String sBaseURI,
+                                                         @Nullable final Map <String, ?> aParameters,
+                                                         @Nullable final PSXPathIncrementalResult aPrevious,
+                                                         @Nullable final Iterable <? extends Node> aChangedSubtrees) throws SchematronValidationException
+  {
+    return new PSXPathIncrementalValidator (this, getErrorHandler ()).validate (aNode,
+                                                                              sBaseURI,
+                                                                              aParameters,
+                                                                              aPrevious,
+                                                                              aChangedSubtrees);
+  }
+
+  /**
+   * Validate only a fragment of a document. The rule contexts and tests are
+   * evaluated in the context of the whole owner document, but only rule
+   * matching nodes that are inside the passed fragment (including the fragment
+   * root itself) are validated.
+   *
+   * @param aFragmentRoot
+   *        The root node of the fragment to validate. May not be
+   *        <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the document. May be <code>null</code>.
+   * @param aParameters
+   *        External parameters. May be <code>null</code>.
+   * @return The SVRL of the fragment. Never <code>null</code>.
+   * @throws SchematronValidationException
+   *         In case of a validation error
+   * @since 5.0.5
+   */
+  @Nonnull
+  public SchematronOutputType validateFragmentComplete (@Nonnull final Node aFragmentRoot,
+                                                        @Nullable final String sBaseURI,
+                                                        @Nullable final Map <String, ?> aParameters) throws SchematronValidationException
+  {
+    ValueEnforcer.notNull (aFragmentRoot, "FragmentRoot");
+
+    final Node aDocument = aFragmentRoot.getNodeType () == Node.DOCUMENT_NODE ? aFragmentRoot
+                                                                              : aFragmentRoot.getOwnerDocument ();
+    if (aDocument == null)
+      throw new IllegalArgumentException ("The fragment root has no owner document");
+
+    final IPSXPathRuleFilter aFilter = new IPSXPathRuleFilter ()
+    {
+      @Override
+      public boolean isNodeApplicable (@Nonnull final PSXPathBoundRule aBoundRule, @Nonnull final Node aRuleMatchingNode)
+      {
+        Node aCur = aRuleMatchingNode.getNodeType () == Node.ATTRIBUTE_NODE ? ((Attr) aRuleMatchingNode).getOwnerElement ()
+                                                                            : aRuleMatchingNode;
+        while (aCur != null)
+        {
+          if (aCur == aFragmentRoot)
+            return true;
+          aCur = aCur.getParentNode ();
+        }
+        return false;
+      }
+    };
+    final PSXPathValidationHandlerSVRL aValidationHandler = new PSXPathValidationHandlerSVRL (getErrorHandler ());
+    validate (aDocument, sBaseURI, aValidationHandler, aParameters, (PSXPathRuleContextCache) null, aFilter);
+    return aValidationHandler.getSVRL ();
+  }
+
+  /**
+   * Evaluate a single test on a single node.
+   *
+   * @return <code>null</code> if the evaluation failed. The error was already
+   *         emitted.
+   */
+  @Nullable
+  private Boolean _evaluateTest (@Nonnull final PSRule aRule,
+                                 @Nonnull final PSXPathBoundAssertReport aBoundAssertReport,
+                                 @Nonnull final Node aRuleMatchingNode,
+                                 @Nullable final String sBaseURI)
+  {
+    final IPSCompiledExpression aCompiledTest = aBoundAssertReport.getCompiledTestExpression ();
+    if (aCompiledTest != null)
+    {
+      try
+      {
+        return Boolean.valueOf (aCompiledTest.evaluateBoolean (aRuleMatchingNode));
+      }
+      catch (final PSCompiledFallbackException ex)
+      {
+        // Use the XPath API
+      }
+    }
+
+    try
+    {
+      return (Boolean) XPathEvaluationHelper.evaluate (aBoundAssertReport.getBoundTestExpression (),
+                                                       aRuleMatchingNode,
+                                                       XPathConstants.BOOLEAN,
+                                                       sBaseURI);
+    }
+    catch (final XPathExpressionException ex)
+    {
+      error (aRule,
+             "Failed to evaluate XPath expression to a boolean: '" + aBoundAssertReport.getTestExpression () + "'",
+             ex.getCause () != null ? ex.getCause () : ex);
+      return null;
+    }
+  }
+
+  /**
+   * Invoke the failed assert or successful report callback if applicable.
+   *
+   * @return <code>true</code> if the validation should be stopped.
+   */
+  private static boolean _handleTestResult (@Nonnull final PSXPathBoundAssertReport aBoundAssertReport,
+                                            final boolean bTestResult,
+                                            @Nonnull final Node aRuleMatchingNode,
+                                            final int nNodeIndex,
+                                            @Nonnull final IPSValidationHandler aValidationHandler) throws SchematronValidationException
+  {
+    final PSAssertReport aAssertReport = aBoundAssertReport.getAssertReport ();
+    if (aAssertReport.isAssert ())
+    {
+      // It's an assert
+      if (!bTestResult)
+      {
+        // Assert failed
+        return aValidationHandler.onFailedAssert (aAssertReport,
+                                                  aBoundAssertReport.getTestExpression (),
+                                                  aRuleMatchingNode,
+                                                  nNodeIndex,
+                                                  aBoundAssertReport)
+                                 .isBreak ();
+      }
+    }
+    else
+    {
+      // It's a report
+      if (bTestResult)
+      {
+        // Successful report
+        return aValidationHandler.onSuccessfulReport (aAssertReport,
+                                                      aBoundAssertReport.getTestExpression (),
+                                                      aRuleMatchingNode,
+                                                      nNodeIndex,
+                                                      aBoundAssertReport)
+                                 .isBreak ();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Validate all nodes matching a rule one after the other, using the fused
+   * test expression if available.
+   *
+   * @return <code>true</code> if the validation should be stopped.
+   */
+  private boolean _validateNodeMajor (@Nonnull final PSXPathBoundRule aBoundRule,
+                                      @Nonnull final NodeList aRuleMatchingNodes,
+                                      @Nullable final String sBaseURI,
+                                      @Nonnull final IPSValidationHandler aValidationHandler) throws SchematronValidationException
+  {
+    final PSRule aRule = aBoundRule.getRule ();
+    final XPathExpression aFusedTests = aBoundRule.getBoundFusedTestExpression ();
+    final int nBoundAssertReports = aBoundRule.getBoundAssertReportCount ();
+    final int nRuleMatchingNodes = aRuleMatchingNodes.getLength ();
+    for (int i = 0; i < nRuleMatchingNodes; ++i)
+    {
+      final Node aRuleMatchingNode = aRuleMatchingNodes.item (i);
+      aValidationHandler.onRule (aRule, aBoundRule.getRuleExpression ());
+
+      String sResults = null;
+      if (aFusedTests != null)
+      {
+        try
+        {
+          sResults = (String) XPathEvaluationHelper.evaluate (aFusedTests,
+                                                              aRuleMatchingNode,
+                                                              XPathConstants.STRING,
+                                                              sBaseURI);
+          if (sResults != null && sResults.length () != nBoundAssertReports)
+            sResults = null;
+        }
+        catch (final XPathExpressionException ex)
+        {
+          // At least one test failed - evaluate separately to get the
+          // details
+          sResults = null;
+        }
+      }
+
+      for (int nAssertReport = 0; nAssertReport < nBoundAssertReports; ++nAssertReport)
+      {
+        final PSXPathBoundAssertReport aBoundAssertReport = aBoundRule.getBoundAssertReportAtIndex (nAssertReport);
+        if (aValidationHandler.onBeforeTestEvaluation (aBoundAssertReport.getAssertReport (), aRuleMatchingNode)
+                              .isBreak ())
+          return true;
+        final Boolean aTestResult = sResults != null ? Boolean.valueOf (sResults.charAt (nAssertReport) == '1')
+                                                     : _evaluateTest (aRule,
+                                                                      aBoundAssertReport,
+                                                                      aRuleMatchingNode,
+                                                                      sBaseURI);
+        if (aTestResult != null &&
+            _handleTestResult (aBoundAssertReport,
+                               aTestResult.booleanValue (),
+                               aRuleMatchingNode,
+                               i,
+                               aValidationHandler))
+          return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get all nodes matching the rule context of the passed rule, using the
+   * optional cache.
+   */
+  @Nonnull
+  private static NodeList _getRuleMatchingNodes (@Nonnull final PSXPathBoundRule aBoundRule,
+                                                 @Nonnull final Node aNode,
+                                                 @Nullable final String sBaseURI,
+                                                 @Nullable final PSXPathRuleContextCache aRuleContextCache) throws XPathExpressionException
+  {
+    final String sKey = aRuleContextCache == null ? null : aBoundRule.getRuleContextKey ();
+    if (sKey != null)
+    {
+      final NodeList aCached = aRuleContextCache.getCachedNodes (aNode, sKey);
+      if (aCached != null)
+        return aCached;
+    }
+
+    final NodeList ret = XPathEvaluationHelper.evaluate (aBoundRule.getBoundRuleExpression (),
+                                                         aNode,
+                                                         XPathConstants.NODESET,
+                                                         sBaseURI);
+    if (sKey != null)
+      aRuleContextCache.putCachedNodes (sKey, ret);
+    return ret;
+  }
+
+  @Nonnull
+  private static NodeList _getFilteredNodes (@Nonnull final PSXPathBoundRule aBoundRule,
+                                             @Nonnull final NodeList aNodes,
+                                             @Nonnull final IPSXPathRuleFilter aRuleFilter)
+  {
+    final int nLength = aNodes.getLength ();
+    final ICommonsList <Node> ret = new CommonsArrayList <> (nLength);
+    for (int i = 0; i < nLength; ++i)
+    {
+      final Node aItem = aNodes.item (i);
+      if (aRuleFilter.isNodeApplicable (aBoundRule, aItem))
+        ret.add (aItem);
+    }
+    return ret.size () == nLength ? aNodes : new PSXPathNodeList (ret);
+  }
+
+  private void _validate (@Nonnull final Node aNode,
+                          @Nullable final String sBaseURI,
+                          @Nonnull final IPSValidationHandler aValidationHandler,
+                          @Nullable final PSXPathRuleContextCache aRuleContextCache,
+                          @Nullable final IPSXPathRuleFilter aRuleFilter) throws SchematronValidationException
+  {
+
     final PSSchema aSchema = getOriginalSchema ();
     final PSPhase aPhase = getPhase ();
 
@@ -509,18 +1468,21 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
       aValidationHandler.onPattern (aPattern);
 
       // For all bound rules
-      rules: for (final PSXPathBoundRule aBoundRule : aBoundPattern.getAllBoundRules ())
+      final int nBoundRules = aBoundPattern.getBoundRuleCount ();
+      rules: for (int nRule = 0; nRule < nBoundRules; ++nRule)
       {
+        final PSXPathBoundRule aBoundRule = aBoundPattern.getBoundRuleAtIndex (nRule);
+        if (aRuleFilter != null && !aRuleFilter.isRuleApplicable (aBoundRule))
+          continue rules;
         final PSRule aRule = aBoundRule.getRule ();
+        if (aValidationHandler.onBeforeRuleContextEvaluation (aRule).isBreak ())
+          return;
 
         // Find all nodes matching the rules
         NodeList aRuleMatchingNodes = null;
         try
         {
-          aRuleMatchingNodes = XPathEvaluationHelper.evaluate (aBoundRule.getBoundRuleExpression (),
-                                                               aNode,
-                                                               XPathConstants.NODESET,
-                                                               sBaseURI);
+          aRuleMatchingNodes = _getRuleMatchingNodes (aBoundRule, aNode, sBaseURI, aRuleContextCache);
         }
         catch (final XPathExpressionException ex)
         {
@@ -531,71 +1493,44 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
           continue rules;
         }
 
+        if (aRuleFilter != null)
+          aRuleMatchingNodes = _getFilteredNodes (aBoundRule, aRuleMatchingNodes, aRuleFilter);
+
         final int nRuleMatchingNodes = aRuleMatchingNodes.getLength ();
         if (nRuleMatchingNodes > 0)
         {
-          // For all contained assert and report elements
-          for (final PSXPathBoundAssertReport aBoundAssertReport : aBoundRule.getAllBoundAssertReports ())
+          if (m_bFusedRuleEvaluation)
+          {
+            if (_validateNodeMajor (aBoundRule, aRuleMatchingNodes, sBaseURI, aValidationHandler))
+              return;
+          }
+          else
           {
-            // XSLT does "fired-rule" for each node
-            aValidationHandler.onRule (aRule, aBoundRule.getRuleExpression ());
+            // For all contained assert and report elements
+            final int nBoundAssertReports = aBoundRule.getBoundAssertReportCount ();
+            for (int nAssertReport = 0; nAssertReport < nBoundAssertReports; ++nAssertReport)
+            {
+              final PSXPathBoundAssertReport aBoundAssertReport = aBoundRule.getBoundAssertReportAtIndex (nAssertReport);
 
-            final PSAssertReport aAssertReport = aBoundAssertReport.getAssertReport ();
-            final boolean bIsAssert = aAssertReport.isAssert ();
-            final XPathExpression aTestExpression = aBoundAssertReport.getBoundTestExpression ();
+              // XSLT does "fired-rule" for each node
+              aValidationHandler.onRule (aRule, aBoundRule.getRuleExpression ());
 
-            // Check each node, if it matches the assert/report
-            for (int i = 0; i < nRuleMatchingNodes; ++i)
-            {
-              final Node aRuleMatchingNode = aRuleMatchingNodes.item (i);
-              try
-              {
-                final boolean bTestResult = ((Boolean) XPathEvaluationHelper.evaluate (aTestExpression,
-                                                                                       aRuleMatchingNode,
-                                                                                       XPathConstants.BOOLEAN,
-                                                                                       sBaseURI)).booleanValue ();
-                if (bIsAssert)
-                {
-                  // It's an assert
-                  if (!bTestResult)
-                  {
-                    // Assert failed
-                    if (aValidationHandler.onFailedAssert (aAssertReport,
-                                                           aBoundAssertReport.getTestExpression (),
-                                                           aRuleMatchingNode,
-                                                           i,
-                                                           aBoundAssertReport)
-                                          .isBreak ())
-                    {
-                      return;
-                    }
-                  }
-                }
-                else
-                {
-                  // It's a report
-                  if (bTestResult)
-                  {
-                    // Successful report
-                    if (aValidationHandler.onSuccessfulReport (aAssertReport,
-                                                               aBoundAssertReport.getTestExpression (),
-                                                               aRuleMatchingNode,
-                                                               i,
-                                                               aBoundAssertReport)
-                                          .isBreak ())
-                    {
-                      return;
-                    }
-                  }
-                }
-              }
-              catch (final XPathExpressionException ex)
+              // Check each node, if it matches the assert/report
+              for (int i = 0; i < nRuleMatchingNodes; ++i)
               {
-                error (aRule,
-                       "Failed to evaluate XPath expression to a boolean: '" +
-                              aBoundAssertReport.getTestExpression () +
-                              "'",
-                       ex.getCause () != null ? ex.getCause () : ex);
+                final Node aRuleMatchingNode = aRuleMatchingNodes.item (i);
+                if (aValidationHandler.onBeforeTestEvaluation (aBoundAssertReport.getAssertReport (),
+                                                               aRuleMatchingNode)
+                                      .isBreak ())
+                  return;
+                final Boolean aTestResult = _evaluateTest (aRule, aBoundAssertReport, aRuleMatchingNode, sBaseURI);
+                if (aTestResult != null &&
+                    _handleTestResult (aBoundAssertReport,
+                                       aTestResult.booleanValue (),
+                                       aRuleMatchingNode,
+                                       i,
+                                       aValidationHandler))
+                  return;
               }
             }
           }
@@ -617,6 +1552,9 @@ public class PSXPathBoundSchema extends AbstractPSBoundSchema
   @Override
   public String toString ()
   {
-    return ToStringGenerator.getDerived (super.toString ()).append ("boundPatterns", m_aBoundPatterns).getToString ();
+    return ToStringGenerator.getDerived (super.toString ())
+                            .append ("bindingSettings", m_aBindingSettings)
+                            .append ("boundPatterns", m_aBoundPatterns)
+                            .getToString ();
   }
 }
@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.w3c.dom.Node;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.pure.validation.SchematronValidationException;
+
+/**
+ * A group of bound schemas that are applied together onto the same document.
+ * All schemas of the group share a single {@link PSXPathRuleContextCache} per
+ * document, so that a rule context (e.g. <code>//cac:InvoiceLine</code>) that
+ * is used in several schemas is only evaluated once. The result contains one
+ * SVRL per schema, in the order of the schemas, identical to the results of
+ * validating each schema on its own.<br>
+ * Rule contexts using variables or the <code>key</code> function are never
+ * shared. Custom function resolvers used in rule contexts must behave
+ * identically for all schemas of a group.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class PSXPathBoundSchemaGroup
+{
+  private final ICommonsList <PSXPathBoundSchema> m_aBoundSchemas;
+
+  /**
+   * Constructor
+   *
+   * @param aBoundSchemas
+   *        The bound schemas to apply. May neither be <code>null</code> nor
+   *        empty and may not contain <code>null</code> elements.
+   */
+  public PSXPathBoundSchemaGroup (@Nonnull final Iterable <? extends PSXPathBoundSchema> aBoundSchemas)
+  {
+    ValueEnforcer.notNull (aBoundSchemas, "BoundSchemas");
+    m_aBoundSchemas = new CommonsArrayList <> (aBoundSchemas);
+    ValueEnforcer.notEmptyNoNullValue (m_aBoundSchemas, "BoundSchemas");
+  }
+
+  /**
+   * @return A copy of all bound schemas of this group. Never <code>null</code>
+   *         nor empty.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <PSXPathBoundSchema> getAllBoundSchemas ()
+  {
+    return m_aBoundSchemas.getClone ();
+  }
+
+  /**
+   * @return The number of bound schemas in this group. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getBoundSchemaCount ()
+  {
+    return m_aBoundSchemas.size ();
+  }
+
+  /**
+   * Validate the passed node against all schemas of this group.
+   *
+   * @param aNode
+   *        The node to validate. May not be <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the node. May be <code>null</code>.
+   * @return A list with one SVRL per schema in the order of the schemas. Never
+   *         <code>null</code>.
+   * @throws SchematronValidationException
+   *         In case of a validation error
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <SchematronOutputType> validateComplete (@Nonnull final Node aNode,
+                                                               @Nullable final String sBaseURI) throws SchematronValidationException
+  {
+    return validateComplete (aNode, sBaseURI, (Map <String, ?>) null);
+  }
+
+  /**
+   * Validate the passed node against all schemas of this group.
+   *
+   * @param aNode
+   *        The node to validate. May not be <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the node. May be <code>null</code>.
+   * @param aParameters
+   *        External parameters that are passed to all schemas. May be
+   *        <code>null</code>.
+   * @return A list with one SVRL per schema in the order of the schemas. Never
+   *         <code>null</code>.
+   * @throws SchematronValidationException
+   *         In case of a validation error
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <SchematronOutputType> validateComplete (@Nonnull final Node aNode,
+                                                               @Nullable final String sBaseURI,
+                                                               @Nullable final Map <String, ?> aParameters) throws SchematronValidationException
+  {
+    return validateComplete (aNode, sBaseURI, aParameters, new PSXPathRuleContextCache (aNode));
+  }
+
+  /**
+   * Validate the passed node against all schemas of this group, using the
+   * provided rule context cache. This overload is mainly meant for inspecting
+   * the cache statistics afterwards.
+   *
+   * @param aNode
+   *        The node to validate. May not be <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the node. May be <code>null</code>.
+   * @param aParameters
+   *        External parameters that are passed to all schemas. May be
+   *        <code>null</code>.
+   * @param aRuleContextCache
+   *        The rule context cache for the passed node. May not be
+   *        <code>null</code>.
+   * @return A list with one SVRL per schema in the order of the schemas. Never
+   *         <code>null</code>.
+   * @throws SchematronValidationException
+   *         In case of a validation error
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <SchematronOutputType> validateComplete (@Nonnull final Node aNode,
+                                                               @Nullable final String sBaseURI,
+                                                               @Nullable final Map <String, ?> aParameters,
+                                                               @Nonnull final PSXPathRuleContextCache aRuleContextCache) throws SchematronValidationException
+  {
+    ValueEnforcer.notNull (aNode, "Node");
+    ValueEnforcer.notNull (aRuleContextCache, "RuleContextCache");
+
+    final ICommonsList <SchematronOutputType> ret = new CommonsArrayList <> (m_aBoundSchemas.size ());
+    for (final PSXPathBoundSchema aBoundSchema : m_aBoundSchemas)
+      ret.add (aBoundSchema.validateComplete (aNode, sBaseURI, aParameters, aRuleContextCache));
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("boundSchemas", m_aBoundSchemas).getToString ();
+  }
+}
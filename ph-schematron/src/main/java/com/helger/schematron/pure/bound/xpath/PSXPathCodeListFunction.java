@@ -0,0 +1,326 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.xpath.XPathFunction;
+import javax.xml.xpath.XPathFunctionException;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.CommonsHashSet;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.commons.string.ToStringGenerator;
+
+import net.sf.saxon.om.Item;
+
+/**
+ * A built-in function that replaces the common code list idiom
+ * <code>contains('&nbsp;A B C&nbsp;', concat('&nbsp;', X, '&nbsp;'))</code>
+ * with a hash set lookup. The rewritten call has the form
+ * <code>prefix:in-code-list('index', string(X))</code>.<br>
+ * The semantics are exactly the same as the original expression: the literal
+ * is split at every single space and all tokens that are surrounded by spaces
+ * on both sides are put into a set. If the searched value contains no space, it
+ * is contained in the literal exactly if it is one of these tokens. Values
+ * containing a space fall back to the original string search.<br>
+ * Code lists may only be registered while binding, which happens in a single
+ * thread before the bound schema is used. Afterwards this object is
+ * effectively immutable and is shared by all concurrent validations of the
+ * bound schema.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@ThreadSafe
+public class PSXPathCodeListFunction implements XPathFunction
+{
+  /** The local name of the function */
+  public static final String FUNCTION_NAME = "in-code-list";
+  /** The number of arguments of the function */
+  public static final int FUNCTION_ARITY = 2;
+
+  private static final String CONTAINS = "contains";
+
+  /**
+   * A single pre-processed code list literal.
+   *
+   * @author Philip Helger
+   */
+  private static final class CodeList
+  {
+    private final String m_sLiteral;
+    private final ICommonsSet <String> m_aTokens = new CommonsHashSet <> ();
+
+    CodeList (@Nonnull final String sLiteral)
+    {
+      m_sLiteral = sLiteral;
+      int nStart = sLiteral.indexOf (' ');
+      while (nStart >= 0)
+      {
+        final int nEnd = sLiteral.indexOf (' ', nStart + 1);
+        if (nEnd < 0)
+          break;
+        // Token between two spaces (may be empty)
+        m_aTokens.add (sLiteral.substring (nStart + 1, nEnd));
+        nStart = nEnd;
+      }
+    }
+
+    boolean contains (@Nonnull final String sValue)
+    {
+      if (sValue.indexOf (' ') < 0)
+        return m_aTokens.contains (sValue);
+      return m_sLiteral.contains (' ' + sValue + ' ');
+    }
+  }
+
+  private final ICommonsList <CodeList> m_aCodeLists = new CommonsArrayList <> ();
+  private final ICommonsMap <String, Integer> m_aLiteralToIndex = new CommonsHashMap <> ();
+
+  public PSXPathCodeListFunction ()
+  {}
+
+  /**
+   * @return The number of distinct code lists registered. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getCodeListCount ()
+  {
+    return m_aCodeLists.size ();
+  }
+
+  /**
+   * Register a code list literal.
+   *
+   * @param sLiteral
+   *        The string literal without the surrounding quotes. May not be
+   *        <code>null</code>.
+   * @return The index of the code list. Equal literals share the same index.
+   */
+  @Nonnegative
+  public int registerCodeList (@Nonnull final String sLiteral)
+  {
+    ValueEnforcer.notNull (sLiteral, "Literal");
+    return m_aLiteralToIndex.computeIfAbsent (sLiteral, k -> {
+      m_aCodeLists.add (new CodeList (k));
+      return Integer.valueOf (m_aCodeLists.size () - 1);
+    }).intValue ();
+  }
+
+  @Nonnegative
+  private static int _skipWhitespaces (@Nonnull final String sExpr, @Nonnegative final int nIndex)
+  {
+    int ret = nIndex;
+    while (ret < sExpr.length () && Character.isWhitespace (sExpr.charAt (ret)))
+      ret++;
+    return ret;
+  }
+
+  private static boolean _isSingleSpaceLiteral (@Nonnull final String sArg)
+  {
+    final String sTrimmed = sArg.trim ();
+    return sTrimmed.equals ("' '") || sTrimmed.equals ("\" \"");
+  }
+
+  /**
+   * Rewrite all occurrences of the code list idiom in the passed expression.
+   * Code lists are registered as needed.
+   *
+   * @param sExpr
+   *        The XPath expression to rewrite. May not be <code>null</code>.
+   * @param aQualifiedFunctionName
+   *        The supplier for the prefixed name of this function to be used in
+   *        the rewritten expression. Only invoked if the idiom is found. May
+   *        not be <code>null</code>.
+   * @return The rewritten expression or the original one if the idiom was not
+   *         found.
+   */
+  @Nonnull
+  public String getRewrittenExpression (@Nonnull final String sExpr,
+                                        @Nonnull final Supplier <String> aQualifiedFunctionName)
+  {
+    ValueEnforcer.notNull (sExpr, "Expr");
+    ValueEnforcer.notNull (aQualifiedFunctionName, "QualifiedFunctionName");
+
+    // Quick check
+    if (sExpr.indexOf (CONTAINS) < 0 || sExpr.indexOf ("concat") < 0)
+      return sExpr;
+
+    final StringBuilder aSB = new StringBuilder (sExpr.length ());
+    final int nLen = sExpr.length ();
+    boolean bRewritten = false;
+    int i = 0;
+    while (i < nLen)
+    {
+      final char c = sExpr.charAt (i);
+      if (c == '\'' || c == '"')
+      {
+        final int nEnd = PSXPathRewriteHelper.getStringLiteralEnd (sExpr, i);
+        aSB.append (sExpr, i, nEnd);
+        i = nEnd;
+        continue;
+      }
+
+      if (sExpr.startsWith (CONTAINS, i) && (i == 0 || !PSXPathRewriteHelper.isNameChar (sExpr.charAt (i - 1))))
+      {
+        final String sReplacement = _getRewrittenCall (sExpr, i, aQualifiedFunctionName);
+        if (sReplacement != null)
+        {
+          // Index after the closing parenthesis
+          aSB.append (sReplacement);
+          bRewritten = true;
+          i = PSXPathRewriteHelper.getMatchingClosingParenthesis (sExpr,
+                                                                  _skipWhitespaces (sExpr, i + CONTAINS.length ())) +
+              1;
+          continue;
+        }
+      }
+      aSB.append (c);
+      i++;
+    }
+    return bRewritten ? aSB.toString () : sExpr;
+  }
+
+  @Nullable
+  private String _getRewrittenCall (@Nonnull final String sExpr,
+                                    @Nonnegative final int nStart,
+                                    @Nonnull final Supplier <String> aQualifiedFunctionName)
+  {
+    final int nOpen = _skipWhitespaces (sExpr, nStart + CONTAINS.length ());
+    if (nOpen >= sExpr.length () || sExpr.charAt (nOpen) != '(')
+      return null;
+    final int nClose = PSXPathRewriteHelper.getMatchingClosingParenthesis (sExpr, nOpen);
+    if (nClose < 0)
+      return null;
+
+    // First argument must be a single string literal
+    final int nLiteralStart = _skipWhitespaces (sExpr, nOpen + 1);
+    if (nLiteralStart >= nClose)
+      return null;
+    final char cQuote = sExpr.charAt (nLiteralStart);
+    if (cQuote != '\'' && cQuote != '"')
+      return null;
+    final int nLiteralEnd = PSXPathRewriteHelper.getStringLiteralEnd (sExpr, nLiteralStart);
+    final int nComma = _skipWhitespaces (sExpr, nLiteralEnd);
+    if (nComma >= nClose || sExpr.charAt (nComma) != ',')
+      return null;
+    final String sLiteral = sExpr.substring (nLiteralStart + 1, nLiteralEnd - 1);
+
+    // Second argument must be concat(' ', X, ' ')
+    final String sSecondArg = sExpr.substring (nComma + 1, nClose).trim ();
+    if (!sSecondArg.startsWith ("concat"))
+      return null;
+    final int nConcatOpen = _skipWhitespaces (sSecondArg, 6);
+    if (nConcatOpen >= sSecondArg.length () ||
+        sSecondArg.charAt (nConcatOpen) != '(' ||
+        PSXPathRewriteHelper.getMatchingClosingParenthesis (sSecondArg, nConcatOpen) != sSecondArg.length () - 1)
+      return null;
+    final ICommonsList <String> aConcatArgs = PSXPathRewriteHelper.getTopLevelSplit (sSecondArg.substring (nConcatOpen +
+                                                                                                          1,
+                                                                                                          sSecondArg.length () -
+                                                                                                             1),
+                                                                                    ',');
+    if (aConcatArgs.size () != 3 ||
+        !_isSingleSpaceLiteral (aConcatArgs.get (0)) ||
+        !_isSingleSpaceLiteral (aConcatArgs.get (2)))
+      return null;
+    final String sValueExpr = aConcatArgs.get (1).trim ();
+    if (sValueExpr.isEmpty ())
+      return null;
+
+    final int nIndex = registerCodeList (sLiteral);
+    // string() has the same conversion semantics as the concat argument
+    return aQualifiedFunctionName.get () +
+           "('" +
+           nIndex +
+           "', string(" +
+           getRewrittenExpression (sValueExpr, aQualifiedFunctionName) +
+           "))";
+  }
+
+  @Nonnull
+  private static String _getAsString (@Nullable final Object aValue)
+  {
+    if (aValue == null)
+      return "";
+    if (aValue instanceof String)
+      return (String) aValue;
+    if (aValue instanceof Item)
+      return ((Item) aValue).getStringValue ();
+    if (aValue instanceof Node)
+    {
+      final String sText = ((Node) aValue).getTextContent ();
+      return sText != null ? sText : "";
+    }
+    if (aValue instanceof NodeList)
+    {
+      final NodeList aNL = (NodeList) aValue;
+      return aNL.getLength () > 0 ? _getAsString (aNL.item (0)) : "";
+    }
+    if (aValue instanceof List <?>)
+    {
+      final List <?> aList = (List <?>) aValue;
+      return aList.isEmpty () ? "" : _getAsString (aList.get (0));
+    }
+    return String.valueOf (aValue);
+  }
+
+  @Nonnull
+  public Object evaluate (@Nullable final List args) throws XPathFunctionException
+  {
+    if (args == null || args.size () != FUNCTION_ARITY)
+      throw new XPathFunctionException ("The " +
+                                        FUNCTION_NAME +
+                                        " function requires exactly " +
+                                        FUNCTION_ARITY +
+                                        " arguments");
+
+    final String sIndex = _getAsString (args.get (0));
+    final int nIndex;
+    try
+    {
+      nIndex = Integer.parseInt (sIndex);
+    }
+    catch (final NumberFormatException ex)
+    {
+      throw new XPathFunctionException ("Invalid code list index '" + sIndex + "'");
+    }
+    if (nIndex < 0 || nIndex >= m_aCodeLists.size ())
+      throw new XPathFunctionException ("Unknown code list index " + nIndex);
+
+    return Boolean.valueOf (m_aCodeLists.get (nIndex).contains (_getAsString (args.get (1))));
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("codeListCount", m_aCodeLists.size ()).getToString ();
+  }
+}
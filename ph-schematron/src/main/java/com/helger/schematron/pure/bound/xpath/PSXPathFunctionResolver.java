@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPathFunction;
+import javax.xml.xpath.XPathFunctionResolver;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.pure.binding.xpath.CXPath;
+
+/**
+ * The function resolver used by {@link PSXPathBoundSchema}. It resolves the
+ * built-in functions in the namespace {@link CXPath#NAMESPACE_PS_FUNCTIONS}
+ * and passes all other functions to the optional custom function resolver.
+ * Functions may only be registered while binding - afterwards this object is
+ * only read and may therefore be used from multiple threads.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class PSXPathFunctionResolver implements XPathFunctionResolver
+{
+  private final ICommonsMap <String, XPathFunction> m_aFunctions = new CommonsHashMap <> ();
+  private final XPathFunctionResolver m_aFallbackResolver;
+
+  public PSXPathFunctionResolver (@Nullable final XPathFunctionResolver aFallbackResolver)
+  {
+    m_aFallbackResolver = aFallbackResolver;
+  }
+
+  /**
+   * @return The fallback resolver as passed in the constructor. May be
+   *         <code>null</code>.
+   */
+  @Nullable
+  public XPathFunctionResolver getFallbackResolver ()
+  {
+    return m_aFallbackResolver;
+  }
+
+  @Nonnull
+  private static String _getKey (@Nonnull final String sLocalName, final int nArity)
+  {
+    return sLocalName + '#' + nArity;
+  }
+
+  /**
+   * Register a built-in function.
+   *
+   * @param sLocalName
+   *        The local name of the function in the namespace
+   *        {@link CXPath#NAMESPACE_PS_FUNCTIONS}. May neither be
+   *        <code>null</code> nor empty.
+   * @param nArity
+   *        The number of parameters.
+   * @param aFunction
+   *        The function to be invoked. May not be <code>null</code>.
+   */
+  public void addFunction (@Nonnull final String sLocalName,
+                           @Nonnegative final int nArity,
+                           @Nonnull final XPathFunction aFunction)
+  {
+    ValueEnforcer.notEmpty (sLocalName, "LocalName");
+    ValueEnforcer.isGE0 (nArity, "Arity");
+    ValueEnforcer.notNull (aFunction, "Function");
+    m_aFunctions.put (_getKey (sLocalName, nArity), aFunction);
+  }
+
+  /**
+   * @return <code>true</code> if at least one built-in function is registered.
+   */
+  public boolean hasAnyFunction ()
+  {
+    return m_aFunctions.isNotEmpty ();
+  }
+
+  @Nullable
+  public XPathFunction resolveFunction (@Nonnull final QName aFunctionName, final int nArity)
+  {
+    if (CXPath.NAMESPACE_PS_FUNCTIONS.equals (aFunctionName.getNamespaceURI ()))
+      return m_aFunctions.get (_getKey (aFunctionName.getLocalPart (), nArity));
+    return m_aFallbackResolver == null ? null : m_aFallbackResolver.resolveFunction (aFunctionName, nArity);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("functions", m_aFunctions.keySet ())
+                                       .appendIfNotNull ("fallbackResolver", m_aFallbackResolver)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.w3c.dom.Node;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The result of an incremental validation with
+ * {@link PSXPathBoundSchema#validateIncrementally(Node, String, Map, PSXPathIncrementalResult, Iterable)}
+ * . Besides the SVRL it contains the results per rule and node, so that it can
+ * be passed as the previous result to the next incremental validation of the
+ * same document.<br>
+ * Note: the SVRL objects are shared between subsequent results, so a previous
+ * result should not be used anymore after it was passed to the next
+ * incremental validation.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class PSXPathIncrementalResult
+{
+  private final PSXPathBoundSchema m_aBoundSchema;
+  private final Node m_aNode;
+  private final Map <String, ?> m_aParameters;
+  private final ICommonsMap <PSXPathBoundRule, Map <Node, Object []>> m_aRuleResults;
+  private final SchematronOutputType m_aSVRL;
+  private final int m_nEvaluatedNodeCount;
+  private final int m_nReusedNodeCount;
+
+  PSXPathIncrementalResult (@Nonnull final PSXPathBoundSchema aBoundSchema,
+                            @Nonnull final Node aNode,
+                            @Nullable final Map <String, ?> aParameters,
+                            @Nonnull final ICommonsMap <PSXPathBoundRule, Map <Node, Object []>> aRuleResults,
+                            @Nonnull final SchematronOutputType aSVRL,
+                            @Nonnegative final int nEvaluatedNodeCount,
+                            @Nonnegative final int nReusedNodeCount)
+  {
+    ValueEnforcer.notNull (aBoundSchema, "BoundSchema");
+    ValueEnforcer.notNull (aNode, "Node");
+    ValueEnforcer.notNull (aRuleResults, "RuleResults");
+    ValueEnforcer.notNull (aSVRL, "SVRL");
+    m_aBoundSchema = aBoundSchema;
+    m_aNode = aNode;
+    m_aParameters = aParameters;
+    m_aRuleResults = aRuleResults;
+    m_aSVRL = aSVRL;
+    m_nEvaluatedNodeCount = nEvaluatedNodeCount;
+    m_nReusedNodeCount = nReusedNodeCount;
+  }
+
+  @Nonnull
+  PSXPathBoundSchema getBoundSchema ()
+  {
+    return m_aBoundSchema;
+  }
+
+  /**
+   * @return The validated node. Never <code>null</code>.
+   */
+  @Nonnull
+  public Node getNode ()
+  {
+    return m_aNode;
+  }
+
+  @Nullable
+  Map <String, ?> getParameters ()
+  {
+    return m_aParameters;
+  }
+
+  /**
+   * @return The SVRL items per rule matching node for the passed rule, in the
+   *         order of the asserts and reports of the rule. All rule matching
+   *         nodes are contained, nodes without any failed assert or successful
+   *         report have a <code>null</code> value. <code>null</code> if the
+   *         rule was not evaluated.
+   */
+  @Nullable
+  Map <Node, Object []> getRuleResults (@Nonnull final PSXPathBoundRule aBoundRule)
+  {
+    return m_aRuleResults.get (aBoundRule);
+  }
+
+  /**
+   * @return The complete SVRL, equivalent to the result of a full validation.
+   *         Never <code>null</code>.
+   */
+  @Nonnull
+  public SchematronOutputType getSVRL ()
+  {
+    return m_aSVRL;
+  }
+
+  /**
+   * @return The number of rule matching nodes on which the tests were
+   *         evaluated.
+   */
+  @Nonnegative
+  public int getEvaluatedNodeCount ()
+  {
+    return m_nEvaluatedNodeCount;
+  }
+
+  /**
+   * @return The number of rule matching nodes for which the previous results
+   *         were reused.
+   */
+  @Nonnegative
+  public int getReusedNodeCount ()
+  {
+    return m_nReusedNodeCount;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("node", m_aNode)
+                                       .appendIfNotNull ("parameters", m_aParameters)
+                                       .append ("evaluatedNodeCount", m_nEvaluatedNodeCount)
+                                       .append ("reusedNodeCount", m_nReusedNodeCount)
+                                       .getToString ();
+  }
+}
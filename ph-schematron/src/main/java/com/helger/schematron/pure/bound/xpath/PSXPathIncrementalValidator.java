@@ -0,0 +1,323 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.oclc.purl.dsdl.svrl.FailedAssert;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.oclc.purl.dsdl.svrl.SuccessfulReport;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Node;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.commons.state.EContinue;
+import com.helger.schematron.pure.errorhandler.IPSErrorHandler;
+import com.helger.schematron.pure.model.PSAssertReport;
+import com.helger.schematron.pure.model.PSPhase;
+import com.helger.schematron.pure.model.PSSchema;
+import com.helger.schematron.pure.validation.IPSValidationHandler;
+import com.helger.schematron.pure.validation.SchematronValidationException;
+import com.helger.schematron.pure.validation.xpath.PSXPathValidationHandlerSVRL;
+import com.helger.xml.XMLHelper;
+
+/**
+ * Internal helper class for
+ * {@link PSXPathBoundSchema#validateIncrementally(Node, String, Map, PSXPathIncrementalResult, Iterable)}
+ * . The rule contexts are always evaluated on the whole document, but the tests
+ * of rules that only access the subtree of the context node (see
+ * {@link PSXPathBoundSchema#isIncrementallyLocal(PSXPathBoundRule)}) are only
+ * evaluated on nodes that are affected by a change. For all other nodes the
+ * SVRL items of the previous result are reused.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+final class PSXPathIncrementalValidator
+{
+  private final PSXPathBoundSchema m_aBoundSchema;
+  private final IPSErrorHandler m_aErrorHandler;
+
+  PSXPathIncrementalValidator (@Nonnull final PSXPathBoundSchema aBoundSchema,
+                               @Nonnull final IPSErrorHandler aErrorHandler)
+  {
+    ValueEnforcer.notNull (aBoundSchema, "BoundSchema");
+    ValueEnforcer.notNull (aErrorHandler, "ErrorHandler");
+    m_aBoundSchema = aBoundSchema;
+    m_aErrorHandler = aErrorHandler;
+  }
+
+  /**
+   * Decides whether a rule matching node must be re-evaluated because it is
+   * inside a changed subtree or contains a changed subtree.
+   */
+  private static final class AffectedNodes
+  {
+    private final Map <Node, Boolean> m_aChangedRoots = new IdentityHashMap <> ();
+    private final Map <Node, Boolean> m_aChangedAncestors = new IdentityHashMap <> ();
+    private final Map <Node, Boolean> m_aCache = new IdentityHashMap <> ();
+
+    AffectedNodes (@Nonnull final Iterable <? extends Node> aChangedSubtrees)
+    {
+      for (final Node aChanged : aChangedSubtrees)
+        if (aChanged != null)
+        {
+          final Node aRealChanged = _getRealNode (aChanged);
+          m_aChangedRoots.put (aRealChanged, Boolean.TRUE);
+          Node aCur = aRealChanged;
+          while (aCur != null && m_aChangedAncestors.put (aCur, Boolean.TRUE) == null)
+            aCur = aCur.getParentNode ();
+        }
+    }
+
+    @Nonnull
+    private static Node _getRealNode (@Nonnull final Node aNode)
+    {
+      // Attributes have no parent node
+      if (aNode.getNodeType () == Node.ATTRIBUTE_NODE)
+      {
+        final Node aOwner = ((Attr) aNode).getOwnerElement ();
+        if (aOwner != null)
+          return aOwner;
+      }
+      return aNode;
+    }
+
+    private boolean _isInChangedSubtree (@Nullable final Node aNode)
+    {
+      if (aNode == null)
+        return false;
+      if (m_aChangedRoots.containsKey (aNode))
+        return true;
+      final Boolean aCached = m_aCache.get (aNode);
+      if (aCached != null)
+        return aCached.booleanValue ();
+      final boolean ret = _isInChangedSubtree (aNode.getParentNode ());
+      m_aCache.put (aNode, Boolean.valueOf (ret));
+      return ret;
+    }
+
+    boolean isAffected (@Nonnull final Node aNode)
+    {
+      final Node aRealNode = _getRealNode (aNode);
+      return m_aChangedAncestors.containsKey (aRealNode) || _isInChangedSubtree (aRealNode);
+    }
+  }
+
+  private static boolean _canReuse (@Nonnull final PSXPathBoundSchema aBoundSchema,
+                                    @Nonnull final Node aNode,
+                                    @Nullable final Map <String, ?> aParameters,
+                                    @Nullable final PSXPathIncrementalResult aPrevious,
+                                    @Nullable final Iterable <? extends Node> aChangedSubtrees)
+  {
+    return aPrevious != null &&
+           aChangedSubtrees != null &&
+           aPrevious.getBoundSchema () == aBoundSchema &&
+           aPrevious.getNode () == aNode &&
+           EqualsHelper.equals (aPrevious.getParameters (), aParameters);
+  }
+
+  @Nonnull
+  PSXPathIncrementalResult validate (@Nonnull final Node aNode,
+                                     @Nullable final String sBaseURI,
+                                     @Nullable final Map <String, ?> aParameters,
+                                     @Nullable final PSXPathIncrementalResult aPrevious,
+                                     @Nullable final Iterable <? extends Node> aChangedSubtrees) throws SchematronValidationException
+  {
+    ValueEnforcer.notNull (aNode, "Node");
+
+    final PSXPathIncrementalResult aRealPrevious = _canReuse (m_aBoundSchema,
+                                                              aNode,
+                                                              aParameters,
+                                                              aPrevious,
+                                                              aChangedSubtrees) ? aPrevious : null;
+    final AffectedNodes aAffectedNodes = aRealPrevious == null ? null : new AffectedNodes (aChangedSubtrees);
+    final ICommonsList <PSXPathBoundPattern> aBoundPatterns = m_aBoundSchema.getAllBoundPatterns ();
+
+    // Remember the rule and index of each assert/report
+    final Map <PSXPathBoundAssertReport, PSXPathBoundRule> aRuleOfAssertReport = new IdentityHashMap <> ();
+    final Map <PSXPathBoundAssertReport, Integer> aIndexOfAssertReport = new IdentityHashMap <> ();
+    for (final PSXPathBoundPattern aBoundPattern : aBoundPatterns)
+      for (final PSXPathBoundRule aBoundRule : aBoundPattern.getAllBoundRules ())
+        for (int i = 0; i < aBoundRule.getBoundAssertReportCount (); ++i)
+        {
+          final PSXPathBoundAssertReport aBoundAssertReport = aBoundRule.getBoundAssertReportAtIndex (i);
+          aRuleOfAssertReport.put (aBoundAssertReport, aBoundRule);
+          aIndexOfAssertReport.put (aBoundAssertReport, Integer.valueOf (i));
+        }
+
+    // All rule matching nodes in document order together with their results
+    final ICommonsMap <PSXPathBoundRule, ICommonsList <Node>> aRuleNodes = new CommonsHashMap <> ();
+    final ICommonsMap <PSXPathBoundRule, Map <Node, Object []>> aRuleResults = new CommonsHashMap <> ();
+    final int [] aCounts = new int [2];
+
+    final IPSXPathRuleFilter aFilter = new IPSXPathRuleFilter ()
+    {
+      @Override
+      public boolean isNodeApplicable (@Nonnull final PSXPathBoundRule aBoundRule, @Nonnull final Node aRuleMatchingNode)
+      {
+        aRuleNodes.computeIfAbsent (aBoundRule, k -> new CommonsArrayList <> ()).add (aRuleMatchingNode);
+        final Map <Node, Object []> aResults = aRuleResults.computeIfAbsent (aBoundRule,
+                                                                             k -> new IdentityHashMap <> ());
+        if (aRealPrevious != null &&
+            m_aBoundSchema.isIncrementallyLocal (aBoundRule) &&
+            !aAffectedNodes.isAffected (aRuleMatchingNode))
+        {
+          final Map <Node, Object []> aPreviousResults = aRealPrevious.getRuleResults (aBoundRule);
+          if (aPreviousResults != null && aPreviousResults.containsKey (aRuleMatchingNode))
+          {
+            aResults.put (aRuleMatchingNode, aPreviousResults.get (aRuleMatchingNode));
+            aCounts[1]++;
+            return false;
+          }
+        }
+        aResults.put (aRuleMatchingNode, null);
+        aCounts[0]++;
+        return true;
+      }
+    };
+
+    // Create the SVRL items with a scratch handler and remember them per node
+    final PSXPathValidationHandlerSVRL aScratchHandler = new PSXPathValidationHandlerSVRL (m_aErrorHandler);
+    final IPSValidationHandler aRecordingHandler = new IPSValidationHandler ()
+    {
+      @Override
+      public void onStart (@Nonnull final PSSchema aSchema,
+                           @Nullable final PSPhase aActivePhase,
+                           @Nullable final String sRealBaseURI) throws SchematronValidationException
+      {
+        aScratchHandler.onStart (aSchema, aActivePhase, sRealBaseURI);
+      }
+
+      private void _record (@Nullable final Object aContext, @Nonnull final Node aRuleMatchingNode)
+      {
+        final List <Object> aItems = aScratchHandler.getSVRL ().getActivePatternAndFiredRuleAndFailedAssert ();
+        final Object aItem = aItems.remove (aItems.size () - 1);
+        final PSXPathBoundRule aBoundRule = aRuleOfAssertReport.get (aContext);
+        final Map <Node, Object []> aResults = aRuleResults.get (aBoundRule);
+        Object [] aNodeResults = aResults.get (aRuleMatchingNode);
+        if (aNodeResults == null)
+        {
+          aNodeResults = new Object [aBoundRule.getBoundAssertReportCount ()];
+          aResults.put (aRuleMatchingNode, aNodeResults);
+        }
+        aNodeResults[aIndexOfAssertReport.get (aContext).intValue ()] = aItem;
+      }
+
+      @Override
+      public EContinue onFailedAssert (@Nonnull final PSAssertReport aAssertReport,
+                                       @Nonnull final String sTestExpression,
+                                       @Nonnull final Node aRuleMatchingNode,
+                                       final int nNodeIndex,
+                                       @Nullable final Object aContext) throws SchematronValidationException
+      {
+        aScratchHandler.onFailedAssert (aAssertReport, sTestExpression, aRuleMatchingNode, nNodeIndex, aContext);
+        _record (aContext, aRuleMatchingNode);
+        return EContinue.CONTINUE;
+      }
+
+      @Override
+      public EContinue onSuccessfulReport (@Nonnull final PSAssertReport aAssertReport,
+                                           @Nonnull final String sTestExpression,
+                                           @Nonnull final Node aRuleMatchingNode,
+                                           final int nNodeIndex,
+                                           @Nullable final Object aContext) throws SchematronValidationException
+      {
+        aScratchHandler.onSuccessfulReport (aAssertReport, sTestExpression, aRuleMatchingNode, nNodeIndex, aContext);
+        _record (aContext, aRuleMatchingNode);
+        return EContinue.CONTINUE;
+      }
+    };
+    m_aBoundSchema.validate (aNode,
+                             sBaseURI,
+                             aRecordingHandler,
+                             aParameters,
+                             (PSXPathRuleContextCache) null,
+                             aFilter);
+
+    // Assemble the complete SVRL in the regular order
+    final PSXPathValidationHandlerSVRL aSVRLHandler = new PSXPathValidationHandlerSVRL (m_aErrorHandler);
+    final PSSchema aSchema = m_aBoundSchema.getOriginalSchema ();
+    final PSPhase aPhase = m_aBoundSchema.getPhase ();
+    aSVRLHandler.onStart (aSchema, aPhase, sBaseURI);
+    final List <Object> aSVRLItems = aSVRLHandler.getSVRL ().getActivePatternAndFiredRuleAndFailedAssert ();
+    for (final PSXPathBoundPattern aBoundPattern : aBoundPatterns)
+    {
+      aSVRLHandler.onPattern (aBoundPattern.getPattern ());
+      for (final PSXPathBoundRule aBoundRule : aBoundPattern.getAllBoundRules ())
+      {
+        final ICommonsList <Node> aNodes = aRuleNodes.get (aBoundRule);
+        if (aNodes == null || aNodes.isEmpty ())
+          continue;
+        final Map <Node, Object []> aResults = aRuleResults.get (aBoundRule);
+        for (int nAssertReport = 0; nAssertReport < aBoundRule.getBoundAssertReportCount (); ++nAssertReport)
+        {
+          aSVRLHandler.onRule (aBoundRule.getRule (), aBoundRule.getRuleExpression ());
+          for (final Node aRuleMatchingNode : aNodes)
+          {
+            final Object [] aNodeResults = aResults.get (aRuleMatchingNode);
+            final Object aItem = aNodeResults == null ? null : aNodeResults[nAssertReport];
+            if (aItem != null)
+            {
+              // The position of the node may have changed. The recorded items
+              // are shared with the previous results and must not be
+              // modified, so a copy is added.
+              final String sLocation = XMLHelper.getPathToNode2 (aRuleMatchingNode, "/");
+              if (aItem instanceof FailedAssert)
+              {
+                final FailedAssert aCopy = ((FailedAssert) aItem).clone ();
+                aCopy.setLocation (sLocation);
+                aSVRLItems.add (aCopy);
+              }
+              else
+                if (aItem instanceof SuccessfulReport)
+                {
+                  final SuccessfulReport aCopy = ((SuccessfulReport) aItem).clone ();
+                  aCopy.setLocation (sLocation);
+                  aSVRLItems.add (aCopy);
+                }
+                else
+                  aSVRLItems.add (aItem);
+            }
+          }
+        }
+      }
+    }
+    aSVRLHandler.onEnd (aSchema, aPhase);
+
+    final SchematronOutputType aSVRL = aSVRLHandler.getSVRL ();
+    return new PSXPathIncrementalResult (m_aBoundSchema,
+                                         aNode,
+                                         aParameters == null ? null : new CommonsHashMap <String, Object> (aParameters),
+                                         aRuleResults,
+                                         aSVRL,
+                                         aCounts[0],
+                                         aCounts[1]);
+  }
+}
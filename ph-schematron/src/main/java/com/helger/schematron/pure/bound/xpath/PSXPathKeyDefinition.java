@@ -0,0 +1,362 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.CSchematronXML;
+import com.helger.schematron.pure.binding.xpath.CXPath;
+import com.helger.schematron.pure.model.PSSchema;
+import com.helger.schematron.xpath.XPathEvaluationHelper;
+import com.helger.xml.microdom.IMicroElement;
+
+import net.sf.saxon.pattern.NodeTest;
+import net.sf.saxon.type.AnyItemType;
+import net.sf.saxon.type.ItemType;
+import net.sf.saxon.xpath.XPathExpressionImpl;
+
+/**
+ * A single compiled <code>xsl:key</code> declaration.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@ThreadSafe
+public class PSXPathKeyDefinition
+{
+  public static final String ATTR_MATCH = "match";
+  public static final String ATTR_USE = "use";
+
+  private final String m_sName;
+  private final String m_sMatch;
+  private final String m_sUse;
+  private final XPathExpression m_aMatchExpression;
+  private final XPathExpression m_aUseExpression;
+  private final boolean m_bNodeSetUse;
+
+  /**
+   * Constructor
+   *
+   * @param sName
+   *        Key name. May neither be <code>null</code> nor empty.
+   * @param sMatch
+   *        Match pattern. May neither be <code>null</code> nor empty.
+   * @param sUse
+   *        Use expression. May neither be <code>null</code> nor empty.
+   * @param aMatchExpression
+   *        Compiled select expression of the match pattern. May not be
+   *        <code>null</code>.
+   * @param aUseExpression
+   *        Compiled use expression. May not be <code>null</code>.
+   * @param bNodeSetUse
+   *        <code>true</code> if the use expression delivers nodes,
+   *        <code>false</code> if it delivers an atomic value. See
+   *        {@link #isNodeSetExpression(XPathExpression, String)}.
+   */
+  public PSXPathKeyDefinition (@Nonnull @Nonempty final String sName,
+                               @Nonnull @Nonempty final String sMatch,
+                               @Nonnull @Nonempty final String sUse,
+                               @Nonnull final XPathExpression aMatchExpression,
+                               @Nonnull final XPathExpression aUseExpression,
+                               final boolean bNodeSetUse)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    ValueEnforcer.notEmpty (sMatch, "Match");
+    ValueEnforcer.notEmpty (sUse, "Use");
+    ValueEnforcer.notNull (aMatchExpression, "MatchExpression");
+    ValueEnforcer.notNull (aUseExpression, "UseExpression");
+    m_sName = sName;
+    m_sMatch = sMatch;
+    m_sUse = sUse;
+    m_aMatchExpression = aMatchExpression;
+    m_aUseExpression = aUseExpression;
+    m_bNodeSetUse = bNodeSetUse;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getName ()
+  {
+    return m_sName;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getMatch ()
+  {
+    return m_sMatch;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getUse ()
+  {
+    return m_sUse;
+  }
+
+  @Nonnull
+  public XPathExpression getMatchExpression ()
+  {
+    return m_aMatchExpression;
+  }
+
+  @Nonnull
+  public XPathExpression getUseExpression ()
+  {
+    return m_aUseExpression;
+  }
+
+  /**
+   * @return <code>true</code> if the use expression delivers nodes,
+   *         <code>false</code> if it delivers an atomic value.
+   */
+  public boolean isNodeSetUse ()
+  {
+    return m_bNodeSetUse;
+  }
+
+  /**
+   * Get all key values of the passed node, by evaluating the "use" expression.
+   *
+   * @param aNode
+   *        The node matched by the "match" expression. May not be
+   *        <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the document. May be <code>null</code>.
+   * @param aTarget
+   *        The list to add the values to. May not be <code>null</code>.
+   * @throws XPathExpressionException
+   *         If the evaluation fails
+   */
+  public void addAllUseValues (@Nonnull final Node aNode,
+                               @Nullable final String sBaseURI,
+                               @Nonnull final ICommonsList <String> aTarget) throws XPathExpressionException
+  {
+    if (m_bNodeSetUse)
+    {
+      final NodeList aNodeList = XPathEvaluationHelper.evaluate (m_aUseExpression,
+                                                                 aNode,
+                                                                 XPathConstants.NODESET,
+                                                                 sBaseURI);
+      if (aNodeList != null)
+        for (int i = 0; i < aNodeList.getLength (); ++i)
+          aTarget.add (aNodeList.item (i).getTextContent ());
+      return;
+    }
+
+    final String sValue = XPathEvaluationHelper.evaluate (m_aUseExpression, aNode, XPathConstants.STRING, sBaseURI);
+    if (sValue != null)
+      aTarget.add (sValue);
+  }
+
+  private static boolean _isFunctionDeliveringNodes (@Nonnull final String sName)
+  {
+    // Node type tests look like function calls
+    return sName.equals ("id") ||
+           sName.equals ("key") ||
+           sName.equals ("node") ||
+           sName.equals ("text") ||
+           sName.equals ("comment") ||
+           sName.equals ("processing-instruction");
+  }
+
+  /**
+   * Check if the passed expression part contains an operator outside of
+   * string literals, parenthesis and brackets.
+   */
+  private static boolean _hasTopLevelOperator (@Nonnull final String sExpr)
+  {
+    final StringBuilder aTopLevel = new StringBuilder ();
+    int nDepth = 0;
+    int i = 0;
+    final int nLen = sExpr.length ();
+    while (i < nLen)
+    {
+      final char c = sExpr.charAt (i);
+      if (c == '\'' || c == '"')
+      {
+        i = PSXPathRewriteHelper.getStringLiteralEnd (sExpr, i);
+        aTopLevel.append (' ');
+        continue;
+      }
+      if (c == '(' || c == '[')
+        nDepth++;
+      else
+        if (c == ')' || c == ']')
+          nDepth--;
+        else
+          if (nDepth == 0)
+          {
+            if (c == '=' || c == '<' || c == '>' || c == '+' || c == '!' || c == ',')
+              return true;
+            if (c == '-' && (i == 0 || !PSXPathRewriteHelper.isNameChar (sExpr.charAt (i - 1))))
+              return true;
+            aTopLevel.append (Character.isWhitespace (c) ? ' ' : c);
+          }
+      i++;
+    }
+    for (final String sToken : StringHelper.getExplodedArray (' ', aTopLevel.toString ().trim ()))
+      if (sToken.equals ("and") || sToken.equals ("or") || sToken.equals ("div") || sToken.equals ("mod"))
+        return true;
+    return false;
+  }
+
+  private static boolean _isLocationPath (@Nonnull final String sPart)
+  {
+    if (sPart.isEmpty () || _hasTopLevelOperator (sPart))
+      return false;
+
+    final char c = sPart.charAt (0);
+    if (c == '.')
+      return sPart.length () == 1 || !Character.isDigit (sPart.charAt (1));
+    if (c == '/' || c == '@' || c == '*')
+      return true;
+    if (c == '(')
+    {
+      final int nClose = PSXPathRewriteHelper.getMatchingClosingParenthesis (sPart, 0);
+      return nClose > 0 && _isNodeSetExpression (sPart.substring (1, nClose));
+    }
+    if (!Character.isLetter (c) && c != '_')
+      return false;
+
+    // A name test, an axis or a function call
+    int nEnd = 1;
+    while (nEnd < sPart.length () &&
+           PSXPathRewriteHelper.isNameChar (sPart.charAt (nEnd)) &&
+           sPart.charAt (nEnd) != '@' &&
+           sPart.charAt (nEnd) != '$' &&
+           !sPart.startsWith ("::", nEnd))
+      nEnd++;
+    final String sRest = sPart.substring (nEnd).trim ();
+    if (sRest.startsWith ("("))
+      return _isFunctionDeliveringNodes (sPart.substring (0, nEnd));
+    return true;
+  }
+
+  private static boolean _isNodeSetExpression (@Nonnull final String sExpr)
+  {
+    for (final String sPart : PSXPathRewriteHelper.getTopLevelSplit (sExpr, '|'))
+      if (!_isLocationPath (sPart.trim ()))
+        return false;
+    return true;
+  }
+
+  /**
+   * Check once at bind time whether the passed compiled expression delivers
+   * nodes or an atomic value. For Saxon the static item type of the compiled
+   * expression is used. For other (XPath 1.0) implementations the result type
+   * only depends on the syntax, so the expression is considered to deliver
+   * nodes if it is a union of location paths or of calls to functions
+   * returning nodes.
+   *
+   * @param aExpr
+   *        The compiled expression. May not be <code>null</code>.
+   * @param sExpr
+   *        The source of the expression. May not be <code>null</code>.
+   * @return <code>true</code> if the expression delivers nodes.
+   */
+  public static boolean isNodeSetExpression (@Nonnull final XPathExpression aExpr, @Nonnull final String sExpr)
+  {
+    ValueEnforcer.notNull (aExpr, "Expr");
+    ValueEnforcer.notNull (sExpr, "ExprString");
+
+    if (aExpr instanceof XPathExpressionImpl)
+    {
+      final ItemType aItemType = ((XPathExpressionImpl) aExpr).getInternalExpression ().getItemType ();
+      if (aItemType instanceof NodeTest)
+        return true;
+      // The context item type is unknown when compiling via JAXP, so "." and
+      // similar expressions have no static type - decide by the syntax then
+      if (!(aItemType instanceof AnyItemType))
+        return false;
+    }
+    return _isNodeSetExpression (sExpr.trim ());
+  }
+
+  /**
+   * Convert an XSLT match pattern to an XPath expression that selects all
+   * matching nodes of a document. Relative patterns are prefixed with "//".
+   *
+   * @param sMatch
+   *        The match pattern. May not be <code>null</code>.
+   * @return The select expression.
+   */
+  @Nonnull
+  public static String getMatchAsSelect (@Nonnull final String sMatch)
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    for (final String sPart : PSXPathRewriteHelper.getTopLevelSplit (sMatch, '|'))
+    {
+      final String sTrimmed = sPart.trim ();
+      if (aSB.length () > 0)
+        aSB.append (" | ");
+      if (!sTrimmed.startsWith ("/"))
+        aSB.append ("//");
+      aSB.append (sTrimmed);
+    }
+    return aSB.toString ();
+  }
+
+  /**
+   * Get all <code>xsl:key</code> elements of the passed schema that have all
+   * required attributes.
+   *
+   * @param aSchema
+   *        The schema to scan. May not be <code>null</code>.
+   * @return A non-<code>null</code> but maybe empty list.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static ICommonsList <IMicroElement> getAllKeyElements (@Nonnull final PSSchema aSchema)
+  {
+    ValueEnforcer.notNull (aSchema, "Schema");
+
+    final ICommonsList <IMicroElement> ret = new CommonsArrayList <> ();
+    for (final IMicroElement eForeign : aSchema.getAllForeignElements ())
+      if (CXPath.NAMESPACE_XSLT.equals (eForeign.getNamespaceURI ()) &&
+          CXPath.XSLT_ELEMENT_KEY.equals (eForeign.getLocalName ()) &&
+          StringHelper.hasText (eForeign.getAttributeValue (CSchematronXML.ATTR_NAME)) &&
+          StringHelper.hasText (eForeign.getAttributeValue (ATTR_MATCH)) &&
+          StringHelper.hasText (eForeign.getAttributeValue (ATTR_USE)))
+        ret.add (eForeign);
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("name", m_sName)
+                                       .append ("match", m_sMatch)
+                                       .append ("use", m_sUse)
+                                       .getToString ();
+  }
+}
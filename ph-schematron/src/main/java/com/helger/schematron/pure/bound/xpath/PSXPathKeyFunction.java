@@ -0,0 +1,271 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFunction;
+import javax.xml.xpath.XPathFunctionException;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashSet;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsOrderedSet;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.xpath.XPathEvaluationHelper;
+
+import net.sf.saxon.om.Item;
+
+/**
+ * The implementation of the XSLT <code>key</code> function for the pure
+ * implementation. The indexes are created lazily upon the first usage of a key
+ * within a validation and are discarded when the validation is finished. That
+ * turns lookups like <code>//a[@id = current()/@ref]</code> into hash lookups.
+ * The document to be indexed is always the document currently validated in the
+ * calling thread.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@ThreadSafe
+public class PSXPathKeyFunction implements XPathFunction
+{
+  /** The local name of the function */
+  public static final String FUNCTION_NAME = "key";
+  /** The number of arguments of the function */
+  public static final int FUNCTION_ARITY = 2;
+
+  /**
+   * The per-thread validation state.
+   *
+   * @author Philip Helger
+   */
+  public static final class State
+  {
+    private final Node m_aRoot;
+    private final String m_sBaseURI;
+    private final ICommonsMap <String, ICommonsMap <String, ICommonsList <Node>>> m_aIndexes = new CommonsHashMap <> ();
+
+    State (@Nonnull final Node aRoot, @Nullable final String sBaseURI)
+    {
+      m_aRoot = aRoot;
+      m_sBaseURI = sBaseURI;
+    }
+  }
+
+  private final ICommonsMap <String, PSXPathKeyDefinition> m_aKeys = new CommonsHashMap <> ();
+  private final ThreadLocal <State> m_aState = new ThreadLocal <> ();
+
+  public PSXPathKeyFunction (@Nonnull final Iterable <PSXPathKeyDefinition> aKeys)
+  {
+    ValueEnforcer.notNull (aKeys, "Keys");
+    for (final PSXPathKeyDefinition aKey : aKeys)
+      m_aKeys.put (aKey.getName (), aKey);
+  }
+
+  /**
+   * @return A copy of all contained key definitions. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <PSXPathKeyDefinition> getAllKeyDefinitions ()
+  {
+    return m_aKeys.copyOfValues ();
+  }
+
+  /**
+   * Start the validation of a document in the current thread.
+   *
+   * @param aNode
+   *        The node to be validated. The index is built for the owning
+   *        document. May not be <code>null</code>.
+   * @param sBaseURI
+   *        The base URI of the document. May be <code>null</code>.
+   * @return The previous state, that must be passed to
+   *         {@link #endValidation(State)}. May be <code>null</code>.
+   */
+  @Nullable
+  public State beginValidation (@Nonnull final Node aNode, @Nullable final String sBaseURI)
+  {
+    ValueEnforcer.notNull (aNode, "Node");
+
+    final State ret = m_aState.get ();
+    final Node aOwnerDoc = aNode.getOwnerDocument ();
+    m_aState.set (new State (aOwnerDoc != null ? aOwnerDoc : aNode, sBaseURI));
+    return ret;
+  }
+
+  /**
+   * End the validation in the current thread. All indexes are discarded.
+   *
+   * @param aPrevious
+   *        The state returned by {@link #beginValidation(Node, String)}. May be
+   *        <code>null</code>.
+   */
+  public void endValidation (@Nullable final State aPrevious)
+  {
+    if (aPrevious == null)
+      m_aState.remove ();
+    else
+      m_aState.set (aPrevious);
+  }
+
+  @Nonnull
+  private static ICommonsMap <String, ICommonsList <Node>> _getIndex (@Nonnull final State aState,
+                                                                      @Nonnull final PSXPathKeyDefinition aKey) throws XPathExpressionException
+  {
+    ICommonsMap <String, ICommonsList <Node>> ret = aState.m_aIndexes.get (aKey.getName ());
+    if (ret == null)
+    {
+      // Build the index once per key and document
+      ret = new CommonsHashMap <> ();
+      final NodeList aMatches = XPathEvaluationHelper.evaluate (aKey.getMatchExpression (),
+                                                                aState.m_aRoot,
+                                                                XPathConstants.NODESET,
+                                                                aState.m_sBaseURI);
+      final ICommonsList <String> aValues = new CommonsArrayList <> ();
+      if (aMatches != null)
+        for (int i = 0; i < aMatches.getLength (); ++i)
+        {
+          final Node aMatch = aMatches.item (i);
+          aValues.clear ();
+          aKey.addAllUseValues (aMatch, aState.m_sBaseURI, aValues);
+          for (final String sValue : aValues)
+          {
+            final ICommonsList <Node> aNodes = ret.computeIfAbsent (sValue, k -> new CommonsArrayList <> ());
+            // Avoid duplicates if a node has the same value twice
+            if (aNodes.isEmpty () || aNodes.getLast () != aMatch)
+              aNodes.add (aMatch);
+          }
+        }
+      aState.m_aIndexes.put (aKey.getName (), ret);
+    }
+    return ret;
+  }
+
+  private static void _addAllStringValues (@Nullable final Object aValue, @Nonnull final ICommonsList <String> aTarget)
+  {
+    if (aValue == null)
+      return;
+    if (aValue instanceof String)
+      aTarget.add ((String) aValue);
+    else
+      if (aValue instanceof Node)
+      {
+        final String sText = ((Node) aValue).getTextContent ();
+        aTarget.add (sText != null ? sText : "");
+      }
+      else
+        if (aValue instanceof NodeList)
+        {
+          final NodeList aNL = (NodeList) aValue;
+          for (int i = 0; i < aNL.getLength (); ++i)
+            _addAllStringValues (aNL.item (i), aTarget);
+        }
+        else
+          if (aValue instanceof Iterable <?>)
+          {
+            for (final Object aItem : (Iterable <?>) aValue)
+              _addAllStringValues (aItem, aTarget);
+          }
+          else
+            if (aValue instanceof Item)
+              aTarget.add (((Item) aValue).getStringValue ());
+            else
+              if (aValue instanceof Double)
+              {
+                // XPath number to string conversion for integral values
+                final double dValue = ((Double) aValue).doubleValue ();
+                if (dValue == Math.rint (dValue) && !Double.isInfinite (dValue))
+                  aTarget.add (Long.toString ((long) dValue));
+                else
+                  aTarget.add (aValue.toString ());
+              }
+              else
+                aTarget.add (String.valueOf (aValue));
+  }
+
+  @Nonnull
+  public Object evaluate (@Nullable final List args) throws XPathFunctionException
+  {
+    if (args == null || args.size () != FUNCTION_ARITY)
+      throw new XPathFunctionException ("The key function requires exactly " + FUNCTION_ARITY + " arguments");
+
+    final State aState = m_aState.get ();
+    if (aState == null)
+      throw new XPathFunctionException ("The key function can only be used while validating");
+
+    final ICommonsList <String> aNames = new CommonsArrayList <> ();
+    _addAllStringValues (args.get (0), aNames);
+    if (aNames.size () != 1)
+      throw new XPathFunctionException ("The first argument of the key function must be a single key name");
+    final PSXPathKeyDefinition aKey = m_aKeys.get (aNames.getFirst ().trim ());
+    if (aKey == null)
+      throw new XPathFunctionException ("The key '" + aNames.getFirst () + "' is not declared");
+
+    final ICommonsList <String> aValues = new CommonsArrayList <> ();
+    _addAllStringValues (args.get (1), aValues);
+
+    final ICommonsMap <String, ICommonsList <Node>> aIndex;
+    try
+    {
+      aIndex = _getIndex (aState, aKey);
+    }
+    catch (final XPathExpressionException ex)
+    {
+      throw new XPathFunctionException (ex);
+    }
+
+    if (aValues.size () == 1)
+    {
+      final ICommonsList <Node> aNodes = aIndex.get (aValues.getFirst ());
+      return new PSXPathNodeList (aNodes != null ? aNodes : new CommonsArrayList <> ());
+    }
+
+    // Union of all values in document order
+    final ICommonsOrderedSet <Node> aUnion = new CommonsLinkedHashSet <> ();
+    for (final String sValue : aValues)
+    {
+      final ICommonsList <Node> aNodes = aIndex.get (sValue);
+      if (aNodes != null)
+        aUnion.addAll (aNodes);
+    }
+    final ICommonsList <Node> ret = new CommonsArrayList <> (aUnion);
+    if (aValues.size () > 1)
+      ret.sort ( (a, b) -> a == b ? 0
+                                  : (a.compareDocumentPosition (b) & Node.DOCUMENT_POSITION_FOLLOWING) != 0 ? -1 : 1);
+    return new PSXPathNodeList (ret);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("keys", m_aKeys.keySet ()).getToString ();
+  }
+}
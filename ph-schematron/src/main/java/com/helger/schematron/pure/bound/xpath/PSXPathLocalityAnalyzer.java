@@ -0,0 +1,381 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import java.util.EnumSet;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.PresentForCodeCoverage;
+import com.helger.commons.collection.impl.CommonsHashSet;
+import com.helger.commons.collection.impl.CommonsTreeSet;
+import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.commons.collection.impl.ICommonsSortedSet;
+import com.helger.schematron.pure.bound.EPSAxisUsage;
+import com.helger.schematron.pure.bound.PSLocality;
+
+/**
+ * A static, lexical locality analysis of XPath expressions. It determines the
+ * axes and functions used that access nodes outside of the subtree of the
+ * context node, and the referenced element names. The analysis does not fully
+ * parse the expression and is therefore conservative: names of elements that
+ * equal operator keywords may be misinterpreted, and user defined functions
+ * are not inspected.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public final class PSXPathLocalityAnalyzer
+{
+  private static final ICommonsSet <String> OPERATORS = new CommonsHashSet <> ("and",
+                                                                               "or",
+                                                                               "div",
+                                                                               "mod",
+                                                                               "idiv",
+                                                                               "eq",
+                                                                               "ne",
+                                                                               "lt",
+                                                                               "le",
+                                                                               "gt",
+                                                                               "ge",
+                                                                               "is",
+                                                                               "to",
+                                                                               "union",
+                                                                               "intersect",
+                                                                               "except",
+                                                                               "instance",
+                                                                               "of",
+                                                                               "treat",
+                                                                               "as",
+                                                                               "cast",
+                                                                               "castable",
+                                                                               "then",
+                                                                               "else",
+                                                                               "in",
+                                                                               "return",
+                                                                               "satisfies");
+  private static final ICommonsSet <String> KEYWORDS_BEFORE_VARIABLE = new CommonsHashSet <> ("for",
+                                                                                              "some",
+                                                                                              "every",
+                                                                                              "let");
+  private static final ICommonsSet <String> FUNCTIONS_EXTERNAL_DOCUMENT = new CommonsHashSet <> ("document",
+                                                                                                 "doc",
+                                                                                                 "doc-available",
+                                                                                                 "collection",
+                                                                                                 "unparsed-text",
+                                                                                                 "unparsed-text-lines");
+  private static final ICommonsSet <String> FUNCTIONS_ANCESTOR = new CommonsHashSet <> ("lang",
+                                                                                        "namespace-uri-for-prefix",
+                                                                                        "in-scope-prefixes");
+
+  @PresentForCodeCoverage
+  private static final PSXPathLocalityAnalyzer s_aInstance = new PSXPathLocalityAnalyzer ();
+
+  private PSXPathLocalityAnalyzer ()
+  {}
+
+  /**
+   * @return The index of the last non-whitespace character before the passed
+   *         index or -1.
+   */
+  private static int _getPrevNonWhitespace (@Nonnull final String sExpr, final int nIndex)
+  {
+    int i = nIndex - 1;
+    while (i >= 0 && Character.isWhitespace (sExpr.charAt (i)))
+      i--;
+    return i;
+  }
+
+  private static int _skipWhitespaces (@Nonnull final String sExpr, final int nIndex)
+  {
+    int i = nIndex;
+    while (i < sExpr.length () && Character.isWhitespace (sExpr.charAt (i)))
+      i++;
+    return i;
+  }
+
+  /**
+   * @return <code>true</code> if the character before the passed index
+   *         indicates that a new (sub-)expression starts there.
+   */
+  private static boolean _isExpressionStart (@Nonnull final String sExpr, final int nIndex)
+  {
+    final int nPrev = _getPrevNonWhitespace (sExpr, nIndex);
+    if (nPrev < 0)
+      return true;
+    final char c = sExpr.charAt (nPrev);
+    return "([,|=<>!+".indexOf (c) >= 0 ||
+           (Character.isWhitespace (sExpr.charAt (nIndex - 1)) && _isAfterOperator (sExpr, nPrev));
+  }
+
+  /**
+   * @return <code>true</code> if the name ending at the passed index is an
+   *         operator keyword.
+   */
+  private static boolean _isAfterOperator (@Nonnull final String sExpr, final int nNameEnd)
+  {
+    int nStart = nNameEnd;
+    while (nStart > 0 && Character.isLetter (sExpr.charAt (nStart - 1)))
+      nStart--;
+    return OPERATORS.contains (sExpr.substring (nStart, nNameEnd + 1));
+  }
+
+  /**
+   * @return <code>true</code> if a name at the passed index is in an operator
+   *         position, i.e. follows an operand.
+   */
+  private static boolean _isOperatorPosition (@Nonnull final String sExpr, final int nIndex)
+  {
+    final int nPrev = _getPrevNonWhitespace (sExpr, nIndex);
+    if (nPrev < 0 || nPrev == nIndex - 1)
+      return false;
+    final char c = sExpr.charAt (nPrev);
+    return Character.isLetterOrDigit (c) || c == ')' || c == ']' || c == '.' || c == '\'' || c == '*' || c == '_';
+  }
+
+  @Nullable
+  private static EPSAxisUsage _getAxisUsage (@Nonnull final String sAxis)
+  {
+    switch (sAxis)
+    {
+      case "parent":
+      case "ancestor":
+      case "ancestor-or-self":
+        return EPSAxisUsage.ANCESTOR;
+      case "preceding":
+      case "following":
+      case "preceding-sibling":
+      case "following-sibling":
+        return EPSAxisUsage.PRECEDING_FOLLOWING;
+      default:
+        // self, child, descendant, descendant-or-self, attribute, namespace
+        return null;
+    }
+  }
+
+  /**
+   * Analyze the passed XPath expression.
+   *
+   * @param sExpr
+   *        The expression to analyze. May not be <code>null</code>.
+   * @return The locality of the expression. Never <code>null</code>.
+   */
+  @Nonnull
+  public static PSLocality getLocality (@Nonnull final String sExpr)
+  {
+    ValueEnforcer.notNull (sExpr, "Expr");
+
+    final EnumSet <EPSAxisUsage> aUsages = EnumSet.noneOf (EPSAxisUsage.class);
+    final ICommonsSortedSet <String> aElementNames = new CommonsTreeSet <> ();
+    final ICommonsSortedSet <String> aAbsoluteNames = new CommonsTreeSet <> ();
+
+    final int nLen = sExpr.length ();
+    int nDepth = 0;
+    // Nesting depth at which the current absolute path started or -1
+    int nAbsoluteDepth = -1;
+    boolean bNextIsAttribute = false;
+    boolean bNextIsVariableBinding = false;
+    final ICommonsSet <String> aBoundVariables = new CommonsHashSet <> ();
+    int i = 0;
+    while (i < nLen)
+    {
+      final char c = sExpr.charAt (i);
+      if (c == '\'' || c == '"')
+      {
+        i = PSXPathRewriteHelper.getStringLiteralEnd (sExpr, i);
+        continue;
+      }
+      if (Character.isWhitespace (c))
+      {
+        // Whitespace ends an absolute path on the same level
+        if (nAbsoluteDepth == nDepth)
+          nAbsoluteDepth = -1;
+        i++;
+        continue;
+      }
+      if (c == '(' || c == '[')
+      {
+        nDepth++;
+        i++;
+        continue;
+      }
+      if (c == ')' || c == ']')
+      {
+        nDepth--;
+        if (nAbsoluteDepth > nDepth)
+          nAbsoluteDepth = -1;
+        i++;
+        continue;
+      }
+      if (c == '/')
+      {
+        if (_isExpressionStart (sExpr, i))
+        {
+          final boolean bDouble = i + 1 < nLen && sExpr.charAt (i + 1) == '/';
+          aUsages.add (bDouble ? EPSAxisUsage.ROOT_DESCENDANT : EPSAxisUsage.ABSOLUTE_PATH);
+          nAbsoluteDepth = nDepth;
+          i += bDouble ? 2 : 1;
+        }
+        else
+          i++;
+        continue;
+      }
+      if (c == '.')
+      {
+        if (i + 1 < nLen && sExpr.charAt (i + 1) == '.')
+        {
+          aUsages.add (EPSAxisUsage.ANCESTOR);
+          i += 2;
+        }
+        else
+          if (i + 1 < nLen && Character.isDigit (sExpr.charAt (i + 1)))
+          {
+            // Number like ".5"
+            i++;
+            while (i < nLen && Character.isDigit (sExpr.charAt (i)))
+              i++;
+          }
+          else
+            i++;
+        continue;
+      }
+      if (Character.isDigit (c))
+      {
+        while (i < nLen && (Character.isLetterOrDigit (sExpr.charAt (i)) || sExpr.charAt (i) == '.'))
+          i++;
+        continue;
+      }
+      if (c == '@')
+      {
+        bNextIsAttribute = true;
+        i++;
+        continue;
+      }
+      if (c == '$')
+      {
+        // Variable reference - skip the name
+        final int nStart = ++i;
+        while (i < nLen && PSXPathRewriteHelper.isNameChar (sExpr.charAt (i)) && sExpr.charAt (i) != '$')
+          i++;
+        final String sVarName = sExpr.substring (nStart, i);
+        if (bNextIsVariableBinding)
+          aBoundVariables.add (sVarName);
+        else
+          if (!aBoundVariables.contains (sVarName))
+            aUsages.add (EPSAxisUsage.VARIABLE);
+        bNextIsVariableBinding = false;
+        continue;
+      }
+      if (Character.isLetter (c) || c == '_')
+      {
+        // Read a (maybe prefixed) name, stopping at an axis separator
+        int j = i;
+        while (j < nLen)
+        {
+          final char cj = sExpr.charAt (j);
+          if (cj == ':')
+          {
+            if (j + 1 < nLen && (Character.isLetter (sExpr.charAt (j + 1)) || sExpr.charAt (j + 1) == '*'))
+            {
+              j++;
+              continue;
+            }
+            break;
+          }
+          if (Character.isLetterOrDigit (cj) || cj == '-' || cj == '_' || cj == '.' || cj == '*')
+            j++;
+          else
+            break;
+        }
+        final String sName = sExpr.substring (i, j);
+        final int nNext = _skipWhitespaces (sExpr, j);
+        if (sExpr.startsWith ("::", nNext))
+        {
+          // Axis
+          final EPSAxisUsage eUsage = _getAxisUsage (sName);
+          if (eUsage != null)
+            aUsages.add (eUsage);
+          bNextIsAttribute = sName.equals ("attribute") || sName.equals ("namespace");
+          i = nNext + 2;
+          continue;
+        }
+        if (nNext < nLen && sExpr.charAt (nNext) == '(')
+        {
+          // Function call or kind test
+          final int nColon = sName.lastIndexOf (':');
+          final String sLocalName = nColon >= 0 ? sName.substring (nColon + 1) : sName;
+          if (FUNCTIONS_EXTERNAL_DOCUMENT.contains (sLocalName))
+            aUsages.add (EPSAxisUsage.EXTERNAL_DOCUMENT);
+          else
+            if (sLocalName.equals ("key"))
+              aUsages.add (EPSAxisUsage.KEY);
+            else
+              if (sLocalName.equals ("id") || sLocalName.equals ("idref") || sLocalName.equals ("element-with-id"))
+                aUsages.add (EPSAxisUsage.ID);
+              else
+                if (sLocalName.equals ("root"))
+                  aUsages.add (EPSAxisUsage.ABSOLUTE_PATH);
+                else
+                  if (FUNCTIONS_ANCESTOR.contains (sLocalName))
+                  {
+                    // Inherited xml:lang and in-scope namespaces depend on
+                    // the ancestors of the node
+                    aUsages.add (EPSAxisUsage.ANCESTOR);
+                  }
+          bNextIsAttribute = false;
+          i = j;
+          continue;
+        }
+        if (_isOperatorPosition (sExpr, i) && (OPERATORS.contains (sName) || KEYWORDS_BEFORE_VARIABLE.contains (sName)))
+        {
+          // Operator keyword
+          i = j;
+          continue;
+        }
+        if (KEYWORDS_BEFORE_VARIABLE.contains (sName) && sExpr.startsWith ("$", nNext))
+        {
+          // "for $x in ..." - the variable is bound locally
+          bNextIsVariableBinding = true;
+          i = j;
+          continue;
+        }
+
+        // Name test
+        if (!bNextIsAttribute && !sName.endsWith ("*"))
+        {
+          aElementNames.add (sName);
+          if (nAbsoluteDepth >= 0)
+            aAbsoluteNames.add (sName);
+        }
+        bNextIsAttribute = false;
+        i = j;
+        continue;
+      }
+
+      // Any other operator character ends an absolute path on the same level
+      if (nAbsoluteDepth == nDepth && c != '*')
+        nAbsoluteDepth = -1;
+      bNextIsAttribute = false;
+      i++;
+    }
+    return new PSLocality (aUsages, aElementNames, aAbsoluteNames);
+  }
+}
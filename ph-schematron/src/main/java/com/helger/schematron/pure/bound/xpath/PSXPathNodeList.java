@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * A simple {@link NodeList} implementation on top of a list.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+final class PSXPathNodeList implements NodeList
+{
+  private final List <Node> m_aNodes;
+
+  PSXPathNodeList (@Nonnull final List <Node> aNodes)
+  {
+    m_aNodes = aNodes;
+  }
+
+  public Node item (final int nIndex)
+  {
+    return nIndex >= 0 && nIndex < m_aNodes.size () ? m_aNodes.get (nIndex) : null;
+  }
+
+  public int getLength ()
+  {
+    return m_aNodes.size ();
+  }
+}
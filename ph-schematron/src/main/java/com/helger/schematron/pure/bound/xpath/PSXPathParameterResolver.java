@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPathVariableResolver;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.regex.RegExHelper;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.CSchematronXML;
+import com.helger.schematron.pure.binding.SchematronBindException;
+import com.helger.schematron.pure.binding.xpath.CXPath;
+import com.helger.schematron.pure.model.PSSchema;
+import com.helger.xml.microdom.IMicroElement;
+
+/**
+ * An {@link XPathVariableResolver} that resolves the external parameters
+ * declared in a schema. The XPath expressions are compiled once with this
+ * resolver, and the values are supplied per validation via
+ * {@link #setCurrentParameters(Map)}. The current values are stored per
+ * thread, so that a single bound schema can be used to validate concurrently
+ * with different parameter values. All other variables are passed to the
+ * optional fallback resolver.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@ThreadSafe
+public class PSXPathParameterResolver implements XPathVariableResolver
+{
+  private final ICommonsOrderedMap <String, Object> m_aDeclaredParameters;
+  private final XPathVariableResolver m_aFallbackResolver;
+  private final ThreadLocal <Map <String, ?>> m_aCurrentParameters = new ThreadLocal <> ();
+
+  /**
+   * Constructor
+   *
+   * @param aDeclaredParameters
+   *        The declared parameter names together with their default values.
+   *        May not be <code>null</code>.
+   * @param aFallbackResolver
+   *        The resolver to be used for all variables that are not declared
+   *        parameters. May be <code>null</code>.
+   */
+  public PSXPathParameterResolver (@Nonnull final Map <String, ?> aDeclaredParameters,
+                                   @Nullable final XPathVariableResolver aFallbackResolver)
+  {
+    ValueEnforcer.notNull (aDeclaredParameters, "DeclaredParameters");
+    m_aDeclaredParameters = new CommonsLinkedHashMap <> (aDeclaredParameters);
+    m_aFallbackResolver = aFallbackResolver;
+  }
+
+  /**
+   * @return A copy of all declared parameters with their default values. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedMap <String, Object> getAllDeclaredParameters ()
+  {
+    return m_aDeclaredParameters.getClone ();
+  }
+
+  /**
+   * @return The fallback resolver as passed in the constructor. May be
+   *         <code>null</code>.
+   */
+  @Nullable
+  public XPathVariableResolver getFallbackResolver ()
+  {
+    return m_aFallbackResolver;
+  }
+
+  /**
+   * Set the parameter values for the current thread. Callers must restore the
+   * previous value (the return value) after the validation is finished.
+   *
+   * @param aParameters
+   *        The parameter values to use. May be <code>null</code>.
+   * @return The previously set parameter values. May be <code>null</code>.
+   */
+  @Nullable
+  public Map <String, ?> setCurrentParameters (@Nullable final Map <String, ?> aParameters)
+  {
+    final Map <String, ?> ret = m_aCurrentParameters.get ();
+    if (aParameters == null)
+      m_aCurrentParameters.remove ();
+    else
+      m_aCurrentParameters.set (aParameters);
+    return ret;
+  }
+
+  @Nullable
+  public Object resolveVariable (@Nonnull final QName aVariableName)
+  {
+    if (StringHelper.hasNoText (aVariableName.getNamespaceURI ()))
+    {
+      final String sName = aVariableName.getLocalPart ();
+      if (m_aDeclaredParameters.containsKey (sName))
+      {
+        final Map <String, ?> aCurrent = m_aCurrentParameters.get ();
+        if (aCurrent != null)
+        {
+          final Object aValue = aCurrent.get (sName);
+          if (aValue != null)
+            return aValue;
+        }
+        return m_aDeclaredParameters.get (sName);
+      }
+    }
+    return m_aFallbackResolver == null ? null : m_aFallbackResolver.resolveVariable (aVariableName);
+  }
+
+  @Nonnull
+  private static Object _getDefaultValue (@Nonnull final String sName,
+                                          @Nullable final String sSelect) throws SchematronBindException
+  {
+    if (sSelect == null)
+      return "";
+
+    final String sTrimmed = sSelect.trim ();
+    if (sTrimmed.length () >= 2)
+    {
+      final char cFirst = sTrimmed.charAt (0);
+      if ((cFirst == '\'' || cFirst == '"') &&
+          sTrimmed.charAt (sTrimmed.length () - 1) == cFirst &&
+          sTrimmed.indexOf (cFirst, 1) == sTrimmed.length () - 1)
+        return sTrimmed.substring (1, sTrimmed.length () - 1);
+    }
+    if (RegExHelper.stringMatchesPattern ("-?([0-9]+(\\.[0-9]*)?|\\.[0-9]+)", sTrimmed))
+      return Double.valueOf (sTrimmed);
+    if (sTrimmed.equals ("true()"))
+      return Boolean.TRUE;
+    if (sTrimmed.equals ("false()"))
+      return Boolean.FALSE;
+    throw new SchematronBindException ("The default value '" +
+                                       sSelect +
+                                       "' of the parameter '" +
+                                       sName +
+                                       "' is not supported. Only string, number and boolean literals can be used.");
+  }
+
+  /**
+   * Get all external parameters declared in the passed schema. Parameters are
+   * declared via top-level <code>xsl:param</code> elements. Only string literals,
+   * number literals, <code>true()</code> and <code>false()</code> are supported
+   * as default values (in the <code>select</code> attribute). Without a
+   * <code>select</code> attribute the default value is the empty string.
+   *
+   * @param aSchema
+   *        The schema to scan. May not be <code>null</code>.
+   * @return The map from parameter name to default value. Never
+   *         <code>null</code> but maybe empty.
+   * @throws SchematronBindException
+   *         If a default value is not supported
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static ICommonsOrderedMap <String, Object> getAllDeclaredParameters (@Nonnull final PSSchema aSchema) throws SchematronBindException
+  {
+    ValueEnforcer.notNull (aSchema, "Schema");
+
+    final ICommonsOrderedMap <String, Object> ret = new CommonsLinkedHashMap <> ();
+    for (final IMicroElement eForeign : aSchema.getAllForeignElements ())
+      if (CXPath.NAMESPACE_XSLT.equals (eForeign.getNamespaceURI ()) &&
+          CXPath.XSLT_ELEMENT_PARAM.equals (eForeign.getLocalName ()))
+      {
+        final String sName = eForeign.getAttributeValue (CSchematronXML.ATTR_NAME);
+        if (StringHelper.hasText (sName))
+          ret.put (sName, _getDefaultValue (sName, eForeign.getAttributeValue (CSchematronXML.ATTR_SELECT)));
+      }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("declaredParameters", m_aDeclaredParameters)
+                                       .appendIfNotNull ("fallbackResolver", m_aFallbackResolver)
+                                       .getToString ();
+  }
+}
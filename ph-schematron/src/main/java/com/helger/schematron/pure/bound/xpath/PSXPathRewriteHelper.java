@@ -0,0 +1,312 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.PresentForCodeCoverage;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsTreeSet;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsSortedSet;
+
+/**
+ * Helper methods for simple textual rewrites of XPath expressions. The methods
+ * are aware of string literals and nesting, but do not fully parse the
+ * expressions.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public final class PSXPathRewriteHelper
+{
+  @PresentForCodeCoverage
+  private static final PSXPathRewriteHelper s_aInstance = new PSXPathRewriteHelper ();
+
+  private PSXPathRewriteHelper ()
+  {}
+
+  /**
+   * Check if the passed character can be part of an XPath name (including a
+   * namespace prefix separator) or a variable reference.
+   *
+   * @param c
+   *        The character to check.
+   * @return <code>true</code> if it is a name character.
+   */
+  public static boolean isNameChar (final char c)
+  {
+    return Character.isLetterOrDigit (c) || c == '-' || c == '_' || c == '.' || c == ':' || c == '$' || c == '@';
+  }
+
+  /**
+   * Get the index after the string literal starting at the passed index.
+   *
+   * @param sExpr
+   *        Expression. May not be <code>null</code>.
+   * @param nStart
+   *        Index of the opening quote character.
+   * @return The index after the closing quote or the length of the expression
+   *         if the literal is not terminated.
+   */
+  public static int getStringLiteralEnd (@Nonnull final String sExpr, final int nStart)
+  {
+    final char cQuote = sExpr.charAt (nStart);
+    final int nEnd = sExpr.indexOf (cQuote, nStart + 1);
+    return nEnd < 0 ? sExpr.length () : nEnd + 1;
+  }
+
+  /**
+   * Get the index of the closing parenthesis matching the opening parenthesis
+   * at the passed index.
+   *
+   * @param sExpr
+   *        Expression. May not be <code>null</code>.
+   * @param nOpen
+   *        Index of the opening parenthesis.
+   * @return The index of the matching closing parenthesis or -1 if there is
+   *         none.
+   */
+  public static int getMatchingClosingParenthesis (@Nonnull final String sExpr, final int nOpen)
+  {
+    int nDepth = 0;
+    int i = nOpen;
+    final int nLen = sExpr.length ();
+    while (i < nLen)
+    {
+      final char c = sExpr.charAt (i);
+      if (c == '\'' || c == '"')
+      {
+        i = getStringLiteralEnd (sExpr, i);
+        continue;
+      }
+      if (c == '(')
+        nDepth++;
+      else
+        if (c == ')')
+        {
+          nDepth--;
+          if (nDepth == 0)
+            return i;
+        }
+      i++;
+    }
+    return -1;
+  }
+
+  /**
+   * Split the passed expression at the passed separator character, ignoring
+   * all separators inside string literals, parenthesis and brackets.
+   *
+   * @param sExpr
+   *        Expression to split. May not be <code>null</code>.
+   * @param cSep
+   *        The separator character (e.g. '|' or ',').
+   * @return A non-<code>null</code> list with at least one (untrimmed)
+   *         element.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static ICommonsList <String> getTopLevelSplit (@Nonnull final String sExpr, final char cSep)
+  {
+    ValueEnforcer.notNull (sExpr, "Expr");
+
+    final ICommonsList <String> ret = new CommonsArrayList <> ();
+    int nDepth = 0;
+    int nStart = 0;
+    int i = 0;
+    final int nLen = sExpr.length ();
+    while (i < nLen)
+    {
+      final char c = sExpr.charAt (i);
+      if (c == '\'' || c == '"')
+      {
+        i = getStringLiteralEnd (sExpr, i);
+        continue;
+      }
+      if (c == '(' || c == '[')
+        nDepth++;
+      else
+        if (c == ')' || c == ']')
+          nDepth--;
+        else
+          if (c == cSep && nDepth == 0)
+          {
+            ret.add (sExpr.substring (nStart, i));
+            nStart = i + 1;
+          }
+      i++;
+    }
+    ret.add (sExpr.substring (nStart));
+    return ret;
+  }
+
+  /**
+   * Replace all calls of the function with the passed (unprefixed) name with
+   * calls to a function with the new name. Occurrences inside string literals
+   * and names that just end with the function name are not touched.
+   *
+   * @param sExpr
+   *        The expression to modify. May not be <code>null</code>.
+   * @param sFunctionName
+   *        The function name to search. May not be <code>null</code>.
+   * @param sNewFunctionName
+   *        The new function name (e.g. with a prefix). May not be
+   *        <code>null</code>.
+   * @return The modified expression or the original one if no call was found.
+   */
+  @Nonnull
+  public static String getWithFunctionRenamed (@Nonnull final String sExpr,
+                                               @Nonnull final String sFunctionName,
+                                               @Nonnull final String sNewFunctionName)
+  {
+    ValueEnforcer.notNull (sExpr, "Expr");
+    ValueEnforcer.notEmpty (sFunctionName, "FunctionName");
+    ValueEnforcer.notEmpty (sNewFunctionName, "NewFunctionName");
+
+    // Quick check
+    if (sExpr.indexOf (sFunctionName) < 0)
+      return sExpr;
+
+    final StringBuilder aSB = new StringBuilder (sExpr.length () + 16);
+    final int nLen = sExpr.length ();
+    final int nNameLen = sFunctionName.length ();
+    int i = 0;
+    while (i < nLen)
+    {
+      final char c = sExpr.charAt (i);
+      if (c == '\'' || c == '"')
+      {
+        final int nEnd = getStringLiteralEnd (sExpr, i);
+        aSB.append (sExpr, i, nEnd);
+        i = nEnd;
+        continue;
+      }
+
+      if (sExpr.startsWith (sFunctionName, i) && (i == 0 || !isNameChar (sExpr.charAt (i - 1))))
+      {
+        // Must be followed by an opening parenthesis
+        int j = i + nNameLen;
+        while (j < nLen && Character.isWhitespace (sExpr.charAt (j)))
+          j++;
+        if (j < nLen && sExpr.charAt (j) == '(')
+        {
+          aSB.append (sNewFunctionName);
+          i += nNameLen;
+          continue;
+        }
+      }
+      aSB.append (c);
+      i++;
+    }
+    return aSB.toString ();
+  }
+
+  /**
+   * Normalize the whitespaces in the passed expression, so that equivalent
+   * expressions differing only in formatting are textually identical. Outside
+   * of string literals, all whitespace sequences are collapsed into a single
+   * space, and spaces that are not between two name characters are removed.
+   *
+   * @param sExpr
+   *        The expression to normalize. May not be <code>null</code>.
+   * @return The normalized expression. Never <code>null</code>.
+   */
+  @Nonnull
+  public static String getNormalizedExpression (@Nonnull final String sExpr)
+  {
+    ValueEnforcer.notNull (sExpr, "Expr");
+
+    final StringBuilder aSB = new StringBuilder (sExpr.length ());
+    final int nLen = sExpr.length ();
+    boolean bPendingSpace = false;
+    int i = 0;
+    while (i < nLen)
+    {
+      final char c = sExpr.charAt (i);
+      if (Character.isWhitespace (c))
+      {
+        bPendingSpace = true;
+        i++;
+        continue;
+      }
+      if (bPendingSpace)
+      {
+        // Keep the space only between names like in "a or b"
+        if (aSB.length () > 0 && isNameChar (aSB.charAt (aSB.length () - 1)) && isNameChar (c))
+          aSB.append (' ');
+        bPendingSpace = false;
+      }
+      if (c == '\'' || c == '"')
+      {
+        final int nEnd = getStringLiteralEnd (sExpr, i);
+        aSB.append (sExpr, i, nEnd);
+        i = nEnd;
+        continue;
+      }
+      aSB.append (c);
+      i++;
+    }
+    return aSB.toString ();
+  }
+
+  /**
+   * Get all namespace prefixes used in the passed expression. Axis names (e.g.
+   * in <code>child::a</code>) are not considered prefixes.
+   *
+   * @param sExpr
+   *        The expression to scan. May not be <code>null</code>.
+   * @return A non-<code>null</code> but maybe empty sorted set of prefixes.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static ICommonsSortedSet <String> getAllUsedPrefixes (@Nonnull final String sExpr)
+  {
+    ValueEnforcer.notNull (sExpr, "Expr");
+
+    final ICommonsSortedSet <String> ret = new CommonsTreeSet <> ();
+    final int nLen = sExpr.length ();
+    int i = 0;
+    while (i < nLen)
+    {
+      final char c = sExpr.charAt (i);
+      if (c == '\'' || c == '"')
+      {
+        i = getStringLiteralEnd (sExpr, i);
+        continue;
+      }
+      if (c == ':' && i > 0 && i + 1 < nLen && sExpr.charAt (i + 1) != ':' && sExpr.charAt (i - 1) != ':')
+      {
+        // Search the start of the prefix
+        int nStart = i;
+        while (nStart > 0 && isNameChar (sExpr.charAt (nStart - 1)) && sExpr.charAt (nStart - 1) != ':')
+          nStart--;
+        // Skip variable references and attribute markers
+        while (nStart < i && (sExpr.charAt (nStart) == '$' || sExpr.charAt (nStart) == '@'))
+          nStart++;
+        if (nStart < i)
+          ret.add (sExpr.substring (nStart, i));
+      }
+      i++;
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A cache for the nodes matching rule contexts during the validation of a
+ * single document. Rules with the same rule context key (see
+ * {@link PSXPathBoundRule#getRuleContextKey()}) - within one schema or across
+ * several schemas - share the evaluation result, so that each distinct rule
+ * context is evaluated only once per document.<br>
+ * An instance of this class is bound to a single document and must not be
+ * shared between threads.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class PSXPathRuleContextCache
+{
+  private final Node m_aNode;
+  private final ICommonsMap <String, NodeList> m_aMap = new CommonsHashMap <> ();
+  private int m_nHitCount = 0;
+  private int m_nMissCount = 0;
+
+  /**
+   * Constructor
+   *
+   * @param aNode
+   *        The node that is validated. May not be <code>null</code>.
+   */
+  public PSXPathRuleContextCache (@Nonnull final Node aNode)
+  {
+    ValueEnforcer.notNull (aNode, "Node");
+    m_aNode = aNode;
+  }
+
+  /**
+   * @return The node this cache belongs to. Never <code>null</code>.
+   */
+  @Nonnull
+  public final Node getNode ()
+  {
+    return m_aNode;
+  }
+
+  /**
+   * Get the cached nodes for the passed key.
+   *
+   * @param aNode
+   *        The node to be validated. Must be the node passed in the
+   *        constructor. May not be <code>null</code>.
+   * @param sKey
+   *        The rule context key. May not be <code>null</code>.
+   * @return <code>null</code> if no result is cached for this key.
+   */
+  @Nullable
+  public NodeList getCachedNodes (@Nonnull final Node aNode, @Nonnull final String sKey)
+  {
+    ValueEnforcer.isTrue (aNode == m_aNode, "The cache belongs to a different node");
+    ValueEnforcer.notNull (sKey, "Key");
+
+    final NodeList ret = m_aMap.get (sKey);
+    if (ret != null)
+      m_nHitCount++;
+    else
+      m_nMissCount++;
+    return ret;
+  }
+
+  /**
+   * Remember the nodes matching the passed key.
+   *
+   * @param sKey
+   *        The rule context key. May not be <code>null</code>.
+   * @param aNodes
+   *        The matching nodes. May not be <code>null</code>.
+   */
+  public void putCachedNodes (@Nonnull final String sKey, @Nonnull final NodeList aNodes)
+  {
+    ValueEnforcer.notNull (sKey, "Key");
+    ValueEnforcer.notNull (aNodes, "Nodes");
+    m_aMap.put (sKey, aNodes);
+  }
+
+  /**
+   * @return The number of distinct rule contexts evaluated so far.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aMap.size ();
+  }
+
+  /**
+   * @return The number of lookups that could be served from the cache.
+   */
+  @Nonnegative
+  public int getHitCount ()
+  {
+    return m_nHitCount;
+  }
+
+  /**
+   * @return The number of lookups that required an evaluation.
+   */
+  @Nonnegative
+  public int getMissCount ()
+  {
+    return m_nMissCount;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("node", m_aNode)
+                                       .append ("size", m_aMap.size ())
+                                       .append ("hitCount", m_nHitCount)
+                                       .append ("missCount", m_nMissCount)
+                                       .getToString ();
+  }
+}
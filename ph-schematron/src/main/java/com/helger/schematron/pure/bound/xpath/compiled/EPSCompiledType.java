@@ -0,0 +1,35 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath.compiled;
+
+/**
+ * The static result type of a compiled expression.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+public enum EPSCompiledType
+{
+  /** A list of unique DOM nodes */
+  NODESET,
+  /** A string */
+  STRING,
+  /** A double value */
+  NUMBER,
+  /** A boolean value */
+  BOOLEAN;
+}
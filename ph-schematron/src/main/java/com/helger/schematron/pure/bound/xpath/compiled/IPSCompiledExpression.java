@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath.compiled;
+
+import javax.annotation.Nonnull;
+
+import org.w3c.dom.Node;
+
+/**
+ * A compiled expression that is evaluated directly on a DOM node without
+ * using the JAXP XPath API. Implementations must be thread-safe.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+public interface IPSCompiledExpression
+{
+  /**
+   * @return The static type of the evaluation result. Never <code>null</code>.
+   */
+  @Nonnull
+  EPSCompiledType getType ();
+
+  /**
+   * Evaluate the expression.
+   *
+   * @param aContextNode
+   *        The context node. May not be <code>null</code>.
+   * @return The result object: a list of nodes for
+   *         {@link EPSCompiledType#NODESET}, a {@link String}, a
+   *         {@link Double} or a {@link Boolean}. Never <code>null</code>.
+   * @throws PSCompiledFallbackException
+   *         If the result cannot be determined reliably and the original XPath
+   *         expression must be evaluated instead.
+   */
+  @Nonnull
+  Object evaluate (@Nonnull Node aContextNode);
+
+  /**
+   * Evaluate the expression and convert the result to a boolean using the
+   * effective boolean value rules.
+   *
+   * @param aContextNode
+   *        The context node. May not be <code>null</code>.
+   * @return The boolean result.
+   * @throws PSCompiledFallbackException
+   *         If the result cannot be determined reliably and the original XPath
+   *         expression must be evaluated instead.
+   */
+  default boolean evaluateBoolean (@Nonnull final Node aContextNode)
+  {
+    return PSCompiledValues.getEffectiveBooleanValue (evaluate (aContextNode));
+  }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath.compiled;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Exception thrown by {@link IPSCompiledExpression#evaluate(org.w3c.dom.Node)}
+ * if the XPath 1.0 and XPath 2.0 semantics of an expression may differ for
+ * the current input (e.g. a non-numeric value is compared to a number). In
+ * this case the original XPath expression must be evaluated instead. No stack
+ * trace is filled in, as this exception is part of the regular control flow.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+public class PSCompiledFallbackException extends RuntimeException
+{
+  public PSCompiledFallbackException (@Nonnull final String sMessage)
+  {
+    super (sMessage, null, false, false);
+  }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath.compiled;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import com.helger.commons.annotation.PresentForCodeCoverage;
+
+/**
+ * Value conversions for compiled expressions. Only conversions that are
+ * identical in XPath 1.0 and XPath 2.0 are performed - in all other cases a
+ * {@link PSCompiledFallbackException} is thrown.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public final class PSCompiledValues
+{
+  /** Numbers that are parsed identically in XPath 1.0 and 2.0 */
+  private static final Pattern SIMPLE_NUMBER = Pattern.compile ("\\s*-?([0-9]+(\\.[0-9]*)?|\\.[0-9]+)\\s*");
+  /** Up to this value, integral doubles are serialized without exponent */
+  private static final double MAX_PLAIN_INTEGER = 1e6;
+
+  @PresentForCodeCoverage
+  private static final PSCompiledValues s_aInstance = new PSCompiledValues ();
+
+  private PSCompiledValues ()
+  {}
+
+  /**
+   * Get the XPath string value of a node.
+   *
+   * @param aNode
+   *        The node to use. May not be <code>null</code>.
+   * @return The string value. Never <code>null</code>.
+   */
+  @Nonnull
+  public static String getStringValue (@Nonnull final Node aNode)
+  {
+    final String ret;
+    switch (aNode.getNodeType ())
+    {
+      case Node.DOCUMENT_NODE:
+      {
+        final Node aRoot = ((Document) aNode).getDocumentElement ();
+        ret = aRoot == null ? null : aRoot.getTextContent ();
+        break;
+      }
+      case Node.ATTRIBUTE_NODE:
+        ret = ((Attr) aNode).getValue ();
+        break;
+      case Node.ELEMENT_NODE:
+        ret = aNode.getTextContent ();
+        break;
+      default:
+        ret = aNode.getNodeValue ();
+        break;
+    }
+    return ret == null ? "" : ret;
+  }
+
+  /**
+   * Get the effective boolean value of an evaluation result.
+   *
+   * @param aValue
+   *        The value as returned by
+   *        {@link IPSCompiledExpression#evaluate(Node)}. May not be
+   *        <code>null</code>.
+   * @return The boolean value
+   */
+  public static boolean getEffectiveBooleanValue (@Nonnull final Object aValue)
+  {
+    if (aValue instanceof Boolean)
+      return ((Boolean) aValue).booleanValue ();
+    if (aValue instanceof String)
+      return ((String) aValue).length () > 0;
+    if (aValue instanceof Double)
+    {
+      final double d = ((Double) aValue).doubleValue ();
+      return d != 0 && !Double.isNaN (d);
+    }
+    return !((List <?>) aValue).isEmpty ();
+  }
+
+  /**
+   * Convert a value to a single string, as used for string function arguments.
+   *
+   * @param aValue
+   *        The value to convert. May not be <code>null</code>.
+   * @return The string. Never <code>null</code>.
+   * @throws PSCompiledFallbackException
+   *         for node sets with more than one node and numbers that are
+   *         serialized differently in XPath 1.0 and 2.0.
+   */
+  @Nonnull
+  public static String getAsString (@Nonnull final Object aValue)
+  {
+    if (aValue instanceof String)
+      return (String) aValue;
+    if (aValue instanceof Boolean)
+      return ((Boolean) aValue).booleanValue () ? "true" : "false";
+    if (aValue instanceof Double)
+    {
+      final double d = ((Double) aValue).doubleValue ();
+      if (Double.isNaN (d))
+        return "NaN";
+      if (d == Math.rint (d) && Math.abs (d) < MAX_PLAIN_INTEGER && !(d == 0 && 1 / d < 0))
+        return Long.toString ((long) d);
+      throw new PSCompiledFallbackException ("Number " + d + " is serialized differently");
+    }
+    final List <?> aNodes = (List <?>) aValue;
+    if (aNodes.isEmpty ())
+      return "";
+    if (aNodes.size () > 1)
+      throw new PSCompiledFallbackException ("Sequence of more than one node used as string");
+    return getStringValue ((Node) aNodes.get (0));
+  }
+
+  /**
+   * Parse a string to a number.
+   *
+   * @param sValue
+   *        The string to parse. May not be <code>null</code>.
+   * @return The parsed number. May be NaN for empty strings.
+   * @throws PSCompiledFallbackException
+   *         if the value is not a simple decimal number.
+   */
+  public static double getParsedNumber (@Nonnull final String sValue)
+  {
+    if (SIMPLE_NUMBER.matcher (sValue).matches ())
+      return Double.parseDouble (sValue.trim ());
+    if (sValue.trim ().isEmpty ())
+      return Double.NaN;
+    throw new PSCompiledFallbackException ("'" + sValue + "' is not a simple number");
+  }
+
+  /**
+   * Convert a value to a number.
+   *
+   * @param aValue
+   *        The value to convert. May not be <code>null</code>.
+   * @return The number.
+   * @throws PSCompiledFallbackException
+   *         if the conversion may differ between XPath 1.0 and 2.0.
+   */
+  public static double getAsNumber (@Nonnull final Object aValue)
+  {
+    if (aValue instanceof Double)
+      return ((Double) aValue).doubleValue ();
+    if (aValue instanceof Boolean)
+      return ((Boolean) aValue).booleanValue () ? 1 : 0;
+    if (aValue instanceof String)
+      return getParsedNumber ((String) aValue);
+    final List <?> aNodes = (List <?>) aValue;
+    if (aNodes.isEmpty ())
+      return Double.NaN;
+    return getParsedNumber (getAsString (aValue));
+  }
+}
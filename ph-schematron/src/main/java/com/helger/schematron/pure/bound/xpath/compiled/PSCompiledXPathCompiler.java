@@ -0,0 +1,1268 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath.compiled;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.PresentForCodeCoverage;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+
+/**
+ * Compiler for a subset of XPath into a tree of {@link IPSCompiledExpression}
+ * objects, that are evaluated directly on DOM nodes. The supported subset is:
+ * <ul>
+ * <li>Location paths (absolute and relative) with the axes
+ * <code>child</code>, <code>attribute</code>, <code>self</code>,
+ * <code>parent</code>, <code>descendant</code> and
+ * <code>descendant-or-self</code> (incl. the abbreviations <code>@</code>,
+ * <code>.</code>, <code>..</code> and <code>//</code>), name tests, the node
+ * type tests <code>node()</code>, <code>text()</code> and
+ * <code>comment()</code> and predicates</li>
+ * <li>String and number literals</li>
+ * <li>The operators <code>and</code>, <code>or</code>, <code>=</code>,
+ * <code>!=</code>, <code>&lt;</code>, <code>&lt;=</code>, <code>&gt;</code>
+ * and <code>&gt;=</code> - only for operand types that have the same semantics
+ * in XPath 1.0 and XPath 2.0</li>
+ * <li>The functions <code>not</code>, <code>boolean</code>, <code>true</code>,
+ * <code>false</code>, <code>count</code>, <code>string</code>,
+ * <code>string-length</code>, <code>normalize-space</code>,
+ * <code>concat</code>, <code>contains</code>, <code>starts-with</code>,
+ * <code>number</code>, <code>name</code> and <code>local-name</code></li>
+ * </ul>
+ * Everything else (variables, arithmetics, unions, other functions and axes
+ * etc.) is not supported, and {@link #compile(String, NamespaceContext)}
+ * returns <code>null</code>. If the result of a supported expression may
+ * differ between XPath 1.0 and 2.0 for a certain input, a
+ * {@link PSCompiledFallbackException} is thrown upon evaluation.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public final class PSCompiledXPathCompiler
+{
+  /**
+   * Internal exception for constructs outside of the supported subset.
+   */
+  private static final class UnsupportedException extends Exception
+  {
+    UnsupportedException (@Nonnull final String sMessage)
+    {
+      super (sMessage, null, false, false);
+    }
+  }
+
+  private enum ETokenType
+  {
+    LPAREN,
+    RPAREN,
+    LBRACKET,
+    RBRACKET,
+    DOT,
+    DOTDOT,
+    AT,
+    COMMA,
+    AXIS_SEP,
+    SLASH,
+    DSLASH,
+    PIPE,
+    PLUS,
+    MINUS,
+    EQ,
+    NE,
+    LT,
+    LE,
+    GT,
+    GE,
+    /** '*' as a name test */
+    STAR,
+    /** '*', 'div' and 'mod' as operators */
+    MULTIPLICATIVE,
+    AND,
+    OR,
+    LITERAL,
+    NUMBER,
+    NAME,
+    DOLLAR,
+    EOF;
+  }
+
+  private static final class Token
+  {
+    private final ETokenType m_eType;
+    private final String m_sText;
+
+    Token (@Nonnull final ETokenType eType, @Nonnull final String sText)
+    {
+      m_eType = eType;
+      m_sText = sText;
+    }
+  }
+
+  @FunctionalInterface
+  private interface IEvaluator
+  {
+    @Nonnull
+    Object evaluate (@Nonnull Node aContextNode);
+  }
+
+  private static final class Expr implements IPSCompiledExpression
+  {
+    private final EPSCompiledType m_eType;
+    private final IEvaluator m_aEvaluator;
+
+    Expr (@Nonnull final EPSCompiledType eType, @Nonnull final IEvaluator aEvaluator)
+    {
+      m_eType = eType;
+      m_aEvaluator = aEvaluator;
+    }
+
+    @Nonnull
+    public EPSCompiledType getType ()
+    {
+      return m_eType;
+    }
+
+    @Nonnull
+    public Object evaluate (@Nonnull final Node aContextNode)
+    {
+      return m_aEvaluator.evaluate (aContextNode);
+    }
+  }
+
+  private enum EAxis
+  {
+    CHILD,
+    ATTRIBUTE,
+    SELF,
+    PARENT,
+    DESCENDANT,
+    DESCENDANT_OR_SELF;
+  }
+
+  @FunctionalInterface
+  private interface INodeTest
+  {
+    boolean matches (@Nonnull Node aNode);
+  }
+
+  private static final class Step
+  {
+    private final EAxis m_eAxis;
+    private final INodeTest m_aNodeTest;
+    private final ICommonsList <IPSCompiledExpression> m_aPredicates = new CommonsArrayList <> ();
+
+    Step (@Nonnull final EAxis eAxis, @Nonnull final INodeTest aNodeTest)
+    {
+      m_eAxis = eAxis;
+      m_aNodeTest = aNodeTest;
+    }
+  }
+
+  @PresentForCodeCoverage
+  private static final PSCompiledXPathCompiler s_aInstance = new PSCompiledXPathCompiler ();
+
+  private PSCompiledXPathCompiler ()
+  {}
+
+  // Tokenizer
+
+  private static boolean _isNCNameStart (final char c)
+  {
+    return Character.isLetter (c) || c == '_';
+  }
+
+  private static boolean _isNCNameChar (final char c)
+  {
+    return Character.isLetterOrDigit (c) || c == '_' || c == '-' || c == '.';
+  }
+
+  private static boolean _isOperatorContext (@Nonnull final ICommonsList <Token> aTokens)
+  {
+    // See XPath 1.0 chapter 3.7
+    if (aTokens.isEmpty ())
+      return false;
+    switch (aTokens.getLast ().m_eType)
+    {
+      case AT:
+      case AXIS_SEP:
+      case LPAREN:
+      case LBRACKET:
+      case COMMA:
+      case AND:
+      case OR:
+      case MULTIPLICATIVE:
+      case SLASH:
+      case DSLASH:
+      case PIPE:
+      case PLUS:
+      case MINUS:
+      case EQ:
+      case NE:
+      case LT:
+      case LE:
+      case GT:
+      case GE:
+      case DOLLAR:
+        return false;
+      default:
+        return true;
+    }
+  }
+
+  @Nonnull
+  private static ICommonsList <Token> _tokenize (@Nonnull final String sExpr) throws UnsupportedException
+  {
+    final ICommonsList <Token> ret = new CommonsArrayList <> ();
+    final int nLen = sExpr.length ();
+    int i = 0;
+    while (i < nLen)
+    {
+      final char c = sExpr.charAt (i);
+      if (Character.isWhitespace (c))
+      {
+        i++;
+        continue;
+      }
+      final char cNext = i + 1 < nLen ? sExpr.charAt (i + 1) : 0;
+      switch (c)
+      {
+        case '(':
+          ret.add (new Token (ETokenType.LPAREN, "("));
+          i++;
+          continue;
+        case ')':
+          ret.add (new Token (ETokenType.RPAREN, ")"));
+          i++;
+          continue;
+        case '[':
+          ret.add (new Token (ETokenType.LBRACKET, "["));
+          i++;
+          continue;
+        case ']':
+          ret.add (new Token (ETokenType.RBRACKET, "]"));
+          i++;
+          continue;
+        case '@':
+          ret.add (new Token (ETokenType.AT, "@"));
+          i++;
+          continue;
+        case ',':
+          ret.add (new Token (ETokenType.COMMA, ","));
+          i++;
+          continue;
+        case '|':
+          ret.add (new Token (ETokenType.PIPE, "|"));
+          i++;
+          continue;
+        case '+':
+          ret.add (new Token (ETokenType.PLUS, "+"));
+          i++;
+          continue;
+        case '-':
+          ret.add (new Token (ETokenType.MINUS, "-"));
+          i++;
+          continue;
+        case '=':
+          ret.add (new Token (ETokenType.EQ, "="));
+          i++;
+          continue;
+        case '$':
+          ret.add (new Token (ETokenType.DOLLAR, "$"));
+          i++;
+          continue;
+        case '!':
+          if (cNext != '=')
+            throw new UnsupportedException ("Unsupported operator '!'");
+          ret.add (new Token (ETokenType.NE, "!="));
+          i += 2;
+          continue;
+        case '<':
+          if (cNext == '=')
+          {
+            ret.add (new Token (ETokenType.LE, "<="));
+            i += 2;
+          }
+          else
+          {
+            ret.add (new Token (ETokenType.LT, "<"));
+            i++;
+          }
+          continue;
+        case '>':
+          if (cNext == '=')
+          {
+            ret.add (new Token (ETokenType.GE, ">="));
+            i += 2;
+          }
+          else
+          {
+            ret.add (new Token (ETokenType.GT, ">"));
+            i++;
+          }
+          continue;
+        case '/':
+          if (cNext == '/')
+          {
+            ret.add (new Token (ETokenType.DSLASH, "//"));
+            i += 2;
+          }
+          else
+          {
+            ret.add (new Token (ETokenType.SLASH, "/"));
+            i++;
+          }
+          continue;
+        case ':':
+          if (cNext != ':')
+            throw new UnsupportedException ("Unexpected ':'");
+          ret.add (new Token (ETokenType.AXIS_SEP, "::"));
+          i += 2;
+          continue;
+        case '*':
+          ret.add (new Token (_isOperatorContext (ret) ? ETokenType.MULTIPLICATIVE : ETokenType.STAR, "*"));
+          i++;
+          continue;
+        case '\'':
+        case '"':
+        {
+          final int nEnd = sExpr.indexOf (c, i + 1);
+          if (nEnd < 0)
+            throw new UnsupportedException ("Unterminated literal");
+          // XPath 2 escaped quotes are not supported
+          if (nEnd + 1 < nLen && sExpr.charAt (nEnd + 1) == c)
+            throw new UnsupportedException ("Escaped quote in literal");
+          ret.add (new Token (ETokenType.LITERAL, sExpr.substring (i + 1, nEnd)));
+          i = nEnd + 1;
+          continue;
+        }
+        default:
+          break;
+      }
+
+      if (c == '.' && cNext == '.')
+      {
+        ret.add (new Token (ETokenType.DOTDOT, ".."));
+        i += 2;
+        continue;
+      }
+      if (Character.isDigit (c) || (c == '.' && Character.isDigit (cNext)))
+      {
+        int nEnd = i;
+        while (nEnd < nLen && (Character.isDigit (sExpr.charAt (nEnd)) || sExpr.charAt (nEnd) == '.'))
+          nEnd++;
+        // XPath 2 exponent notation
+        if (nEnd < nLen && _isNCNameChar (sExpr.charAt (nEnd)))
+          throw new UnsupportedException ("Unsupported number format");
+        ret.add (new Token (ETokenType.NUMBER, sExpr.substring (i, nEnd)));
+        i = nEnd;
+        continue;
+      }
+      if (c == '.')
+      {
+        ret.add (new Token (ETokenType.DOT, "."));
+        i++;
+        continue;
+      }
+      if (_isNCNameStart (c))
+      {
+        int nEnd = i + 1;
+        while (nEnd < nLen && _isNCNameChar (sExpr.charAt (nEnd)))
+          nEnd++;
+        // QName or prefix:*
+        if (nEnd + 1 < nLen && sExpr.charAt (nEnd) == ':' && sExpr.charAt (nEnd + 1) != ':')
+        {
+          final char cLocal = sExpr.charAt (nEnd + 1);
+          if (cLocal == '*')
+            nEnd += 2;
+          else
+            if (_isNCNameStart (cLocal))
+            {
+              nEnd += 2;
+              while (nEnd < nLen && _isNCNameChar (sExpr.charAt (nEnd)))
+                nEnd++;
+            }
+            else
+              throw new UnsupportedException ("Invalid QName");
+        }
+        final String sName = sExpr.substring (i, nEnd);
+        if (_isOperatorContext (ret))
+        {
+          switch (sName)
+          {
+            case "and":
+              ret.add (new Token (ETokenType.AND, sName));
+              break;
+            case "or":
+              ret.add (new Token (ETokenType.OR, sName));
+              break;
+            case "div":
+            case "mod":
+              ret.add (new Token (ETokenType.MULTIPLICATIVE, sName));
+              break;
+            default:
+              // XPath 2 keywords like "eq", "is" or "instance"
+              throw new UnsupportedException ("Unsupported operator '" + sName + "'");
+          }
+        }
+        else
+          ret.add (new Token (ETokenType.NAME, sName));
+        i = nEnd;
+        continue;
+      }
+      throw new UnsupportedException ("Unsupported character '" + c + "'");
+    }
+    ret.add (new Token (ETokenType.EOF, ""));
+    return ret;
+  }
+
+  // Parser
+
+  private static final class Parser
+  {
+    private final ICommonsList <Token> m_aTokens;
+    private final NamespaceContext m_aNamespaceContext;
+    private int m_nIndex = 0;
+
+    Parser (@Nonnull final ICommonsList <Token> aTokens, @Nonnull final NamespaceContext aNamespaceContext)
+    {
+      m_aTokens = aTokens;
+      m_aNamespaceContext = aNamespaceContext;
+    }
+
+    @Nonnull
+    private Token _peek ()
+    {
+      return m_aTokens.get (m_nIndex);
+    }
+
+    @Nonnull
+    private Token _peek (final int nOffset)
+    {
+      final int nIndex = m_nIndex + nOffset;
+      return nIndex < m_aTokens.size () ? m_aTokens.get (nIndex) : m_aTokens.getLast ();
+    }
+
+    @Nonnull
+    private Token _next ()
+    {
+      final Token ret = m_aTokens.get (m_nIndex);
+      if (ret.m_eType != ETokenType.EOF)
+        m_nIndex++;
+      return ret;
+    }
+
+    private void _expect (@Nonnull final ETokenType eType) throws UnsupportedException
+    {
+      final Token aToken = _next ();
+      if (aToken.m_eType != eType)
+        throw new UnsupportedException ("Expected " + eType + " but found '" + aToken.m_sText + "'");
+    }
+
+    @Nonnull
+    IPSCompiledExpression parseComplete () throws UnsupportedException
+    {
+      final IPSCompiledExpression ret = _parseOr ();
+      _expect (ETokenType.EOF);
+      return ret;
+    }
+
+    @Nonnull
+    private IPSCompiledExpression _parseOr () throws UnsupportedException
+    {
+      IPSCompiledExpression ret = _parseAnd ();
+      while (_peek ().m_eType == ETokenType.OR)
+      {
+        _next ();
+        final IPSCompiledExpression aLeft = ret;
+        final IPSCompiledExpression aRight = _parseAnd ();
+        ret = new Expr (EPSCompiledType.BOOLEAN,
+                        n -> Boolean.valueOf (aLeft.evaluateBoolean (n) || aRight.evaluateBoolean (n)));
+      }
+      return ret;
+    }
+
+    @Nonnull
+    private IPSCompiledExpression _parseAnd () throws UnsupportedException
+    {
+      IPSCompiledExpression ret = _parseEquality ();
+      while (_peek ().m_eType == ETokenType.AND)
+      {
+        _next ();
+        final IPSCompiledExpression aLeft = ret;
+        final IPSCompiledExpression aRight = _parseEquality ();
+        ret = new Expr (EPSCompiledType.BOOLEAN,
+                        n -> Boolean.valueOf (aLeft.evaluateBoolean (n) && aRight.evaluateBoolean (n)));
+      }
+      return ret;
+    }
+
+    @Nonnull
+    private IPSCompiledExpression _parseEquality () throws UnsupportedException
+    {
+      IPSCompiledExpression ret = _parseRelational ();
+      while (_peek ().m_eType == ETokenType.EQ || _peek ().m_eType == ETokenType.NE)
+      {
+        final boolean bEquals = _next ().m_eType == ETokenType.EQ;
+        ret = _createComparison (ret, _parseRelational (), bEquals ? ETokenType.EQ : ETokenType.NE);
+      }
+      return ret;
+    }
+
+    @Nonnull
+    private IPSCompiledExpression _parseRelational () throws UnsupportedException
+    {
+      IPSCompiledExpression ret = _parsePathOrPrimary ();
+      while (true)
+      {
+        final ETokenType eType = _peek ().m_eType;
+        if (eType != ETokenType.LT && eType != ETokenType.LE && eType != ETokenType.GT && eType != ETokenType.GE)
+          break;
+        _next ();
+        ret = _createComparison (ret, _parsePathOrPrimary (), eType);
+      }
+      return ret;
+    }
+
+    @Nonnull
+    private IPSCompiledExpression _parsePathOrPrimary () throws UnsupportedException
+    {
+      final Token aToken = _peek ();
+      final IPSCompiledExpression ret;
+      switch (aToken.m_eType)
+      {
+        case LITERAL:
+        {
+          _next ();
+          final String sValue = aToken.m_sText;
+          ret = new Expr (EPSCompiledType.STRING, n -> sValue);
+          break;
+        }
+        case NUMBER:
+        {
+          _next ();
+          final Double aValue = Double.valueOf (aToken.m_sText);
+          ret = new Expr (EPSCompiledType.NUMBER, n -> aValue);
+          break;
+        }
+        case LPAREN:
+        {
+          _next ();
+          ret = _parseOr ();
+          _expect (ETokenType.RPAREN);
+          break;
+        }
+        case NAME:
+          if (_peek (1).m_eType == ETokenType.LPAREN && !_isNodeTypeName (aToken.m_sText))
+          {
+            ret = _parseFunctionCall ();
+            break;
+          }
+          return _parseLocationPath ();
+        case SLASH:
+        case DSLASH:
+        case DOT:
+        case DOTDOT:
+        case AT:
+        case STAR:
+          return _parseLocationPath ();
+        default:
+          throw new UnsupportedException ("Unsupported token '" + aToken.m_sText + "'");
+      }
+
+      // Filter expressions and paths on primary expressions are not supported
+      final ETokenType eNext = _peek ().m_eType;
+      if (eNext == ETokenType.SLASH || eNext == ETokenType.DSLASH || eNext == ETokenType.LBRACKET)
+        throw new UnsupportedException ("Filter expressions are not supported");
+      return ret;
+    }
+
+    private static boolean _isNodeTypeName (@Nonnull final String sName)
+    {
+      return sName.equals ("node") ||
+             sName.equals ("text") ||
+             sName.equals ("comment") ||
+             sName.equals ("processing-instruction");
+    }
+
+    // Functions
+
+    @Nonnull
+    private IPSCompiledExpression _parseFunctionCall () throws UnsupportedException
+    {
+      final String sName = _next ().m_sText;
+      _expect (ETokenType.LPAREN);
+      final ICommonsList <IPSCompiledExpression> aArgs = new CommonsArrayList <> ();
+      if (_peek ().m_eType != ETokenType.RPAREN)
+      {
+        aArgs.add (_parseOr ());
+        while (_peek ().m_eType == ETokenType.COMMA)
+        {
+          _next ();
+          aArgs.add (_parseOr ());
+        }
+      }
+      _expect (ETokenType.RPAREN);
+
+      final int nArgs = aArgs.size ();
+      switch (sName)
+      {
+        case "true":
+        case "false":
+        {
+          _checkArgCount (sName, nArgs, 0, 0);
+          final Boolean aValue = Boolean.valueOf (sName.equals ("true"));
+          return new Expr (EPSCompiledType.BOOLEAN, n -> aValue);
+        }
+        case "not":
+        {
+          _checkArgCount (sName, nArgs, 1, 1);
+          final IPSCompiledExpression aArg = aArgs.getFirst ();
+          return new Expr (EPSCompiledType.BOOLEAN, n -> Boolean.valueOf (!aArg.evaluateBoolean (n)));
+        }
+        case "boolean":
+        {
+          _checkArgCount (sName, nArgs, 1, 1);
+          final IPSCompiledExpression aArg = aArgs.getFirst ();
+          return new Expr (EPSCompiledType.BOOLEAN, n -> Boolean.valueOf (aArg.evaluateBoolean (n)));
+        }
+        case "count":
+        {
+          _checkArgCount (sName, nArgs, 1, 1);
+          final IPSCompiledExpression aArg = aArgs.getFirst ();
+          if (aArg.getType () != EPSCompiledType.NODESET)
+            throw new UnsupportedException ("count requires a node set");
+          return new Expr (EPSCompiledType.NUMBER, n -> Double.valueOf (((List <?>) aArg.evaluate (n)).size ()));
+        }
+        case "string":
+        {
+          _checkArgCount (sName, nArgs, 0, 1);
+          final IPSCompiledExpression aArg = _getStringArg (aArgs, 0);
+          return new Expr (EPSCompiledType.STRING, n -> PSCompiledValues.getAsString (aArg.evaluate (n)));
+        }
+        case "string-length":
+        {
+          _checkArgCount (sName, nArgs, 0, 1);
+          final IPSCompiledExpression aArg = _getStringArg (aArgs, 0);
+          return new Expr (EPSCompiledType.NUMBER, n -> {
+            final String s = PSCompiledValues.getAsString (aArg.evaluate (n));
+            return Double.valueOf (s.codePointCount (0, s.length ()));
+          });
+        }
+        case "normalize-space":
+        {
+          _checkArgCount (sName, nArgs, 0, 1);
+          final IPSCompiledExpression aArg = _getStringArg (aArgs, 0);
+          return new Expr (EPSCompiledType.STRING,
+                           n -> _getNormalizedSpace (PSCompiledValues.getAsString (aArg.evaluate (n))));
+        }
+        case "concat":
+        {
+          if (nArgs < 2)
+            throw new UnsupportedException ("concat requires at least 2 arguments");
+          final IPSCompiledExpression [] aArgArray = aArgs.toArray (new IPSCompiledExpression [nArgs]);
+          return new Expr (EPSCompiledType.STRING, n -> {
+            final StringBuilder aSB = new StringBuilder ();
+            for (final IPSCompiledExpression aArg : aArgArray)
+              aSB.append (PSCompiledValues.getAsString (aArg.evaluate (n)));
+            return aSB.toString ();
+          });
+        }
+        case "contains":
+        case "starts-with":
+        {
+          _checkArgCount (sName, nArgs, 2, 2);
+          final IPSCompiledExpression aArg0 = aArgs.get (0);
+          final IPSCompiledExpression aArg1 = aArgs.get (1);
+          final boolean bContains = sName.equals ("contains");
+          return new Expr (EPSCompiledType.BOOLEAN, n -> {
+            final String s0 = PSCompiledValues.getAsString (aArg0.evaluate (n));
+            final String s1 = PSCompiledValues.getAsString (aArg1.evaluate (n));
+            return Boolean.valueOf (bContains ? s0.contains (s1) : s0.startsWith (s1));
+          });
+        }
+        case "number":
+        {
+          _checkArgCount (sName, nArgs, 0, 1);
+          final IPSCompiledExpression aArg = _getStringArg (aArgs, 0);
+          return new Expr (EPSCompiledType.NUMBER,
+                           n -> Double.valueOf (PSCompiledValues.getAsNumber (aArg.evaluate (n))));
+        }
+        case "name":
+        case "local-name":
+        {
+          _checkArgCount (sName, nArgs, 0, 1);
+          final IPSCompiledExpression aArg = _getStringArg (aArgs, 0);
+          if (aArg.getType () != EPSCompiledType.NODESET)
+            throw new UnsupportedException (sName + " requires a node set");
+          final boolean bLocal = sName.equals ("local-name");
+          return new Expr (EPSCompiledType.STRING, n -> _getName ((List <?>) aArg.evaluate (n), bLocal));
+        }
+        default:
+          throw new UnsupportedException ("Unsupported function '" + sName + "'");
+      }
+    }
+
+    private static void _checkArgCount (@Nonnull final String sName,
+                                        final int nArgs,
+                                        final int nMin,
+                                        final int nMax) throws UnsupportedException
+    {
+      if (nArgs < nMin || nArgs > nMax)
+        throw new UnsupportedException ("Invalid number of arguments for '" + sName + "'");
+    }
+
+    /**
+     * @return The argument at the specified index or the context node if it
+     *         is not present.
+     */
+    @Nonnull
+    private static IPSCompiledExpression _getStringArg (@Nonnull final ICommonsList <IPSCompiledExpression> aArgs,
+                                                        final int nIndex)
+    {
+      if (nIndex < aArgs.size ())
+        return aArgs.get (nIndex);
+      return new Expr (EPSCompiledType.NODESET, n -> new CommonsArrayList <> (n));
+    }
+
+    // Comparisons
+
+    @Nonnull
+    private static IPSCompiledExpression _createComparison (@Nonnull final IPSCompiledExpression aLeft,
+                                                            @Nonnull final IPSCompiledExpression aRight,
+                                                            @Nonnull final ETokenType eOp) throws UnsupportedException
+    {
+      final EPSCompiledType eLeft = aLeft.getType ();
+      final EPSCompiledType eRight = aRight.getType ();
+      final boolean bEquality = eOp == ETokenType.EQ || eOp == ETokenType.NE;
+
+      if (bEquality)
+      {
+        if (eLeft == EPSCompiledType.BOOLEAN || eRight == EPSCompiledType.BOOLEAN)
+        {
+          // XPath 2 casts untyped values to boolean
+          if (eLeft != eRight)
+            throw new UnsupportedException ("Boolean comparison with other type");
+        }
+        else
+          if (eLeft != EPSCompiledType.NODESET && eRight != EPSCompiledType.NODESET && eLeft != eRight)
+          {
+            // XPath 2 raises a type error
+            throw new UnsupportedException ("Comparison of different atomic types");
+          }
+      }
+      else
+      {
+        // Relational comparisons only on numbers - XPath 2 compares strings
+        // lexicographically
+        final boolean bLeftOK = eLeft == EPSCompiledType.NUMBER || eLeft == EPSCompiledType.NODESET;
+        final boolean bRightOK = eRight == EPSCompiledType.NUMBER || eRight == EPSCompiledType.NODESET;
+        if (!bLeftOK || !bRightOK || (eLeft == EPSCompiledType.NODESET && eRight == EPSCompiledType.NODESET))
+          throw new UnsupportedException ("Unsupported relational comparison");
+      }
+
+      // The atomic type to compare with
+      final EPSCompiledType eCompareType = eLeft == EPSCompiledType.NODESET ? eRight : eLeft;
+      return new Expr (EPSCompiledType.BOOLEAN,
+                       n -> Boolean.valueOf (_compare (aLeft.evaluate (n),
+                                                       aRight.evaluate (n),
+                                                       eOp,
+                                                       eCompareType)));
+    }
+
+    @Nonnull
+    private static ICommonsList <Object> _getAtomized (@Nonnull final Object aValue,
+                                                       @Nonnull final EPSCompiledType eCompareType)
+    {
+      if (!(aValue instanceof List <?>))
+        return new CommonsArrayList <> (aValue);
+      final List <?> aNodes = (List <?>) aValue;
+      final ICommonsList <Object> ret = new CommonsArrayList <> (aNodes.size ());
+      for (final Object aNode : aNodes)
+      {
+        final String sValue = PSCompiledValues.getStringValue ((Node) aNode);
+        if (eCompareType == EPSCompiledType.NUMBER)
+          ret.add (Double.valueOf (PSCompiledValues.getParsedNumber (sValue)));
+        else
+          ret.add (sValue);
+      }
+      return ret;
+    }
+
+    private static boolean _compare (@Nonnull final Object aLeft,
+                                     @Nonnull final Object aRight,
+                                     @Nonnull final ETokenType eOp,
+                                     @Nonnull final EPSCompiledType eCompareType)
+    {
+      // General comparison: true if any pair matches
+      for (final Object aL : _getAtomized (aLeft, eCompareType))
+        for (final Object aR : _getAtomized (aRight, eCompareType))
+        {
+          final boolean bMatch;
+          if (aL instanceof Double)
+          {
+            final double dL = ((Double) aL).doubleValue ();
+            final double dR = ((Double) aR).doubleValue ();
+            switch (eOp)
+            {
+              case EQ:
+                bMatch = dL == dR;
+                break;
+              case NE:
+                bMatch = dL != dR;
+                break;
+              case LT:
+                bMatch = dL < dR;
+                break;
+              case LE:
+                bMatch = dL <= dR;
+                break;
+              case GT:
+                bMatch = dL > dR;
+                break;
+              default:
+                bMatch = dL >= dR;
+                break;
+            }
+          }
+          else
+            bMatch = aL.equals (aR) == (eOp == ETokenType.EQ);
+          if (bMatch)
+            return true;
+        }
+      return false;
+    }
+
+    // Location paths
+
+    @Nonnull
+    private IPSCompiledExpression _parseLocationPath () throws UnsupportedException
+    {
+      final ICommonsList <Step> aSteps = new CommonsArrayList <> ();
+      boolean bAbsolute = false;
+      final ETokenType eFirst = _peek ().m_eType;
+      if (eFirst == ETokenType.SLASH)
+      {
+        _next ();
+        bAbsolute = true;
+        if (!_isStepStart (_peek ().m_eType))
+          return _createPath (true, aSteps);
+      }
+      else
+        if (eFirst == ETokenType.DSLASH)
+        {
+          _next ();
+          bAbsolute = true;
+          aSteps.add (new Step (EAxis.DESCENDANT_OR_SELF, n -> true));
+        }
+
+      aSteps.add (_parseStep ());
+      while (true)
+      {
+        final ETokenType eType = _peek ().m_eType;
+        if (eType == ETokenType.SLASH)
+          _next ();
+        else
+          if (eType == ETokenType.DSLASH)
+          {
+            _next ();
+            aSteps.add (new Step (EAxis.DESCENDANT_OR_SELF, n -> true));
+          }
+          else
+            break;
+        aSteps.add (_parseStep ());
+      }
+      return _createPath (bAbsolute, aSteps);
+    }
+
+    private static boolean _isStepStart (@Nonnull final ETokenType eType)
+    {
+      return eType == ETokenType.NAME ||
+             eType == ETokenType.STAR ||
+             eType == ETokenType.AT ||
+             eType == ETokenType.DOT ||
+             eType == ETokenType.DOTDOT;
+    }
+
+    @Nonnull
+    private Step _parseStep () throws UnsupportedException
+    {
+      final Token aToken = _peek ();
+      if (aToken.m_eType == ETokenType.DOT)
+      {
+        _next ();
+        return new Step (EAxis.SELF, n -> true);
+      }
+      if (aToken.m_eType == ETokenType.DOTDOT)
+      {
+        _next ();
+        return new Step (EAxis.PARENT, n -> true);
+      }
+
+      EAxis eAxis = EAxis.CHILD;
+      if (aToken.m_eType == ETokenType.AT)
+      {
+        _next ();
+        eAxis = EAxis.ATTRIBUTE;
+      }
+      else
+        if (aToken.m_eType == ETokenType.NAME && _peek (1).m_eType == ETokenType.AXIS_SEP)
+        {
+          switch (aToken.m_sText)
+          {
+            case "child":
+              eAxis = EAxis.CHILD;
+              break;
+            case "attribute":
+              eAxis = EAxis.ATTRIBUTE;
+              break;
+            case "self":
+              eAxis = EAxis.SELF;
+              break;
+            case "parent":
+              eAxis = EAxis.PARENT;
+              break;
+            case "descendant":
+              eAxis = EAxis.DESCENDANT;
+              break;
+            case "descendant-or-self":
+              eAxis = EAxis.DESCENDANT_OR_SELF;
+              break;
+            default:
+              throw new UnsupportedException ("Unsupported axis '" + aToken.m_sText + "'");
+          }
+          _next ();
+          _next ();
+        }
+
+      final Step ret = new Step (eAxis, _parseNodeTest (eAxis));
+      while (_peek ().m_eType == ETokenType.LBRACKET)
+      {
+        _next ();
+        ret.m_aPredicates.add (_parseOr ());
+        _expect (ETokenType.RBRACKET);
+      }
+      return ret;
+    }
+
+    @Nonnull
+    private INodeTest _parseNodeTest (@Nonnull final EAxis eAxis) throws UnsupportedException
+    {
+      final short nPrincipalType = eAxis == EAxis.ATTRIBUTE ? Node.ATTRIBUTE_NODE : Node.ELEMENT_NODE;
+      final Token aToken = _next ();
+      if (aToken.m_eType == ETokenType.STAR)
+        return n -> n.getNodeType () == nPrincipalType;
+      if (aToken.m_eType != ETokenType.NAME)
+        throw new UnsupportedException ("Expected a node test but found '" + aToken.m_sText + "'");
+
+      final String sName = aToken.m_sText;
+      if (_peek ().m_eType == ETokenType.LPAREN)
+      {
+        // Node type test
+        _next ();
+        _expect (ETokenType.RPAREN);
+        switch (sName)
+        {
+          case "node":
+            return n -> true;
+          case "text":
+            return n -> {
+              if (!_isTextNode (n))
+                return false;
+              // XPath merges adjacent text nodes - DOM may not
+              final Node aPrev = n.getPreviousSibling ();
+              if (aPrev != null && _isTextNode (aPrev))
+                throw new PSCompiledFallbackException ("Adjacent text nodes");
+              return true;
+            };
+          case "comment":
+            return n -> n.getNodeType () == Node.COMMENT_NODE;
+          default:
+            throw new UnsupportedException ("Unsupported node type test '" + sName + "'");
+        }
+      }
+
+      // Name test
+      final int nColon = sName.indexOf (':');
+      final String sNamespaceURI;
+      final String sLocalName;
+      if (nColon >= 0)
+      {
+        final String sPrefix = sName.substring (0, nColon);
+        final String sURI = m_aNamespaceContext.getNamespaceURI (sPrefix);
+        if (sURI == null || sURI.isEmpty ())
+          throw new UnsupportedException ("Unbound prefix '" + sPrefix + "'");
+        sNamespaceURI = sURI;
+        sLocalName = sName.substring (nColon + 1);
+      }
+      else
+      {
+        sNamespaceURI = null;
+        sLocalName = sName;
+      }
+
+      final boolean bAnyLocalName = sLocalName.equals ("*");
+      return n -> {
+        if (n.getNodeType () != nPrincipalType)
+          return false;
+        final String sNodeNS = n.getNamespaceURI ();
+        if (sNamespaceURI == null ? sNodeNS != null && sNodeNS.length () > 0 : !sNamespaceURI.equals (sNodeNS))
+          return false;
+        if (bAnyLocalName)
+          return true;
+        final String sNodeLocalName = n.getLocalName ();
+        return sLocalName.equals (sNodeLocalName != null ? sNodeLocalName : n.getNodeName ());
+      };
+    }
+
+    @Nonnull
+    private static IPSCompiledExpression _createPath (final boolean bAbsolute, @Nonnull final ICommonsList <Step> aSteps)
+    {
+      final Step [] aStepArray = aSteps.toArray (new Step [aSteps.size ()]);
+      return new Expr (EPSCompiledType.NODESET, n -> {
+        ICommonsList <Node> aCurrent = new CommonsArrayList <> (1);
+        if (bAbsolute)
+        {
+          final Node aDoc = n.getNodeType () == Node.DOCUMENT_NODE ? n : n.getOwnerDocument ();
+          aCurrent.add (aDoc != null ? aDoc : n);
+        }
+        else
+          aCurrent.add (n);
+
+        for (final Step aStep : aStepArray)
+        {
+          aCurrent = _evaluateStep (aStep, aCurrent);
+          if (aCurrent.isEmpty ())
+            break;
+        }
+        return aCurrent;
+      });
+    }
+  }
+
+  // Evaluation
+
+  private static boolean _isTextNode (@Nonnull final Node aNode)
+  {
+    return aNode.getNodeType () == Node.TEXT_NODE || aNode.getNodeType () == Node.CDATA_SECTION_NODE;
+  }
+
+  private static boolean _isXPathAttribute (@Nonnull final Node aNode)
+  {
+    // Namespace declarations are no attributes in XPath
+    return !XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals (aNode.getNamespaceURI ());
+  }
+
+  private static void _addAllDescendants (@Nonnull final Node aNode,
+                                          @Nonnull final INodeTest aNodeTest,
+                                          @Nonnull final ICommonsList <Node> aTarget)
+  {
+    Node aChild = aNode.getFirstChild ();
+    while (aChild != null)
+    {
+      if (aChild.getNodeType () != Node.DOCUMENT_TYPE_NODE)
+      {
+        if (aNodeTest.matches (aChild))
+          aTarget.add (aChild);
+        _addAllDescendants (aChild, aNodeTest, aTarget);
+      }
+      aChild = aChild.getNextSibling ();
+    }
+  }
+
+  @Nonnull
+  private static ICommonsList <Node> _getAxisNodes (@Nonnull final Node aNode, @Nonnull final Step aStep)
+  {
+    final INodeTest aNodeTest = aStep.m_aNodeTest;
+    final ICommonsList <Node> ret = new CommonsArrayList <> ();
+    switch (aStep.m_eAxis)
+    {
+      case CHILD:
+        for (Node aChild = aNode.getFirstChild (); aChild != null; aChild = aChild.getNextSibling ())
+          if (aChild.getNodeType () != Node.DOCUMENT_TYPE_NODE && aNodeTest.matches (aChild))
+            ret.add (aChild);
+        break;
+      case ATTRIBUTE:
+      {
+        final NamedNodeMap aAttrs = aNode.getAttributes ();
+        if (aAttrs != null && aNode.getNodeType () == Node.ELEMENT_NODE)
+          for (int i = 0; i < aAttrs.getLength (); ++i)
+          {
+            final Node aAttr = aAttrs.item (i);
+            if (_isXPathAttribute (aAttr) && aNodeTest.matches (aAttr))
+              ret.add (aAttr);
+          }
+        break;
+      }
+      case SELF:
+        if (aNodeTest.matches (aNode))
+          ret.add (aNode);
+        break;
+      case PARENT:
+      {
+        final Node aParent = aNode.getNodeType () == Node.ATTRIBUTE_NODE ? ((Attr) aNode).getOwnerElement ()
+                                                                          : aNode.getParentNode ();
+        if (aParent != null && aNodeTest.matches (aParent))
+          ret.add (aParent);
+        break;
+      }
+      case DESCENDANT_OR_SELF:
+        if (aNodeTest.matches (aNode))
+          ret.add (aNode);
+        _addAllDescendants (aNode, aNodeTest, ret);
+        break;
+      case DESCENDANT:
+        _addAllDescendants (aNode, aNodeTest, ret);
+        break;
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private static ICommonsList <Node> _applyPredicate (@Nonnull final ICommonsList <Node> aNodes,
+                                                     @Nonnull final IPSCompiledExpression aPredicate)
+  {
+    final ICommonsList <Node> ret = new CommonsArrayList <> ();
+    final int nSize = aNodes.size ();
+    for (int i = 0; i < nSize; ++i)
+    {
+      final Node aNode = aNodes.get (i);
+      final Object aResult = aPredicate.evaluate (aNode);
+      final boolean bMatch;
+      if (aResult instanceof Double)
+      {
+        // Positional predicate
+        bMatch = ((Double) aResult).doubleValue () == i + 1;
+      }
+      else
+        bMatch = PSCompiledValues.getEffectiveBooleanValue (aResult);
+      if (bMatch)
+        ret.add (aNode);
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private static ICommonsList <Node> _evaluateStep (@Nonnull final Step aStep,
+                                                    @Nonnull final ICommonsList <Node> aContextNodes)
+  {
+    if (aContextNodes.size () == 1)
+    {
+      ICommonsList <Node> ret = _getAxisNodes (aContextNodes.getFirst (), aStep);
+      for (final IPSCompiledExpression aPredicate : aStep.m_aPredicates)
+        ret = _applyPredicate (ret, aPredicate);
+      return ret;
+    }
+
+    // Combine results of all context nodes without duplicates. The order is
+    // not relevant for the supported operations.
+    final ICommonsList <Node> ret = new CommonsArrayList <> ();
+    final Set <Node> aUnique = Collections.newSetFromMap (new IdentityHashMap <> ());
+    for (final Node aContextNode : aContextNodes)
+    {
+      ICommonsList <Node> aStepNodes = _getAxisNodes (aContextNode, aStep);
+      for (final IPSCompiledExpression aPredicate : aStep.m_aPredicates)
+        aStepNodes = _applyPredicate (aStepNodes, aPredicate);
+      for (final Node aNode : aStepNodes)
+        if (aUnique.add (aNode))
+          ret.add (aNode);
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private static String _getNormalizedSpace (@Nonnull final String sValue)
+  {
+    final StringBuilder aSB = new StringBuilder (sValue.length ());
+    boolean bPendingSpace = false;
+    for (final char c : sValue.toCharArray ())
+    {
+      if (c == ' ' || c == '\t' || c == '\r' || c == '\n')
+        bPendingSpace = aSB.length () > 0;
+      else
+      {
+        if (bPendingSpace)
+          aSB.append (' ');
+        bPendingSpace = false;
+        aSB.append (c);
+      }
+    }
+    return aSB.toString ();
+  }
+
+  @Nonnull
+  private static String _getName (@Nonnull final List <?> aNodes, final boolean bLocal)
+  {
+    if (aNodes.isEmpty ())
+      return "";
+    if (aNodes.size () > 1)
+      throw new PSCompiledFallbackException ("Name of more than one node requested");
+    final Node aNode = (Node) aNodes.get (0);
+    final short nType = aNode.getNodeType ();
+    if (nType != Node.ELEMENT_NODE && nType != Node.ATTRIBUTE_NODE)
+      throw new PSCompiledFallbackException ("Name of a non-element/attribute node requested");
+    if (bLocal)
+    {
+      final String sLocalName = aNode.getLocalName ();
+      return sLocalName != null ? sLocalName : aNode.getNodeName ();
+    }
+    return aNode.getNodeName ();
+  }
+
+  /**
+   * Try to compile the passed XPath expression.
+   *
+   * @param sExpression
+   *        The expression to compile. May not be <code>null</code>.
+   * @param aNamespaceContext
+   *        The namespace context to resolve prefixes. May not be
+   *        <code>null</code>.
+   * @return <code>null</code> if the expression is not part of the supported
+   *         subset.
+   */
+  @Nullable
+  public static IPSCompiledExpression compile (@Nonnull final String sExpression,
+                                               @Nonnull final NamespaceContext aNamespaceContext)
+  {
+    ValueEnforcer.notNull (sExpression, "Expression");
+    ValueEnforcer.notNull (aNamespaceContext, "NamespaceContext");
+
+    try
+    {
+      return new Parser (_tokenize (sExpression), aNamespaceContext).parseComplete ();
+    }
+    catch (final UnsupportedException ex)
+    {
+      return null;
+    }
+  }
+}
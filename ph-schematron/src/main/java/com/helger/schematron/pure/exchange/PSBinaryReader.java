@@ -0,0 +1,418 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.exchange;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.IHasInputStream;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.pure.errorhandler.IPSErrorHandler;
+import com.helger.schematron.pure.model.PSSchema;
+import com.helger.schematron.resolve.DefaultSchematronIncludeResolver;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.MicroElement;
+
+/**
+ * Read a binary snapshot created by {@link PSBinaryWriter} back into a
+ * {@link PSSchema}. The domain model is created from the decoded elements via
+ * {@link PSReader#readSchemaFromXML(IMicroElement)}, so no XML parsing and no
+ * include resolution takes place.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class PSBinaryReader
+{
+  /**
+   * The maximum length of a single byte array and the maximum number of
+   * entries of a single list in a snapshot. Larger values are considered
+   * corrupt.
+   */
+  public static final int MAX_LENGTH = 64 * 1024 * 1024;
+
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private final IReadableResource m_aResource;
+  private final IPSErrorHandler m_aErrorHandler;
+
+  /**
+   * Constructor without an error handler
+   *
+   * @param aResource
+   *        The original Schematron resource the snapshot was created from. It
+   *        is set as the resource of the read schema and it is used to check
+   *        whether the snapshot is up to date. May not be <code>null</code>.
+   */
+  public PSBinaryReader (@Nonnull final IReadableResource aResource)
+  {
+    this (aResource, (IPSErrorHandler) null);
+  }
+
+  /**
+   * Constructor with an error handler
+   *
+   * @param aResource
+   *        The original Schematron resource the snapshot was created from. May
+   *        not be <code>null</code>.
+   * @param aErrorHandler
+   *        The error handler to use. May be <code>null</code>. If the error
+   *        handler is <code>null</code> a
+   *        {@link com.helger.schematron.pure.errorhandler.LoggingPSErrorHandler}
+   *        is automatically created and used.
+   */
+  public PSBinaryReader (@Nonnull final IReadableResource aResource, @Nullable final IPSErrorHandler aErrorHandler)
+  {
+    ValueEnforcer.notNull (aResource, "Resource");
+    m_aResource = aResource;
+    m_aErrorHandler = aErrorHandler;
+  }
+
+  /**
+   * @return The resource from which the snapshot was created. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public IReadableResource getResource ()
+  {
+    return m_aResource;
+  }
+
+  /**
+   * @return The error handler passed in the constructor. May be
+   *         <code>null</code>.
+   */
+  @Nullable
+  public IPSErrorHandler getErrorHandler ()
+  {
+    return m_aErrorHandler;
+  }
+
+  static int readVarInt (@Nonnull final InputStream aIS) throws IOException
+  {
+    int ret = 0;
+    int nShift = 0;
+    while (true)
+    {
+      final int nByte = aIS.read ();
+      if (nByte < 0)
+        throw new EOFException ("Unexpected end of snapshot");
+      ret |= (nByte & 0x7f) << nShift;
+      if ((nByte & 0x80) == 0)
+        return ret;
+      nShift += 7;
+      if (nShift > 28)
+        throw new IOException ("Malformed varint in snapshot");
+    }
+  }
+
+  /**
+   * Read a length or a count and check that it is within the valid range.
+   *
+   * @param aIS
+   *        The input stream to read from. May not be <code>null</code>.
+   * @return A value between 0 and {@link #MAX_LENGTH}.
+   * @throws IOException
+   *         If reading fails or if the value is out of range
+   */
+  static int readLength (@Nonnull final InputStream aIS) throws IOException
+  {
+    final int ret = readVarInt (aIS);
+    if (ret < 0 || ret > MAX_LENGTH)
+      throw new IOException ("Invalid length " + ret + " in snapshot");
+    return ret;
+  }
+
+  @Nonnull
+  static byte [] readBytes (@Nonnull final InputStream aIS) throws IOException
+  {
+    final int nLength = readLength (aIS);
+    // Don't trust the length for the allocation, as it may be corrupt - the
+    // buffer only grows with the data that is really present
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream (Math.min (nLength, BUFFER_SIZE));
+    final byte [] aBuffer = new byte [Math.min (nLength, BUFFER_SIZE)];
+    int nRest = nLength;
+    while (nRest > 0)
+    {
+      final int nRead = aIS.read (aBuffer, 0, Math.min (nRest, aBuffer.length));
+      if (nRead < 0)
+        throw new EOFException ("Unexpected end of snapshot");
+      aBAOS.write (aBuffer, 0, nRead);
+      nRest -= nRead;
+    }
+    return aBAOS.toByteArray ();
+  }
+
+  @Nonnull
+  static String readString (@Nonnull final InputStream aIS) throws IOException
+  {
+    return new String (readBytes (aIS), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The header of a snapshot.
+   */
+  private static final class Header
+  {
+    private final byte [] m_aDigest;
+    private final ICommonsList <String> m_aDependencies;
+
+    Header (@Nonnull final byte [] aDigest, @Nonnull final ICommonsList <String> aDependencies)
+    {
+      m_aDigest = aDigest;
+      m_aDependencies = aDependencies;
+    }
+  }
+
+  @Nonnull
+  private static Header _readHeader (@Nonnull final InputStream aIS) throws IOException
+  {
+    final byte [] aMagic = new byte [PSBinaryWriter.MAGIC.length];
+    for (int i = 0; i < aMagic.length; ++i)
+    {
+      final int nByte = aIS.read ();
+      if (nByte < 0)
+        throw new EOFException ("Unexpected end of snapshot");
+      aMagic[i] = (byte) nByte;
+    }
+    if (!Arrays.equals (aMagic, PSBinaryWriter.MAGIC))
+      throw new IOException ("Not a Schematron snapshot");
+
+    final int nVersion = readVarInt (aIS);
+    if (nVersion != PSBinaryWriter.FORMAT_VERSION)
+      throw new IOException ("Unsupported Schematron snapshot version " + nVersion);
+
+    final byte [] aDigest = readBytes (aIS);
+    final int nDependencies = readLength (aIS);
+    final ICommonsList <String> aDependencies = new CommonsArrayList <> ();
+    for (int i = 0; i < nDependencies; ++i)
+      aDependencies.add (readString (aIS));
+    return new Header (aDigest, aDependencies);
+  }
+
+  @Nullable
+  private static String _get (@Nonnull final ICommonsList <String> aPool, final int nIndex) throws IOException
+  {
+    if (nIndex == 0)
+      return null;
+    if (nIndex < 0 || nIndex > aPool.size ())
+      throw new IOException ("Invalid string pool index " + nIndex);
+    return aPool.get (nIndex - 1);
+  }
+
+  @Nonnull
+  private static IMicroElement _readElement (@Nonnull final InputStream aIS,
+                                             @Nonnull final ICommonsList <String> aPool) throws IOException
+  {
+    final String sNamespaceURI = _get (aPool, readVarInt (aIS));
+    final String sLocalName = _get (aPool, readVarInt (aIS));
+    if (sLocalName == null)
+      throw new IOException ("Element without a name in snapshot");
+
+    final IMicroElement ret = new MicroElement (sNamespaceURI, sLocalName);
+    final int nAttrs = readLength (aIS);
+    for (int i = 0; i < nAttrs; ++i)
+    {
+      final String sAttrNS = _get (aPool, readVarInt (aIS));
+      final String sAttrName = _get (aPool, readVarInt (aIS));
+      final String sAttrValue = _get (aPool, readVarInt (aIS));
+      ret.setAttribute (sAttrNS, sAttrName, sAttrValue);
+    }
+
+    final int nChildren = readLength (aIS);
+    for (int i = 0; i < nChildren; ++i)
+    {
+      final int nType = aIS.read ();
+      switch (nType)
+      {
+        case PSBinaryWriter.NODE_ELEMENT:
+          ret.appendChild (_readElement (aIS, aPool));
+          break;
+        case PSBinaryWriter.NODE_TEXT:
+          ret.appendText (_get (aPool, readVarInt (aIS)));
+          break;
+        case PSBinaryWriter.NODE_CDATA:
+          ret.appendCDATA (_get (aPool, readVarInt (aIS)));
+          break;
+        case PSBinaryWriter.NODE_COMMENT:
+          ret.appendComment (_get (aPool, readVarInt (aIS)));
+          break;
+        default:
+          throw new IOException ("Invalid node type " + nType + " in snapshot");
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Check if the passed snapshot is up to date, by comparing the contained
+   * digest with the digest of the current source resources.
+   *
+   * @param aSnapshot
+   *        The snapshot to check. May not be <code>null</code>.
+   * @return <code>true</code> if the snapshot contains a digest and the digest
+   *         matches the current sources, <code>false</code> otherwise.
+   */
+  public boolean isUpToDate (@Nonnull final IHasInputStream aSnapshot)
+  {
+    ValueEnforcer.notNull (aSnapshot, "Snapshot");
+
+    final InputStream aIS = aSnapshot.getInputStream ();
+    if (aIS == null)
+      return false;
+
+    final Header aHeader;
+    try
+    {
+      aHeader = _readHeader (aIS);
+    }
+    catch (final IOException ex)
+    {
+      return false;
+    }
+    finally
+    {
+      StreamHelper.close (aIS);
+    }
+
+    if (aHeader.m_aDigest.length == 0)
+      return false;
+
+    final ICommonsList <IReadableResource> aSources = new CommonsArrayList <> ();
+    aSources.add (m_aResource);
+    final DefaultSchematronIncludeResolver aResolver = new DefaultSchematronIncludeResolver ((String) null);
+    for (final String sDependency : aHeader.m_aDependencies)
+    {
+      try
+      {
+        final IReadableResource aDependency = aResolver.getResolvedSchematronResource (sDependency);
+        if (aDependency == null || !aDependency.exists ())
+          return false;
+        aSources.add (aDependency);
+      }
+      catch (final IOException | RuntimeException ex)
+      {
+        return false;
+      }
+    }
+
+    final byte [] aCurrentDigest = PSSourceDigest.createDigest (aSources);
+    return aCurrentDigest != null && Arrays.equals (aCurrentDigest, aHeader.m_aDigest);
+  }
+
+  /**
+   * Read the schema from the passed input stream.
+   *
+   * @param aIS
+   *        The input stream to read from. May not be <code>null</code>. The
+   *        stream is NOT closed.
+   * @return The read {@link PSSchema}. Never <code>null</code>.
+   * @throws SchematronReadException
+   *         If reading fails
+   */
+  @Nonnull
+  public PSSchema readSchema (@Nonnull final InputStream aIS) throws SchematronReadException
+  {
+    ValueEnforcer.notNull (aIS, "InputStream");
+
+    final IMicroElement eSchema;
+    try
+    {
+      _readHeader (aIS);
+
+      final int nPoolSize = readLength (aIS);
+      // Grows with the really contained strings
+      final ICommonsList <String> aPool = new CommonsArrayList <> ();
+      for (int i = 0; i < nPoolSize; ++i)
+        aPool.add (readString (aIS));
+
+      eSchema = _readElement (aIS, aPool);
+    }
+    catch (final IOException ex)
+    {
+      throw new SchematronReadException (m_aResource, "Failed to read Schematron snapshot", ex);
+    }
+
+    return new PSReader (m_aResource, m_aErrorHandler, null).readSchemaFromXML (eSchema);
+  }
+
+  /**
+   * Read the schema from the passed snapshot.
+   *
+   * @param aSnapshot
+   *        The snapshot to read. May not be <code>null</code>.
+   * @return The read {@link PSSchema}. Never <code>null</code>.
+   * @throws SchematronReadException
+   *         If reading fails
+   */
+  @Nonnull
+  public PSSchema readSchema (@Nonnull final IHasInputStream aSnapshot) throws SchematronReadException
+  {
+    ValueEnforcer.notNull (aSnapshot, "Snapshot");
+
+    final InputStream aIS = aSnapshot.getInputStream ();
+    if (aIS == null)
+      throw new SchematronReadException (m_aResource, "Failed to open Schematron snapshot " + aSnapshot);
+    try
+    {
+      return readSchema (aIS);
+    }
+    finally
+    {
+      StreamHelper.close (aIS);
+    }
+  }
+
+  /**
+   * Read the schema from the passed snapshot bytes.
+   *
+   * @param aSnapshot
+   *        The snapshot bytes to read. May not be <code>null</code>.
+   * @return The read {@link PSSchema}. Never <code>null</code>.
+   * @throws SchematronReadException
+   *         If reading fails
+   */
+  @Nonnull
+  public PSSchema readSchema (@Nonnull final byte [] aSnapshot) throws SchematronReadException
+  {
+    ValueEnforcer.notNull (aSnapshot, "Snapshot");
+    return readSchema (new ByteArrayInputStream (aSnapshot));
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("resource", m_aResource)
+                                       .append ("errorHandler", m_aErrorHandler)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,373 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.exchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillClose;
+import javax.annotation.concurrent.Immutable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.state.ESuccess;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.pure.model.PSSchema;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.IMicroNode;
+
+/**
+ * This class serializes a {@link PSSchema} into a compact, versioned binary
+ * snapshot. All strings (element names, namespace URIs, attribute values and
+ * texts) are stored once in a string pool and are referenced by varint encoded
+ * indices. The snapshot is meant to be created for preprocessed schemas (see
+ * {@link com.helger.schematron.pure.preprocess.PSPreprocessor}), so that XML
+ * parsing, include resolution and preprocessing can be skipped on startup. Use
+ * {@link PSBinaryReader} to read it back.<br>
+ * The snapshot optionally contains a digest of the source resources (see
+ * {@link PSSourceDigest}) so that outdated snapshots can be detected.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class PSBinaryWriter
+{
+  /** The magic bytes at the beginning of each snapshot */
+  public static final byte [] MAGIC = { 'P', 'S', 'B', 'S' };
+  /** The current format version */
+  public static final int FORMAT_VERSION = 1;
+
+  static final int NODE_ELEMENT = 1;
+  static final int NODE_TEXT = 2;
+  static final int NODE_CDATA = 3;
+  static final int NODE_COMMENT = 4;
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (PSBinaryWriter.class);
+
+  public PSBinaryWriter ()
+  {}
+
+  static void writeVarInt (@Nonnull final OutputStream aOS, final int nValue) throws IOException
+  {
+    ValueEnforcer.isGE0 (nValue, "Value");
+    int nRest = nValue;
+    while ((nRest & ~0x7f) != 0)
+    {
+      aOS.write ((nRest & 0x7f) | 0x80);
+      nRest >>>= 7;
+    }
+    aOS.write (nRest);
+  }
+
+  static void writeBytes (@Nonnull final OutputStream aOS, @Nonnull final byte [] aBytes) throws IOException
+  {
+    writeVarInt (aOS, aBytes.length);
+    aOS.write (aBytes);
+  }
+
+  static void writeString (@Nonnull final OutputStream aOS, @Nonnull final String sValue) throws IOException
+  {
+    writeBytes (aOS, sValue.getBytes (StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Index 0 is reserved for <code>null</code> so all pool indices are shifted
+   * by one.
+   */
+  private static void _register (@Nonnull final ICommonsOrderedMap <String, Integer> aPool,
+                                 @Nullable final String sValue)
+  {
+    if (sValue != null && !aPool.containsKey (sValue))
+      aPool.put (sValue, Integer.valueOf (aPool.size () + 1));
+  }
+
+  private static void _fillPool (@Nonnull final IMicroElement aElement,
+                                 @Nonnull final ICommonsOrderedMap <String, Integer> aPool)
+  {
+    _register (aPool, aElement.getNamespaceURI ());
+    _register (aPool, aElement.getLocalName ());
+    aElement.forAllAttributes ( (sNS, sAttrName, sVal) -> {
+      _register (aPool, sNS);
+      _register (aPool, sAttrName);
+      _register (aPool, sVal);
+    });
+    aElement.forAllChildren (aChild -> {
+      switch (aChild.getType ())
+      {
+        case ELEMENT:
+          _fillPool ((IMicroElement) aChild, aPool);
+          break;
+        case TEXT:
+        case CDATA:
+        case COMMENT:
+          _register (aPool, aChild.getNodeValue ());
+          break;
+        default:
+          // Ignored
+      }
+    });
+  }
+
+  private static int _idx (@Nonnull final ICommonsOrderedMap <String, Integer> aPool, @Nullable final String sValue)
+  {
+    return sValue == null ? 0 : aPool.get (sValue).intValue ();
+  }
+
+  private static void _writeElement (@Nonnull final OutputStream aOS,
+                                     @Nonnull final IMicroElement aElement,
+                                     @Nonnull final ICommonsOrderedMap <String, Integer> aPool) throws IOException
+  {
+    writeVarInt (aOS, _idx (aPool, aElement.getNamespaceURI ()));
+    writeVarInt (aOS, _idx (aPool, aElement.getLocalName ()));
+
+    final ICommonsList <String []> aAttrs = new CommonsArrayList <> ();
+    aElement.forAllAttributes ( (sNS, sAttrName, sVal) -> aAttrs.add (new String [] { sNS, sAttrName, sVal }));
+    writeVarInt (aOS, aAttrs.size ());
+    for (final String [] aAttr : aAttrs)
+    {
+      writeVarInt (aOS, _idx (aPool, aAttr[0]));
+      writeVarInt (aOS, _idx (aPool, aAttr[1]));
+      writeVarInt (aOS, _idx (aPool, aAttr[2]));
+    }
+
+    final ICommonsList <IMicroNode> aChildren = new CommonsArrayList <> ();
+    aElement.forAllChildren (aChild -> {
+      switch (aChild.getType ())
+      {
+        case ELEMENT:
+        case TEXT:
+        case CDATA:
+        case COMMENT:
+          aChildren.add (aChild);
+          break;
+        default:
+          // Ignored
+      }
+    });
+    writeVarInt (aOS, aChildren.size ());
+    for (final IMicroNode aChild : aChildren)
+      switch (aChild.getType ())
+      {
+        case ELEMENT:
+          aOS.write (NODE_ELEMENT);
+          _writeElement (aOS, (IMicroElement) aChild, aPool);
+          break;
+        case TEXT:
+          aOS.write (NODE_TEXT);
+          writeVarInt (aOS, _idx (aPool, aChild.getNodeValue ()));
+          break;
+        case CDATA:
+          aOS.write (NODE_CDATA);
+          writeVarInt (aOS, _idx (aPool, aChild.getNodeValue ()));
+          break;
+        case COMMENT:
+          aOS.write (NODE_COMMENT);
+          writeVarInt (aOS, _idx (aPool, aChild.getNodeValue ()));
+          break;
+        default:
+          throw new IllegalStateException ("Unexpected node type " + aChild.getType ());
+      }
+  }
+
+  /**
+   * Write the passed schema to the passed output stream.
+   *
+   * @param aSchema
+   *        The schema to be written. Should be preprocessed. May not be
+   *        <code>null</code>.
+   * @param aSources
+   *        The source resources from which the schema was read (see
+   *        {@link PSSourceDigest#getAllSourceResources(IReadableResource)}).
+   *        The first element must be the main resource. May be
+   *        <code>null</code> in which case no digest is stored.
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>. The
+   *        stream is NOT closed.
+   * @throws IOException
+   *         In case writing fails
+   */
+  protected void writeSnapshot (@Nonnull final PSSchema aSchema,
+                                @Nullable final ICommonsList <IReadableResource> aSources,
+                                @Nonnull final OutputStream aOS) throws IOException
+  {
+    aOS.write (MAGIC);
+    writeVarInt (aOS, FORMAT_VERSION);
+
+    // Digest and dependent resources
+    byte [] aDigest = null;
+    if (aSources != null && aSources.isNotEmpty ())
+    {
+      aDigest = PSSourceDigest.createDigest (aSources);
+      if (aDigest == null)
+        s_aLogger.warn ("Failed to create the source digest for " + aSources + " - storing snapshot without digest");
+    }
+    if (aDigest == null)
+    {
+      writeBytes (aOS, new byte [0]);
+      writeVarInt (aOS, 0);
+    }
+    else
+    {
+      writeBytes (aOS, aDigest);
+      // The main resource is supplied when reading
+      writeVarInt (aOS, aSources.size () - 1);
+      for (final IReadableResource aSource : aSources.subList (1, aSources.size ()))
+      {
+        final URL aURL = aSource.getAsURL ();
+        writeString (aOS, aURL != null ? aURL.toExternalForm () : aSource.getResourceID ());
+      }
+    }
+
+    // String pool
+    final IMicroElement eSchema = aSchema.getAsMicroElement ();
+    final ICommonsOrderedMap <String, Integer> aPool = new CommonsLinkedHashMap <> ();
+    _fillPool (eSchema, aPool);
+    writeVarInt (aOS, aPool.size ());
+    for (final Map.Entry <String, Integer> aEntry : aPool.entrySet ())
+      writeString (aOS, aEntry.getKey ());
+
+    // Model
+    _writeElement (aOS, eSchema, aPool);
+  }
+
+  /**
+   * Get the passed schema as a binary snapshot.
+   *
+   * @param aSchema
+   *        The schema to be written. Should be preprocessed. May not be
+   *        <code>null</code>.
+   * @param aSources
+   *        The source resources from which the schema was read, starting with
+   *        the main resource. May be <code>null</code> in which case no digest
+   *        is stored.
+   * @return The snapshot bytes. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public byte [] getAsBytes (@Nonnull final PSSchema aSchema,
+                             @Nullable final ICommonsList <IReadableResource> aSources)
+  {
+    ValueEnforcer.notNull (aSchema, "Schema");
+
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+    try
+    {
+      writeSnapshot (aSchema, aSources, aBAOS);
+    }
+    catch (final IOException ex)
+    {
+      // Cannot happen for a byte array output stream
+      throw new IllegalStateException ("Failed to write snapshot", ex);
+    }
+    return aBAOS.toByteArray ();
+  }
+
+  /**
+   * Write the passed schema as a binary snapshot to the passed output stream.
+   *
+   * @param aSchema
+   *        The schema to be written. Should be preprocessed. May not be
+   *        <code>null</code>.
+   * @param aSources
+   *        The source resources from which the schema was read, starting with
+   *        the main resource. May be <code>null</code>.
+   * @param aOS
+   *        The output stream to write things to. May not be <code>null</code>.
+   *        The stream is automatically closed.
+   * @return {@link ESuccess}.
+   */
+  @Nonnull
+  public ESuccess writeToStream (@Nonnull final PSSchema aSchema,
+                                 @Nullable final ICommonsList <IReadableResource> aSources,
+                                 @Nonnull @WillClose final OutputStream aOS)
+  {
+    ValueEnforcer.notNull (aSchema, "Schema");
+    ValueEnforcer.notNull (aOS, "OutputStream");
+
+    try
+    {
+      writeSnapshot (aSchema, aSources, aOS);
+      return ESuccess.SUCCESS;
+    }
+    catch (final IOException ex)
+    {
+      s_aLogger.error ("Failed to write Schematron snapshot", ex);
+      return ESuccess.FAILURE;
+    }
+    finally
+    {
+      StreamHelper.close (aOS);
+    }
+  }
+
+  /**
+   * Write the passed schema as a binary snapshot to the passed file.
+   *
+   * @param aSchema
+   *        The schema to be written. Should be preprocessed. May not be
+   *        <code>null</code>.
+   * @param aSources
+   *        The source resources from which the schema was read, starting with
+   *        the main resource. May be <code>null</code>.
+   * @param aFile
+   *        The file to write things to. May not be <code>null</code>.
+   * @return {@link ESuccess}.
+   */
+  @Nonnull
+  public ESuccess writeToFile (@Nonnull final PSSchema aSchema,
+                               @Nullable final ICommonsList <IReadableResource> aSources,
+                               @Nonnull final File aFile)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+
+    final OutputStream aOS;
+    try
+    {
+      aOS = new FileOutputStream (aFile);
+    }
+    catch (final IOException ex)
+    {
+      s_aLogger.error ("Failed to open " + aFile.getAbsolutePath () + " for writing", ex);
+      return ESuccess.FAILURE;
+    }
+    return writeToStream (aSchema, aSources, aOS);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).getToString ();
+  }
+}
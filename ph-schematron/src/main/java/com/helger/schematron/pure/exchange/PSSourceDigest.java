@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.exchange;
+
+import java.io.IOException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.PresentForCodeCoverage;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashSet;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.schematron.CSchematron;
+import com.helger.schematron.CSchematronXML;
+import com.helger.schematron.pure.model.PSSchema;
+import com.helger.schematron.resolve.DefaultSchematronIncludeResolver;
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.serialize.MicroReader;
+import com.helger.xml.serialize.read.ISAXReaderSettings;
+
+/**
+ * Helper class to determine all source resources of a Schematron (the resource
+ * itself plus all transitively included resources) and to create a digest over
+ * their binary content. The digest is used to key binary snapshots created by
+ * {@link PSBinaryWriter}. Additionally a structural digest of an in-memory
+ * model can be created.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public final class PSSourceDigest
+{
+  /** The message digest algorithm to use */
+  public static final String DIGEST_ALGORITHM = "SHA-256";
+
+  @PresentForCodeCoverage
+  private static final PSSourceDigest s_aInstance = new PSSourceDigest ();
+
+  private PSSourceDigest ()
+  {}
+
+  @Nonnull
+  private static MessageDigest _createMessageDigest ()
+  {
+    try
+    {
+      return MessageDigest.getInstance (DIGEST_ALGORITHM);
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException ("Message digest algorithm " + DIGEST_ALGORITHM + " is not supported", ex);
+    }
+  }
+
+  private static void _updateLength (@Nonnull final MessageDigest aMD, final int nLength)
+  {
+    // Fixed size big endian
+    aMD.update ((byte) (nLength >>> 24));
+    aMD.update ((byte) (nLength >>> 16));
+    aMD.update ((byte) (nLength >>> 8));
+    aMD.update ((byte) nLength);
+  }
+
+  private static void _collectSources (@Nonnull final IReadableResource aResource,
+                                       @Nonnull final ICommonsSet <String> aVisited,
+                                       @Nonnull final ICommonsList <IReadableResource> aTarget)
+  {
+    final URL aURL = aResource.getAsURL ();
+    final String sKey = aURL != null ? aURL.toExternalForm () : aResource.getResourceID ();
+    if (!aVisited.add (sKey))
+      return;
+    aTarget.add (aResource);
+
+    final IMicroDocument aDoc = MicroReader.readMicroXML (aResource, (ISAXReaderSettings) null);
+    if (aDoc == null || aDoc.getDocumentElement () == null)
+      return;
+
+    final DefaultSchematronIncludeResolver aIncludeResolver = new DefaultSchematronIncludeResolver (aResource);
+    for (final IMicroElement aElement : aDoc.getDocumentElement ().getAllChildElementsRecursive ())
+      if (CSchematron.NAMESPACE_SCHEMATRON.equals (aElement.getNamespaceURI ()) &&
+          aElement.getLocalName ().equals (CSchematronXML.ELEMENT_INCLUDE))
+      {
+        String sHref = aElement.getAttributeValue (CSchematronXML.ATTR_HREF);
+        if (sHref != null)
+        {
+          final int nHashIndex = sHref.indexOf ('#');
+          if (nHashIndex >= 0)
+            sHref = sHref.substring (0, nHashIndex);
+          try
+          {
+            final IReadableResource aIncludeRes = aIncludeResolver.getResolvedSchematronResource (sHref);
+            if (aIncludeRes != null)
+              _collectSources (aIncludeRes, aVisited, aTarget);
+          }
+          catch (final IOException ex)
+          {
+            // Unresolvable includes are reported when the schema is read
+          }
+        }
+      }
+  }
+
+  /**
+   * Get the passed resource and all resources transitively included via
+   * <code>sch:include</code>. Includes that cannot be resolved are silently
+   * ignored, as they are reported when reading the schema.
+   *
+   * @param aResource
+   *        The main Schematron resource. May not be <code>null</code>.
+   * @return A non-<code>null</code> list with the passed resource as the first
+   *         element.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static ICommonsList <IReadableResource> getAllSourceResources (@Nonnull final IReadableResource aResource)
+  {
+    ValueEnforcer.notNull (aResource, "Resource");
+
+    final ICommonsList <IReadableResource> ret = new CommonsArrayList <> ();
+    _collectSources (aResource, new CommonsHashSet <> (), ret);
+    return ret;
+  }
+
+  /**
+   * Create the digest over the binary content of all passed resources in the
+   * passed order. The number of resources and the length of each resource are
+   * part of the digest, so that different splits of the same bytes result in
+   * different digests.
+   *
+   * @param aResources
+   *        The resources to digest. May not be <code>null</code>.
+   * @return <code>null</code> if at least one of the resources could not be
+   *         read.
+   */
+  @Nullable
+  public static byte [] createDigest (@Nonnull final Iterable <? extends IReadableResource> aResources)
+  {
+    ValueEnforcer.notNull (aResources, "Resources");
+
+    final MessageDigest aMD = _createMessageDigest ();
+    int nCount = 0;
+    for (final IReadableResource aResource : aResources)
+    {
+      final byte [] aBytes = StreamHelper.getAllBytes (aResource);
+      if (aBytes == null)
+        return null;
+      _updateLength (aMD, aBytes.length);
+      aMD.update (aBytes);
+      nCount++;
+    }
+    _updateLength (aMD, nCount);
+    return aMD.digest ();
+  }
+
+  /**
+   * Create the digest over the passed Schematron resource and all transitively
+   * included resources.
+   *
+   * @param aResource
+   *        The main Schematron resource. May not be <code>null</code>.
+   * @return <code>null</code> if at least one of the resources could not be
+   *         read.
+   */
+  @Nullable
+  public static byte [] createDigest (@Nonnull final IReadableResource aResource)
+  {
+    return createDigest (getAllSourceResources (aResource));
+  }
+
+  /**
+   * Create a structural digest of the passed schema model. Two schemas with the
+   * same elements, attributes and texts in the same order have the same digest,
+   * independent of the resource they were read from.
+   *
+   * @param aSchema
+   *        The schema to create the digest from. May not be <code>null</code>.
+   * @return The digest bytes. Never <code>null</code>.
+   */
+  @Nonnull
+  public static byte [] createModelDigest (@Nonnull final PSSchema aSchema)
+  {
+    ValueEnforcer.notNull (aSchema, "Schema");
+
+    return _createMessageDigest ().digest (new PSBinaryWriter ().getAsBytes (aSchema, null));
+  }
+}
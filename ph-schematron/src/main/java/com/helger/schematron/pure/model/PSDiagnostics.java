@@ -47,7 +47,7 @@ import com.helger.xml.microdom.MicroElement;
 @NotThreadSafe
 public class PSDiagnostics implements IPSElement, IPSOptionalElement, IPSHasForeignElements, IPSHasIncludes
 {
-  private final ICommonsList <PSInclude> m_aIncludes = new CommonsArrayList <> ();
+  private ICommonsList <PSInclude> m_aIncludes;
   private final ICommonsList <PSDiagnostic> m_aDiagnostics = new CommonsArrayList <> ();
   private ICommonsOrderedMap <String, String> m_aForeignAttrs;
   private ICommonsList <IMicroElement> m_aForeignElements;
@@ -57,9 +57,10 @@ public class PSDiagnostics implements IPSElement, IPSOptionalElement, IPSHasFore
 
   public boolean isValid (@Nonnull final IPSErrorHandler aErrorHandler)
   {
-    for (final PSInclude aInclude : m_aIncludes)
-      if (!aInclude.isValid (aErrorHandler))
-        return false;
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        if (!aInclude.isValid (aErrorHandler))
+          return false;
     for (final PSDiagnostic aDiagnostic : m_aDiagnostics)
       if (!aDiagnostic.isValid (aErrorHandler))
         return false;
@@ -68,8 +69,9 @@ public class PSDiagnostics implements IPSElement, IPSOptionalElement, IPSHasFore
 
   public void validateCompletely (@Nonnull final IPSErrorHandler aErrorHandler)
   {
-    for (final PSInclude aInclude : m_aIncludes)
-      aInclude.validateCompletely (aErrorHandler);
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        aInclude.validateCompletely (aErrorHandler);
     for (final PSDiagnostic aDiagnostic : m_aDiagnostics)
       aDiagnostic.validateCompletely (aErrorHandler);
   }
@@ -125,19 +127,21 @@ public class PSDiagnostics implements IPSElement, IPSOptionalElement, IPSHasFore
   public void addInclude (@Nonnull final PSInclude aInclude)
   {
     ValueEnforcer.notNull (aInclude, "Include");
+    if (m_aIncludes == null)
+      m_aIncludes = new CommonsArrayList <> ();
     m_aIncludes.add (aInclude);
   }
 
   public boolean hasAnyInclude ()
   {
-    return m_aIncludes.isNotEmpty ();
+    return m_aIncludes != null && m_aIncludes.isNotEmpty ();
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public ICommonsList <PSInclude> getAllIncludes ()
   {
-    return m_aIncludes.getClone ();
+    return m_aIncludes == null ? new CommonsArrayList <> () : m_aIncludes.getClone ();
   }
 
   public void addDiagnostic (@Nonnull final PSDiagnostic aDiagnostic)
@@ -170,8 +174,9 @@ public class PSDiagnostics implements IPSElement, IPSOptionalElement, IPSHasFore
     if (m_aForeignElements != null)
       for (final IMicroElement aForeignElement : m_aForeignElements)
         ret.appendChild (aForeignElement.getClone ());
-    for (final PSInclude aInclude : m_aIncludes)
-      ret.appendChild (aInclude.getAsMicroElement ());
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        ret.appendChild (aInclude.getAsMicroElement ());
     for (final PSDiagnostic aDiagnostic : m_aDiagnostics)
       ret.appendChild (aDiagnostic.getAsMicroElement ());
     if (m_aForeignAttrs != null)
@@ -158,7 +158,7 @@ public class PSPattern implements
   private String m_sID;
   private String m_sIsA;
   private PSRichGroup m_aRich;
-  private final ICommonsList <PSInclude> m_aIncludes = new CommonsArrayList <> ();
+  private ICommonsList <PSInclude> m_aIncludes;
   private PSTitle m_aTitle;
   private final ICommonsList <IPSElement> m_aContent = new CommonsArrayList <> ();
   private ICommonsOrderedMap <String, String> m_aForeignAttrs;
@@ -209,9 +209,10 @@ public class PSPattern implements
       }
     }
 
-    for (final PSInclude aInclude : m_aIncludes)
-      if (!aInclude.isValid (aErrorHandler))
-        return false;
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        if (!aInclude.isValid (aErrorHandler))
+          return false;
     if (m_aTitle != null && !m_aTitle.isValid (aErrorHandler))
       return false;
     for (final IPSElement aContent : m_aContent)
@@ -247,8 +248,9 @@ public class PSPattern implements
       }
     }
 
-    for (final PSInclude aInclude : m_aIncludes)
-      aInclude.validateCompletely (aErrorHandler);
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        aInclude.validateCompletely (aErrorHandler);
     if (m_aTitle != null)
       m_aTitle.validateCompletely (aErrorHandler);
     for (final IPSElement aContent : m_aContent)
@@ -261,9 +263,10 @@ public class PSPattern implements
       return false;
     if (StringHelper.hasText (m_sIsA))
       return false;
-    for (final PSInclude aInclude : m_aIncludes)
-      if (!aInclude.isMinimal ())
-        return false;
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        if (!aInclude.isMinimal ())
+          return false;
     if (m_aTitle != null && !m_aTitle.isMinimal ())
       return false;
     for (final IPSElement aContent : m_aContent)
@@ -361,19 +364,21 @@ public class PSPattern implements
   public void addInclude (@Nonnull final PSInclude aInclude)
   {
     ValueEnforcer.notNull (aInclude, "Include");
+    if (m_aIncludes == null)
+      m_aIncludes = new CommonsArrayList <> ();
     m_aIncludes.add (aInclude);
   }
 
   public boolean hasAnyInclude ()
   {
-    return m_aIncludes.isNotEmpty ();
+    return m_aIncludes != null && m_aIncludes.isNotEmpty ();
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public ICommonsList <PSInclude> getAllIncludes ()
   {
-    return m_aIncludes.getClone ();
+    return m_aIncludes == null ? new CommonsArrayList <> () : m_aIncludes.getClone ();
   }
 
   public void setTitle (@Nullable final PSTitle aTitle)
@@ -512,8 +517,9 @@ public class PSPattern implements
     if (m_aForeignElements != null)
       for (final IMicroElement aForeignElement : m_aForeignElements)
         ret.appendChild (aForeignElement.getClone ());
-    for (final PSInclude aInclude : m_aIncludes)
-      ret.appendChild (aInclude.getAsMicroElement ());
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        ret.appendChild (aInclude.getAsMicroElement ());
     if (m_aTitle != null)
       ret.appendChild (m_aTitle.getAsMicroElement ());
     for (final IPSElement aContent : m_aContent)
@@ -62,7 +62,7 @@ public class PSPhase implements IPSElement, IPSHasForeignElements, IPSHasInclude
 {
   private String m_sID;
   private PSRichGroup m_aRich;
-  private final ICommonsList <PSInclude> m_aIncludes = new CommonsArrayList <> ();
+  private ICommonsList <PSInclude> m_aIncludes;
   private final ICommonsList <IPSElement> m_aContent = new CommonsArrayList <> ();
   private ICommonsOrderedMap <String, String> m_aForeignAttrs;
   private ICommonsList <IMicroElement> m_aForeignElements;
@@ -72,9 +72,10 @@ public class PSPhase implements IPSElement, IPSHasForeignElements, IPSHasInclude
 
   public boolean isValid (@Nonnull final IPSErrorHandler aErrorHandler)
   {
-    for (final PSInclude aInclude : m_aIncludes)
-      if (!aInclude.isValid (aErrorHandler))
-        return false;
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        if (!aInclude.isValid (aErrorHandler))
+          return false;
     for (final IPSElement aContent : m_aContent)
       if (!aContent.isValid (aErrorHandler))
         return false;
@@ -88,8 +89,9 @@ public class PSPhase implements IPSElement, IPSHasForeignElements, IPSHasInclude
 
   public void validateCompletely (@Nonnull final IPSErrorHandler aErrorHandler)
   {
-    for (final PSInclude aInclude : m_aIncludes)
-      aInclude.validateCompletely (aErrorHandler);
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        aInclude.validateCompletely (aErrorHandler);
     for (final IPSElement aContent : m_aContent)
       aContent.validateCompletely (aErrorHandler);
     if (StringHelper.hasNoText (m_sID))
@@ -98,9 +100,10 @@ public class PSPhase implements IPSElement, IPSHasForeignElements, IPSHasInclude
 
   public boolean isMinimal ()
   {
-    for (final PSInclude aInclude : m_aIncludes)
-      if (!aInclude.isMinimal ())
-        return false;
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        if (!aInclude.isMinimal ())
+          return false;
     for (final IPSElement aContent : m_aContent)
       if (!aContent.isMinimal ())
         return false;
@@ -175,19 +178,21 @@ public class PSPhase implements IPSElement, IPSHasForeignElements, IPSHasInclude
   public void addInclude (@Nonnull final PSInclude aInclude)
   {
     ValueEnforcer.notNull (aInclude, "Include");
+    if (m_aIncludes == null)
+      m_aIncludes = new CommonsArrayList <> ();
     m_aIncludes.add (aInclude);
   }
 
   public boolean hasAnyInclude ()
   {
-    return m_aIncludes.isNotEmpty ();
+    return m_aIncludes != null && m_aIncludes.isNotEmpty ();
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public ICommonsList <PSInclude> getAllIncludes ()
   {
-    return m_aIncludes.getClone ();
+    return m_aIncludes == null ? new CommonsArrayList <> () : m_aIncludes.getClone ();
   }
 
   public void addP (@Nonnull final PSP aP)
@@ -268,8 +273,9 @@ public class PSPhase implements IPSElement, IPSHasForeignElements, IPSHasInclude
     if (m_aForeignElements != null)
       for (final IMicroElement aForeignElement : m_aForeignElements)
         ret.appendChild (aForeignElement.getClone ());
-    for (final PSInclude aInclude : m_aIncludes)
-      ret.appendChild (aInclude.getAsMicroElement ());
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        ret.appendChild (aInclude.getAsMicroElement ());
     for (final IPSElement aContent : m_aContent)
       ret.appendChild (aContent.getAsMicroElement ());
     if (m_aForeignAttrs != null)
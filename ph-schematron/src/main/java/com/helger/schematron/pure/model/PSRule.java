@@ -78,8 +78,8 @@ public class PSRule implements
   private boolean m_bAbstract = DEFAULT_ABSTRACT;
   private String m_sContext;
   private String m_sID;
-  private final ICommonsList <PSInclude> m_aIncludes = new CommonsArrayList <> ();
-  private final ICommonsList <PSLet> m_aLets = new CommonsArrayList <> ();
+  private ICommonsList <PSInclude> m_aIncludes;
+  private ICommonsList <PSLet> m_aLets;
   private final ICommonsList <IPSElement> m_aContent = new CommonsArrayList <> ();
   private ICommonsOrderedMap <String, String> m_aForeignAttrs;
   private ICommonsList <IMicroElement> m_aForeignElements;
@@ -113,12 +113,14 @@ public class PSRule implements
       aErrorHandler.error (this, "<rule> has no content");
       return false;
     }
-    for (final PSInclude aInclude : m_aIncludes)
-      if (!aInclude.isValid (aErrorHandler))
-        return false;
-    for (final PSLet aLet : m_aLets)
-      if (!aLet.isValid (aErrorHandler))
-        return false;
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        if (!aInclude.isValid (aErrorHandler))
+          return false;
+    if (m_aLets != null)
+      for (final PSLet aLet : m_aLets)
+        if (!aLet.isValid (aErrorHandler))
+          return false;
     for (final IPSElement aContent : m_aContent)
       if (!aContent.isValid (aErrorHandler))
         return false;
@@ -139,22 +141,26 @@ public class PSRule implements
     // At least one assert, report or extends must be present
     if (m_aContent.isEmpty ())
       aErrorHandler.error (this, "<rule> has no content");
-    for (final PSInclude aInclude : m_aIncludes)
-      aInclude.validateCompletely (aErrorHandler);
-    for (final PSLet aLet : m_aLets)
-      aLet.validateCompletely (aErrorHandler);
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        aInclude.validateCompletely (aErrorHandler);
+    if (m_aLets != null)
+      for (final PSLet aLet : m_aLets)
+        aLet.validateCompletely (aErrorHandler);
     for (final IPSElement aContent : m_aContent)
       aContent.validateCompletely (aErrorHandler);
   }
 
   public boolean isMinimal ()
   {
-    for (final PSInclude aInclude : m_aIncludes)
-      if (!aInclude.isMinimal ())
-        return false;
-    for (final PSLet aLet : m_aLets)
-      if (!aLet.isMinimal ())
-        return false;
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        if (!aInclude.isMinimal ())
+          return false;
+    if (m_aLets != null)
+      for (final PSLet aLet : m_aLets)
+        if (!aLet.isMinimal ())
+          return false;
     for (final IPSElement aContent : m_aContent)
       if (!aContent.isMinimal ())
         return false;
@@ -280,37 +286,41 @@ public class PSRule implements
   public void addInclude (@Nonnull final PSInclude aInclude)
   {
     ValueEnforcer.notNull (aInclude, "Include");
+    if (m_aIncludes == null)
+      m_aIncludes = new CommonsArrayList <> ();
     m_aIncludes.add (aInclude);
   }
 
   public boolean hasAnyInclude ()
   {
-    return m_aIncludes.isNotEmpty ();
+    return m_aIncludes != null && m_aIncludes.isNotEmpty ();
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public ICommonsList <PSInclude> getAllIncludes ()
   {
-    return m_aIncludes.getClone ();
+    return m_aIncludes == null ? new CommonsArrayList <> () : m_aIncludes.getClone ();
   }
 
   public void addLet (@Nonnull final PSLet aLet)
   {
     ValueEnforcer.notNull (aLet, "Let");
+    if (m_aLets == null)
+      m_aLets = new CommonsArrayList <> ();
     m_aLets.add (aLet);
   }
 
   public boolean hasAnyLet ()
   {
-    return m_aLets.isNotEmpty ();
+    return m_aLets != null && m_aLets.isNotEmpty ();
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public ICommonsList <PSLet> getAllLets ()
   {
-    return m_aLets.getClone ();
+    return m_aLets == null ? new CommonsArrayList <> () : m_aLets.getClone ();
   }
 
   @Nonnull
@@ -318,8 +328,9 @@ public class PSRule implements
   public ICommonsOrderedMap <String, String> getAllLetsAsMap ()
   {
     final ICommonsOrderedMap <String, String> ret = new CommonsLinkedHashMap <> ();
-    for (final PSLet aLet : m_aLets)
-      ret.put (aLet.getName (), aLet.getValue ());
+    if (m_aLets != null)
+      for (final PSLet aLet : m_aLets)
+        ret.put (aLet.getName (), aLet.getValue ());
     return ret;
   }
 
@@ -387,10 +398,12 @@ public class PSRule implements
     if (m_aForeignElements != null)
       for (final IMicroElement aForeignElement : m_aForeignElements)
         ret.appendChild (aForeignElement.getClone ());
-    for (final PSInclude aInclude : m_aIncludes)
-      ret.appendChild (aInclude.getAsMicroElement ());
-    for (final PSLet aLet : m_aLets)
-      ret.appendChild (aLet.getAsMicroElement ());
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        ret.appendChild (aInclude.getAsMicroElement ());
+    if (m_aLets != null)
+      for (final PSLet aLet : m_aLets)
+        ret.appendChild (aLet.getAsMicroElement ());
     for (final IPSElement aContent : m_aContent)
       ret.appendChild (aContent.getAsMicroElement ());
     if (m_aForeignAttrs != null)
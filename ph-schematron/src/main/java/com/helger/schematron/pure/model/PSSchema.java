@@ -72,13 +72,13 @@ public class PSSchema implements
   private String m_sDefaultPhase;
   private String m_sQueryBinding;
   private PSTitle m_aTitle;
-  private final ICommonsList <PSInclude> m_aIncludes = new CommonsArrayList <> ();
+  private ICommonsList <PSInclude> m_aIncludes;
   private final ICommonsList <PSNS> m_aNSs = new CommonsArrayList <> ();
-  private final ICommonsList <PSP> m_aStartPs = new CommonsArrayList <> ();
-  private final ICommonsList <PSLet> m_aLets = new CommonsArrayList <> ();
-  private final ICommonsList <PSPhase> m_aPhases = new CommonsArrayList <> ();
+  private ICommonsList <PSP> m_aStartPs;
+  private ICommonsList <PSLet> m_aLets;
+  private ICommonsList <PSPhase> m_aPhases;
   private final ICommonsList <PSPattern> m_aPatterns = new CommonsArrayList <> ();
-  private final ICommonsList <PSP> m_aEndPs = new CommonsArrayList <> ();
+  private ICommonsList <PSP> m_aEndPs;
   private PSDiagnostics m_aDiagnostics;
   private ICommonsOrderedMap <String, String> m_aForeignAttrs;
   private ICommonsList <IMicroElement> m_aForeignElements;
@@ -122,27 +122,32 @@ public class PSSchema implements
     }
     if (m_aTitle != null && !m_aTitle.isValid (aErrorHandler))
       return false;
-    for (final PSInclude aInclude : m_aIncludes)
-      if (!aInclude.isValid (aErrorHandler))
-        return false;
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        if (!aInclude.isValid (aErrorHandler))
+          return false;
     for (final PSNS aNS : m_aNSs)
       if (!aNS.isValid (aErrorHandler))
         return false;
-    for (final PSP aP : m_aStartPs)
-      if (!aP.isValid (aErrorHandler))
-        return false;
-    for (final PSLet aLet : m_aLets)
-      if (!aLet.isValid (aErrorHandler))
-        return false;
-    for (final PSPhase aPhase : m_aPhases)
-      if (!aPhase.isValid (aErrorHandler))
-        return false;
+    if (m_aStartPs != null)
+      for (final PSP aP : m_aStartPs)
+        if (!aP.isValid (aErrorHandler))
+          return false;
+    if (m_aLets != null)
+      for (final PSLet aLet : m_aLets)
+        if (!aLet.isValid (aErrorHandler))
+          return false;
+    if (m_aPhases != null)
+      for (final PSPhase aPhase : m_aPhases)
+        if (!aPhase.isValid (aErrorHandler))
+          return false;
     for (final PSPattern aPattern : m_aPatterns)
       if (!aPattern.isValid (aErrorHandler))
         return false;
-    for (final PSP aP : m_aEndPs)
-      if (!aP.isValid (aErrorHandler))
-        return false;
+    if (m_aEndPs != null)
+      for (final PSP aP : m_aEndPs)
+        if (!aP.isValid (aErrorHandler))
+          return false;
     if (m_aDiagnostics != null && !m_aDiagnostics.isValid (aErrorHandler))
       return false;
     return true;
@@ -154,20 +159,25 @@ public class PSSchema implements
       aErrorHandler.error (this, "<schema> has no <pattern>s");
     if (m_aTitle != null)
       m_aTitle.validateCompletely (aErrorHandler);
-    for (final PSInclude aInclude : m_aIncludes)
-      aInclude.validateCompletely (aErrorHandler);
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        aInclude.validateCompletely (aErrorHandler);
     for (final PSNS aNS : m_aNSs)
       aNS.validateCompletely (aErrorHandler);
-    for (final PSP aP : m_aStartPs)
-      aP.validateCompletely (aErrorHandler);
-    for (final PSLet aLet : m_aLets)
-      aLet.validateCompletely (aErrorHandler);
-    for (final PSPhase aPhase : m_aPhases)
-      aPhase.validateCompletely (aErrorHandler);
+    if (m_aStartPs != null)
+      for (final PSP aP : m_aStartPs)
+        aP.validateCompletely (aErrorHandler);
+    if (m_aLets != null)
+      for (final PSLet aLet : m_aLets)
+        aLet.validateCompletely (aErrorHandler);
+    if (m_aPhases != null)
+      for (final PSPhase aPhase : m_aPhases)
+        aPhase.validateCompletely (aErrorHandler);
     for (final PSPattern aPattern : m_aPatterns)
       aPattern.validateCompletely (aErrorHandler);
-    for (final PSP aP : m_aEndPs)
-      aP.validateCompletely (aErrorHandler);
+    if (m_aEndPs != null)
+      for (final PSP aP : m_aEndPs)
+        aP.validateCompletely (aErrorHandler);
     if (m_aDiagnostics != null)
       m_aDiagnostics.validateCompletely (aErrorHandler);
   }
@@ -189,9 +199,10 @@ public class PSSchema implements
     if (hasAnyInclude ())
       return false;
 
-    for (final PSPhase aPhase : m_aPhases)
-      if (aPhase.hasAnyInclude ())
-        return false;
+    if (m_aPhases != null)
+      for (final PSPhase aPhase : m_aPhases)
+        if (aPhase.hasAnyInclude ())
+          return false;
 
     for (final PSPattern aPattern : m_aPatterns)
     {
@@ -213,27 +224,32 @@ public class PSSchema implements
   {
     if (m_aTitle != null && !m_aTitle.isMinimal ())
       return false;
-    for (final PSInclude aInclude : m_aIncludes)
-      if (!aInclude.isMinimal ())
-        return false;
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        if (!aInclude.isMinimal ())
+          return false;
     for (final PSNS aNS : m_aNSs)
       if (!aNS.isMinimal ())
         return false;
-    for (final PSP aP : m_aStartPs)
-      if (!aP.isMinimal ())
-        return false;
-    for (final PSLet aLet : m_aLets)
-      if (!aLet.isMinimal ())
-        return false;
-    for (final PSPhase aPhase : m_aPhases)
-      if (!aPhase.isMinimal ())
-        return false;
+    if (m_aStartPs != null)
+      for (final PSP aP : m_aStartPs)
+        if (!aP.isMinimal ())
+          return false;
+    if (m_aLets != null)
+      for (final PSLet aLet : m_aLets)
+        if (!aLet.isMinimal ())
+          return false;
+    if (m_aPhases != null)
+      for (final PSPhase aPhase : m_aPhases)
+        if (!aPhase.isMinimal ())
+          return false;
     for (final PSPattern aPattern : m_aPatterns)
       if (!aPattern.isMinimal ())
         return false;
-    for (final PSP aP : m_aEndPs)
-      if (!aP.isMinimal ())
-        return false;
+    if (m_aEndPs != null)
+      for (final PSP aP : m_aEndPs)
+        if (!aP.isMinimal ())
+          return false;
     if (m_aDiagnostics != null && !m_aDiagnostics.isMinimal ())
       return false;
     return true;
@@ -360,19 +376,21 @@ public class PSSchema implements
   public void addInclude (@Nonnull final PSInclude aInclude)
   {
     ValueEnforcer.notNull (aInclude, "Include");
+    if (m_aIncludes == null)
+      m_aIncludes = new CommonsArrayList <> ();
     m_aIncludes.add (aInclude);
   }
 
   public boolean hasAnyInclude ()
   {
-    return m_aIncludes.isNotEmpty ();
+    return m_aIncludes != null && m_aIncludes.isNotEmpty ();
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public ICommonsList <PSInclude> getAllIncludes ()
   {
-    return m_aIncludes.getClone ();
+    return m_aIncludes == null ? new CommonsArrayList <> () : m_aIncludes.getClone ();
   }
 
   public void addNS (@Nonnull final PSNS aNS)
@@ -409,6 +427,8 @@ public class PSSchema implements
   public void addStartP (@Nonnull final PSP aP)
   {
     ValueEnforcer.notNull (aP, "P");
+    if (m_aStartPs == null)
+      m_aStartPs = new CommonsArrayList <> ();
     m_aStartPs.add (aP);
   }
 
@@ -416,25 +436,27 @@ public class PSSchema implements
   @ReturnsMutableCopy
   public ICommonsList <PSP> getAllStartPs ()
   {
-    return m_aStartPs.getClone ();
+    return m_aStartPs == null ? new CommonsArrayList <> () : m_aStartPs.getClone ();
   }
 
   public void addLet (@Nonnull final PSLet aLet)
   {
     ValueEnforcer.notNull (aLet, "Let");
+    if (m_aLets == null)
+      m_aLets = new CommonsArrayList <> ();
     m_aLets.add (aLet);
   }
 
   public boolean hasAnyLet ()
   {
-    return m_aLets.isNotEmpty ();
+    return m_aLets != null && m_aLets.isNotEmpty ();
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public ICommonsList <PSLet> getAllLets ()
   {
-    return m_aLets.getClone ();
+    return m_aLets == null ? new CommonsArrayList <> () : m_aLets.getClone ();
   }
 
   @Nonnull
@@ -442,14 +464,17 @@ public class PSSchema implements
   public ICommonsOrderedMap <String, String> getAllLetsAsMap ()
   {
     final ICommonsOrderedMap <String, String> ret = new CommonsLinkedHashMap <> ();
-    for (final PSLet aLet : m_aLets)
-      ret.put (aLet.getName (), aLet.getValue ());
+    if (m_aLets != null)
+      for (final PSLet aLet : m_aLets)
+        ret.put (aLet.getName (), aLet.getValue ());
     return ret;
   }
 
   public void addPhase (@Nonnull final PSPhase aPhase)
   {
     ValueEnforcer.notNull (aPhase, "Phase");
+    if (m_aPhases == null)
+      m_aPhases = new CommonsArrayList <> ();
     m_aPhases.add (aPhase);
   }
 
@@ -457,7 +482,7 @@ public class PSSchema implements
   @ReturnsMutableCopy
   public ICommonsList <PSPhase> getAllPhases ()
   {
-    return m_aPhases.getClone ();
+    return m_aPhases == null ? new CommonsArrayList <> () : m_aPhases.getClone ();
   }
 
   /**
@@ -468,13 +493,15 @@ public class PSSchema implements
   @ReturnsMutableCopy
   public ICommonsList <String> getAllPhaseIDs ()
   {
+    if (m_aPhases == null)
+      return new CommonsArrayList <> ();
     return m_aPhases.getAllMapped (PSPhase::hasID, PSPhase::getID);
   }
 
   @Nullable
   public PSPhase getPhaseOfID (@Nullable final String sID)
   {
-    if (StringHelper.hasText (sID))
+    if (StringHelper.hasText (sID) && m_aPhases != null)
       for (final PSPhase aPhase : m_aPhases)
         if (sID.equals (aPhase.getID ()))
           return aPhase;
@@ -523,6 +550,8 @@ public class PSSchema implements
   public void addEndP (@Nonnull final PSP aP)
   {
     ValueEnforcer.notNull (aP, "P");
+    if (m_aEndPs == null)
+      m_aEndPs = new CommonsArrayList <> ();
     m_aEndPs.add (aP);
   }
 
@@ -530,7 +559,7 @@ public class PSSchema implements
   @ReturnsMutableCopy
   public ICommonsList <PSP> getAllEndPs ()
   {
-    return m_aEndPs.getClone ();
+    return m_aEndPs == null ? new CommonsArrayList <> () : m_aEndPs.getClone ();
   }
 
   public void setDiagnostics (@Nullable final PSDiagnostics aDiagnostics)
@@ -562,22 +591,27 @@ public class PSSchema implements
     if (m_aForeignElements != null)
       for (final IMicroElement aForeignElement : m_aForeignElements)
         ret.appendChild (aForeignElement.getClone ());
-    for (final PSInclude aInclude : m_aIncludes)
-      ret.appendChild (aInclude.getAsMicroElement ());
+    if (m_aIncludes != null)
+      for (final PSInclude aInclude : m_aIncludes)
+        ret.appendChild (aInclude.getAsMicroElement ());
     if (m_aTitle != null)
       ret.appendChild (m_aTitle.getAsMicroElement ());
     for (final PSNS aNS : m_aNSs)
       ret.appendChild (aNS.getAsMicroElement ());
-    for (final PSP aP : m_aStartPs)
-      ret.appendChild (aP.getAsMicroElement ());
-    for (final PSLet aLet : m_aLets)
-      ret.appendChild (aLet.getAsMicroElement ());
-    for (final PSPhase aPhase : m_aPhases)
-      ret.appendChild (aPhase.getAsMicroElement ());
+    if (m_aStartPs != null)
+      for (final PSP aP : m_aStartPs)
+        ret.appendChild (aP.getAsMicroElement ());
+    if (m_aLets != null)
+      for (final PSLet aLet : m_aLets)
+        ret.appendChild (aLet.getAsMicroElement ());
+    if (m_aPhases != null)
+      for (final PSPhase aPhase : m_aPhases)
+        ret.appendChild (aPhase.getAsMicroElement ());
     for (final PSPattern aPattern : m_aPatterns)
       ret.appendChild (aPattern.getAsMicroElement ());
-    for (final PSP aP : m_aEndPs)
-      ret.appendChild (aP.getAsMicroElement ());
+    if (m_aEndPs != null)
+      for (final PSP aP : m_aEndPs)
+        ret.appendChild (aP.getAsMicroElement ());
     if (m_aDiagnostics != null)
       ret.appendChild (m_aDiagnostics.getAsMicroElement ());
     if (m_aForeignAttrs != null)
@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.preprocess;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.ArrayHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.pure.bound.xpath.PSXPathRewriteHelper;
+
+/**
+ * Abstract base class for rewrite rules that replace calls to specific XPath
+ * functions. Calls inside string literals and calls to prefixed functions are
+ * ignored. Nested calls in the arguments of a replaced call are handled in the
+ * next pass of the {@link PSXPathOptimizer}.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+public abstract class AbstractPSXPathFunctionCallRewriteRule implements IPSXPathRewriteRule
+{
+  /**
+   * The replacement of a single function call.
+   *
+   * @author Philip Helger
+   */
+  protected static final class Replacement
+  {
+    private final int m_nEnd;
+    private final String m_sText;
+
+    /**
+     * @param nEnd
+     *        The index after the last replaced character of the expression.
+     * @param sText
+     *        The replacement text. May not be <code>null</code>.
+     */
+    public Replacement (@Nonnegative final int nEnd, @Nonnull final String sText)
+    {
+      m_nEnd = nEnd;
+      m_sText = sText;
+    }
+  }
+
+  private final String m_sID;
+  private final String [] m_aFunctionNames;
+
+  protected AbstractPSXPathFunctionCallRewriteRule (@Nonnull final String sID,
+                                                    @Nonnull final String... aFunctionNames)
+  {
+    ValueEnforcer.notEmpty (sID, "ID");
+    ValueEnforcer.notEmptyNoNullValue (aFunctionNames, "FunctionNames");
+    m_sID = sID;
+    m_aFunctionNames = ArrayHelper.getCopy (aFunctionNames);
+  }
+
+  @Nonnull
+  public final String getID ()
+  {
+    return m_sID;
+  }
+
+  /**
+   * Skip all whitespaces starting at the passed index.
+   *
+   * @param sExpr
+   *        Expression. May not be <code>null</code>.
+   * @param nIndex
+   *        Start index.
+   * @return The index of the first non-whitespace character or the length of
+   *         the expression.
+   */
+  protected static final int skipWhitespaces (@Nonnull final String sExpr, @Nonnegative final int nIndex)
+  {
+    int ret = nIndex;
+    while (ret < sExpr.length () && Character.isWhitespace (sExpr.charAt (ret)))
+      ret++;
+    return ret;
+  }
+
+  /**
+   * Check if the passed argument is a single string literal.
+   *
+   * @param sArg
+   *        The trimmed argument. May not be <code>null</code>.
+   * @return <code>true</code> if it is a single string literal
+   */
+  protected static final boolean isStringLiteral (@Nonnull final String sArg)
+  {
+    if (sArg.length () < 2)
+      return false;
+    final char c = sArg.charAt (0);
+    return (c == '\'' || c == '"') && PSXPathRewriteHelper.getStringLiteralEnd (sArg, 0) == sArg.length ();
+  }
+
+  /**
+   * Get the replacement for a single function call.
+   *
+   * @param sExpr
+   *        The whole expression. Never <code>null</code>.
+   * @param sFunctionName
+   *        The name of the called function. Never <code>null</code>.
+   * @param nStart
+   *        Index of the first character of the function name.
+   * @param nOpen
+   *        Index of the opening parenthesis.
+   * @param nClose
+   *        Index of the matching closing parenthesis.
+   * @param sQueryBinding
+   *        The query binding of the schema. May be <code>null</code>.
+   * @return <code>null</code> if the call should not be replaced.
+   */
+  @Nullable
+  protected abstract Replacement getReplacement (@Nonnull String sExpr,
+                                                 @Nonnull String sFunctionName,
+                                                 @Nonnegative int nStart,
+                                                 @Nonnegative int nOpen,
+                                                 @Nonnegative int nClose,
+                                                 @Nullable String sQueryBinding);
+
+  @Nullable
+  private String _getFunctionNameAt (@Nonnull final String sExpr, @Nonnegative final int nIndex)
+  {
+    if (nIndex > 0 && PSXPathRewriteHelper.isNameChar (sExpr.charAt (nIndex - 1)))
+      return null;
+    for (final String sFunctionName : m_aFunctionNames)
+      if (sExpr.startsWith (sFunctionName, nIndex))
+      {
+        final int nAfter = nIndex + sFunctionName.length ();
+        if (nAfter < sExpr.length () && PSXPathRewriteHelper.isNameChar (sExpr.charAt (nAfter)))
+          continue;
+        return sFunctionName;
+      }
+    return null;
+  }
+
+  @Nonnull
+  public String getRewrittenExpression (@Nonnull final String sExpression, @Nullable final String sQueryBinding)
+  {
+    final int nLen = sExpression.length ();
+    final StringBuilder aSB = new StringBuilder (nLen);
+    boolean bChanged = false;
+    int i = 0;
+    while (i < nLen)
+    {
+      final char c = sExpression.charAt (i);
+      if (c == '\'' || c == '"')
+      {
+        final int nEnd = PSXPathRewriteHelper.getStringLiteralEnd (sExpression, i);
+        aSB.append (sExpression, i, nEnd);
+        i = nEnd;
+        continue;
+      }
+
+      final String sFunctionName = _getFunctionNameAt (sExpression, i);
+      if (sFunctionName != null)
+      {
+        final int nOpen = skipWhitespaces (sExpression, i + sFunctionName.length ());
+        if (nOpen < nLen && sExpression.charAt (nOpen) == '(')
+        {
+          final int nClose = PSXPathRewriteHelper.getMatchingClosingParenthesis (sExpression, nOpen);
+          if (nClose > 0)
+          {
+            final Replacement aReplacement = getReplacement (sExpression,
+                                                             sFunctionName,
+                                                             i,
+                                                             nOpen,
+                                                             nClose,
+                                                             sQueryBinding);
+            if (aReplacement != null)
+            {
+              aSB.append (aReplacement.m_sText);
+              i = aReplacement.m_nEnd;
+              bChanged = true;
+              continue;
+            }
+          }
+        }
+      }
+      aSB.append (c);
+      i++;
+    }
+    return bChanged ? aSB.toString () : sExpression;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ID", m_sID).append ("functionNames", m_aFunctionNames).getToString ();
+  }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.preprocess;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.id.IHasID;
+
+/**
+ * Base interface for a single XPath rewrite rule used by
+ * {@link PSXPathOptimizer}. A rewrite rule must never change the semantics of
+ * the passed expression. Implementations must be stateless.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+public interface IPSXPathRewriteRule extends IHasID <String>
+{
+  /**
+   * Rewrite the passed expression.
+   *
+   * @param sExpression
+   *        The expression to rewrite. May not be <code>null</code>.
+   * @param sQueryBinding
+   *        The query binding of the schema (e.g. "xslt" or "xslt2") to
+   *        determine the XPath version. May be <code>null</code>.
+   * @return The rewritten expression or the passed expression if nothing was
+   *         rewritten. Never <code>null</code>.
+   */
+  @Nonnull
+  String getRewrittenExpression (@Nonnull String sExpression, @Nullable String sQueryBinding);
+}
@@ -69,6 +69,7 @@ public class PSPreprocessor
   private boolean m_bKeepReports = DEFAULT_KEEP_REPORTS;
   private boolean m_bKeepEmptyPatterns = DEFAULT_KEEP_EMPTY_PATTERNS;
   private boolean m_bKeepEmptySchema = DEFAULT_KEEP_EMPTY_SCHEMA;
+  private PSXPathOptimizer m_aXPathOptimizer;
 
   public PSPreprocessor (@Nonnull final IPSQueryBinding aQueryBinding)
   {
@@ -205,9 +206,70 @@ public class PSPreprocessor
     return this;
   }
 
+  /**
+   * @return The optional XPath optimizer that is applied to all rule contexts,
+   *         tests, value-of selects and let values. May be <code>null</code>.
+   *         Default is <code>null</code>.
+   * @since 5.0.5
+   */
+  @Nullable
+  public PSXPathOptimizer getXPathOptimizer ()
+  {
+    return m_aXPathOptimizer;
+  }
+
+  /**
+   * Set the XPath optimizer to be used. Note: the optimizer is only applied if
+   * the schema is really pre-processed (see
+   * {@link #getForcedPreprocessedSchema(PSSchema)}).
+   *
+   * @param aXPathOptimizer
+   *        The optimizer to use. May be <code>null</code> to disable the
+   *        optimization.
+   * @return this for chaining
+   * @since 5.0.5
+   */
+  @Nonnull
+  public PSPreprocessor setXPathOptimizer (@Nullable final PSXPathOptimizer aXPathOptimizer)
+  {
+    m_aXPathOptimizer = aXPathOptimizer;
+    return this;
+  }
+
+  @Nullable
+  private String _optimize (@Nullable final String sExpression, @Nullable final String sQueryBinding)
+  {
+    if (m_aXPathOptimizer == null)
+      return sExpression;
+    return m_aXPathOptimizer.getOptimizedExpression (sExpression, sQueryBinding);
+  }
+
+  @Nonnull
+  private PSLet _getPreprocessedLet (@Nonnull final PSLet aLet, @Nullable final String sQueryBinding)
+  {
+    final PSLet ret = aLet.getClone ();
+    ret.setValue (_optimize (ret.getValue (), sQueryBinding));
+    return ret;
+  }
+
+  /**
+   * Preprocessed schemas are long living and many asserts share the same flags,
+   * contexts and tests, so the strings are interned to share the memory.
+   *
+   * @param s
+   *        Source string. May be <code>null</code>.
+   * @return The interned string or <code>null</code>.
+   */
+  @Nullable
+  private static String _intern (@Nullable final String s)
+  {
+    return s == null ? null : s.intern ();
+  }
+
   @Nonnull
-  private static PSPhase _getPreprocessedPhase (@Nonnull final PSPhase aPhase,
-                                                @Nonnull final PreprocessorIDPool aIDPool) throws SchematronPreprocessException
+  private PSPhase _getPreprocessedPhase (@Nonnull final PSPhase aPhase,
+                                         @Nonnull final PreprocessorIDPool aIDPool,
+                                         @Nullable final String sQueryBinding) throws SchematronPreprocessException
   {
     final PSPhase ret = new PSPhase ();
     ret.setID (aIDPool.getUniqueID (aPhase.getID ()));
@@ -220,11 +282,13 @@ public class PSPreprocessor
         ret.addActive (((PSActive) aElement).getClone ());
       else
         if (aElement instanceof PSLet)
-          ret.addLet (((PSLet) aElement).getClone ());
+          ret.addLet (_getPreprocessedLet ((PSLet) aElement, sQueryBinding));
       // ps are ignored
     }
-    ret.addForeignElements (aPhase.getAllForeignElements ());
-    ret.addForeignAttributes (aPhase.getAllForeignAttributes ());
+    if (aPhase.hasForeignElements ())
+      ret.addForeignElements (aPhase.getAllForeignElements ());
+    if (aPhase.hasForeignAttributes ())
+      ret.addForeignAttributes (aPhase.getAllForeignAttributes ());
     return ret;
   }
 
@@ -244,6 +308,7 @@ public class PSPreprocessor
                                     @Nonnull final PreprocessorLookup aLookup,
                                     @Nonnull final PreprocessorIDPool aIDPool,
                                     @Nullable final ICommonsMap <String, String> aParamValueMap,
+                                    @Nullable final String sQueryBinding,
                                     @Nonnull final PSRule aTargetRule) throws SchematronPreprocessException
   {
     for (final IPSElement aElement : aRuleContent)
@@ -251,7 +316,7 @@ public class PSPreprocessor
       if (aElement instanceof PSAssertReport)
       {
         final PSAssertReport aAssertReport = (PSAssertReport) aElement;
-        aTargetRule.addAssertReport (_getPreprocessedAssert (aAssertReport, aIDPool, aParamValueMap));
+        aTargetRule.addAssertReport (_getPreprocessedAssert (aAssertReport, aIDPool, aParamValueMap, sQueryBinding));
       }
       else
       {
@@ -265,11 +330,16 @@ public class PSPreprocessor
                                                    aLookup.getAllAbstractRuleIDs ());
 
         // Recursively resolve the extends of the base rule
-        _resolveRuleContent (aBaseRule.getAllContentElements (), aLookup, aIDPool, aParamValueMap, aTargetRule);
+        _resolveRuleContent (aBaseRule.getAllContentElements (),
+                             aLookup,
+                             aIDPool,
+                             aParamValueMap,
+                             sQueryBinding,
+                             aTargetRule);
 
         // Copy all lets
         for (final PSLet aBaseLet : aBaseRule.getAllLets ())
-          aTargetRule.addLet (aBaseLet.getClone ());
+          aTargetRule.addLet (_getPreprocessedLet (aBaseLet, sQueryBinding));
       }
     }
   }
@@ -277,7 +347,8 @@ public class PSPreprocessor
   @Nonnull
   private PSAssertReport _getPreprocessedAssert (@Nonnull final PSAssertReport aAssertReport,
                                                  @Nonnull final PreprocessorIDPool aIDPool,
-                                                 @Nullable final ICommonsMap <String, String> aParamValueMap)
+                                                 @Nullable final ICommonsMap <String, String> aParamValueMap,
+                                                 @Nullable final String sQueryBinding)
   {
     String sTest = aAssertReport.getTest ();
     if (aAssertReport.isReport () && !m_bKeepReports)
@@ -288,8 +359,9 @@ public class PSPreprocessor
 
     // Keep report or make it always an assert
     final PSAssertReport ret = new PSAssertReport (m_bKeepReports ? aAssertReport.isAssert () : true);
-    ret.setTest (m_aQueryBinding.getWithParamTextsReplaced (sTest, aParamValueMap));
-    ret.setFlag (aAssertReport.getFlag ());
+    ret.setTest (_intern (_optimize (m_aQueryBinding.getWithParamTextsReplaced (sTest, aParamValueMap),
+                                     sQueryBinding)));
+    ret.setFlag (_intern (aAssertReport.getFlag ()));
     ret.setID (aIDPool.getUniqueID (aAssertReport.getID ()));
     if (m_bKeepDiagnostics)
       ret.setDiagnostics (aAssertReport.getAllDiagnostics ());
@@ -306,7 +378,9 @@ public class PSPreprocessor
           if (aContent instanceof PSValueOf)
           {
             final PSValueOf aValueOf = ((PSValueOf) aContent).getClone ();
-            aValueOf.setSelect (m_aQueryBinding.getWithParamTextsReplaced (aValueOf.getSelect (), aParamValueMap));
+            aValueOf.setSelect (_optimize (m_aQueryBinding.getWithParamTextsReplaced (aValueOf.getSelect (),
+                                                                                      aParamValueMap),
+                                           sQueryBinding));
             ret.addValueOf (aValueOf);
           }
           else
@@ -319,8 +393,10 @@ public class PSPreprocessor
                 if (aContent instanceof PSSpan)
                   ret.addSpan (((PSSpan) aContent).getClone ());
     }
-    ret.addForeignElements (aAssertReport.getAllForeignElements ());
-    ret.addForeignAttributes (aAssertReport.getAllForeignAttributes ());
+    if (aAssertReport.hasForeignElements ())
+      ret.addForeignElements (aAssertReport.getAllForeignElements ());
+    if (aAssertReport.hasForeignAttributes ())
+      ret.addForeignAttributes (aAssertReport.getAllForeignAttributes ());
     return ret;
   }
 
@@ -328,7 +404,8 @@ public class PSPreprocessor
   private PSRule _getPreprocessedRule (@Nonnull final PSRule aRule,
                                        @Nonnull final PreprocessorLookup aLookup,
                                        @Nonnull final PreprocessorIDPool aIDPool,
-                                       @Nullable final ICommonsMap <String, String> aParamValueMap) throws SchematronPreprocessException
+                                       @Nullable final ICommonsMap <String, String> aParamValueMap,
+                                       @Nullable final String sQueryBinding) throws SchematronPreprocessException
   {
     if (aRule.isAbstract ())
     {
@@ -337,26 +414,31 @@ public class PSPreprocessor
     }
 
     final PSRule ret = new PSRule ();
-    ret.setFlag (aRule.getFlag ());
+    ret.setFlag (_intern (aRule.getFlag ()));
     ret.setRich (aRule.getRichClone ());
     ret.setLinkable (aRule.getLinkableClone ());
     // abstract is always false
-    ret.setContext (m_aQueryBinding.getWithParamTextsReplaced (aRule.getContext (), aParamValueMap));
+    ret.setContext (_intern (_optimize (m_aQueryBinding.getWithParamTextsReplaced (aRule.getContext (),
+                                                                                   aParamValueMap),
+                                        sQueryBinding)));
     ret.setID (aIDPool.getUniqueID (aRule.getID ()));
     if (aRule.hasAnyInclude ())
       throw new SchematronPreprocessException ("Cannot preprocess <rule> with an <include>");
     for (final PSLet aLet : aRule.getAllLets ())
-      ret.addLet (aLet.getClone ());
-    _resolveRuleContent (aRule.getAllContentElements (), aLookup, aIDPool, aParamValueMap, ret);
-    ret.addForeignElements (aRule.getAllForeignElements ());
-    ret.addForeignAttributes (aRule.getAllForeignAttributes ());
+      ret.addLet (_getPreprocessedLet (aLet, sQueryBinding));
+    _resolveRuleContent (aRule.getAllContentElements (), aLookup, aIDPool, aParamValueMap, sQueryBinding, ret);
+    if (aRule.hasForeignElements ())
+      ret.addForeignElements (aRule.getAllForeignElements ());
+    if (aRule.hasForeignAttributes ())
+      ret.addForeignAttributes (aRule.getAllForeignAttributes ());
     return ret;
   }
 
   @Nullable
   private PSPattern _getPreprocessedPattern (@Nonnull final PSPattern aPattern,
                                              @Nonnull final PreprocessorLookup aLookup,
-                                             @Nonnull final PreprocessorIDPool aIDPool) throws SchematronPreprocessException
+                                             @Nonnull final PreprocessorIDPool aIDPool,
+                                             @Nullable final String sQueryBinding) throws SchematronPreprocessException
   {
     if (aPattern.isAbstract ())
     {
@@ -392,11 +474,15 @@ public class PSPreprocessor
       for (final IPSElement aElement : aBasePattern.getAllContentElements ())
       {
         if (aElement instanceof PSLet)
-          ret.addLet (((PSLet) aElement).getClone ());
+          ret.addLet (_getPreprocessedLet ((PSLet) aElement, sQueryBinding));
         else
           if (aElement instanceof PSRule)
           {
-            final PSRule aMinifiedRule = _getPreprocessedRule ((PSRule) aElement, aLookup, aIDPool, aParamValueMap);
+            final PSRule aMinifiedRule = _getPreprocessedRule ((PSRule) aElement,
+                                                                 aLookup,
+                                                                 aIDPool,
+                                                                 aParamValueMap,
+                                                                 sQueryBinding);
             if (aMinifiedRule != null)
               ret.addRule (aMinifiedRule);
           }
@@ -409,11 +495,15 @@ public class PSPreprocessor
       for (final IPSElement aElement : aPattern.getAllContentElements ())
       {
         if (aElement instanceof PSLet)
-          ret.addLet (((PSLet) aElement).getClone ());
+          ret.addLet (_getPreprocessedLet ((PSLet) aElement, sQueryBinding));
         else
           if (aElement instanceof PSRule)
           {
-            final PSRule aMinifiedRule = _getPreprocessedRule ((PSRule) aElement, aLookup, aIDPool, null);
+            final PSRule aMinifiedRule = _getPreprocessedRule ((PSRule) aElement,
+                                                                 aLookup,
+                                                                 aIDPool,
+                                                                 null,
+                                                                 sQueryBinding);
             if (aMinifiedRule != null)
               ret.addRule (aMinifiedRule);
           }
@@ -421,8 +511,10 @@ public class PSPreprocessor
         // ps are ignored
       }
     }
-    ret.addForeignElements (aPattern.getAllForeignElements ());
-    ret.addForeignAttributes (aPattern.getAllForeignAttributes ());
+    if (aPattern.hasForeignElements ())
+      ret.addForeignElements (aPattern.getAllForeignElements ());
+    if (aPattern.hasForeignAttributes ())
+      ret.addForeignAttributes (aPattern.getAllForeignAttributes ());
     return ret;
   }
 
@@ -434,8 +526,10 @@ public class PSPreprocessor
       throw new SchematronPreprocessException ("Cannot preprocess <diagnostics> with an <include>");
     for (final PSDiagnostic aDiagnostic : aDiagnostics.getAllDiagnostics ())
       ret.addDiagnostic (aDiagnostic.getClone ());
-    ret.addForeignElements (aDiagnostics.getAllForeignElements ());
-    ret.addForeignAttributes (aDiagnostics.getAllForeignAttributes ());
+    if (aDiagnostics.hasForeignElements ())
+      ret.addForeignElements (aDiagnostics.getAllForeignElements ());
+    if (aDiagnostics.hasForeignAttributes ())
+      ret.addForeignAttributes (aDiagnostics.getAllForeignAttributes ());
     return ret;
   }
 
@@ -506,6 +600,7 @@ public class PSPreprocessor
 
     final PreprocessorLookup aLookup = new PreprocessorLookup (aSchema);
     final PreprocessorIDPool aIDPool = new PreprocessorIDPool ();
+    final String sQueryBinding = aSchema.getQueryBinding ();
 
     final PSSchema ret = new PSSchema (aSchema.getResource ());
     ret.setID (aIDPool.getUniqueID (aSchema.getID ()));
@@ -521,12 +616,12 @@ public class PSPreprocessor
       ret.addNS (aNS.getClone ());
     // start ps are skipped
     for (final PSLet aLet : aSchema.getAllLets ())
-      ret.addLet (aLet.getClone ());
+      ret.addLet (_getPreprocessedLet (aLet, sQueryBinding));
     for (final PSPhase aPhase : aSchema.getAllPhases ())
-      ret.addPhase (_getPreprocessedPhase (aPhase, aIDPool));
+      ret.addPhase (_getPreprocessedPhase (aPhase, aIDPool, sQueryBinding));
     for (final PSPattern aPattern : aSchema.getAllPatterns ())
     {
-      final PSPattern aMinifiedPattern = _getPreprocessedPattern (aPattern, aLookup, aIDPool);
+      final PSPattern aMinifiedPattern = _getPreprocessedPattern (aPattern, aLookup, aIDPool, sQueryBinding);
       if (aMinifiedPattern != null)
       {
         // Pattern without rules?
@@ -542,8 +637,10 @@ public class PSPreprocessor
     // end ps are skipped
     if (m_bKeepDiagnostics && aSchema.hasDiagnostics ())
       ret.setDiagnostics (_getPreprocessedDiagnostics (aSchema.getDiagnostics ()));
-    ret.addForeignElements (aSchema.getAllForeignElements ());
-    ret.addForeignAttributes (aSchema.getAllForeignAttributes ());
+    if (aSchema.hasForeignElements ())
+      ret.addForeignElements (aSchema.getAllForeignElements ());
+    if (aSchema.hasForeignAttributes ())
+      ret.addForeignAttributes (aSchema.getAllForeignAttributes ());
     return ret;
   }
 
@@ -556,6 +653,7 @@ public class PSPreprocessor
                                        .append ("keepReports", m_bKeepReports)
                                        .append ("keepEmptyPatterns", m_bKeepEmptyPatterns)
                                        .append ("keepEmptySchema", m_bKeepEmptySchema)
+                                       .appendIfNotNull ("XPathOptimizer", m_aXPathOptimizer)
                                        .getToString ();
   }
 
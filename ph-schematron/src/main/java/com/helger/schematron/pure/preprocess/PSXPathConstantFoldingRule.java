@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.preprocess;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.schematron.pure.bound.xpath.PSXPathRewriteHelper;
+
+/**
+ * Rewrite rule that evaluates function calls with constant arguments at
+ * pre-processing time:
+ * <ul>
+ * <li><code>not(true())</code> and <code>not(false())</code></li>
+ * <li><code>concat</code> with only string literal arguments</li>
+ * <li><code>string</code> and <code>normalize-space</code> with a string
+ * literal argument</li>
+ * </ul>
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class PSXPathConstantFoldingRule extends AbstractPSXPathFunctionCallRewriteRule
+{
+  /** The ID of this rule */
+  public static final String ID = "constant-folding";
+
+  public PSXPathConstantFoldingRule ()
+  {
+    super (ID, "not", "concat", "string", "normalize-space");
+  }
+
+  @Nullable
+  private static String _getAsLiteral (@Nonnull final String sValue)
+  {
+    if (sValue.indexOf ('\'') < 0)
+      return '\'' + sValue + '\'';
+    if (sValue.indexOf ('"') < 0)
+      return '"' + sValue + '"';
+    // Cannot be expressed as a single literal
+    return null;
+  }
+
+  @Nonnull
+  private static String _getLiteralValue (@Nonnull final String sLiteral)
+  {
+    return sLiteral.substring (1, sLiteral.length () - 1);
+  }
+
+  @Nonnull
+  private static String _getNormalizedSpace (@Nonnull final String sValue)
+  {
+    // XPath whitespace only
+    final StringBuilder aSB = new StringBuilder (sValue.length ());
+    boolean bPendingSpace = false;
+    for (final char c : sValue.toCharArray ())
+    {
+      if (c == ' ' || c == '\t' || c == '\r' || c == '\n')
+        bPendingSpace = aSB.length () > 0;
+      else
+      {
+        if (bPendingSpace)
+          aSB.append (' ');
+        bPendingSpace = false;
+        aSB.append (c);
+      }
+    }
+    return aSB.toString ();
+  }
+
+  @Nullable
+  private static String _getFolded (@Nonnull final String sFunctionName, @Nonnull final String sArgs)
+  {
+    final ICommonsList <String> aArgs = PSXPathRewriteHelper.getTopLevelSplit (sArgs, ',');
+    for (int i = 0; i < aArgs.size (); ++i)
+      aArgs.set (i, aArgs.get (i).trim ());
+
+    switch (sFunctionName)
+    {
+      case "not":
+      {
+        if (aArgs.size () != 1)
+          return null;
+        final String sArg = aArgs.getFirst ().replaceAll ("\\s+", "");
+        if (sArg.equals ("true()"))
+          return "false()";
+        if (sArg.equals ("false()"))
+          return "true()";
+        return null;
+      }
+      case "concat":
+      {
+        if (aArgs.size () < 2)
+          return null;
+        final StringBuilder aSB = new StringBuilder ();
+        for (final String sArg : aArgs)
+        {
+          if (!isStringLiteral (sArg))
+            return null;
+          aSB.append (_getLiteralValue (sArg));
+        }
+        return _getAsLiteral (aSB.toString ());
+      }
+      case "string":
+        if (aArgs.size () != 1 || !isStringLiteral (aArgs.getFirst ()))
+          return null;
+        return aArgs.getFirst ();
+      case "normalize-space":
+        if (aArgs.size () != 1 || !isStringLiteral (aArgs.getFirst ()))
+          return null;
+        return _getAsLiteral (_getNormalizedSpace (_getLiteralValue (aArgs.getFirst ())));
+      default:
+        return null;
+    }
+  }
+
+  @Override
+  @Nullable
+  protected Replacement getReplacement (@Nonnull final String sExpr,
+                                        @Nonnull final String sFunctionName,
+                                        @Nonnegative final int nStart,
+                                        @Nonnegative final int nOpen,
+                                        @Nonnegative final int nClose,
+                                        @Nullable final String sQueryBinding)
+  {
+    final String sFolded = _getFolded (sFunctionName, sExpr.substring (nOpen + 1, nClose));
+    return sFolded == null ? null : new Replacement (nClose + 1, sFolded);
+  }
+}
@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.preprocess;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.string.StringHelper;
+import com.helger.schematron.pure.binding.PSQueryBindingRegistry;
+import com.helger.schematron.pure.bound.xpath.PSXPathRewriteHelper;
+
+/**
+ * Rewrite rule that replaces comparisons of <code>count(x)</code> with 0 or 1
+ * by existence checks, that can stop after the first item:
+ * <ul>
+ * <li><code>count(x) &gt; 0</code>, <code>count(x) != 0</code> and
+ * <code>count(x) &gt;= 1</code> become <code>exists(x)</code></li>
+ * <li><code>count(x) = 0</code> becomes <code>empty(x)</code></li>
+ * </ul>
+ * For XPath 1.0 query bindings the rewrite is only done if <code>x</code> is a
+ * simple location path, and <code>boolean(x)</code> and <code>not(x)</code> are
+ * used instead. Comparisons are only rewritten if no operator with a higher
+ * precedence is adjacent.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class PSXPathCountComparisonRule extends AbstractPSXPathFunctionCallRewriteRule
+{
+  /** The ID of this rule */
+  public static final String ID = "count-comparison";
+
+  private static final String [] LOW_PRECEDENCE_KEYWORDS_BEFORE = { "and", "or", "then", "else", "return", "satisfies" };
+  private static final String [] LOW_PRECEDENCE_KEYWORDS_AFTER = { "and", "or", "else" };
+  private static final String [] NODE_TESTS = { "text()", "node()", "comment()", "processing-instruction()" };
+
+  public PSXPathCountComparisonRule ()
+  {
+    super (ID, "count");
+  }
+
+  /**
+   * @param sQueryBinding
+   *        Query binding to check. May be <code>null</code>.
+   * @return <code>true</code> if the query binding uses XPath 2.0 or later.
+   */
+  public static boolean isXPath2OrLater (@Nullable final String sQueryBinding)
+  {
+    return PSQueryBindingRegistry.QUERY_BINDING_XSLT2.equalsIgnoreCase (sQueryBinding) ||
+           "xslt3".equalsIgnoreCase (sQueryBinding);
+  }
+
+  private static boolean _isKeywordAt (@Nonnull final String sExpr,
+                                       @Nonnegative final int nStart,
+                                       @Nonnull final String sKeyword)
+  {
+    final int nEnd = nStart + sKeyword.length ();
+    return nStart >= 0 &&
+           sExpr.startsWith (sKeyword, nStart) &&
+           (nStart == 0 || !PSXPathRewriteHelper.isNameChar (sExpr.charAt (nStart - 1))) &&
+           (nEnd == sExpr.length () || !PSXPathRewriteHelper.isNameChar (sExpr.charAt (nEnd)));
+  }
+
+  private static boolean _isLowPrecedenceBefore (@Nonnull final String sExpr, final int nStart)
+  {
+    int i = nStart - 1;
+    while (i >= 0 && Character.isWhitespace (sExpr.charAt (i)))
+      i--;
+    if (i < 0)
+      return true;
+    final char c = sExpr.charAt (i);
+    if (c == '(' || c == '[' || c == ',')
+      return true;
+    for (final String sKeyword : LOW_PRECEDENCE_KEYWORDS_BEFORE)
+      if (_isKeywordAt (sExpr, i - sKeyword.length () + 1, sKeyword))
+        return true;
+    return false;
+  }
+
+  private static boolean _isLowPrecedenceAfter (@Nonnull final String sExpr, final int nEnd)
+  {
+    final int i = skipWhitespaces (sExpr, nEnd);
+    if (i == sExpr.length ())
+      return true;
+    final char c = sExpr.charAt (i);
+    if (c == ')' || c == ']' || c == ',')
+      return true;
+    for (final String sKeyword : LOW_PRECEDENCE_KEYWORDS_AFTER)
+      if (_isKeywordAt (sExpr, i, sKeyword))
+        return true;
+    return false;
+  }
+
+  /**
+   * Check if the passed expression is a simple location path, that is
+   * guaranteed to return a node set.
+   *
+   * @param sExpr
+   *        Trimmed expression. May not be <code>null</code>.
+   * @return <code>true</code> if it is a simple location path.
+   */
+  static boolean isSimpleLocationPath (@Nonnull final String sExpr)
+  {
+    if (sExpr.isEmpty ())
+      return false;
+
+    // Remove all predicates
+    final StringBuilder aSB = new StringBuilder (sExpr.length ());
+    int nDepth = 0;
+    int i = 0;
+    while (i < sExpr.length ())
+    {
+      final char c = sExpr.charAt (i);
+      if (c == '\'' || c == '"')
+      {
+        if (nDepth == 0)
+          return false;
+        i = PSXPathRewriteHelper.getStringLiteralEnd (sExpr, i);
+        continue;
+      }
+      if (c == '[')
+        nDepth++;
+      else
+        if (c == ']')
+        {
+          if (nDepth == 0)
+            return false;
+          nDepth--;
+        }
+        else
+          if (nDepth == 0)
+            aSB.append (c);
+      i++;
+    }
+    if (nDepth != 0)
+      return false;
+
+    String sPath = aSB.toString ();
+    for (final String sNodeTest : NODE_TESTS)
+      sPath = sPath.replace (sNodeTest, "x");
+    for (final char c : sPath.toCharArray ())
+      if (c != '/' && c != '*' && (c == '$' || !PSXPathRewriteHelper.isNameChar (c)))
+        return false;
+
+    // Exclude numbers and unary minus
+    for (final String sStep : StringHelper.getExploded ('/', sPath))
+      if (sStep.length () > 0)
+      {
+        final char cFirst = sStep.charAt (0);
+        if (Character.isDigit (cFirst) ||
+            cFirst == '-' ||
+            (cFirst == '.' && sStep.length () > 1 && Character.isDigit (sStep.charAt (1))))
+          return false;
+      }
+    return true;
+  }
+
+  @Override
+  @Nullable
+  protected Replacement getReplacement (@Nonnull final String sExpr,
+                                        @Nonnull final String sFunctionName,
+                                        @Nonnegative final int nStart,
+                                        @Nonnegative final int nOpen,
+                                        @Nonnegative final int nClose,
+                                        @Nullable final String sQueryBinding)
+  {
+    // Determine operator
+    final int nOp = skipWhitespaces (sExpr, nClose + 1);
+    final String sOp;
+    if (sExpr.startsWith (">=", nOp))
+      sOp = ">=";
+    else
+      if (sExpr.startsWith ("!=", nOp))
+        sOp = "!=";
+      else
+        if (sExpr.startsWith (">", nOp))
+          sOp = ">";
+        else
+          if (sExpr.startsWith ("=", nOp))
+            sOp = "=";
+          else
+            return null;
+
+    // Determine the number
+    final int nNumberStart = skipWhitespaces (sExpr, nOp + sOp.length ());
+    int nNumberEnd = nNumberStart;
+    while (nNumberEnd < sExpr.length () && Character.isDigit (sExpr.charAt (nNumberEnd)))
+      nNumberEnd++;
+    if (nNumberEnd == nNumberStart ||
+        (nNumberEnd < sExpr.length () &&
+         (sExpr.charAt (nNumberEnd) == '.' || PSXPathRewriteHelper.isNameChar (sExpr.charAt (nNumberEnd)))))
+      return null;
+    final String sNumber = sExpr.substring (nNumberStart, nNumberEnd);
+
+    final boolean bExists;
+    if ((sOp.equals (">") || sOp.equals ("!=")) && sNumber.equals ("0"))
+      bExists = true;
+    else
+      if (sOp.equals (">=") && sNumber.equals ("1"))
+        bExists = true;
+      else
+        if (sOp.equals ("=") && sNumber.equals ("0"))
+          bExists = false;
+        else
+          return null;
+
+    // Operator precedence
+    if (!_isLowPrecedenceBefore (sExpr, nStart) || !_isLowPrecedenceAfter (sExpr, nNumberEnd))
+      return null;
+
+    final String sArg = sExpr.substring (nOpen + 1, nClose).trim ();
+    if (isXPath2OrLater (sQueryBinding))
+      return new Replacement (nNumberEnd, (bExists ? "exists(" : "empty(") + sArg + ")");
+    if (!isSimpleLocationPath (sArg))
+      return null;
+    return new Replacement (nNumberEnd, (bExists ? "boolean(" : "not(") + sArg + ")");
+  }
+}
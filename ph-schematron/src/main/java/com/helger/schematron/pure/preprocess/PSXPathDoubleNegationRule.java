@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.preprocess;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.schematron.pure.bound.xpath.PSXPathRewriteHelper;
+
+/**
+ * Rewrite rule that replaces <code>not(not(x))</code> with the equivalent
+ * <code>boolean(x)</code>.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class PSXPathDoubleNegationRule extends AbstractPSXPathFunctionCallRewriteRule
+{
+  /** The ID of this rule */
+  public static final String ID = "double-negation";
+
+  public PSXPathDoubleNegationRule ()
+  {
+    super (ID, "not");
+  }
+
+  @Override
+  @Nullable
+  protected Replacement getReplacement (@Nonnull final String sExpr,
+                                        @Nonnull final String sFunctionName,
+                                        @Nonnegative final int nStart,
+                                        @Nonnegative final int nOpen,
+                                        @Nonnegative final int nClose,
+                                        @Nullable final String sQueryBinding)
+  {
+    final String sArg = sExpr.substring (nOpen + 1, nClose).trim ();
+    if (!sArg.startsWith ("not") || sArg.length () <= 3 || PSXPathRewriteHelper.isNameChar (sArg.charAt (3)))
+      return null;
+
+    // The inner not must span the whole argument
+    final int nInnerOpen = skipWhitespaces (sArg, 3);
+    if (nInnerOpen >= sArg.length () ||
+        sArg.charAt (nInnerOpen) != '(' ||
+        PSXPathRewriteHelper.getMatchingClosingParenthesis (sArg, nInnerOpen) != sArg.length () - 1)
+      return null;
+
+    return new Replacement (nClose + 1, "boolean(" + sArg.substring (nInnerOpen + 1, sArg.length () - 1) + ")");
+  }
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.preprocess;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashSet;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.collection.impl.ICommonsOrderedSet;
+import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A pipeline of {@link IPSXPathRewriteRule} objects that is applied by the
+ * {@link PSPreprocessor} to all rule contexts, test expressions, value-of
+ * selects and let values. All enabled rules are applied in the order they were
+ * added, and the whole pipeline is repeated until no more rule matches (at
+ * most {@link #getMaxPasses()} times).<br>
+ * Note: as the rewritten expressions are part of the pre-processed schema,
+ * the "test" attributes in the created SVRL show the rewritten expression.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class PSXPathOptimizer
+{
+  public static final int DEFAULT_MAX_PASSES = 5;
+  public static final boolean DEFAULT_TRACE_ENABLED = false;
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (PSXPathOptimizer.class);
+
+  private final ICommonsOrderedMap <String, IPSXPathRewriteRule> m_aRules = new CommonsLinkedHashMap <> ();
+  private final ICommonsSet <String> m_aDisabledRuleIDs = new CommonsHashSet <> ();
+  private int m_nMaxPasses = DEFAULT_MAX_PASSES;
+  private boolean m_bTraceEnabled = DEFAULT_TRACE_ENABLED;
+  private final ICommonsList <PSXPathRewriteTraceItem> m_aTrace = new CommonsArrayList <> ();
+
+  public PSXPathOptimizer ()
+  {}
+
+  /**
+   * Add a new rewrite rule. The rule is enabled by default.
+   *
+   * @param aRule
+   *        The rule to add. May not be <code>null</code>. The ID of the rule
+   *        must be unique.
+   * @return this for chaining
+   */
+  @Nonnull
+  public PSXPathOptimizer addRule (@Nonnull final IPSXPathRewriteRule aRule)
+  {
+    ValueEnforcer.notNull (aRule, "Rule");
+    final String sID = aRule.getID ();
+    if (m_aRules.containsKey (sID))
+      throw new IllegalArgumentException ("Another rewrite rule with ID '" + sID + "' is already registered");
+    m_aRules.put (sID, aRule);
+    return this;
+  }
+
+  /**
+   * @return The IDs of all registered rules in the order they are applied.
+   *         Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedSet <String> getAllRuleIDs ()
+  {
+    return m_aRules.copyOfKeySet ();
+  }
+
+  /**
+   * @param sRuleID
+   *        The rule ID to check. May be <code>null</code>.
+   * @return <code>true</code> if a rule with the passed ID is registered and
+   *         enabled.
+   */
+  public boolean isRuleEnabled (@Nullable final String sRuleID)
+  {
+    return m_aRules.containsKey (sRuleID) && !m_aDisabledRuleIDs.contains (sRuleID);
+  }
+
+  /**
+   * Enable or disable a registered rule.
+   *
+   * @param sRuleID
+   *        The ID of the rule. May not be <code>null</code>.
+   * @param bEnabled
+   *        <code>true</code> to enable the rule, <code>false</code> to disable
+   *        it.
+   * @return this for chaining
+   */
+  @Nonnull
+  public PSXPathOptimizer setRuleEnabled (@Nonnull final String sRuleID, final boolean bEnabled)
+  {
+    ValueEnforcer.notNull (sRuleID, "RuleID");
+    if (!m_aRules.containsKey (sRuleID))
+      throw new IllegalArgumentException ("No rewrite rule with ID '" + sRuleID + "' is registered");
+    if (bEnabled)
+      m_aDisabledRuleIDs.remove (sRuleID);
+    else
+      m_aDisabledRuleIDs.add (sRuleID);
+    return this;
+  }
+
+  /**
+   * @return The maximum number of passes over an expression. Always &gt; 0.
+   *         Default is {@value #DEFAULT_MAX_PASSES}.
+   */
+  @Nonnegative
+  public int getMaxPasses ()
+  {
+    return m_nMaxPasses;
+  }
+
+  /**
+   * @param nMaxPasses
+   *        The maximum number of passes over an expression. Must be &gt; 0.
+   * @return this for chaining
+   */
+  @Nonnull
+  public PSXPathOptimizer setMaxPasses (@Nonnegative final int nMaxPasses)
+  {
+    ValueEnforcer.isGT0 (nMaxPasses, "MaxPasses");
+    m_nMaxPasses = nMaxPasses;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if all applied rewrites are recorded. Default is
+   *         {@value #DEFAULT_TRACE_ENABLED}.
+   */
+  public boolean isTraceEnabled ()
+  {
+    return m_bTraceEnabled;
+  }
+
+  /**
+   * @param bTraceEnabled
+   *        <code>true</code> to record all applied rewrites,
+   *        <code>false</code> to disable it.
+   * @return this for chaining
+   */
+  @Nonnull
+  public PSXPathOptimizer setTraceEnabled (final boolean bTraceEnabled)
+  {
+    m_bTraceEnabled = bTraceEnabled;
+    return this;
+  }
+
+  /**
+   * @return All recorded rewrites in the order they were applied. Never
+   *         <code>null</code>.
+   * @see #setTraceEnabled(boolean)
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <PSXPathRewriteTraceItem> getAllTraceItems ()
+  {
+    return m_aTrace.getClone ();
+  }
+
+  /**
+   * Remove all recorded rewrites.
+   *
+   * @return this for chaining
+   */
+  @Nonnull
+  public PSXPathOptimizer clearTrace ()
+  {
+    m_aTrace.clear ();
+    return this;
+  }
+
+  /**
+   * Optimize the passed expression using all enabled rules.
+   *
+   * @param sExpression
+   *        The expression to optimize. May be <code>null</code>.
+   * @param sQueryBinding
+   *        The query binding of the schema. May be <code>null</code>.
+   * @return <code>null</code> if the passed expression is <code>null</code>.
+   */
+  @Nullable
+  public String getOptimizedExpression (@Nullable final String sExpression, @Nullable final String sQueryBinding)
+  {
+    if (sExpression == null)
+      return null;
+
+    String ret = sExpression;
+    for (int nPass = 0; nPass < m_nMaxPasses; ++nPass)
+    {
+      boolean bChanged = false;
+      for (final IPSXPathRewriteRule aRule : m_aRules.values ())
+        if (!m_aDisabledRuleIDs.contains (aRule.getID ()))
+        {
+          final String sRewritten = aRule.getRewrittenExpression (ret, sQueryBinding);
+          if (!sRewritten.equals (ret))
+          {
+            if (s_aLogger.isDebugEnabled ())
+              s_aLogger.debug ("Rewrite rule '" + aRule.getID () + "' changed '" + ret + "' to '" + sRewritten + "'");
+            if (m_bTraceEnabled)
+              m_aTrace.add (new PSXPathRewriteTraceItem (aRule.getID (), ret, sRewritten));
+            ret = sRewritten;
+            bChanged = true;
+          }
+        }
+      if (!bChanged)
+        break;
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("rules", m_aRules.keySet ())
+                                       .append ("disabledRuleIDs", m_aDisabledRuleIDs)
+                                       .append ("maxPasses", m_nMaxPasses)
+                                       .append ("traceEnabled", m_bTraceEnabled)
+                                       .getToString ();
+  }
+
+  /**
+   * @return A new optimizer with all built-in rules: constant folding, double
+   *         negation removal and count comparison simplification.
+   */
+  @Nonnull
+  public static PSXPathOptimizer createDefault ()
+  {
+    return new PSXPathOptimizer ().addRule (new PSXPathConstantFoldingRule ())
+                                  .addRule (new PSXPathDoubleNegationRule ())
+                                  .addRule (new PSXPathCountComparisonRule ());
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.preprocess;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A single entry of the trace of {@link PSXPathOptimizer}.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class PSXPathRewriteTraceItem
+{
+  private final String m_sRuleID;
+  private final String m_sOriginalExpression;
+  private final String m_sRewrittenExpression;
+
+  public PSXPathRewriteTraceItem (@Nonnull final String sRuleID,
+                                  @Nonnull final String sOriginalExpression,
+                                  @Nonnull final String sRewrittenExpression)
+  {
+    m_sRuleID = ValueEnforcer.notNull (sRuleID, "RuleID");
+    m_sOriginalExpression = ValueEnforcer.notNull (sOriginalExpression, "OriginalExpression");
+    m_sRewrittenExpression = ValueEnforcer.notNull (sRewrittenExpression, "RewrittenExpression");
+  }
+
+  /**
+   * @return The ID of the rewrite rule that was applied. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public String getRuleID ()
+  {
+    return m_sRuleID;
+  }
+
+  /**
+   * @return The expression before the rule was applied. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public String getOriginalExpression ()
+  {
+    return m_sOriginalExpression;
+  }
+
+  /**
+   * @return The expression after the rule was applied. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public String getRewrittenExpression ()
+  {
+    return m_sRewrittenExpression;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ruleID", m_sRuleID)
+                                       .append ("originalExpression", m_sOriginalExpression)
+                                       .append ("rewrittenExpression", m_sRewrittenExpression)
+                                       .getToString ();
+  }
+}
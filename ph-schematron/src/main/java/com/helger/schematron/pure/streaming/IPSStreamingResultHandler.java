@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.streaming;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+
+/**
+ * Callback interface for the results of {@link PSStreamingValidator}. If the
+ * chunks are validated in parallel, the implementation must be thread-safe
+ * and the results may be reported in any order.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@FunctionalInterface
+public interface IPSStreamingResultHandler
+{
+  /**
+   * Called for the validation result of a single chunk. The SVRL locations are
+   * relative to the chunk document, that only contains the header context and
+   * a single split element.
+   *
+   * @param nChunkIndex
+   *        The 0-based index of the chunk.
+   * @param aSVRL
+   *        The validation result of the chunk. Never <code>null</code>.
+   */
+  void onChunkResult (@Nonnegative int nChunkIndex, @Nonnull SchematronOutputType aSVRL);
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.streaming;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.xml.namespace.QName;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.PresentForCodeCoverage;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.schematron.pure.bound.EPSAxisUsage;
+import com.helger.schematron.pure.bound.PSLocality;
+import com.helger.schematron.pure.bound.xpath.PSXPathBoundAssertReport;
+import com.helger.schematron.pure.bound.xpath.PSXPathBoundPattern;
+import com.helger.schematron.pure.bound.xpath.PSXPathBoundRule;
+import com.helger.schematron.pure.bound.xpath.PSXPathBoundSchema;
+import com.helger.schematron.pure.bound.xpath.PSXPathLocalityAnalyzer;
+
+/**
+ * A conservative static analysis of bound rules based on
+ * {@link PSXPathLocalityAnalyzer}, determining whether they can be evaluated
+ * on {@link PSStreamingChunk}s or whether they need access to the whole
+ * document. A rule is considered not streamable if its context or one of
+ * its tests
+ * <ul>
+ * <li>uses the <code>preceding</code>, <code>following</code>,
+ * <code>preceding-sibling</code> or <code>following-sibling</code> axis,</li>
+ * <li>uses the <code>parent</code>, <code>ancestor</code> or
+ * <code>ancestor-or-self</code> axis or <code>..</code>, because a chunk only
+ * contains a single split element below its ancestors,</li>
+ * <li>calls the <code>key</code>, <code>id</code> or <code>idref</code>
+ * function,</li>
+ * <li>or (tests only) contains an absolute path that starts with
+ * <code>//</code> or that refers to the split element.</li>
+ * </ul>
+ * Absolute paths that only access the header context (e.g.
+ * <code>/Envelope/Header/ID</code>) are considered streamable. The analysis is
+ * purely textual and cannot detect all problematic constructs (e.g. usage in
+ * user defined functions).
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public final class PSStreamingAnalyzer
+{
+  @PresentForCodeCoverage
+  private static final PSStreamingAnalyzer s_aInstance = new PSStreamingAnalyzer ();
+
+  private PSStreamingAnalyzer ()
+  {}
+
+  private static boolean _containsName (@Nonnull final Iterable <String> aNames, @Nonnull final String sLocalName)
+  {
+    for (final String sName : aNames)
+    {
+      final int nColon = sName.lastIndexOf (':');
+      if (sLocalName.equals (nColon >= 0 ? sName.substring (nColon + 1) : sName))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Get the reason why the passed expression is not streamable.
+   *
+   * @param sExpr
+   *        The expression to check. May not be <code>null</code>.
+   * @param aSplitElementName
+   *        The split element name. May not be <code>null</code>.
+   * @param bCheckAbsolutePaths
+   *        <code>true</code> to check absolute paths as well. This must be
+   *        <code>false</code> for rule contexts, that are always absolute.
+   * @return <code>null</code> if the expression is considered streamable.
+   */
+  @Nullable
+  public static String getNonStreamableReason (@Nonnull final String sExpr,
+                                               @Nonnull final QName aSplitElementName,
+                                               final boolean bCheckAbsolutePaths)
+  {
+    ValueEnforcer.notNull (sExpr, "Expr");
+    ValueEnforcer.notNull (aSplitElementName, "SplitElementName");
+
+    final PSLocality aLocality = PSXPathLocalityAnalyzer.getLocality (sExpr);
+    for (final EPSAxisUsage eUsage : new EPSAxisUsage [] { EPSAxisUsage.PRECEDING_FOLLOWING,
+                                                           EPSAxisUsage.ANCESTOR,
+                                                           EPSAxisUsage.KEY,
+                                                           EPSAxisUsage.ID })
+      if (aLocality.hasUsage (eUsage))
+        return "The expression '" + sExpr + "' uses '" + eUsage.getID () + "'";
+
+    if (bCheckAbsolutePaths)
+    {
+      if (aLocality.hasUsage (EPSAxisUsage.ROOT_DESCENDANT))
+        return "The expression '" + sExpr + "' searches the whole document via '//'";
+      if (_containsName (aLocality.getAllAbsolutePathElementNames (), aSplitElementName.getLocalPart ()))
+        return "The expression '" + sExpr + "' accesses the split element via an absolute path";
+    }
+    return null;
+  }
+
+  /**
+   * Get all rules of the passed bound schema that are not streamable.
+   *
+   * @param aBoundSchema
+   *        The bound schema to analyze. May not be <code>null</code>.
+   * @param aSplitElementName
+   *        The split element name. May not be <code>null</code>.
+   * @return A non-<code>null</code> but maybe empty ordered map from the rule
+   *         to the reason why it is not streamable.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static ICommonsOrderedMap <PSXPathBoundRule, String> getAllNonStreamableRules (@Nonnull final PSXPathBoundSchema aBoundSchema,
+                                                                                       @Nonnull final QName aSplitElementName)
+  {
+    ValueEnforcer.notNull (aBoundSchema, "BoundSchema");
+    ValueEnforcer.notNull (aSplitElementName, "SplitElementName");
+
+    final ICommonsOrderedMap <PSXPathBoundRule, String> ret = new CommonsLinkedHashMap <> ();
+    for (final PSXPathBoundPattern aBoundPattern : aBoundSchema.getAllBoundPatterns ())
+      for (final PSXPathBoundRule aBoundRule : aBoundPattern.getAllBoundRules ())
+      {
+        String sReason = getNonStreamableReason (aBoundRule.getRuleExpression (), aSplitElementName, false);
+        if (sReason == null)
+          for (final PSXPathBoundAssertReport aBoundAssertReport : aBoundRule.getAllBoundAssertReports ())
+          {
+            sReason = getNonStreamableReason (aBoundAssertReport.getTestExpression (), aSplitElementName, true);
+            if (sReason != null)
+              break;
+          }
+        if (sReason != null)
+          ret.put (aBoundRule, sReason);
+      }
+    return ret;
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.streaming;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A single chunk of a document read by {@link PSStreamingSplitter}. It
+ * contains a separate DOM document, consisting of the retained header context
+ * (all ancestors of the split element and their previous non-split content)
+ * and exactly one split element with its complete subtree.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class PSStreamingChunk
+{
+  private final int m_nIndex;
+  private final Document m_aDoc;
+  private final Element m_aSplitElement;
+
+  public PSStreamingChunk (@Nonnegative final int nIndex,
+                           @Nonnull final Document aDoc,
+                           @Nullable final Element aSplitElement)
+  {
+    ValueEnforcer.isGE0 (nIndex, "Index");
+    ValueEnforcer.notNull (aDoc, "Doc");
+    ValueEnforcer.isTrue (aSplitElement == null || aSplitElement.getOwnerDocument () == aDoc,
+                          "The split element must be part of the document");
+    m_nIndex = nIndex;
+    m_aDoc = aDoc;
+    m_aSplitElement = aSplitElement;
+  }
+
+  /**
+   * @return The 0-based index of this chunk within the source document.
+   */
+  @Nonnegative
+  public int getIndex ()
+  {
+    return m_nIndex;
+  }
+
+  /**
+   * @return <code>true</code> if this is the first chunk of the source
+   *         document.
+   */
+  public boolean isFirst ()
+  {
+    return m_nIndex == 0;
+  }
+
+  /**
+   * @return The DOM document of this chunk. Never <code>null</code>.
+   */
+  @Nonnull
+  public Document getDocument ()
+  {
+    return m_aDoc;
+  }
+
+  /**
+   * @return The split element inside the document of this chunk. May be
+   *         <code>null</code> if the source document contains no split element
+   *         at all, in which case the chunk contains the whole document.
+   */
+  @Nullable
+  public Element getSplitElement ()
+  {
+    return m_aSplitElement;
+  }
+
+  /**
+   * Check if the passed node is the split element or a descendant of it. For
+   * attributes the owning element is checked.
+   *
+   * @param aNode
+   *        The node to check. May be <code>null</code>.
+   * @return <code>true</code> if the node is part of the split element subtree
+   *         or if this chunk has no split element.
+   */
+  public boolean isInSplitElement (@Nullable final Node aNode)
+  {
+    if (m_aSplitElement == null)
+      return true;
+
+    Node aCur = aNode instanceof Attr ? ((Attr) aNode).getOwnerElement () : aNode;
+    while (aCur != null)
+    {
+      if (aCur == m_aSplitElement)
+        return true;
+      aCur = aCur.getParentNode ();
+    }
+    return false;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("index", m_nIndex)
+                                       .append ("doc", m_aDoc)
+                                       .appendIfNotNull ("splitElement", m_aSplitElement)
+                                       .getToString ();
+  }
+}
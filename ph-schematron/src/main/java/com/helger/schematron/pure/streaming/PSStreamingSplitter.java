@@ -0,0 +1,263 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.streaming;
+
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillNotClose;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.xml.XMLFactory;
+
+/**
+ * A StAX based reader that splits a potentially huge XML document into
+ * {@link PSStreamingChunk}s, one per occurrence of a repeating split element.
+ * Each chunk contains the header context (the ancestors of the split element
+ * with all attributes and namespace declarations, and all previous content
+ * that is not part of a split element) and one complete split element. Split
+ * elements nested in a split element are part of the outer chunk. Content
+ * following the last split element is not contained in any chunk.<br>
+ * Memory usage is proportional to the size of the header context plus one
+ * split element. Whitespace-only text outside of split elements is not
+ * retained. DTDs and external entities are not supported.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class PSStreamingSplitter implements AutoCloseable
+{
+  private final XMLStreamReader m_aReader;
+  private final QName m_aSplitElementName;
+  private final Document m_aHeaderDoc = XMLFactory.newDocument ();
+  private Node m_aCurParent = m_aHeaderDoc;
+  private int m_nChunkCount = 0;
+  private boolean m_bEOF = false;
+
+  /**
+   * Constructor
+   *
+   * @param aIS
+   *        The input stream to read from. May not be <code>null</code>. The
+   *        stream is not closed by this class.
+   * @param sSystemID
+   *        The system ID of the stream. May be <code>null</code>.
+   * @param aSplitElementName
+   *        The qualified name of the repeating element to split at. May not
+   *        be <code>null</code>.
+   * @throws XMLStreamException
+   *         If the reader cannot be created
+   */
+  public PSStreamingSplitter (@Nonnull @WillNotClose final InputStream aIS,
+                              @Nullable final String sSystemID,
+                              @Nonnull final QName aSplitElementName) throws XMLStreamException
+  {
+    ValueEnforcer.notNull (aIS, "InputStream");
+    ValueEnforcer.notNull (aSplitElementName, "SplitElementName");
+
+    final XMLInputFactory aFactory = XMLInputFactory.newFactory ();
+    aFactory.setProperty (XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    aFactory.setProperty (XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    aFactory.setProperty (XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    m_aReader = aFactory.createXMLStreamReader (sSystemID, aIS);
+    m_aSplitElementName = aSplitElementName;
+  }
+
+  /**
+   * @return The qualified name of the split element. Never <code>null</code>.
+   */
+  @Nonnull
+  public final QName getSplitElementName ()
+  {
+    return m_aSplitElementName;
+  }
+
+  /**
+   * @return The number of chunks returned so far.
+   */
+  public final int getChunkCount ()
+  {
+    return m_nChunkCount;
+  }
+
+  private boolean _isSplitElement ()
+  {
+    return m_aSplitElementName.getLocalPart ().equals (m_aReader.getLocalName ()) &&
+           m_aSplitElementName.getNamespaceURI ().equals (StringHelper.getNotNull (m_aReader.getNamespaceURI ()));
+  }
+
+  @Nonnull
+  private static String _getQualifiedName (@Nullable final String sPrefix, @Nonnull final String sLocalName)
+  {
+    return StringHelper.hasText (sPrefix) ? sPrefix + ':' + sLocalName : sLocalName;
+  }
+
+  @Nonnull
+  private Element _createElement ()
+  {
+    final Element ret = m_aHeaderDoc.createElementNS (StringHelper.getNotEmpty (m_aReader.getNamespaceURI (), null),
+                                                      _getQualifiedName (m_aReader.getPrefix (),
+                                                                         m_aReader.getLocalName ()));
+    for (int i = 0; i < m_aReader.getNamespaceCount (); ++i)
+    {
+      final String sPrefix = m_aReader.getNamespacePrefix (i);
+      ret.setAttributeNS (XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+                          StringHelper.hasText (sPrefix) ? XMLConstants.XMLNS_ATTRIBUTE + ':' + sPrefix
+                                                         : XMLConstants.XMLNS_ATTRIBUTE,
+                          StringHelper.getNotNull (m_aReader.getNamespaceURI (i)));
+    }
+    for (int i = 0; i < m_aReader.getAttributeCount (); ++i)
+    {
+      ret.setAttributeNS (StringHelper.getNotEmpty (m_aReader.getAttributeNamespace (i), null),
+                          _getQualifiedName (m_aReader.getAttributePrefix (i), m_aReader.getAttributeLocalName (i)),
+                          m_aReader.getAttributeValue (i));
+    }
+    return ret;
+  }
+
+  /**
+   * Create a chunk with a copy of the current header document, that contains
+   * the passed split element.
+   */
+  @Nonnull
+  private PSStreamingChunk _createChunk (@Nullable final Element aSplitElement)
+  {
+    // Remember the path from the document element to the split element
+    final ICommonsList <Integer> aPath = new CommonsArrayList <> ();
+    Node aCur = aSplitElement;
+    while (aCur != null && aCur.getParentNode () != m_aHeaderDoc)
+    {
+      int nIndex = 0;
+      Node aSibling = aCur.getPreviousSibling ();
+      while (aSibling != null)
+      {
+        nIndex++;
+        aSibling = aSibling.getPreviousSibling ();
+      }
+      aPath.add (0, Integer.valueOf (nIndex));
+      aCur = aCur.getParentNode ();
+    }
+
+    final Document aChunkDoc = XMLFactory.newDocument ();
+    final Node aRoot = aChunkDoc.importNode (m_aHeaderDoc.getDocumentElement (), true);
+    aChunkDoc.appendChild (aRoot);
+
+    Element aChunkSplitElement = null;
+    if (aSplitElement != null)
+    {
+      Node aChunkCur = aRoot;
+      for (final Integer aIndex : aPath)
+        aChunkCur = aChunkCur.getChildNodes ().item (aIndex.intValue ());
+      aChunkSplitElement = (Element) aChunkCur;
+    }
+    return new PSStreamingChunk (m_nChunkCount++, aChunkDoc, aChunkSplitElement);
+  }
+
+  /**
+   * Read the next chunk from the stream.
+   *
+   * @return <code>null</code> if the end of the document was reached. If the
+   *         document contains no split element at all, a single chunk
+   *         containing the whole document is returned.
+   * @throws XMLStreamException
+   *         In case of a parsing error
+   */
+  @Nullable
+  public PSStreamingChunk readNextChunk () throws XMLStreamException
+  {
+    if (m_bEOF)
+      return null;
+
+    Element aCurSplitElement = null;
+    while (m_aReader.hasNext ())
+    {
+      switch (m_aReader.next ())
+      {
+        case XMLStreamConstants.START_ELEMENT:
+        {
+          final Element aElement = _createElement ();
+          m_aCurParent.appendChild (aElement);
+          if (aCurSplitElement == null && _isSplitElement ())
+            aCurSplitElement = aElement;
+          m_aCurParent = aElement;
+          break;
+        }
+        case XMLStreamConstants.END_ELEMENT:
+        {
+          final Node aClosed = m_aCurParent;
+          m_aCurParent = aClosed.getParentNode ();
+          if (aClosed == aCurSplitElement)
+          {
+            final PSStreamingChunk ret = _createChunk (aCurSplitElement);
+            // Don't retain the split element in the header
+            m_aCurParent.removeChild (aCurSplitElement);
+            return ret;
+          }
+          break;
+        }
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          if (m_aCurParent != m_aHeaderDoc && (aCurSplitElement != null || !m_aReader.isWhiteSpace ()))
+            m_aCurParent.appendChild (m_aHeaderDoc.createTextNode (m_aReader.getText ()));
+          break;
+        default:
+          // Ignore comments, processing instructions etc.
+          break;
+      }
+    }
+
+    m_bEOF = true;
+    if (m_nChunkCount == 0 && m_aHeaderDoc.getDocumentElement () != null)
+    {
+      // No split element found - return the whole document
+      return _createChunk ((Element) null);
+    }
+    return null;
+  }
+
+  public void close () throws XMLStreamException
+  {
+    m_aReader.close ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("splitElementName", m_aSplitElementName)
+                                       .append ("chunkCount", m_nChunkCount)
+                                       .append ("EOF", m_bEOF)
+                                       .getToString ();
+  }
+}
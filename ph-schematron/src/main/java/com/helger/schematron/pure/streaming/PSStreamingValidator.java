@@ -0,0 +1,284 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.streaming;
+
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Node;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.io.IHasInputStream;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.state.ESuccess;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.SchematronException;
+import com.helger.schematron.pure.bound.IPSBoundSchema;
+import com.helger.schematron.pure.bound.xpath.IPSXPathRuleFilter;
+import com.helger.schematron.pure.bound.xpath.PSXPathBoundRule;
+import com.helger.schematron.pure.bound.xpath.PSXPathBoundSchema;
+import com.helger.schematron.pure.validation.SchematronValidationException;
+import com.helger.xml.transform.TransformSourceFactory;
+
+/**
+ * Validate documents that are too large for a DOM in a streaming way. The
+ * document is split into chunks at a repeating element (see
+ * {@link PSStreamingSplitter}) and each chunk is validated separately, so that
+ * memory usage is proportional to the size of one chunk.
+ * <ul>
+ * <li>Rules that need the whole document (see {@link PSStreamingAnalyzer}) are
+ * determined up front. They are either rejected in the constructor or skipped
+ * and reported via {@link #getAllNonStreamableRules()}.</li>
+ * <li>Rule context nodes outside of the split element (in the header context)
+ * are only validated in the first chunk, so that header rules fire only
+ * once.</li>
+ * <li>Chunks can be validated in parallel with an {@link ExecutorService}.</li>
+ * </ul>
+ * This class only works with the XPath based pure implementation.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@ThreadSafe
+public class PSStreamingValidator
+{
+  /** The default maximum number of chunks that are validated in parallel */
+  public static final int DEFAULT_MAX_CHUNKS_IN_FLIGHT = 16;
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (PSStreamingValidator.class);
+
+  private final PSXPathBoundSchema m_aBoundSchema;
+  private final QName m_aSplitElementName;
+  private final ICommonsOrderedMap <PSXPathBoundRule, String> m_aNonStreamableRules;
+
+  /**
+   * Constructor
+   *
+   * @param aBoundSchema
+   *        The bound schema to use. Must be a {@link PSXPathBoundSchema}. May
+   *        not be <code>null</code>.
+   * @param aSplitElementName
+   *        The qualified name of the repeating element to split at. May not
+   *        be <code>null</code>.
+   * @param bRejectNonStreamableRules
+   *        <code>true</code> to throw an exception if at least one rule is not
+   *        streamable, <code>false</code> to skip these rules.
+   * @throws SchematronException
+   *         If non-streamable rules are rejected and at least one is present
+   */
+  public PSStreamingValidator (@Nonnull final IPSBoundSchema aBoundSchema,
+                               @Nonnull final QName aSplitElementName,
+                               final boolean bRejectNonStreamableRules) throws SchematronException
+  {
+    ValueEnforcer.notNull (aBoundSchema, "BoundSchema");
+    ValueEnforcer.isTrue (aBoundSchema instanceof PSXPathBoundSchema,
+                          "Streaming validation is only supported for XPath based schemas");
+    ValueEnforcer.notNull (aSplitElementName, "SplitElementName");
+
+    m_aBoundSchema = (PSXPathBoundSchema) aBoundSchema;
+    m_aSplitElementName = aSplitElementName;
+    m_aNonStreamableRules = PSStreamingAnalyzer.getAllNonStreamableRules (m_aBoundSchema, aSplitElementName);
+    if (m_aNonStreamableRules.isNotEmpty ())
+    {
+      if (bRejectNonStreamableRules)
+        throw new SchematronException ("The Schematron contains " +
+                                       m_aNonStreamableRules.size () +
+                                       " rule(s) that cannot be validated in streaming mode: " +
+                                       m_aNonStreamableRules.values ());
+      for (final String sReason : m_aNonStreamableRules.values ())
+        s_aLogger.warn ("Skipping rule in streaming mode: " + sReason);
+    }
+  }
+
+  /**
+   * @return The split element name passed in the constructor. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public QName getSplitElementName ()
+  {
+    return m_aSplitElementName;
+  }
+
+  /**
+   * @return A copy of all rules that are skipped in streaming mode, together
+   *         with the reason. Never <code>null</code> but maybe empty.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedMap <PSXPathBoundRule, String> getAllNonStreamableRules ()
+  {
+    return m_aNonStreamableRules.getClone ();
+  }
+
+  @Nonnull
+  private SchematronOutputType _validateChunk (@Nonnull final PSStreamingChunk aChunk,
+                                               @Nullable final String sBaseURI) throws SchematronValidationException
+  {
+    final IPSXPathRuleFilter aRuleFilter = new IPSXPathRuleFilter ()
+    {
+      @Override
+      public boolean isRuleApplicable (@Nonnull final PSXPathBoundRule aBoundRule)
+      {
+        return !m_aNonStreamableRules.containsKey (aBoundRule);
+      }
+
+      @Override
+      public boolean isNodeApplicable (@Nonnull final PSXPathBoundRule aBoundRule, @Nonnull final Node aRuleMatchingNode)
+      {
+        // Header nodes are only validated once
+        return aChunk.isFirst () || aChunk.isInSplitElement (aRuleMatchingNode);
+      }
+    };
+    return m_aBoundSchema.validateComplete (aChunk.getDocument (), sBaseURI, null, null, aRuleFilter);
+  }
+
+  /**
+   * Validate the passed XML resource chunk by chunk.
+   *
+   * @param aXMLResource
+   *        The XML resource to validate. May not be <code>null</code>.
+   * @param aExecutor
+   *        The optional executor to validate the chunks in parallel. May be
+   *        <code>null</code> to validate all chunks in the calling thread.
+   * @param nMaxChunksInFlight
+   *        The maximum number of chunks that are held in memory for parallel
+   *        validation. Must be &gt; 0. Ignored if no executor is provided.
+   * @param aResultHandler
+   *        The handler that receives the result of each chunk. May not be
+   *        <code>null</code>.
+   * @return {@link ESuccess#FAILURE} if the resource does not exist.
+   * @throws Exception
+   *         In case of a reading or validation error
+   */
+  @Nonnull
+  public ESuccess validate (@Nonnull final IHasInputStream aXMLResource,
+                            @Nullable final ExecutorService aExecutor,
+                            @Nonnegative final int nMaxChunksInFlight,
+                            @Nonnull final IPSStreamingResultHandler aResultHandler) throws Exception
+  {
+    ValueEnforcer.notNull (aXMLResource, "XMLResource");
+    ValueEnforcer.isGT0 (nMaxChunksInFlight, "MaxChunksInFlight");
+    ValueEnforcer.notNull (aResultHandler, "ResultHandler");
+
+    // Same base URI determination as in AbstractSchematronResource
+    final StreamSource aStreamSrc = TransformSourceFactory.create (aXMLResource);
+    final String sBaseURI = aStreamSrc.getSystemId ();
+    final InputStream aIS = aXMLResource.getInputStream ();
+    if (aIS == null)
+    {
+      s_aLogger.warn ("XML resource " + aXMLResource + " does not exist!");
+      return ESuccess.FAILURE;
+    }
+
+    final Semaphore aPermits = new Semaphore (nMaxChunksInFlight);
+    final AtomicReference <Exception> aFirstError = new AtomicReference <> ();
+    try (final PSStreamingSplitter aSplitter = new PSStreamingSplitter (aIS, sBaseURI, m_aSplitElementName))
+    {
+      PSStreamingChunk aChunk;
+      while (aFirstError.get () == null && (aChunk = aSplitter.readNextChunk ()) != null)
+      {
+        if (aExecutor == null)
+          aResultHandler.onChunkResult (aChunk.getIndex (), _validateChunk (aChunk, sBaseURI));
+        else
+        {
+          final PSStreamingChunk aFinalChunk = aChunk;
+          aPermits.acquireUninterruptibly ();
+          try
+          {
+            aExecutor.execute ( () -> {
+              try
+              {
+                aResultHandler.onChunkResult (aFinalChunk.getIndex (), _validateChunk (aFinalChunk, sBaseURI));
+              }
+              catch (final Exception ex)
+              {
+                aFirstError.compareAndSet (null, ex);
+              }
+              finally
+              {
+                aPermits.release ();
+              }
+            });
+          }
+          catch (final RejectedExecutionException ex)
+          {
+            aPermits.release ();
+            throw ex;
+          }
+        }
+      }
+    }
+    finally
+    {
+      // Wait until all pending chunks are validated
+      aPermits.acquireUninterruptibly (nMaxChunksInFlight);
+      StreamHelper.close (aIS);
+    }
+
+    final Exception aError = aFirstError.get ();
+    if (aError != null)
+      throw aError;
+    return ESuccess.SUCCESS;
+  }
+
+  /**
+   * Validate the passed XML resource chunk by chunk in the calling thread.
+   *
+   * @param aXMLResource
+   *        The XML resource to validate. May not be <code>null</code>.
+   * @return A list with one SVRL per chunk or <code>null</code> if the
+   *         resource does not exist.
+   * @throws Exception
+   *         In case of a reading or validation error
+   */
+  @Nullable
+  @ReturnsMutableCopy
+  public ICommonsList <SchematronOutputType> validateToSVRL (@Nonnull final IHasInputStream aXMLResource) throws Exception
+  {
+    final ICommonsList <SchematronOutputType> ret = new CommonsArrayList <> ();
+    if (validate (aXMLResource, null, DEFAULT_MAX_CHUNKS_IN_FLIGHT, (nIndex, aSVRL) -> ret.add (aSVRL)).isFailure ())
+      return null;
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("boundSchema", m_aBoundSchema)
+                                       .append ("splitElementName", m_aSplitElementName)
+                                       .append ("nonStreamableRules", m_aNonStreamableRules.values ())
+                                       .getToString ();
+  }
+}
@@ -85,6 +85,42 @@ public interface IPSValidationHandler extends Serializable
   default void onRule (@Nonnull final PSRule aRule, @Nonnull final String sContext) throws SchematronValidationException
   {}
 
+  /**
+   * This method is called before the context of a rule is evaluated. It can be
+   * used to stop long running validations between evaluations.
+   *
+   * @param aRule
+   *        The rule whose context is about to be evaluated. Never
+   *        <code>null</code>.
+   * @return {@link EContinue#BREAK} to stop validating immediately.
+   * @since 5.0.5
+   */
+  @Nonnull
+  default EContinue onBeforeRuleContextEvaluation (@Nonnull final PSRule aRule)
+  {
+    return EContinue.CONTINUE;
+  }
+
+  /**
+   * This method is called before an assert or report is evaluated on a single
+   * rule matching node. It can be used to stop long running validations
+   * between evaluations.
+   *
+   * @param aAssertReport
+   *        The assert or report that is about to be evaluated. Never
+   *        <code>null</code>.
+   * @param aRuleMatchingNode
+   *        The XML node the test is evaluated on. Never <code>null</code>.
+   * @return {@link EContinue#BREAK} to stop validating immediately.
+   * @since 5.0.5
+   */
+  @Nonnull
+  default EContinue onBeforeTestEvaluation (@Nonnull final PSAssertReport aAssertReport,
+                                            @Nonnull final Node aRuleMatchingNode)
+  {
+    return EContinue.CONTINUE;
+  }
+
   /**
    * This method is called for every failed assert.
    *
@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.validation;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.w3c.dom.Node;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.state.EContinue;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.SchematronValidationBudgetTracker;
+import com.helger.schematron.pure.model.PSAssertReport;
+import com.helger.schematron.pure.model.PSPattern;
+import com.helger.schematron.pure.model.PSPhase;
+import com.helger.schematron.pure.model.PSRule;
+import com.helger.schematron.pure.model.PSSchema;
+
+/**
+ * An implementation of {@link IPSValidationHandler} that applies a
+ * {@link SchematronValidationBudgetTracker} and forwards all calls to another
+ * handler as long as the budget is not exceeded. Findings exceeding the budget
+ * are not forwarded.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class PSValidationHandlerBudget implements IPSValidationHandler
+{
+  private final IPSValidationHandler m_aHandler;
+  private final SchematronValidationBudgetTracker m_aTracker;
+
+  public PSValidationHandlerBudget (@Nonnull final IPSValidationHandler aHandler,
+                                    @Nonnull final SchematronValidationBudgetTracker aTracker)
+  {
+    ValueEnforcer.notNull (aHandler, "Handler");
+    ValueEnforcer.notNull (aTracker, "Tracker");
+    m_aHandler = aHandler;
+    m_aTracker = aTracker;
+  }
+
+  /**
+   * @return The wrapped handler. Never <code>null</code>.
+   */
+  @Nonnull
+  public IPSValidationHandler getHandler ()
+  {
+    return m_aHandler;
+  }
+
+  /**
+   * @return The budget tracker. Never <code>null</code>.
+   */
+  @Nonnull
+  public SchematronValidationBudgetTracker getTracker ()
+  {
+    return m_aTracker;
+  }
+
+  @Override
+  public void onStart (@Nonnull final PSSchema aSchema,
+                       @Nullable final PSPhase aActivePhase,
+                       @Nullable final String sBaseURI) throws SchematronValidationException
+  {
+    m_aHandler.onStart (aSchema, aActivePhase, sBaseURI);
+  }
+
+  @Override
+  public void onPattern (@Nonnull final PSPattern aPattern) throws SchematronValidationException
+  {
+    m_aHandler.onPattern (aPattern);
+  }
+
+  @Override
+  public void onRule (@Nonnull final PSRule aRule, @Nonnull final String sContext) throws SchematronValidationException
+  {
+    m_aHandler.onRule (aRule, sContext);
+  }
+
+  @Override
+  @Nonnull
+  public EContinue onBeforeRuleContextEvaluation (@Nonnull final PSRule aRule)
+  {
+    if (m_aTracker.checkContinue ().isBreak ())
+      return EContinue.BREAK;
+    return m_aHandler.onBeforeRuleContextEvaluation (aRule);
+  }
+
+  @Override
+  @Nonnull
+  public EContinue onBeforeTestEvaluation (@Nonnull final PSAssertReport aAssertReport,
+                                           @Nonnull final Node aRuleMatchingNode)
+  {
+    if (m_aTracker.onNodeEvaluation ().isBreak ())
+      return EContinue.BREAK;
+    return m_aHandler.onBeforeTestEvaluation (aAssertReport, aRuleMatchingNode);
+  }
+
+  @Override
+  @Nonnull
+  public EContinue onFailedAssert (@Nonnull final PSAssertReport aAssertReport,
+                                   @Nonnull final String sTestExpression,
+                                   @Nonnull final Node aRuleMatchingNode,
+                                   final int nNodeIndex,
+                                   @Nullable final Object aContext) throws SchematronValidationException
+  {
+    if (m_aTracker.onFinding ().isBreak ())
+      return EContinue.BREAK;
+    return m_aHandler.onFailedAssert (aAssertReport, sTestExpression, aRuleMatchingNode, nNodeIndex, aContext);
+  }
+
+  @Override
+  @Nonnull
+  public EContinue onSuccessfulReport (@Nonnull final PSAssertReport aAssertReport,
+                                       @Nonnull final String sTestExpression,
+                                       @Nonnull final Node aRuleMatchingNode,
+                                       final int nNodeIndex,
+                                       @Nullable final Object aContext) throws SchematronValidationException
+  {
+    if (m_aTracker.onFinding ().isBreak ())
+      return EContinue.BREAK;
+    return m_aHandler.onSuccessfulReport (aAssertReport, sTestExpression, aRuleMatchingNode, nNodeIndex, aContext);
+  }
+
+  @Override
+  public void onEnd (@Nonnull final PSSchema aSchema,
+                     @Nullable final PSPhase aActivePhase) throws SchematronValidationException
+  {
+    m_aHandler.onEnd (aSchema, aActivePhase);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("handler", m_aHandler).append ("tracker", m_aTracker).getToString ();
+  }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.validation.xpath;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.w3c.dom.Node;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.state.EContinue;
+import com.helger.schematron.pure.bound.xpath.PSXPathBoundAssertReport;
+import com.helger.schematron.pure.errorhandler.IPSErrorHandler;
+import com.helger.schematron.pure.model.PSAssertReport;
+import com.helger.schematron.pure.model.PSPattern;
+import com.helger.schematron.pure.model.PSPhase;
+import com.helger.schematron.pure.model.PSRule;
+import com.helger.schematron.pure.model.PSSchema;
+import com.helger.schematron.pure.validation.IPSValidationHandler;
+import com.helger.schematron.pure.validation.SchematronValidationException;
+import com.helger.schematron.svrl.SVRLJsonWriter;
+import com.helger.xml.XMLHelper;
+
+/**
+ * A special validation handler that streams the results as compact JSON to an
+ * {@link SVRLJsonWriter} instead of creating an SVRL document. Like
+ * {@link PSXPathValidationHandlerSVRL} it only works for the XPath binding.
+ * The writer is not finished by this handler.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class PSXPathValidationHandlerJson implements IPSValidationHandler
+{
+  private final IPSErrorHandler m_aErrorHandler;
+  private final SVRLJsonWriter m_aJsonWriter;
+  private PSSchema m_aSchema;
+  private String m_sBaseURI;
+
+  /**
+   * Constructor
+   *
+   * @param aErrorHandler
+   *        The error handler to be used. May not be <code>null</code>.
+   * @param aJsonWriter
+   *        The JSON writer to write to. May not be <code>null</code>.
+   */
+  public PSXPathValidationHandlerJson (@Nonnull final IPSErrorHandler aErrorHandler,
+                                       @Nonnull final SVRLJsonWriter aJsonWriter)
+  {
+    ValueEnforcer.notNull (aErrorHandler, "ErrorHandler");
+    ValueEnforcer.notNull (aJsonWriter, "JsonWriter");
+    m_aErrorHandler = aErrorHandler;
+    m_aJsonWriter = aJsonWriter;
+  }
+
+  /**
+   * @return The JSON writer passed in the constructor. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public SVRLJsonWriter getJsonWriter ()
+  {
+    return m_aJsonWriter;
+  }
+
+  @Override
+  public void onStart (@Nonnull final PSSchema aSchema,
+                       @Nullable final PSPhase aActivePhase,
+                       @Nullable final String sBaseURI)
+  {
+    m_aSchema = aSchema;
+    m_sBaseURI = sBaseURI;
+  }
+
+  @Override
+  public void onPattern (@Nonnull final PSPattern aPattern)
+  {
+    m_aJsonWriter.onActivePattern (aPattern.getID (), null);
+  }
+
+  @Override
+  public void onRule (@Nonnull final PSRule aRule, @Nonnull final String sContext)
+  {
+    m_aJsonWriter.onFiredRule (aRule.getID (), sContext);
+  }
+
+  @Nonnull
+  private static PSXPathBoundAssertReport _getBoundAssertReport (@Nullable final Object aContext) throws SchematronValidationException
+  {
+    if (!(aContext instanceof PSXPathBoundAssertReport))
+      throw new SchematronValidationException ("The passed context must be an XPath object but is a " + aContext);
+    return (PSXPathBoundAssertReport) aContext;
+  }
+
+  @Override
+  @Nonnull
+  public EContinue onFailedAssert (@Nonnull final PSAssertReport aAssertReport,
+                                   @Nonnull final String sTestExpression,
+                                   @Nonnull final Node aRuleMatchingNode,
+                                   final int nNodeIndex,
+                                   @Nullable final Object aContext) throws SchematronValidationException
+  {
+    final PSXPathBoundAssertReport aBoundAssertReport = _getBoundAssertReport (aContext);
+    final String sText = PSXPathValidationHandlerSVRL.getErrorText (aBoundAssertReport.getAllBoundContentElements (),
+                                                                    aRuleMatchingNode,
+                                                                    m_sBaseURI,
+                                                                    m_aSchema,
+                                                                    m_aErrorHandler);
+    try
+    {
+      m_aJsonWriter.onFailedAssert (aAssertReport.getID (),
+                                    aAssertReport.getFlag (),
+                                    aAssertReport.hasLinkable () ? aAssertReport.getLinkable ().getRole () : null,
+                                    XMLHelper.getPathToNode2 (aRuleMatchingNode, "/"),
+                                    sTestExpression,
+                                    sText);
+    }
+    catch (final IOException ex)
+    {
+      throw new SchematronValidationException ("Failed to write JSON", ex);
+    }
+    return EContinue.CONTINUE;
+  }
+
+  @Override
+  @Nonnull
+  public EContinue onSuccessfulReport (@Nonnull final PSAssertReport aAssertReport,
+                                       @Nonnull final String sTestExpression,
+                                       @Nonnull final Node aRuleMatchingNode,
+                                       final int nNodeIndex,
+                                       @Nullable final Object aContext) throws SchematronValidationException
+  {
+    final PSXPathBoundAssertReport aBoundAssertReport = _getBoundAssertReport (aContext);
+    final String sText = PSXPathValidationHandlerSVRL.getErrorText (aBoundAssertReport.getAllBoundContentElements (),
+                                                                    aRuleMatchingNode,
+                                                                    m_sBaseURI,
+                                                                    m_aSchema,
+                                                                    m_aErrorHandler);
+    try
+    {
+      m_aJsonWriter.onSuccessfulReport (aAssertReport.getID (),
+                                        aAssertReport.getFlag (),
+                                        aAssertReport.hasLinkable () ? aAssertReport.getLinkable ().getRole () : null,
+                                        XMLHelper.getPathToNode2 (aRuleMatchingNode, "/"),
+                                        sTestExpression,
+                                        sText);
+    }
+    catch (final IOException ex)
+    {
+      throw new SchematronValidationException ("Failed to write JSON", ex);
+    }
+    return EContinue.CONTINUE;
+  }
+}
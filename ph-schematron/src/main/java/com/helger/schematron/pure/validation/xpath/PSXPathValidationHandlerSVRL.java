@@ -180,13 +180,24 @@ public class PSXPathValidationHandlerSVRL implements IPSValidationHandler
    *        The list of bound elements to be evaluated.
    * @param aSourceNode
    *        The XML node of the document currently validated.
+   * @param sBaseURI
+   *        The base URI of the document currently validated. May be
+   *        <code>null</code>.
+   * @param aSchema
+   *        The schema used for validation. Required for error reporting.
+   * @param aErrorHandler
+   *        The error handler to report XPath evaluation errors to.
    * @return A non-<code>null</code> String
    * @throws SchematronValidationException
    *         In case evaluating an XPath expression fails.
+   * @since 5.0.5
    */
   @Nonnull
-  private String _getErrorText (@Nonnull final List <PSXPathBoundElement> aBoundContentElements,
-                                @Nonnull final Node aSourceNode) throws SchematronValidationException
+  static String getErrorText (@Nonnull final List <PSXPathBoundElement> aBoundContentElements,
+                              @Nonnull final Node aSourceNode,
+                              @Nullable final String sBaseURI,
+                              @Nonnull final PSSchema aSchema,
+                              @Nonnull final IPSErrorHandler aErrorHandler) throws SchematronValidationException
   {
     final StringBuilder aSB = new StringBuilder ();
 
@@ -207,13 +218,16 @@ public class PSXPathValidationHandlerSVRL implements IPSValidationHandler
               aSB.append ((String) XPathEvaluationHelper.evaluate (aBoundElement.getBoundExpression (),
                                                                    aSourceNode,
                                                                    XPathConstants.STRING,
-                                                                   m_sBaseURI));
+                                                                   sBaseURI));
             }
             catch (final XPathExpressionException ex)
             {
-              _error (aName,
-                      "Failed to evaluate XPath expression to a string: '" + aBoundElement.getExpression () + "'",
-                      ex.getCause () != null ? ex.getCause () : ex);
+              aErrorHandler.error (aSchema.getResource (),
+                                   aName,
+                                   "Failed to evaluate XPath expression to a string: '" +
+                                          aBoundElement.getExpression () +
+                                          "'",
+                                   ex.getCause () != null ? ex.getCause () : ex);
               // Append the path so that something is present in the output
               aSB.append (aName.getPath ());
             }
@@ -233,13 +247,16 @@ public class PSXPathValidationHandlerSVRL implements IPSValidationHandler
               aSB.append ((String) XPathEvaluationHelper.evaluate (aBoundElement.getBoundExpression (),
                                                                    aSourceNode,
                                                                    XPathConstants.STRING,
-                                                                   m_sBaseURI));
+                                                                   sBaseURI));
             }
             catch (final XPathExpressionException ex)
             {
-              _error (aValueOf,
-                      "Failed to evaluate XPath expression to a string: '" + aBoundElement.getExpression () + "'",
-                      ex);
+              aErrorHandler.error (aSchema.getResource (),
+                                   aValueOf,
+                                   "Failed to evaluate XPath expression to a string: '" +
+                                          aBoundElement.getExpression () +
+                                          "'",
+                                   ex);
               // Append the path so that something is present in the output
               aSB.append (aValueOf.getSelect ());
             }
@@ -259,6 +276,16 @@ public class PSXPathValidationHandlerSVRL implements IPSValidationHandler
     return aSB.toString ();
   }
 
+  @Nonnull
+  private String _getErrorText (@Nonnull final List <PSXPathBoundElement> aBoundContentElements,
+                                @Nonnull final Node aSourceNode) throws SchematronValidationException
+  {
+    if (m_aSchema == null)
+      throw new IllegalStateException ("No schema is present!");
+
+    return getErrorText (aBoundContentElements, aSourceNode, m_sBaseURI, m_aSchema, m_aErrorHandler);
+  }
+
   /**
    * Handle the diagnostic references of a single assert/report element
    *
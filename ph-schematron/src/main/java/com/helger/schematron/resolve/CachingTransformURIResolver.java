@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.resolve;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamSource;
+
+import org.w3c.dom.Document;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.concurrent.SimpleReadWriteLock;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.io.resourceresolver.DefaultResourceResolver;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.schematron.SchematronDocumentCache;
+import com.helger.xml.serialize.read.DOMReader;
+import com.helger.xml.transform.DefaultTransformURIResolver;
+import com.helger.xml.transform.TransformSourceFactory;
+
+/**
+ * A thread-safe {@link URIResolver} that caches the parsed documents loaded
+ * via <code>document()</code> or <code>doc()</code>, keyed by the resolved
+ * URI. Documents from the file system are re-read if their modification time
+ * or size changed, all other documents are re-parsed if the digest of their
+ * content changed. The cached documents are returned as read-only
+ * {@link DOMSource} objects. The least recently used document is evicted if
+ * the maximum size is exceeded.<br>
+ * It can be used for the XSLT based resources (see
+ * {@link com.helger.schematron.xslt.AbstractSchematronXSLTBasedResource#setURIResolver(URIResolver)})
+ * and for the pure implementation (see
+ * {@link com.helger.schematron.pure.SchematronResourcePure#setURIResolver(URIResolver)}).
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@ThreadSafe
+public class CachingTransformURIResolver implements URIResolver
+{
+  /** The default maximum number of cached documents */
+  public static final int DEFAULT_MAX_SIZE = 32;
+
+  private static final class CacheEntry
+  {
+    private final Document m_aDoc;
+    private final long m_nLastModified;
+    private final long m_nLength;
+    private final String m_sDigest;
+
+    CacheEntry (@Nonnull final Document aDoc,
+                final long nLastModified,
+                final long nLength,
+                @Nullable final String sDigest)
+    {
+      m_aDoc = aDoc;
+      m_nLastModified = nLastModified;
+      m_nLength = nLength;
+      m_sDigest = sDigest;
+    }
+  }
+
+  private final URIResolver m_aDelegate;
+  private final int m_nMaxSize;
+  private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
+  private final Map <String, CacheEntry> m_aMap;
+  private final AtomicInteger m_aHits = new AtomicInteger (0);
+  private final AtomicInteger m_aMisses = new AtomicInteger (0);
+
+  public CachingTransformURIResolver ()
+  {
+    this (new DefaultTransformURIResolver (), DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aDelegate
+   *        The resolver used to resolve the URIs. May be <code>null</code> in
+   *        which case the {@link DefaultResourceResolver} is used.
+   * @param nMaxSize
+   *        The maximum number of documents to keep. Must be &gt; 0.
+   */
+  public CachingTransformURIResolver (@Nullable final URIResolver aDelegate, @Nonnegative final int nMaxSize)
+  {
+    ValueEnforcer.isGT0 (nMaxSize, "MaxSize");
+    m_aDelegate = aDelegate;
+    m_nMaxSize = nMaxSize;
+    // Access order for LRU
+    m_aMap = new LinkedHashMap <String, CacheEntry> (16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry (final Map.Entry <String, CacheEntry> aEldest)
+      {
+        return size () > m_nMaxSize;
+      }
+    };
+  }
+
+  /**
+   * @return The maximum number of cached documents. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * @return The number of currently cached documents. Always &ge; 0.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aRWLock.readLocked ( () -> m_aMap.size ());
+  }
+
+  /**
+   * @return The number of resolutions answered from the cache.
+   */
+  @Nonnegative
+  public int getHitCount ()
+  {
+    return m_aHits.get ();
+  }
+
+  /**
+   * @return The number of resolutions that required parsing.
+   */
+  @Nonnegative
+  public int getMissCount ()
+  {
+    return m_aMisses.get ();
+  }
+
+  /**
+   * Remove all cached documents.
+   */
+  public void clearCache ()
+  {
+    m_aRWLock.writeLocked ( () -> m_aMap.clear ());
+  }
+
+  @Nullable
+  private static File _getAsFile (@Nonnull final String sSystemID)
+  {
+    if (!sSystemID.startsWith ("file:"))
+      return null;
+    try
+    {
+      final File ret = new File (new URI (sSystemID));
+      return ret.isFile () ? ret : null;
+    }
+    catch (final Exception ex)
+    {
+      return null;
+    }
+  }
+
+  @Nullable
+  private static byte [] _getAllBytes (@Nonnull final StreamSource aSource) throws IOException
+  {
+    InputStream aIS = aSource.getInputStream ();
+    if (aIS == null)
+      aIS = new URL (aSource.getSystemId ()).openStream ();
+    return StreamHelper.getAllBytes (aIS);
+  }
+
+  @Nullable
+  public Source resolve (@Nonnull final String sHref, @Nullable final String sBase) throws TransformerException
+  {
+    Source aSource = m_aDelegate == null ? null : m_aDelegate.resolve (sHref, sBase);
+    if (aSource == null)
+    {
+      // Resolve ourselves
+      final IReadableResource aRes = DefaultResourceResolver.getResolvedResource (sHref, sBase);
+      if (aRes == null || !aRes.exists ())
+        return null;
+      aSource = TransformSourceFactory.create (aRes);
+    }
+
+    final String sSystemID = aSource.getSystemId ();
+    if (!(aSource instanceof StreamSource) || sSystemID == null)
+    {
+      // Already parsed or unknown source
+      return aSource;
+    }
+
+    final CacheEntry aCached = m_aRWLock.writeLocked ( () -> m_aMap.get (sSystemID));
+    final File aFile = _getAsFile (sSystemID);
+    final long nLastModified = aFile != null ? aFile.lastModified () : 0;
+    final long nLength = aFile != null ? aFile.length () : 0;
+    if (aFile != null &&
+        aCached != null &&
+        aCached.m_nLastModified == nLastModified &&
+        aCached.m_nLength == nLength)
+    {
+      m_aHits.incrementAndGet ();
+      return new DOMSource (aCached.m_aDoc, sSystemID);
+    }
+
+    try
+    {
+      final byte [] aBytes = _getAllBytes ((StreamSource) aSource);
+      if (aBytes == null)
+        throw new TransformerException ("Failed to read '" + sSystemID + "'");
+
+      // Check the digest for non-file sources
+      final String sDigest = aFile == null ? SchematronDocumentCache.getDigest (aBytes) : null;
+      if (sDigest != null && aCached != null && sDigest.equals (aCached.m_sDigest))
+      {
+        m_aHits.incrementAndGet ();
+        return new DOMSource (aCached.m_aDoc, sSystemID);
+      }
+
+      m_aMisses.incrementAndGet ();
+      final Document aDoc = DOMReader.readXMLDOM (aBytes, SchematronDocumentCache.createDOMReaderSettings ());
+      if (aDoc == null)
+        throw new TransformerException ("Failed to parse '" + sSystemID + "' as XML");
+      aDoc.setDocumentURI (sSystemID);
+
+      final CacheEntry aEntry = new CacheEntry (aDoc, nLastModified, nLength, sDigest);
+      m_aRWLock.writeLocked ( () -> m_aMap.put (sSystemID, aEntry));
+      return new DOMSource (aDoc, sSystemID);
+    }
+    catch (final TransformerException ex)
+    {
+      throw ex;
+    }
+    catch (final Exception ex)
+    {
+      throw new TransformerException ("Failed to resolve '" + sSystemID + "'", ex);
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).appendIfNotNull ("Delegate", m_aDelegate)
+                                       .append ("MaxSize", m_nMaxSize)
+                                       .append ("Hits", m_aHits.get ())
+                                       .append ("Misses", m_aMisses.get ())
+                                       .getToString ();
+  }
+}
@@ -53,6 +53,22 @@ public final class SVRLHelper
   private SVRLHelper ()
   {}
 
+  /**
+   * Create a summary of the passed SVRL in a single pass, using the global
+   * error level determinator. Use this method instead of calling multiple of
+   * the other methods of this class on the same SVRL.
+   *
+   * @param aSchematronOutput
+   *        The schematron output to be used. May not be <code>null</code>.
+   * @return A new summary. Never <code>null</code>.
+   * @since 5.0.5
+   */
+  @Nonnull
+  public static SVRLSummary getSummary (@Nonnull final SchematronOutputType aSchematronOutput)
+  {
+    return new SVRLSummary (aSchematronOutput, getErrorLevelDeterminator ());
+  }
+
   /**
    * Get a list of all failed assertions in a given schematron output.
    *
@@ -64,10 +80,11 @@ public final class SVRLHelper
   @ReturnsMutableCopy
   public static ICommonsList <SVRLFailedAssert> getAllFailedAssertions (@Nonnull final SchematronOutputType aSchematronOutput)
   {
+    final ISVRLErrorLevelDeterminator aELD = getErrorLevelDeterminator ();
     final ICommonsList <SVRLFailedAssert> ret = new CommonsArrayList <> ();
     for (final Object aObj : aSchematronOutput.getActivePatternAndFiredRuleAndFailedAssert ())
       if (aObj instanceof FailedAssert)
-        ret.add (new SVRLFailedAssert ((FailedAssert) aObj));
+        ret.add (new SVRLFailedAssert ((FailedAssert) aObj, aELD::getErrorLevelFromFailedAssert));
     return ret;
   }
 
@@ -86,11 +103,12 @@ public final class SVRLHelper
   public static ICommonsList <SVRLFailedAssert> getAllFailedAssertionsMoreOrEqualSevereThan (@Nonnull final SchematronOutputType aSchematronOutput,
                                                                                              @Nonnull final IErrorLevel aErrorLevel)
   {
+    final ISVRLErrorLevelDeterminator aELD = getErrorLevelDeterminator ();
     final ICommonsList <SVRLFailedAssert> ret = new CommonsArrayList <> ();
     for (final Object aObj : aSchematronOutput.getActivePatternAndFiredRuleAndFailedAssert ())
       if (aObj instanceof FailedAssert)
       {
-        final SVRLFailedAssert aFA = new SVRLFailedAssert ((FailedAssert) aObj);
+        final SVRLFailedAssert aFA = new SVRLFailedAssert ((FailedAssert) aObj, aELD::getErrorLevelFromFailedAssert);
         if (aFA.getFlag ().isGE (aErrorLevel))
           ret.add (aFA);
       }
@@ -108,10 +126,11 @@ public final class SVRLHelper
   @ReturnsMutableCopy
   public static ICommonsList <SVRLSuccessfulReport> getAllSuccessfulReports (@Nonnull final SchematronOutputType aSchematronOutput)
   {
+    final ISVRLErrorLevelDeterminator aELD = getErrorLevelDeterminator ();
     final ICommonsList <SVRLSuccessfulReport> ret = new CommonsArrayList <> ();
     for (final Object aObj : aSchematronOutput.getActivePatternAndFiredRuleAndFailedAssert ())
       if (aObj instanceof SuccessfulReport)
-        ret.add (new SVRLSuccessfulReport ((SuccessfulReport) aObj));
+        ret.add (new SVRLSuccessfulReport ((SuccessfulReport) aObj, aELD::getErrorLevelFromSuccessfulReport));
     return ret;
   }
 
@@ -130,11 +149,13 @@ public final class SVRLHelper
   public static ICommonsList <SVRLSuccessfulReport> getAllSuccessfulReportsMoreOrEqualSevereThan (@Nonnull final SchematronOutputType aSchematronOutput,
                                                                                                   @Nonnull final IErrorLevel aErrorLevel)
   {
+    final ISVRLErrorLevelDeterminator aELD = getErrorLevelDeterminator ();
     final ICommonsList <SVRLSuccessfulReport> ret = new CommonsArrayList <> ();
     for (final Object aObj : aSchematronOutput.getActivePatternAndFiredRuleAndFailedAssert ())
       if (aObj instanceof SuccessfulReport)
       {
-        final SVRLSuccessfulReport aSR = new SVRLSuccessfulReport ((SuccessfulReport) aObj);
+        final SVRLSuccessfulReport aSR = new SVRLSuccessfulReport ((SuccessfulReport) aObj,
+                                                                   aELD::getErrorLevelFromSuccessfulReport);
         if (aSR.getFlag ().isGE (aErrorLevel))
           ret.add (aSR);
       }
@@ -154,13 +175,14 @@ public final class SVRLHelper
   @ReturnsMutableCopy
   public static ICommonsList <AbstractSVRLMessage> getAllFailedAssertionsAndSuccessfulReports (@Nonnull final SchematronOutputType aSchematronOutput)
   {
+    final ISVRLErrorLevelDeterminator aELD = getErrorLevelDeterminator ();
     final ICommonsList <AbstractSVRLMessage> ret = new CommonsArrayList <> ();
     for (final Object aObj : aSchematronOutput.getActivePatternAndFiredRuleAndFailedAssert ())
       if (aObj instanceof FailedAssert)
-        ret.add (new SVRLFailedAssert ((FailedAssert) aObj));
+        ret.add (new SVRLFailedAssert ((FailedAssert) aObj, aELD::getErrorLevelFromFailedAssert));
       else
         if (aObj instanceof SuccessfulReport)
-          ret.add (new SVRLSuccessfulReport ((SuccessfulReport) aObj));
+          ret.add (new SVRLSuccessfulReport ((SuccessfulReport) aObj, aELD::getErrorLevelFromSuccessfulReport));
     return ret;
   }
 
@@ -209,7 +231,7 @@ public final class SVRLHelper
   {
     ValueEnforcer.notNull (aELD, "ErrorLevelDeterminator");
 
-    s_aRWLock.readLocked ( () -> s_aELD = aELD);
+    s_aRWLock.writeLocked ( () -> s_aELD = aELD);
   }
 
   /**
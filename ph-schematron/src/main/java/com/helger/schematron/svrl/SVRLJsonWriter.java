@@ -0,0 +1,468 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.svrl;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.oclc.purl.dsdl.svrl.ActivePattern;
+import org.oclc.purl.dsdl.svrl.FailedAssert;
+import org.oclc.purl.dsdl.svrl.FiredRule;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.oclc.purl.dsdl.svrl.SuccessfulReport;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A streaming writer for a compact JSON representation of validation results.
+ * It is fed with the SVRL events directly (e.g. from the pure validation
+ * handler or the SAX output of the XSLT engine), so that no SVRL domain object
+ * and no XML serialization is required. The layout is:
+ *
+ * <pre>
+ * {"results":[{"type":"assert","rule":0,"id":..,"flag":..,"location":..,"test":..,"text":..},..],
+ *  "rules":[{"pattern":0,"id":..,"context":..},..],
+ *  "patterns":[{"id":..,"name":..},..],
+ *  "texts":[..]}
+ * </pre>
+ *
+ * The type of a result is either <code>assert</code> (failed assert) or
+ * <code>report</code> (successful report). Patterns and fired rules are
+ * interned and referenced by their index, so a rule that fires on many nodes
+ * is only written once. <code>null</code> members are omitted. The result
+ * objects are written as they arrive, the tables at the end in
+ * {@link #finish()}.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+public class SVRLJsonWriter
+{
+  public static final String TYPE_FAILED_ASSERT = "assert";
+  public static final String TYPE_SUCCESSFUL_REPORT = "report";
+
+  private final Writer m_aWriter;
+  private final StringBuilder m_aSB = new StringBuilder (256);
+  // Interned patterns and rules as rendered JSON objects
+  private final ICommonsMap <String, Integer> m_aPatternIndex = new CommonsHashMap <> ();
+  private final ICommonsList <String> m_aPatterns = new CommonsArrayList <> ();
+  private final ICommonsMap <String, Integer> m_aRuleIndex = new CommonsHashMap <> ();
+  private final ICommonsList <String> m_aRules = new CommonsArrayList <> ();
+  private final ICommonsList <String> m_aTexts = new CommonsArrayList <> ();
+  private int m_nCurrentPattern = -1;
+  private int m_nCurrentRule = -1;
+  private int m_nFailedAsserts = 0;
+  private int m_nSuccessfulReports = 0;
+  private boolean m_bFinished = false;
+
+  /**
+   * Constructor
+   *
+   * @param aWriter
+   *        The writer to write to. May not be <code>null</code>. It is not
+   *        closed by this class.
+   */
+  public SVRLJsonWriter (@Nonnull final Writer aWriter)
+  {
+    ValueEnforcer.notNull (aWriter, "Writer");
+    m_aWriter = aWriter;
+  }
+
+  /**
+   * Append the passed string as a quoted and escaped JSON string.
+   *
+   * @param aSB
+   *        The string builder to append to. May not be <code>null</code>.
+   * @param s
+   *        The string to append. If it is <code>null</code>, the JSON literal
+   *        <code>null</code> is appended.
+   */
+  public static void appendJsonString (@Nonnull final StringBuilder aSB, @Nullable final String s)
+  {
+    if (s == null)
+    {
+      aSB.append ("null");
+      return;
+    }
+    aSB.append ('"');
+    final int nLen = s.length ();
+    for (int i = 0; i < nLen; ++i)
+    {
+      final char c = s.charAt (i);
+      switch (c)
+      {
+        case '"':
+          aSB.append ("\\\"");
+          break;
+        case '\\':
+          aSB.append ("\\\\");
+          break;
+        case '\n':
+          aSB.append ("\\n");
+          break;
+        case '\r':
+          aSB.append ("\\r");
+          break;
+        case '\t':
+          aSB.append ("\\t");
+          break;
+        default:
+          if (c < 0x20)
+          {
+            final String sHex = Integer.toHexString (c);
+            aSB.append ("\\u");
+            for (int j = sHex.length (); j < 4; ++j)
+              aSB.append ('0');
+            aSB.append (sHex);
+          }
+          else
+            aSB.append (c);
+      }
+    }
+    aSB.append ('"');
+  }
+
+  /**
+   * @param s
+   *        The string to convert. May be <code>null</code>.
+   * @return The quoted and escaped JSON string or <code>null</code> as a JSON
+   *         literal. Never <code>null</code>.
+   */
+  @Nonnull
+  public static String getAsJsonString (@Nullable final String s)
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    appendJsonString (aSB, s);
+    return aSB.toString ();
+  }
+
+  private static void _appendMember (@Nonnull final StringBuilder aSB,
+                                     @Nonnull final String sName,
+                                     @Nullable final String sValue)
+  {
+    if (sValue != null)
+    {
+      if (aSB.charAt (aSB.length () - 1) != '{')
+        aSB.append (',');
+      aSB.append ('"').append (sName).append ("\":");
+      appendJsonString (aSB, sValue);
+    }
+  }
+
+  private void _checkNotFinished ()
+  {
+    if (m_bFinished)
+      throw new IllegalStateException ("The JSON writer was already finished");
+  }
+
+  /**
+   * Called for each active pattern. All subsequent rules belong to this
+   * pattern.
+   *
+   * @param sID
+   *        The pattern ID. May be <code>null</code>.
+   * @param sName
+   *        The pattern name. May be <code>null</code>.
+   */
+  public void onActivePattern (@Nullable final String sID, @Nullable final String sName)
+  {
+    _checkNotFinished ();
+    final String sKey = sID + '\u0000' + sName;
+    Integer aIndex = m_aPatternIndex.get (sKey);
+    if (aIndex == null)
+    {
+      final StringBuilder aSB = new StringBuilder ("{");
+      _appendMember (aSB, "id", sID);
+      _appendMember (aSB, "name", sName);
+      aSB.append ('}');
+      aIndex = Integer.valueOf (m_aPatterns.size ());
+      m_aPatterns.add (aSB.toString ());
+      m_aPatternIndex.put (sKey, aIndex);
+    }
+    m_nCurrentPattern = aIndex.intValue ();
+    m_nCurrentRule = -1;
+  }
+
+  /**
+   * Called for each fired rule. All subsequent results belong to this rule.
+   *
+   * @param sID
+   *        The rule ID. May be <code>null</code>.
+   * @param sContext
+   *        The rule context. May be <code>null</code>.
+   */
+  public void onFiredRule (@Nullable final String sID, @Nullable final String sContext)
+  {
+    _checkNotFinished ();
+    final String sKey = Integer.toString (m_nCurrentPattern) + '\u0000' + sID + '\u0000' + sContext;
+    Integer aIndex = m_aRuleIndex.get (sKey);
+    if (aIndex == null)
+    {
+      final StringBuilder aSB = new StringBuilder ("{");
+      if (m_nCurrentPattern >= 0)
+        aSB.append ("\"pattern\":").append (m_nCurrentPattern);
+      _appendMember (aSB, "id", sID);
+      _appendMember (aSB, "context", sContext);
+      aSB.append ('}');
+      aIndex = Integer.valueOf (m_aRules.size ());
+      m_aRules.add (aSB.toString ());
+      m_aRuleIndex.put (sKey, aIndex);
+    }
+    m_nCurrentRule = aIndex.intValue ();
+  }
+
+  private void _writeResult (@Nonnull final String sType,
+                             @Nullable final String sID,
+                             @Nullable final String sFlag,
+                             @Nullable final String sRole,
+                             @Nullable final String sLocation,
+                             @Nullable final String sTest,
+                             @Nullable final String sText) throws IOException
+  {
+    _checkNotFinished ();
+    final StringBuilder aSB = m_aSB;
+    aSB.setLength (0);
+    if (m_nFailedAsserts + m_nSuccessfulReports == 0)
+      aSB.append ("{\"results\":[");
+    else
+      aSB.append (',');
+    aSB.append ("{\"type\":\"").append (sType).append ('"');
+    if (m_nCurrentRule >= 0)
+      aSB.append (",\"rule\":").append (m_nCurrentRule);
+    _appendMember (aSB, "id", sID);
+    _appendMember (aSB, "flag", sFlag);
+    _appendMember (aSB, "role", sRole);
+    _appendMember (aSB, "location", sLocation);
+    _appendMember (aSB, "test", sTest);
+    _appendMember (aSB, "text", sText == null ? null : sText.trim ());
+    aSB.append ('}');
+    m_aWriter.append (aSB);
+  }
+
+  /**
+   * Write a failed assert.
+   *
+   * @param sID
+   *        The ID of the assert. May be <code>null</code>.
+   * @param sFlag
+   *        The flag. May be <code>null</code>.
+   * @param sRole
+   *        The role. May be <code>null</code>.
+   * @param sLocation
+   *        The location in the validated document. May be <code>null</code>.
+   * @param sTest
+   *        The test expression. May be <code>null</code>.
+   * @param sText
+   *        The message text. May be <code>null</code>.
+   * @throws IOException
+   *         If writing fails
+   */
+  public void onFailedAssert (@Nullable final String sID,
+                              @Nullable final String sFlag,
+                              @Nullable final String sRole,
+                              @Nullable final String sLocation,
+                              @Nullable final String sTest,
+                              @Nullable final String sText) throws IOException
+  {
+    _writeResult (TYPE_FAILED_ASSERT, sID, sFlag, sRole, sLocation, sTest, sText);
+    m_nFailedAsserts++;
+  }
+
+  /**
+   * Write a successful report.
+   *
+   * @param sID
+   *        The ID of the report. May be <code>null</code>.
+   * @param sFlag
+   *        The flag. May be <code>null</code>.
+   * @param sRole
+   *        The role. May be <code>null</code>.
+   * @param sLocation
+   *        The location in the validated document. May be <code>null</code>.
+   * @param sTest
+   *        The test expression. May be <code>null</code>.
+   * @param sText
+   *        The message text. May be <code>null</code>.
+   * @throws IOException
+   *         If writing fails
+   */
+  public void onSuccessfulReport (@Nullable final String sID,
+                                  @Nullable final String sFlag,
+                                  @Nullable final String sRole,
+                                  @Nullable final String sLocation,
+                                  @Nullable final String sTest,
+                                  @Nullable final String sText) throws IOException
+  {
+    _writeResult (TYPE_SUCCESSFUL_REPORT, sID, sFlag, sRole, sLocation, sTest, sText);
+    m_nSuccessfulReports++;
+  }
+
+  /**
+   * Add a top-level text (like <code>svrl:text</code> of the SVRL root
+   * element).
+   *
+   * @param sText
+   *        The text to add. May not be <code>null</code>.
+   */
+  public void onText (@Nonnull final String sText)
+  {
+    ValueEnforcer.notNull (sText, "Text");
+    _checkNotFinished ();
+    m_aTexts.add (sText);
+  }
+
+  /**
+   * Write all elements of an existing SVRL domain object.
+   *
+   * @param aSVRL
+   *        The SVRL to write. May not be <code>null</code>.
+   * @throws IOException
+   *         If writing fails
+   */
+  public void writeSVRL (@Nonnull final SchematronOutputType aSVRL) throws IOException
+  {
+    ValueEnforcer.notNull (aSVRL, "SVRL");
+    for (final String sText : aSVRL.getText ())
+      onText (sText);
+    for (final Object aObj : aSVRL.getActivePatternAndFiredRuleAndFailedAssert ())
+      if (aObj instanceof FailedAssert)
+      {
+        final FailedAssert aFA = (FailedAssert) aObj;
+        onFailedAssert (aFA.getId (), aFA.getFlag (), aFA.getRole (), aFA.getLocation (), aFA.getTest (), aFA.getText ());
+      }
+      else
+        if (aObj instanceof SuccessfulReport)
+        {
+          final SuccessfulReport aSR = (SuccessfulReport) aObj;
+          onSuccessfulReport (aSR.getId (),
+                              aSR.getFlag (),
+                              aSR.getRole (),
+                              aSR.getLocation (),
+                              aSR.getTest (),
+                              aSR.getText ());
+        }
+        else
+          if (aObj instanceof FiredRule)
+          {
+            final FiredRule aFR = (FiredRule) aObj;
+            onFiredRule (aFR.getId (), aFR.getContext ());
+          }
+          else
+            if (aObj instanceof ActivePattern)
+            {
+              final ActivePattern aAP = (ActivePattern) aObj;
+              onActivePattern (aAP.getId (), aAP.getName ());
+            }
+  }
+
+  private static void _appendArray (@Nonnull final StringBuilder aSB,
+                                    @Nonnull final String sName,
+                                    @Nonnull final ICommonsList <String> aElements)
+  {
+    aSB.append (",\"").append (sName).append ("\":[");
+    boolean bFirst = true;
+    for (final String sElement : aElements)
+    {
+      if (bFirst)
+        bFirst = false;
+      else
+        aSB.append (',');
+      aSB.append (sElement);
+    }
+    aSB.append (']');
+  }
+
+  /**
+   * Finish the JSON object by writing the pattern, rule and text tables and
+   * flush the writer. Calling this method more than once has no effect.
+   *
+   * @throws IOException
+   *         If writing fails
+   */
+  public void finish () throws IOException
+  {
+    if (m_bFinished)
+      return;
+    m_bFinished = true;
+
+    final StringBuilder aSB = m_aSB;
+    aSB.setLength (0);
+    if (m_nFailedAsserts + m_nSuccessfulReports == 0)
+      aSB.append ("{\"results\":[");
+    aSB.append (']');
+    _appendArray (aSB, "rules", m_aRules);
+    _appendArray (aSB, "patterns", m_aPatterns);
+    if (m_aTexts.isNotEmpty ())
+    {
+      final ICommonsList <String> aTexts = new CommonsArrayList <> (m_aTexts.size ());
+      for (final String sText : m_aTexts)
+        aTexts.add (getAsJsonString (sText));
+      _appendArray (aSB, "texts", aTexts);
+    }
+    aSB.append ('}');
+    m_aWriter.append (aSB);
+    m_aWriter.flush ();
+  }
+
+  /**
+   * @return <code>true</code> if {@link #finish()} was called.
+   */
+  public boolean isFinished ()
+  {
+    return m_bFinished;
+  }
+
+  /**
+   * @return The number of failed asserts written so far.
+   */
+  @Nonnegative
+  public int getFailedAssertCount ()
+  {
+    return m_nFailedAsserts;
+  }
+
+  /**
+   * @return The number of successful reports written so far.
+   */
+  @Nonnegative
+  public int getSuccessfulReportCount ()
+  {
+    return m_nSuccessfulReports;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("patterns", m_aPatterns.size ())
+                                       .append ("rules", m_aRules.size ())
+                                       .append ("failedAsserts", m_nFailedAsserts)
+                                       .append ("successfulReports", m_nSuccessfulReports)
+                                       .append ("finished", m_bFinished)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,416 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.svrl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.Source;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+
+import org.oclc.purl.dsdl.svrl.ObjectFactory;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.debug.GlobalDebug;
+import com.helger.commons.io.IHasInputStream;
+import com.helger.commons.io.file.FileHelper;
+import com.helger.commons.state.ESuccess;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.xml.XMLFactory;
+import com.helger.xml.schema.XMLSchemaCache;
+
+/**
+ * A thread-safe SVRL reader and writer that can be shared between threads. In
+ * contrast to {@link SVRLMarshaller}, the JAXB context is created only once,
+ * the JAXB marshallers and unmarshallers are pooled and re-used, and the
+ * validation against the SVRL XSD is opt-in per call. The XSD check is only
+ * needed for SVRL documents from untrusted sources - the documents created by
+ * this library are valid by construction.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@ThreadSafe
+public class SVRLSharedMarshaller
+{
+  /** The default number of pooled marshallers and unmarshallers */
+  public static final int DEFAULT_MAX_POOL_SIZE = Math.max (2, Runtime.getRuntime ().availableProcessors () * 2);
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (SVRLSharedMarshaller.class);
+  private static final ObjectFactory s_aObjectFactory = new ObjectFactory ();
+
+  private static final class SingletonHolder
+  {
+    static final SVRLSharedMarshaller s_aInstance = new SVRLSharedMarshaller (DEFAULT_MAX_POOL_SIZE);
+  }
+
+  private final JAXBContext m_aJAXBContext;
+  private final boolean m_bFormattedOutput;
+  private final BlockingQueue <Marshaller> m_aMarshallers;
+  private final BlockingQueue <Unmarshaller> m_aUnmarshallers;
+  // Created on demand
+  private volatile Schema m_aSchema;
+
+  /**
+   * Constructor
+   *
+   * @param nMaxPoolSize
+   *        The maximum number of idle marshallers and unmarshallers to keep.
+   *        Must be &gt; 0. If more threads are using this object at the same
+   *        time, additional objects are created and discarded after usage.
+   */
+  public SVRLSharedMarshaller (@Nonnegative final int nMaxPoolSize)
+  {
+    ValueEnforcer.isGT0 (nMaxPoolSize, "MaxPoolSize");
+    try
+    {
+      m_aJAXBContext = JAXBContext.newInstance (ObjectFactory.class);
+    }
+    catch (final JAXBException ex)
+    {
+      throw new IllegalStateException ("Failed to create SVRL JAXB context", ex);
+    }
+    m_bFormattedOutput = GlobalDebug.isDebugMode ();
+    m_aMarshallers = new LinkedBlockingQueue <> (nMaxPoolSize);
+    m_aUnmarshallers = new LinkedBlockingQueue <> (nMaxPoolSize);
+  }
+
+  /**
+   * @return The global instance to be shared. Never <code>null</code>.
+   */
+  @Nonnull
+  public static SVRLSharedMarshaller getInstance ()
+  {
+    return SingletonHolder.s_aInstance;
+  }
+
+  /**
+   * @return The compiled SVRL XSD. Never <code>null</code>.
+   */
+  @Nonnull
+  private Schema _getSchema ()
+  {
+    Schema ret = m_aSchema;
+    if (ret == null)
+    {
+      // Schema objects are immutable and thread-safe
+      ret = XMLSchemaCache.getInstance ().getSchema (CSVRL.SVRL_XSDS);
+      m_aSchema = ret;
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private Marshaller _borrowMarshaller (final boolean bCheckXSD) throws JAXBException
+  {
+    Marshaller ret = m_aMarshallers.poll ();
+    if (ret == null)
+    {
+      ret = m_aJAXBContext.createMarshaller ();
+      ret.setProperty (Marshaller.JAXB_ENCODING, StandardCharsets.UTF_8.name ());
+      ret.setProperty (Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.valueOf (m_bFormattedOutput));
+    }
+    ret.setSchema (bCheckXSD ? _getSchema () : null);
+    return ret;
+  }
+
+  @Nonnull
+  private Unmarshaller _borrowUnmarshaller (final boolean bCheckXSD) throws JAXBException
+  {
+    Unmarshaller ret = m_aUnmarshallers.poll ();
+    if (ret == null)
+      ret = m_aJAXBContext.createUnmarshaller ();
+    ret.setSchema (bCheckXSD ? _getSchema () : null);
+    return ret;
+  }
+
+  private void _write (@Nonnull final SchematronOutputType aSVRL,
+                       final boolean bCheckXSD,
+                       @Nonnull final IMarshallerCallback aCallback) throws JAXBException
+  {
+    ValueEnforcer.notNull (aSVRL, "SVRL");
+
+    final Marshaller aMarshaller = _borrowMarshaller (bCheckXSD);
+    aCallback.marshal (aMarshaller, s_aObjectFactory.createSchematronOutput (aSVRL));
+    // Only return it if marshalling succeeded, so that no broken object is
+    // re-used
+    m_aMarshallers.offer (aMarshaller);
+  }
+
+  @FunctionalInterface
+  private interface IMarshallerCallback
+  {
+    void marshal (@Nonnull Marshaller aMarshaller, @Nonnull JAXBElement <SchematronOutputType> aElement) throws JAXBException;
+  }
+
+  @Nullable
+  private SchematronOutputType _read (final boolean bCheckXSD, @Nonnull final IUnmarshallerCallback aCallback)
+  {
+    try
+    {
+      final Unmarshaller aUnmarshaller = _borrowUnmarshaller (bCheckXSD);
+      // Without a declared type, the root element name is checked by JAXB
+      final Object aResult = aCallback.unmarshal (aUnmarshaller);
+      m_aUnmarshallers.offer (aUnmarshaller);
+
+      if (aResult instanceof JAXBElement <?>)
+      {
+        final Object aValue = ((JAXBElement <?>) aResult).getValue ();
+        if (aValue instanceof SchematronOutputType)
+          return (SchematronOutputType) aValue;
+      }
+      s_aLogger.warn ("The read XML is not an SVRL document");
+    }
+    catch (final JAXBException ex)
+    {
+      s_aLogger.warn ("Failed to read SVRL: " + ex.getMessage ());
+    }
+    return null;
+  }
+
+  @FunctionalInterface
+  private interface IUnmarshallerCallback
+  {
+    @Nullable
+    Object unmarshal (@Nonnull Unmarshaller aUnmarshaller) throws JAXBException;
+  }
+
+  /**
+   * Convert the passed SVRL to a DOM document.
+   *
+   * @param aSVRL
+   *        The SVRL to convert. May not be <code>null</code>.
+   * @param bCheckXSD
+   *        <code>true</code> to validate the SVRL against the XSD.
+   * @return <code>null</code> if the conversion failed.
+   */
+  @Nullable
+  public Document getAsDocument (@Nonnull final SchematronOutputType aSVRL, final boolean bCheckXSD)
+  {
+    final Document aDoc = XMLFactory.newDocument ();
+    try
+    {
+      _write (aSVRL, bCheckXSD, (m, e) -> m.marshal (e, new DOMResult (aDoc)));
+      return aDoc;
+    }
+    catch (final JAXBException ex)
+    {
+      s_aLogger.warn ("Failed to write SVRL: " + ex.getMessage ());
+      return null;
+    }
+  }
+
+  /**
+   * Convert the passed SVRL to a string.
+   *
+   * @param aSVRL
+   *        The SVRL to convert. May not be <code>null</code>.
+   * @param bCheckXSD
+   *        <code>true</code> to validate the SVRL against the XSD.
+   * @return <code>null</code> if the conversion failed.
+   */
+  @Nullable
+  public String getAsString (@Nonnull final SchematronOutputType aSVRL, final boolean bCheckXSD)
+  {
+    final StringWriter aSW = new StringWriter ();
+    try
+    {
+      _write (aSVRL, bCheckXSD, (m, e) -> m.marshal (e, aSW));
+      return aSW.toString ();
+    }
+    catch (final JAXBException ex)
+    {
+      s_aLogger.warn ("Failed to write SVRL: " + ex.getMessage ());
+      return null;
+    }
+  }
+
+  /**
+   * Convert the passed SVRL to UTF-8 encoded bytes.
+   *
+   * @param aSVRL
+   *        The SVRL to convert. May not be <code>null</code>.
+   * @param bCheckXSD
+   *        <code>true</code> to validate the SVRL against the XSD.
+   * @return <code>null</code> if the conversion failed.
+   */
+  @Nullable
+  public byte [] getAsBytes (@Nonnull final SchematronOutputType aSVRL, final boolean bCheckXSD)
+  {
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+    return write (aSVRL, aBAOS, bCheckXSD).isSuccess () ? aBAOS.toByteArray () : null;
+  }
+
+  /**
+   * Write the passed SVRL as UTF-8 to the passed stream.
+   *
+   * @param aSVRL
+   *        The SVRL to write. May not be <code>null</code>.
+   * @param aOS
+   *        The stream to write to. May not be <code>null</code>. It is not
+   *        closed.
+   * @param bCheckXSD
+   *        <code>true</code> to validate the SVRL against the XSD.
+   * @return {@link ESuccess}
+   */
+  @Nonnull
+  public ESuccess write (@Nonnull final SchematronOutputType aSVRL,
+                         @Nonnull final OutputStream aOS,
+                         final boolean bCheckXSD)
+  {
+    ValueEnforcer.notNull (aOS, "OutputStream");
+    try
+    {
+      _write (aSVRL, bCheckXSD, (m, e) -> m.marshal (e, aOS));
+      return ESuccess.SUCCESS;
+    }
+    catch (final JAXBException ex)
+    {
+      s_aLogger.warn ("Failed to write SVRL: " + ex.getMessage ());
+      return ESuccess.FAILURE;
+    }
+  }
+
+  /**
+   * Write the passed SVRL as UTF-8 to the passed file.
+   *
+   * @param aSVRL
+   *        The SVRL to write. May not be <code>null</code>.
+   * @param aFile
+   *        The file to write to. May not be <code>null</code>. An existing
+   *        file is overwritten.
+   * @param bCheckXSD
+   *        <code>true</code> to validate the SVRL against the XSD.
+   * @return {@link ESuccess}
+   */
+  @Nonnull
+  public ESuccess write (@Nonnull final SchematronOutputType aSVRL,
+                         @Nonnull final File aFile,
+                         final boolean bCheckXSD)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    try (final OutputStream aOS = FileHelper.getOutputStream (aFile))
+    {
+      if (aOS == null)
+      {
+        s_aLogger.warn ("Failed to open file '" + aFile.getAbsolutePath () + "' for writing");
+        return ESuccess.FAILURE;
+      }
+      return write (aSVRL, aOS, bCheckXSD);
+    }
+    catch (final IOException ex)
+    {
+      s_aLogger.warn ("Failed to close file '" + aFile.getAbsolutePath () + "'", ex);
+      return ESuccess.FAILURE;
+    }
+  }
+
+  /**
+   * Read an SVRL from the passed node.
+   *
+   * @param aNode
+   *        The node to read from. May not be <code>null</code>.
+   * @param bCheckXSD
+   *        <code>true</code> to validate the SVRL against the XSD.
+   * @return <code>null</code> if the node does not contain an (XSD valid) SVRL.
+   */
+  @Nullable
+  public SchematronOutputType read (@Nonnull final Node aNode, final boolean bCheckXSD)
+  {
+    ValueEnforcer.notNull (aNode, "Node");
+    return _read (bCheckXSD, u -> u.unmarshal (aNode));
+  }
+
+  /**
+   * Read an SVRL from the passed source.
+   *
+   * @param aSource
+   *        The source to read from. May not be <code>null</code>.
+   * @param bCheckXSD
+   *        <code>true</code> to validate the SVRL against the XSD.
+   * @return <code>null</code> if the source does not contain an (XSD valid)
+   *         SVRL.
+   */
+  @Nullable
+  public SchematronOutputType read (@Nonnull final Source aSource, final boolean bCheckXSD)
+  {
+    ValueEnforcer.notNull (aSource, "Source");
+    return _read (bCheckXSD, u -> u.unmarshal (aSource));
+  }
+
+  /**
+   * Read an SVRL from the passed resource.
+   *
+   * @param aRes
+   *        The resource to read from. May not be <code>null</code>.
+   * @param bCheckXSD
+   *        <code>true</code> to validate the SVRL against the XSD.
+   * @return <code>null</code> if the resource could not be opened or does not
+   *         contain an (XSD valid) SVRL.
+   */
+  @Nullable
+  public SchematronOutputType read (@Nonnull final IHasInputStream aRes, final boolean bCheckXSD)
+  {
+    ValueEnforcer.notNull (aRes, "Resource");
+    try (final InputStream aIS = aRes.getInputStream ())
+    {
+      if (aIS == null)
+      {
+        s_aLogger.warn ("Failed to open SVRL resource " + aRes);
+        return null;
+      }
+      return read (new StreamSource (aIS), bCheckXSD);
+    }
+    catch (final IOException ex)
+    {
+      s_aLogger.warn ("Failed to close SVRL resource " + aRes, ex);
+      return null;
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("FormattedOutput", m_bFormattedOutput)
+                                       .append ("IdleMarshallers", m_aMarshallers.size ())
+                                       .append ("IdleUnmarshallers", m_aUnmarshallers.size ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,296 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.svrl;
+
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import org.oclc.purl.dsdl.svrl.FailedAssert;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.oclc.purl.dsdl.svrl.SuccessfulReport;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.error.level.IErrorLevel;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A summary of a single SVRL document, that is created in a single pass over
+ * the SVRL. All failed assertions and successful reports are wrapped only once,
+ * and the error level of each distinct flag (or role, if no flag is present)
+ * is resolved only once via
+ * {@link ISVRLErrorLevelDeterminator#getErrorLevelFromString(String)}. All
+ * queries afterwards work on the pre-computed data. Use this class instead of
+ * calling multiple methods of {@link SVRLHelper} on the same SVRL.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@Immutable
+public class SVRLSummary
+{
+  private final ICommonsList <SVRLFailedAssert> m_aFailedAsserts = new CommonsArrayList <> ();
+  private final ICommonsList <SVRLSuccessfulReport> m_aSuccessfulReports = new CommonsArrayList <> ();
+  private final ICommonsList <AbstractSVRLMessage> m_aAllMessages = new CommonsArrayList <> ();
+  private final ICommonsOrderedMap <IErrorLevel, ICommonsList <SVRLFailedAssert>> m_aFailedAssertsPerLevel = new CommonsLinkedHashMap <> ();
+  private final ICommonsOrderedMap <IErrorLevel, ICommonsList <SVRLSuccessfulReport>> m_aSuccessfulReportsPerLevel = new CommonsLinkedHashMap <> ();
+
+  @Nullable
+  private static String _getLevelValue (@Nullable final String sFlag, @Nullable final String sRole)
+  {
+    // First try "flag" (for backwards compatibility) and fall back to "role"
+    return StringHelper.hasText (sFlag) ? sFlag : sRole;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aSchematronOutput
+   *        The SVRL to summarize. May not be <code>null</code>.
+   * @param aELD
+   *        The error level determinator to use. May not be <code>null</code>.
+   */
+  public SVRLSummary (@Nonnull final SchematronOutputType aSchematronOutput,
+                      @Nonnull final ISVRLErrorLevelDeterminator aELD)
+  {
+    ValueEnforcer.notNull (aSchematronOutput, "SchematronOutput");
+    ValueEnforcer.notNull (aELD, "ErrorLevelDeterminator");
+
+    // Number of distinct flags is usually very small
+    final ICommonsMap <String, IErrorLevel> aLevelCache = new CommonsHashMap <> ();
+    for (final Object aObj : aSchematronOutput.getActivePatternAndFiredRuleAndFailedAssert ())
+      if (aObj instanceof FailedAssert)
+      {
+        final FailedAssert aFA = (FailedAssert) aObj;
+        final IErrorLevel aLevel = aLevelCache.computeIfAbsent (_getLevelValue (aFA.getFlag (), aFA.getRole ()),
+                                                                aELD::getErrorLevelFromString);
+        final SVRLFailedAssert aMsg = new SVRLFailedAssert (aFA, x -> aLevel);
+        m_aFailedAsserts.add (aMsg);
+        m_aAllMessages.add (aMsg);
+        m_aFailedAssertsPerLevel.computeIfAbsent (aLevel, k -> new CommonsArrayList <> ()).add (aMsg);
+      }
+      else
+        if (aObj instanceof SuccessfulReport)
+        {
+          final SuccessfulReport aSR = (SuccessfulReport) aObj;
+          final IErrorLevel aLevel = aLevelCache.computeIfAbsent (_getLevelValue (aSR.getFlag (), aSR.getRole ()),
+                                                                  aELD::getErrorLevelFromString);
+          final SVRLSuccessfulReport aMsg = new SVRLSuccessfulReport (aSR, x -> aLevel);
+          m_aSuccessfulReports.add (aMsg);
+          m_aAllMessages.add (aMsg);
+          m_aSuccessfulReportsPerLevel.computeIfAbsent (aLevel, k -> new CommonsArrayList <> ()).add (aMsg);
+        }
+  }
+
+  private static int _getCount (@Nonnull final ICommonsMap <IErrorLevel, ? extends ICommonsList <?>> aMap,
+                                @Nonnull final IErrorLevel aErrorLevel)
+  {
+    int ret = 0;
+    for (final Map.Entry <IErrorLevel, ? extends ICommonsList <?>> aEntry : aMap.entrySet ())
+      if (aEntry.getKey ().isGE (aErrorLevel))
+        ret += aEntry.getValue ().size ();
+    return ret;
+  }
+
+  /**
+   * @return All failed assertions in document order. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <SVRLFailedAssert> getAllFailedAssertions ()
+  {
+    return m_aFailedAsserts.getClone ();
+  }
+
+  /**
+   * @param aErrorLevel
+   *        Minimum error level to be queried. May not be <code>null</code>.
+   * @return All failed assertions with an error level equally or more severe
+   *         than the passed error level in document order. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <SVRLFailedAssert> getAllFailedAssertionsMoreOrEqualSevereThan (@Nonnull final IErrorLevel aErrorLevel)
+  {
+    ValueEnforcer.notNull (aErrorLevel, "ErrorLevel");
+    return m_aFailedAsserts.getAll (x -> x.getFlag ().isGE (aErrorLevel));
+  }
+
+  /**
+   * @return All successful reports in document order. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <SVRLSuccessfulReport> getAllSuccessfulReports ()
+  {
+    return m_aSuccessfulReports.getClone ();
+  }
+
+  /**
+   * @param aErrorLevel
+   *        Minimum error level to be queried. May not be <code>null</code>.
+   * @return All successful reports with an error level equally or more severe
+   *         than the passed error level in document order. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <SVRLSuccessfulReport> getAllSuccessfulReportsMoreOrEqualSevereThan (@Nonnull final IErrorLevel aErrorLevel)
+  {
+    ValueEnforcer.notNull (aErrorLevel, "ErrorLevel");
+    return m_aSuccessfulReports.getAll (x -> x.getFlag ().isGE (aErrorLevel));
+  }
+
+  /**
+   * @return All failed assertions and successful reports in document order.
+   *         Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <AbstractSVRLMessage> getAllFailedAssertionsAndSuccessfulReports ()
+  {
+    return m_aAllMessages.getClone ();
+  }
+
+  /**
+   * @return The distinct error levels of all failed assertions and successful
+   *         reports in the order of their first occurrence. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IErrorLevel> getAllErrorLevels ()
+  {
+    final ICommonsList <IErrorLevel> ret = new CommonsArrayList <> (m_aFailedAssertsPerLevel.keySet ());
+    for (final IErrorLevel aLevel : m_aSuccessfulReportsPerLevel.keySet ())
+      if (!ret.contains (aLevel))
+        ret.add (aLevel);
+    return ret;
+  }
+
+  /**
+   * @return The most severe error level of all failed assertions and
+   *         successful reports or <code>null</code> if there are none.
+   */
+  @Nullable
+  public IErrorLevel getMostSevereErrorLevel ()
+  {
+    IErrorLevel ret = null;
+    for (final IErrorLevel aLevel : getAllErrorLevels ())
+      if (ret == null || aLevel.isGT (ret))
+        ret = aLevel;
+    return ret;
+  }
+
+  @Nonnegative
+  public int getFailedAssertionCount ()
+  {
+    return m_aFailedAsserts.size ();
+  }
+
+  /**
+   * @param aErrorLevel
+   *        The exact error level to be queried. May not be <code>null</code>.
+   * @return The number of failed assertions with exactly the passed error
+   *         level.
+   */
+  @Nonnegative
+  public int getFailedAssertionCount (@Nonnull final IErrorLevel aErrorLevel)
+  {
+    final ICommonsList <SVRLFailedAssert> aList = m_aFailedAssertsPerLevel.get (aErrorLevel);
+    return aList == null ? 0 : aList.size ();
+  }
+
+  /**
+   * @param aErrorLevel
+   *        Minimum error level to be queried. May not be <code>null</code>.
+   * @return The number of failed assertions with an error level equally or
+   *         more severe than the passed error level.
+   */
+  @Nonnegative
+  public int getFailedAssertionCountMoreOrEqualSevereThan (@Nonnull final IErrorLevel aErrorLevel)
+  {
+    ValueEnforcer.notNull (aErrorLevel, "ErrorLevel");
+    return _getCount (m_aFailedAssertsPerLevel, aErrorLevel);
+  }
+
+  @Nonnegative
+  public int getSuccessfulReportCount ()
+  {
+    return m_aSuccessfulReports.size ();
+  }
+
+  /**
+   * @param aErrorLevel
+   *        The exact error level to be queried. May not be <code>null</code>.
+   * @return The number of successful reports with exactly the passed error
+   *         level.
+   */
+  @Nonnegative
+  public int getSuccessfulReportCount (@Nonnull final IErrorLevel aErrorLevel)
+  {
+    final ICommonsList <SVRLSuccessfulReport> aList = m_aSuccessfulReportsPerLevel.get (aErrorLevel);
+    return aList == null ? 0 : aList.size ();
+  }
+
+  /**
+   * @param aErrorLevel
+   *        Minimum error level to be queried. May not be <code>null</code>.
+   * @return The number of successful reports with an error level equally or
+   *         more severe than the passed error level.
+   */
+  @Nonnegative
+  public int getSuccessfulReportCountMoreOrEqualSevereThan (@Nonnull final IErrorLevel aErrorLevel)
+  {
+    ValueEnforcer.notNull (aErrorLevel, "ErrorLevel");
+    return _getCount (m_aSuccessfulReportsPerLevel, aErrorLevel);
+  }
+
+  /**
+   * @param aErrorLevel
+   *        Minimum error level to be queried. May not be <code>null</code>.
+   * @return The number of failed assertions and successful reports with an
+   *         error level equally or more severe than the passed error level.
+   */
+  @Nonnegative
+  public int getMessageCountMoreOrEqualSevereThan (@Nonnull final IErrorLevel aErrorLevel)
+  {
+    return getFailedAssertionCountMoreOrEqualSevereThan (aErrorLevel) +
+           getSuccessfulReportCountMoreOrEqualSevereThan (aErrorLevel);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("FailedAsserts", m_aFailedAsserts.size ())
+                                       .append ("SuccessfulReports", m_aSuccessfulReports.size ())
+                                       .append ("ErrorLevels", getAllErrorLevels ())
+                                       .getToString ();
+  }
+}
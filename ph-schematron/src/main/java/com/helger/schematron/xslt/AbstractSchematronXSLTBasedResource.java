@@ -16,6 +16,8 @@
  */
 package com.helger.schematron.xslt;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Locale;
 import java.util.Map;
 
@@ -24,17 +26,24 @@ import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import javax.xml.transform.ErrorListener;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.URIResolver;
 import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 
 import org.oclc.purl.dsdl.svrl.SchematronOutputType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.xml.sax.EntityResolver;
+import org.xml.sax.SAXException;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.ReturnsMutableCopy;
@@ -42,12 +51,17 @@ import com.helger.commons.annotation.ReturnsMutableObject;
 import com.helger.commons.collection.impl.CommonsLinkedHashMap;
 import com.helger.commons.collection.impl.ICommonsOrderedMap;
 import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.state.ESuccess;
 import com.helger.commons.state.EValidity;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.commons.traits.IGenericImplTrait;
 import com.helger.schematron.AbstractSchematronResource;
 import com.helger.schematron.SchematronDebug;
-import com.helger.schematron.svrl.SVRLMarshaller;
+import com.helger.schematron.SchematronValidationBudgetTracker;
+import com.helger.schematron.saxon.SchematronTransformerFactory;
+import com.helger.schematron.svrl.CSVRL;
+import com.helger.schematron.svrl.SVRLJsonWriter;
+import com.helger.schematron.svrl.SVRLSharedMarshaller;
 import com.helger.schematron.xslt.validator.ISchematronXSLTValidator;
 import com.helger.schematron.xslt.validator.SchematronXSLTValidatorDefault;
 import com.helger.xml.XMLFactory;
@@ -192,11 +206,19 @@ public abstract class AbstractSchematronXSLTBasedResource <IMPLTYPE extends Abst
   @Nonnull
   public EValidity getSchematronValidity (@Nonnull final Node aXMLNode,
                                           @Nullable final String sBaseURI) throws Exception
+  {
+    return getSchematronValidity (aXMLNode, sBaseURI, (Map <String, ?>) null);
+  }
+
+  @Nonnull
+  public EValidity getSchematronValidity (@Nonnull final Node aXMLNode,
+                                          @Nullable final String sBaseURI,
+                                          @Nullable final Map <String, ?> aParameters) throws Exception
   {
     ValueEnforcer.notNull (aXMLNode, "XMLNode");
 
     // We don't have a short circuit here - apply the full validation
-    final SchematronOutputType aSO = applySchematronValidationToSVRL (aXMLNode, sBaseURI);
+    final SchematronOutputType aSO = applySchematronValidationToSVRL (aXMLNode, sBaseURI, aParameters);
     if (aSO == null)
       return EValidity.INVALID;
 
@@ -208,24 +230,133 @@ public abstract class AbstractSchematronXSLTBasedResource <IMPLTYPE extends Abst
   public final Document applySchematronValidation (@Nonnull final Node aXMLNode,
                                                    @Nullable final String sBaseURI) throws TransformerException
   {
-    ValueEnforcer.notNull (aXMLNode, "XMLNode");
+    return applySchematronValidation (aXMLNode, sBaseURI, (Map <String, ?>) null);
+  }
 
-    final ISchematronXSLTBasedProvider aXSLTProvider = getXSLTProvider ();
-    if (aXSLTProvider == null || !aXSLTProvider.isValidSchematron ())
+  /**
+   * Apply the Schematron validation on the passed DOM Node and return the SVRL
+   * document, using additional XSLT parameters for this transformation only.
+   * The passed parameters take precedence over the parameters set via
+   * {@link #setParameters(Map)}.
+   *
+   * @param aXMLNode
+   *        The DOM node to be validated via Schematron. May not be
+   *        <code>null</code>.
+   * @param sBaseURI
+   *        The Base URI of the XML document to be validated. May be
+   *        <code>null</code>.
+   * @param aParameters
+   *        The XSLT parameters to be used for this transformation. May be
+   *        <code>null</code>.
+   * @return The SVRL document or <code>null</code> if the Schematron is
+   *         invalid.
+   * @throws TransformerException
+   *         In case the transformation somehow goes wrong.
+   * @since 5.0.5
+   */
+  @Nullable
+  public final Document applySchematronValidation (@Nonnull final Node aXMLNode,
+                                                   @Nullable final String sBaseURI,
+                                                   @Nullable final Map <String, ?> aParameters) throws TransformerException
+  {
+    return _applySchematronValidation (aXMLNode, sBaseURI, aParameters, (SchematronValidationBudgetTracker) null);
+  }
+
+  /**
+   * Apply the Schematron validation on the passed DOM Node and return the SVRL
+   * document, stopping as soon as the budget of the passed tracker is
+   * exceeded. The budget is checked whenever an SVRL element is created and,
+   * when using Saxon, whenever the transformation proceeds to the next node,
+   * so that slow expressions without output are stopped as well. In case the
+   * budget is exceeded, the partial SVRL document is returned and
+   * marked as truncated (see
+   * {@link SchematronValidationBudgetTracker#isTruncated(SchematronOutputType)}).
+   *
+   * @param aXMLNode
+   *        The DOM node to be validated via Schematron. May not be
+   *        <code>null</code>.
+   * @param sBaseURI
+   *        The Base URI of the XML document to be validated. May be
+   *        <code>null</code>.
+   * @param aParameters
+   *        The XSLT parameters to be used for this transformation. May be
+   *        <code>null</code>.
+   * @param aTracker
+   *        The budget tracker for this validation. May not be
+   *        <code>null</code>.
+   * @return The (maybe truncated) SVRL document or <code>null</code> if the
+   *         Schematron is invalid.
+   * @throws TransformerException
+   *         In case the transformation somehow goes wrong.
+   * @since 5.0.5
+   */
+  @Nullable
+  public final Document applySchematronValidation (@Nonnull final Node aXMLNode,
+                                                   @Nullable final String sBaseURI,
+                                                   @Nullable final Map <String, ?> aParameters,
+                                                   @Nonnull final SchematronValidationBudgetTracker aTracker) throws TransformerException
+  {
+    ValueEnforcer.notNull (aTracker, "Tracker");
+    return _applySchematronValidation (aXMLNode, sBaseURI, aParameters, aTracker);
+  }
+
+  private static void _transformWithBudget (@Nonnull final Transformer aTransformer,
+                                            @Nonnull final Node aXMLNode,
+                                            @Nonnull final Document aResultDoc,
+                                            @Nonnull final SchematronValidationBudgetTracker aTracker) throws TransformerException
+  {
+    final TransformerFactory aTF = SchematronTransformerFactory.getDefaultSaxonFirst ();
+    if (!(aTF instanceof SAXTransformerFactory))
+      throw new TransformerException ("The transformer factory " + aTF + " does not support SAX");
+    final TransformerHandler aHandler = ((SAXTransformerFactory) aTF).newTransformerHandler ();
+    aHandler.setResult (new DOMResult (aResultDoc));
+
+    final SVRLBudgetFilter aFilter = new SVRLBudgetFilter (aTracker);
+    aFilter.setContentHandler (aHandler);
+
+    // Check the duration and cancellation independent of the output
+    if (aTransformer instanceof TransformerImpl)
+      ((TransformerImpl) aTransformer).getUnderlyingXsltTransformer ()
+                                      .getUnderlyingController ()
+                                      .setTraceListener (new SVRLBudgetTraceListener (aTracker));
+    try
     {
-      // We cannot progress because of invalid Schematron
-      return null;
+      aTransformer.transform (new DOMSource (aXMLNode), new SAXResult (aFilter));
     }
+    catch (final TransformerException | RuntimeException ex)
+    {
+      if (!aTracker.isExceeded ())
+        throw ex;
 
-    // Debug print the created XSLT document
-    if (SchematronDebug.isShowCreatedXSLT ())
-      s_aLogger.info ("Created XSLT document: " + XMLWriter.getNodeAsString (aXSLTProvider.getXSLTDocument ()));
+      // Stopped because of the budget - complete the partial result
+      try
+      {
+        aFilter.finishTruncated ();
+      }
+      catch (final SAXException ex2)
+      {
+        throw new TransformerException (ex2);
+      }
+    }
 
-    // Create result document
-    final Document ret = XMLFactory.newDocument ();
+    // Mark as truncated
+    final Element eRoot = aResultDoc.getDocumentElement ();
+    if (eRoot != null && aTracker.isExceeded ())
+    {
+      final Element eText = aResultDoc.createElementNS (CSVRL.SVRL_NAMESPACE_URI, "svrl:text");
+      eText.appendChild (aResultDoc.createTextNode (aTracker.getTruncationText ()));
+      eRoot.insertBefore (eText, eRoot.getFirstChild ());
+    }
+  }
 
-    // Create the transformer object from the templates specified in the
-    // constructor
+  /**
+   * Create the transformer object from the templates of the provider and
+   * apply all customizations.
+   */
+  @Nonnull
+  private Transformer _createTransformer (@Nonnull final ISchematronXSLTBasedProvider aXSLTProvider,
+                                          @Nullable final Map <String, ?> aParameters) throws TransformerConfigurationException
+  {
     final Transformer aTransformer = aXSLTProvider.getXSLTTransformer ();
 
     // Apply customizations
@@ -244,6 +375,38 @@ public abstract class AbstractSchematronXSLTBasedResource <IMPLTYPE extends Abst
       for (final Map.Entry <String, ?> aEntry : m_aCustomParameters.entrySet ())
         aTransformer.setParameter (aEntry.getKey (), aEntry.getValue ());
 
+    // Set all per-validation parameters
+    if (aParameters != null)
+      for (final Map.Entry <String, ?> aEntry : aParameters.entrySet ())
+        if (aEntry.getValue () != null)
+          aTransformer.setParameter (aEntry.getKey (), aEntry.getValue ());
+    return aTransformer;
+  }
+
+  @Nullable
+  private Document _applySchematronValidation (@Nonnull final Node aXMLNode,
+                                               @Nullable final String sBaseURI,
+                                               @Nullable final Map <String, ?> aParameters,
+                                               @Nullable final SchematronValidationBudgetTracker aTracker) throws TransformerException
+  {
+    ValueEnforcer.notNull (aXMLNode, "XMLNode");
+
+    final ISchematronXSLTBasedProvider aXSLTProvider = getXSLTProvider ();
+    if (aXSLTProvider == null || !aXSLTProvider.isValidSchematron ())
+    {
+      // We cannot progress because of invalid Schematron
+      return null;
+    }
+
+    // Debug print the created XSLT document
+    if (SchematronDebug.isShowCreatedXSLT ())
+      s_aLogger.info ("Created XSLT document: " + XMLWriter.getNodeAsString (aXSLTProvider.getXSLTDocument ()));
+
+    // Create result document
+    final Document ret = XMLFactory.newDocument ();
+
+    final Transformer aTransformer = _createTransformer (aXSLTProvider, aParameters);
+
     if (s_aLogger.isDebugEnabled ())
       s_aLogger.debug ("Applying Schematron XSLT on XML [start]");
 
@@ -273,7 +436,10 @@ public abstract class AbstractSchematronXSLTBasedResource <IMPLTYPE extends Abst
       }
 
     // Do the main transformation
-    aTransformer.transform (new DOMSource (aXMLNode), new DOMResult (ret));
+    if (aTracker == null)
+      aTransformer.transform (new DOMSource (aXMLNode), new DOMResult (ret));
+    else
+      _transformWithBudget (aTransformer, aXMLNode, ret, aTracker);
 
     if (s_aLogger.isDebugEnabled ())
       s_aLogger.debug ("Applying Schematron XSLT on XML [end]");
@@ -285,18 +451,116 @@ public abstract class AbstractSchematronXSLTBasedResource <IMPLTYPE extends Abst
     return ret;
   }
 
+  /**
+   * Apply the Schematron validation on the passed DOM Node and stream the
+   * resulting SVRL elements as compact JSON to the passed writer. The SAX
+   * output of the transformation is consumed directly, so neither an SVRL DOM
+   * nor an SVRL domain object is created.
+   *
+   * @param aXMLNode
+   *        The DOM node to be validated via Schematron. May not be
+   *        <code>null</code>.
+   * @param sBaseURI
+   *        The Base URI of the XML document to be validated. May be
+   *        <code>null</code>.
+   * @param aParameters
+   *        The XSLT parameters to be used for this transformation. May be
+   *        <code>null</code>.
+   * @param aWriter
+   *        The writer to write the JSON to. May not be <code>null</code>. It
+   *        is flushed but not closed.
+   * @return {@link ESuccess#FAILURE} if the Schematron is invalid. In that
+   *         case nothing is written.
+   * @throws TransformerException
+   *         In case the transformation somehow goes wrong.
+   * @throws IOException
+   *         If writing fails
+   * @since 5.0.5
+   */
+  @Override
+  @Nonnull
+  public ESuccess applySchematronValidationToJson (@Nonnull final Node aXMLNode,
+                                                   @Nullable final String sBaseURI,
+                                                   @Nullable final Map <String, ?> aParameters,
+                                                   @Nonnull final Writer aWriter) throws TransformerException,
+                                                                                  IOException
+  {
+    ValueEnforcer.notNull (aXMLNode, "XMLNode");
+    ValueEnforcer.notNull (aWriter, "Writer");
+
+    final ISchematronXSLTBasedProvider aXSLTProvider = getXSLTProvider ();
+    if (aXSLTProvider == null || !aXSLTProvider.isValidSchematron ())
+    {
+      // We cannot progress because of invalid Schematron
+      return ESuccess.FAILURE;
+    }
+
+    final Transformer aTransformer = _createTransformer (aXSLTProvider, aParameters);
+    final SVRLJsonWriter aJsonWriter = new SVRLJsonWriter (aWriter);
+    aTransformer.transform (new DOMSource (aXMLNode), new SAXResult (new SVRLJsonContentHandler (aJsonWriter)));
+    aJsonWriter.finish ();
+    return ESuccess.SUCCESS;
+  }
+
   @Nullable
   public SchematronOutputType applySchematronValidationToSVRL (@Nonnull final Node aXMLSource,
                                                                @Nullable final String sBaseURI) throws Exception
   {
-    final Document aDoc = applySchematronValidation (aXMLSource, sBaseURI);
+    return applySchematronValidationToSVRL (aXMLSource, sBaseURI, (Map <String, ?>) null);
+  }
+
+  @Nullable
+  public SchematronOutputType applySchematronValidationToSVRL (@Nonnull final Node aXMLSource,
+                                                               @Nullable final String sBaseURI,
+                                                               @Nullable final Map <String, ?> aParameters) throws Exception
+  {
+    final Document aDoc = applySchematronValidation (aXMLSource, sBaseURI, aParameters);
+    return _readSVRL (aDoc);
+  }
+
+  /**
+   * Apply the Schematron validation with a budget and read the resulting SVRL.
+   *
+   * @param aXMLSource
+   *        The DOM node to be validated via Schematron. May not be
+   *        <code>null</code>.
+   * @param sBaseURI
+   *        The Base URI of the XML document to be validated. May be
+   *        <code>null</code>.
+   * @param aParameters
+   *        The XSLT parameters to be used for this transformation. May be
+   *        <code>null</code>.
+   * @param aTracker
+   *        The budget tracker for this validation. May not be
+   *        <code>null</code>.
+   * @return The (maybe truncated) SVRL or <code>null</code> if the Schematron
+   *         is invalid.
+   * @throws Exception
+   *         In case the transformation somehow goes wrong.
+   * @see #applySchematronValidation(Node, String, Map,
+   *      SchematronValidationBudgetTracker)
+   * @since 5.0.5
+   */
+  @Nullable
+  public SchematronOutputType applySchematronValidationToSVRL (@Nonnull final Node aXMLSource,
+                                                               @Nullable final String sBaseURI,
+                                                               @Nullable final Map <String, ?> aParameters,
+                                                               @Nonnull final SchematronValidationBudgetTracker aTracker) throws Exception
+  {
+    final Document aDoc = applySchematronValidation (aXMLSource, sBaseURI, aParameters, aTracker);
+    return _readSVRL (aDoc);
+  }
+
+  @Nullable
+  private static SchematronOutputType _readSVRL (@Nullable final Document aDoc)
+  {
     if (aDoc == null)
       return null;
 
     // Avoid NPE later on
     if (aDoc.getDocumentElement () == null)
       throw new IllegalStateException ("Internal error: created SVRL DOM Document has no document node!");
-    return new SVRLMarshaller ().read (aDoc);
+    return SVRLSharedMarshaller.getInstance ().read (aDoc, false);
   }
 
   @Override
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.xslt;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.state.EContinue;
+import com.helger.schematron.SchematronValidationBudgetTracker;
+import com.helger.schematron.svrl.CSVRL;
+
+/**
+ * A SAX filter for the SVRL output of the XSLT based validation, that applies
+ * a {@link SchematronValidationBudgetTracker}. Each fired rule counts as an
+ * evaluated node and each failed assert and successful report counts as a
+ * finding. As soon as the budget is exceeded, an exception is thrown to stop
+ * the transformation. Afterwards {@link #finishTruncated()} closes all open
+ * elements, so that the partial SVRL is well-formed.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+final class SVRLBudgetFilter extends XMLFilterImpl
+{
+  private final SchematronValidationBudgetTracker m_aTracker;
+  // Namespace URI, local name and qualified name of all open elements
+  private final ICommonsList <String []> m_aOpenElements = new CommonsArrayList <> ();
+  private boolean m_bDocumentStarted = false;
+  private boolean m_bDocumentEnded = false;
+
+  SVRLBudgetFilter (@Nonnull final SchematronValidationBudgetTracker aTracker)
+  {
+    ValueEnforcer.notNull (aTracker, "Tracker");
+    m_aTracker = aTracker;
+  }
+
+  @Override
+  public void startDocument () throws SAXException
+  {
+    super.startDocument ();
+    m_bDocumentStarted = true;
+  }
+
+  @Override
+  public void endDocument () throws SAXException
+  {
+    super.endDocument ();
+    m_bDocumentEnded = true;
+  }
+
+  @Nonnull
+  private EContinue _checkBudget (@Nonnull final String sLocalName)
+  {
+    if ("fired-rule".equals (sLocalName))
+      return m_aTracker.onNodeEvaluation ();
+    if (m_aTracker.checkContinue ().isBreak ())
+      return EContinue.BREAK;
+    if ("failed-assert".equals (sLocalName) || "successful-report".equals (sLocalName))
+      return m_aTracker.onFinding ();
+    return EContinue.CONTINUE;
+  }
+
+  @Override
+  public void startElement (final String sURI,
+                            final String sLocalName,
+                            final String sQName,
+                            final Attributes aAttrs) throws SAXException
+  {
+    if (CSVRL.SVRL_NAMESPACE_URI.equals (sURI) && _checkBudget (sLocalName).isBreak ())
+      throw new SAXException (m_aTracker.getTruncationText ());
+
+    super.startElement (sURI, sLocalName, sQName, aAttrs);
+    m_aOpenElements.add (new String [] { sURI, sLocalName, sQName });
+  }
+
+  @Override
+  public void endElement (final String sURI, final String sLocalName, final String sQName) throws SAXException
+  {
+    super.endElement (sURI, sLocalName, sQName);
+    m_aOpenElements.removeLast ();
+  }
+
+  /**
+   * Close all open elements and the document after the transformation was
+   * stopped.
+   *
+   * @throws SAXException
+   *         In case the underlying handler fails
+   */
+  void finishTruncated () throws SAXException
+  {
+    while (m_aOpenElements.isNotEmpty ())
+    {
+      final String [] aElement = m_aOpenElements.getLast ();
+      endElement (aElement[0], aElement[1], aElement[2]);
+    }
+    if (m_bDocumentStarted && !m_bDocumentEnded)
+      endDocument ();
+  }
+}
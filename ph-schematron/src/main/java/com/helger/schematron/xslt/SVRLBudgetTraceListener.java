@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.xslt;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.schematron.SchematronValidationBudgetTracker;
+
+import net.sf.saxon.Controller;
+import net.sf.saxon.expr.XPathContext;
+import net.sf.saxon.lib.Logger;
+import net.sf.saxon.lib.TraceListener;
+import net.sf.saxon.om.Item;
+import net.sf.saxon.trace.InstructionInfo;
+
+/**
+ * A Saxon trace listener that checks a
+ * {@link SchematronValidationBudgetTracker} whenever the transformation
+ * proceeds to the next item or instruction. In contrast to
+ * {@link SVRLBudgetFilter} this also stops long running transformations that
+ * don't create any SVRL output, e.g. because of slow rule contexts. As soon as
+ * the duration is exceeded or the validation was cancelled, an exception is
+ * thrown to stop the transformation.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+final class SVRLBudgetTraceListener implements TraceListener
+{
+  private final SchematronValidationBudgetTracker m_aTracker;
+
+  SVRLBudgetTraceListener (@Nonnull final SchematronValidationBudgetTracker aTracker)
+  {
+    ValueEnforcer.notNull (aTracker, "Tracker");
+    m_aTracker = aTracker;
+  }
+
+  private void _checkBudget ()
+  {
+    if (m_aTracker.checkContinue ().isBreak ())
+      throw new IllegalStateException (m_aTracker.getTruncationText ());
+  }
+
+  public void setOutputDestination (final Logger aLogger)
+  {}
+
+  public void open (final Controller aController)
+  {}
+
+  public void close ()
+  {}
+
+  public void enter (final InstructionInfo aInstruction, final XPathContext aContext)
+  {
+    _checkBudget ();
+  }
+
+  public void leave (final InstructionInfo aInstruction)
+  {}
+
+  public void startCurrentItem (final Item aCurrentItem)
+  {
+    _checkBudget ();
+  }
+
+  public void endCurrentItem (final Item aCurrentItem)
+  {}
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.xslt;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.schematron.svrl.CSVRL;
+import com.helger.schematron.svrl.SVRLJsonWriter;
+
+/**
+ * A SAX content handler for the SVRL output of the XSLT based validation, that
+ * forwards all relevant SVRL elements to an {@link SVRLJsonWriter}. That
+ * avoids building the SVRL DOM and reading it via JAXB.
+ *
+ * @author Philip Helger
+ * @since 5.0.5
+ */
+@NotThreadSafe
+final class SVRLJsonContentHandler extends DefaultHandler
+{
+  private final SVRLJsonWriter m_aJsonWriter;
+  // Attributes of the current failed-assert or successful-report
+  private boolean m_bInFailedAssert = false;
+  private boolean m_bInSuccessfulReport = false;
+  private String m_sID;
+  private String m_sFlag;
+  private String m_sRole;
+  private String m_sLocation;
+  private String m_sTest;
+  private String m_sText;
+  // Collected text of the current svrl:text element
+  private StringBuilder m_aText;
+  private int m_nDepth = 0;
+
+  SVRLJsonContentHandler (@Nonnull final SVRLJsonWriter aJsonWriter)
+  {
+    ValueEnforcer.notNull (aJsonWriter, "JsonWriter");
+    m_aJsonWriter = aJsonWriter;
+  }
+
+  private static boolean _isSVRL (final String sNamespaceURI)
+  {
+    return CSVRL.SVRL_NAMESPACE_URI.equals (sNamespaceURI);
+  }
+
+  @Override
+  public void startElement (final String sNamespaceURI,
+                            final String sLocalName,
+                            final String sQName,
+                            final Attributes aAttributes)
+  {
+    m_nDepth++;
+    if (!_isSVRL (sNamespaceURI))
+      return;
+
+    switch (sLocalName)
+    {
+      case "active-pattern":
+        m_aJsonWriter.onActivePattern (aAttributes.getValue ("id"), aAttributes.getValue ("name"));
+        break;
+      case "fired-rule":
+        m_aJsonWriter.onFiredRule (aAttributes.getValue ("id"), aAttributes.getValue ("context"));
+        break;
+      case "failed-assert":
+      case "successful-report":
+        m_bInFailedAssert = "failed-assert".equals (sLocalName);
+        m_bInSuccessfulReport = !m_bInFailedAssert;
+        m_sID = aAttributes.getValue ("id");
+        m_sFlag = aAttributes.getValue ("flag");
+        m_sRole = aAttributes.getValue ("role");
+        m_sLocation = aAttributes.getValue ("location");
+        m_sTest = aAttributes.getValue ("test");
+        m_sText = null;
+        break;
+      case "text":
+        // Only the texts of the root element and of asserts and reports
+        if (m_nDepth == 2 || ((m_bInFailedAssert || m_bInSuccessfulReport) && m_nDepth == 3))
+          m_aText = new StringBuilder ();
+        break;
+      default:
+        break;
+    }
+  }
+
+  @Override
+  public void characters (final char [] aChars, final int nStart, final int nLength)
+  {
+    if (m_aText != null)
+      m_aText.append (aChars, nStart, nLength);
+  }
+
+  @Override
+  public void endElement (final String sNamespaceURI, final String sLocalName, final String sQName) throws SAXException
+  {
+    m_nDepth--;
+    if (!_isSVRL (sNamespaceURI))
+      return;
+
+    try
+    {
+      switch (sLocalName)
+      {
+        case "text":
+          if (m_aText != null)
+          {
+            if (m_bInFailedAssert || m_bInSuccessfulReport)
+              m_sText = m_aText.toString ();
+            else
+              m_aJsonWriter.onText (m_aText.toString ());
+            m_aText = null;
+          }
+          break;
+        case "failed-assert":
+          m_aJsonWriter.onFailedAssert (m_sID, m_sFlag, m_sRole, m_sLocation, m_sTest, m_sText);
+          m_bInFailedAssert = false;
+          break;
+        case "successful-report":
+          m_aJsonWriter.onSuccessfulReport (m_sID, m_sFlag, m_sRole, m_sLocation, m_sTest, m_sText);
+          m_bInSuccessfulReport = false;
+          break;
+        default:
+          break;
+      }
+    }
+    catch (final IOException ex)
+    {
+      throw new SAXException ("Failed to write JSON", ex);
+    }
+  }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsTreeSet;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.IHasInputStream;
+import com.helger.commons.io.resource.inmemory.ReadableResourceString;
+import com.helger.schematron.pure.SchematronPureValidator;
+import com.helger.schematron.pure.SchematronResourcePure;
+import com.helger.schematron.svrl.SVRLHelper;
+
+/**
+ * Test class for class {@link SchematronBatchValidator}.
+ *
+ * @author Philip Helger
+ */
+public final class SchematronBatchValidatorTest
+{
+  private static final String SCH = "<schema xmlns='http://purl.oclc.org/dsdl/schematron'>" +
+                                    "<pattern><rule context='line'><assert test='. mod 2 = 0'>Odd</assert></rule></pattern>" +
+                                    "</schema>";
+  private static final int COUNT = 20;
+
+  @Nonnull
+  private static ICommonsList <IHasInputStream> _createInputs ()
+  {
+    final ICommonsList <IHasInputStream> ret = new CommonsArrayList <> ();
+    // Input i contains i lines with the values 0 to i-1
+    for (int i = 0; i < COUNT; ++i)
+    {
+      final StringBuilder aSB = new StringBuilder ("<lines>");
+      for (int j = 0; j < i; ++j)
+        aSB.append ("<line>").append (j).append ("</line>");
+      ret.add (new ReadableResourceString (aSB.append ("</lines>").toString (), StandardCharsets.UTF_8));
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private static ISchematronResource _getSchematron ()
+  {
+    final SchematronResourcePure aSch = SchematronResourcePure.fromString (SCH, StandardCharsets.UTF_8);
+    // Bind upfront
+    assertTrue (aSch.isValidSchematron ());
+    return aSch;
+  }
+
+  @Test
+  public void testAsync () throws Exception
+  {
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (2);
+    try
+    {
+      final SchematronOutputType aSVRL = _getSchematron ().applySchematronValidationToSVRLAsync (_createInputs ().get (5),
+                                                                                                  aExecutor)
+                                                          .get ();
+      assertNotNull (aSVRL);
+      // 1 and 3
+      assertEquals (2, SVRLHelper.getAllFailedAssertions (aSVRL).size ());
+    }
+    finally
+    {
+      aExecutor.shutdown ();
+    }
+  }
+
+  @Test
+  public void testBatch () throws Exception
+  {
+    final ICommonsList <IHasInputStream> aInputs = _createInputs ();
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (4);
+    try
+    {
+      final SchematronPureValidator aPure = SchematronPureValidator.builder (new ReadableResourceString (SCH,
+                                                                                                        StandardCharsets.UTF_8))
+                                                                   .build ();
+      final SchematronBatchValidator aValidator = new SchematronBatchValidator (aPure, aExecutor, 3);
+
+      // Ordered
+      final ICommonsList <Integer> aIndices = new CommonsArrayList <> ();
+      assertTrue (aValidator.validateAll (aInputs, true, (nIndex, aXMLResource, aSVRL, aError) -> {
+        assertNull (aError);
+        assertTrue (aXMLResource == aInputs.get (nIndex));
+        assertEquals (nIndex / 2, SVRLHelper.getAllFailedAssertions (aSVRL).size ());
+        aIndices.add (Integer.valueOf (nIndex));
+      }).isSuccess ());
+      assertEquals (COUNT, aIndices.size ());
+      for (int i = 0; i < COUNT; ++i)
+        assertEquals (i, aIndices.get (i).intValue ());
+
+      // Unordered from a stream
+      final CommonsTreeSet <Integer> aUnordered = new CommonsTreeSet <> ();
+      assertTrue (aValidator.validateAll (aInputs.stream (), false, (nIndex, aXMLResource, aSVRL, aError) -> {
+        assertNull (aError);
+        assertEquals (nIndex / 2, SVRLHelper.getAllFailedAssertions (aSVRL).size ());
+        aUnordered.add (Integer.valueOf (nIndex));
+      }).isSuccess ());
+      assertEquals (COUNT, aUnordered.size ());
+    }
+    finally
+    {
+      aExecutor.shutdown ();
+    }
+  }
+
+  @Test
+  public void testBatchMulti () throws Exception
+  {
+    final ICommonsList <IHasInputStream> aInputs = _createInputs ();
+    final AtomicInteger aCreated = new AtomicInteger (0);
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (4);
+    try
+    {
+      final SchematronBatchValidator aValidator = new SchematronBatchValidator ( () -> {
+        aCreated.incrementAndGet ();
+        return new SchematronMultiValidator (new CommonsArrayList <> (_getSchematron (), _getSchematron ()));
+      }, aExecutor, 3);
+
+      final ICommonsList <Integer> aIndices = new CommonsArrayList <> ();
+      assertTrue (aValidator.validateAll (aInputs, true, (nIndex, aXMLResource, aSVRLs, aError, nDurationNanos) -> {
+        assertNull (aError);
+        assertTrue (aXMLResource == aInputs.get (nIndex));
+        assertEquals (2, aSVRLs.size ());
+        for (final SchematronOutputType aSVRL : aSVRLs)
+          assertEquals (nIndex / 2, SVRLHelper.getAllFailedAssertions (aSVRL).size ());
+        assertTrue (nDurationNanos >= 0);
+        aIndices.add (Integer.valueOf (nIndex));
+      }).isSuccess ());
+      assertEquals (COUNT, aIndices.size ());
+      for (int i = 0; i < COUNT; ++i)
+        assertEquals (i, aIndices.get (i).intValue ());
+
+      // At most one multi validator per concurrent validation
+      assertTrue (aCreated.get () >= 1);
+      assertTrue (aCreated.get () <= 3);
+    }
+    finally
+    {
+      aExecutor.shutdown ();
+    }
+  }
+
+  @Test
+  public void testBatchSchematronFactory () throws Exception
+  {
+    final ICommonsList <IHasInputStream> aInputs = _createInputs ();
+    final AtomicInteger aCreated = new AtomicInteger (0);
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (4);
+    try
+    {
+      final SchematronBatchValidator aValidator = SchematronBatchValidator.createForSchematronFactory ( () -> {
+        aCreated.incrementAndGet ();
+        return _getSchematron ();
+      }, aExecutor, 3);
+
+      final ICommonsList <Integer> aIndices = new CommonsArrayList <> ();
+      assertTrue (aValidator.validateAll (aInputs, true, (nIndex, aXMLResource, aSVRL, aError) -> {
+        assertNull (aError);
+        assertEquals (nIndex / 2, SVRLHelper.getAllFailedAssertions (aSVRL).size ());
+        aIndices.add (Integer.valueOf (nIndex));
+      }).isSuccess ());
+      assertEquals (COUNT, aIndices.size ());
+
+      // At most one resource per concurrent validation
+      assertTrue (aCreated.get () >= 1);
+      assertTrue (aCreated.get () <= 3);
+    }
+    finally
+    {
+      aExecutor.shutdown ();
+    }
+  }
+}
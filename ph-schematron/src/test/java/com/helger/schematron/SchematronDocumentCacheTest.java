@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import com.helger.xml.EXMLParserFeature;
+import com.helger.xml.serialize.read.DOMReaderSettings;
+
+/**
+ * Test class for class {@link SchematronDocumentCache}.
+ *
+ * @author Philip Helger
+ */
+public final class SchematronDocumentCacheTest
+{
+  private static final byte [] XML1 = "<root><a/></root>".getBytes (StandardCharsets.UTF_8);
+  private static final byte [] XML2 = "<root><b/></root>".getBytes (StandardCharsets.UTF_8);
+
+  @Test
+  public void testBasic () throws Exception
+  {
+    final SchematronDocumentCache aCache = new SchematronDocumentCache (1);
+    final Document aDoc1 = aCache.getOrParseDocument (XML1);
+    assertNotNull (aDoc1);
+    // Each caller gets its own copy
+    final Document aDoc1Copy = aCache.getOrParseDocument (XML1.clone ());
+    assertNotSame (aDoc1, aDoc1Copy);
+    assertEquals ("a", aDoc1Copy.getDocumentElement ().getFirstChild ().getNodeName ());
+    assertEquals (1, aCache.getHitCount ());
+    assertEquals (1, aCache.getMissCount ());
+
+    // Evicts the first document
+    assertNotNull (aCache.getOrParseDocument (XML2));
+    assertEquals (1, aCache.size ());
+    assertNotSame (aDoc1, aCache.getOrParseDocument (XML1));
+    assertEquals (3, aCache.getMissCount ());
+  }
+
+  @Test
+  public void testSettings ()
+  {
+    // Deferred node expansion is always disabled for shared documents
+    final DOMReaderSettings aSettings = new DOMReaderSettings ();
+    aSettings.setFeatureValue (EXMLParserFeature.DOM_DEFER_NODE_EXPANSION, true);
+    final SchematronDocumentCache aCache = new SchematronDocumentCache (2, aSettings);
+    assertEquals (Boolean.FALSE, aCache.getDOMReaderSettings ().getFeatureValue (EXMLParserFeature.DOM_DEFER_NODE_EXPANSION));
+
+    // The passed settings are copied
+    assertEquals (Boolean.TRUE, aSettings.getFeatureValue (EXMLParserFeature.DOM_DEFER_NODE_EXPANSION));
+
+    assertEquals (Boolean.FALSE,
+                  new SchematronDocumentCache ().getDOMReaderSettings ()
+                                                .getFeatureValue (EXMLParserFeature.DOM_DEFER_NODE_EXPANSION));
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.concurrent.ExecutorServiceHelper;
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.schematron.pure.SchematronResourcePure;
+import com.helger.schematron.svrl.SVRLHelper;
+
+/**
+ * Test class for class {@link SchematronMultiValidator}.
+ *
+ * @author Philip Helger
+ */
+public final class SchematronMultiValidatorTest
+{
+  @Test
+  public void testBasic () throws Exception
+  {
+    final ICommonsList <ISchematronResource> aSchematrons = new CommonsArrayList <> ();
+    for (final String sSCH : new String [] { "test-sch/valid01.sch", "test-sch/valid02.sch", "test-sch/valid03.sch" })
+    {
+      final SchematronResourcePure aRes = SchematronResourcePure.fromClassPath (sSCH);
+      // Bind before sharing between threads
+      aRes.validateCompletely ();
+      aSchematrons.add (aRes);
+    }
+    final IReadableResource aXML = new ClassPathResource ("test-xml/valid01.xml");
+
+    final SchematronDocumentCache aCache = new SchematronDocumentCache (2);
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (3);
+    try
+    {
+      final SchematronMultiValidator aValidator = new SchematronMultiValidator (aSchematrons, aCache, aExecutor);
+      final ICommonsList <SchematronOutputType> aSVRLs = aValidator.applySchematronValidationToSVRL (aXML);
+      assertNotNull (aSVRLs);
+      assertEquals (3, aSVRLs.size ());
+      assertEquals (0, aCache.getHitCount ());
+      assertEquals (1, aCache.getMissCount ());
+
+      // Same result as the single validation
+      for (int i = 0; i < aSchematrons.size (); ++i)
+      {
+        final SchematronOutputType aExpected = aSchematrons.get (i).applySchematronValidationToSVRL (aXML);
+        assertEquals (SVRLHelper.getAllFailedAssertions (aExpected).size (),
+                      SVRLHelper.getAllFailedAssertions (aSVRLs.get (i)).size ());
+        assertEquals (SVRLHelper.getAllSuccessfulReports (aExpected).size (),
+                      SVRLHelper.getAllSuccessfulReports (aSVRLs.get (i)).size ());
+      }
+
+      // Second call uses the cached document, but each call gets its own copy
+      assertNotSame (aValidator.readDocument (aXML), aValidator.readDocument (aXML));
+      assertEquals (2, aCache.getHitCount ());
+      assertEquals (1, aCache.size ());
+    }
+    finally
+    {
+      ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aExecutor);
+    }
+  }
+}
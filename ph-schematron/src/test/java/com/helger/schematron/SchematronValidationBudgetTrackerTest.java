@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.w3c.dom.Document;
+
+import com.helger.commons.io.resource.inmemory.ReadableResourceString;
+import com.helger.schematron.pure.SchematronResourcePure;
+import com.helger.schematron.svrl.SVRLHelper;
+import com.helger.schematron.xslt.SchematronResourceSCH;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * Test class for class {@link SchematronValidationBudgetTracker}.
+ *
+ * @author Philip Helger
+ */
+public final class SchematronValidationBudgetTrackerTest
+{
+  private static final String SCH = "<schema xmlns='http://purl.oclc.org/dsdl/schematron'>" +
+                                    "<pattern><rule context='line'><assert test='false()'>Bad line</assert></rule></pattern>" +
+                                    "</schema>";
+
+  @Nonnull
+  private static Document _createXML () throws Exception
+  {
+    final StringBuilder aSB = new StringBuilder ("<lines>");
+    for (int i = 0; i < 10; ++i)
+      aSB.append ("<line>").append (i).append ("</line>");
+    return DOMReader.readXMLDOM (aSB.append ("</lines>").toString ());
+  }
+
+  @Nonnull
+  private static SchematronOutputType _validatePure (@Nonnull final SchematronValidationBudgetTracker aTracker) throws Exception
+  {
+    return SchematronResourcePure.fromString (SCH, StandardCharsets.UTF_8)
+                                 .applySchematronValidationToSVRL (_createXML (), null, null, aTracker);
+  }
+
+  @Test
+  public void testPure () throws Exception
+  {
+    // No limits
+    SchematronValidationBudgetTracker aTracker = SchematronValidationBudget.NO_LIMITS.createTracker ();
+    SchematronOutputType aSVRL = _validatePure (aTracker);
+    assertEquals (10, SVRLHelper.getAllFailedAssertions (aSVRL).size ());
+    assertFalse (aTracker.isExceeded ());
+    assertNull (aTracker.getExceededLimit ());
+    assertFalse (SchematronValidationBudgetTracker.isTruncated (aSVRL));
+
+    // Findings
+    aTracker = new SchematronValidationBudget (0, 0, 3).createTracker ();
+    aSVRL = _validatePure (aTracker);
+    assertEquals (3, SVRLHelper.getAllFailedAssertions (aSVRL).size ());
+    assertEquals (ESchematronBudgetLimit.FINDINGS, aTracker.getExceededLimit ());
+    assertTrue (SchematronValidationBudgetTracker.isTruncated (aSVRL));
+
+    // Evaluated nodes
+    aTracker = new SchematronValidationBudget (0, 5, 0).createTracker ();
+    aSVRL = _validatePure (aTracker);
+    assertEquals (5, SVRLHelper.getAllFailedAssertions (aSVRL).size ());
+    assertEquals (ESchematronBudgetLimit.EVALUATED_NODES, aTracker.getExceededLimit ());
+    assertTrue (SchematronValidationBudgetTracker.isTruncated (aSVRL));
+
+    // Cancelled upfront
+    aTracker = new SchematronValidationBudget (60_000, 0, 0).createTracker ();
+    aTracker.cancel ();
+    aSVRL = _validatePure (aTracker);
+    assertEquals (0, SVRLHelper.getAllFailedAssertions (aSVRL).size ());
+    assertEquals (ESchematronBudgetLimit.CANCELLED, aTracker.getExceededLimit ());
+    assertTrue (SchematronValidationBudgetTracker.isTruncated (aSVRL));
+  }
+
+  @Test
+  public void testXSLT () throws Exception
+  {
+    final SchematronResourceSCH aSCH = new SchematronResourceSCH (new ReadableResourceString (SCH,
+                                                                                              StandardCharsets.UTF_8));
+    // All in-memory resources share the same ID and the SCH cache is keyed
+    // by it
+    aSCH.setUseCache (false);
+    final SchematronValidationBudgetTracker aTracker = new SchematronValidationBudget (0, 0, 4).createTracker ();
+    final SchematronOutputType aSVRL = aSCH.applySchematronValidationToSVRL (_createXML (), null, null, aTracker);
+    assertNotNull (aSVRL);
+    assertEquals (4, SVRLHelper.getAllFailedAssertions (aSVRL).size ());
+    assertEquals (ESchematronBudgetLimit.FINDINGS, aTracker.getExceededLimit ());
+    assertTrue (SchematronValidationBudgetTracker.isTruncated (aSVRL));
+  }
+
+  @Test
+  public void testXSLTSlowTestWithoutOutput () throws Exception
+  {
+    // The rule context is expensive but never matches, so no SVRL element is
+    // created while it is evaluated
+    final String sSCH = "<schema xmlns='http://purl.oclc.org/dsdl/schematron'>" +
+                        "<pattern><rule context='line[sum(for $i in 1 to 20000 return $i * string-length(name())) &lt; 0]'>" +
+                        "<assert test='false()'>Never</assert></rule></pattern>" +
+                        "</schema>";
+    final StringBuilder aSB = new StringBuilder ("<lines>");
+    for (int i = 0; i < 5000; ++i)
+      aSB.append ("<line/>");
+    final Document aXML = DOMReader.readXMLDOM (aSB.append ("</lines>").toString ());
+
+    final SchematronResourceSCH aSCH = new SchematronResourceSCH (new ReadableResourceString (sSCH,
+                                                                                              StandardCharsets.UTF_8));
+    // All in-memory resources share the same ID and the SCH cache is keyed
+    // by it
+    aSCH.setUseCache (false);
+    final SchematronValidationBudgetTracker aTracker = new SchematronValidationBudget (200, 0, 0).createTracker ();
+    final SchematronOutputType aSVRL = aSCH.applySchematronValidationToSVRL (aXML, null, null, aTracker);
+    assertNotNull (aSVRL);
+    assertEquals (0, SVRLHelper.getAllFailedAssertions (aSVRL).size ());
+    assertEquals (ESchematronBudgetLimit.DURATION, aTracker.getExceededLimit ());
+    assertTrue (SchematronValidationBudgetTracker.isTruncated (aSVRL));
+  }
+}
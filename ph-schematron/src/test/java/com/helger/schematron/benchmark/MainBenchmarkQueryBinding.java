@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.benchmark;
+
+import java.math.BigDecimal;
+
+import org.w3c.dom.Document;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.schematron.pure.binding.IPSQueryBinding;
+import com.helger.schematron.pure.binding.xpath.PSXPath1QueryBinding;
+import com.helger.schematron.pure.binding.xpath.PSXPathQueryBinding;
+import com.helger.schematron.pure.bound.IPSBoundSchema;
+import com.helger.schematron.pure.exchange.PSReader;
+import com.helger.schematron.pure.model.PSSchema;
+import com.helger.schematron.pure.preprocess.PSPreprocessor;
+import com.helger.schematron.testfiles.SchematronTestHelper;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * Benchmark comparing the default (Saxon based) query binding with the
+ * lightweight XPath 1.0 query binding. The bind benchmark uses all test
+ * schematrons that can be bound with XPath 1.0, the validation benchmark uses
+ * the XPath 1.0 schematrons with a matching XML instance.
+ *
+ * @author Philip Helger
+ */
+public final class MainBenchmarkQueryBinding extends AbstractBenchmarkTask
+{
+  private static final String [] SCH = new String [] { "valid01.sch", "valid02.sch", "valid03.sch", "CellarBook.sch" };
+  private static final String [] XML = new String [] { "valid01.xml", "valid01.xml", "valid03.xml", "CellarBook.xml" };
+
+  public static void main (final String [] args) throws Exception
+  {
+    logSystemInfo ();
+
+    // Pre-process once, so that only the binding is measured
+    final ICommonsList <PSSchema> aXPath1Schemas = new CommonsArrayList <> ();
+    for (final IReadableResource aRes : SchematronTestHelper.getAllValidSchematronFiles ())
+    {
+      final PSSchema aSchema = new PSReader (aRes).readSchema ();
+      final PSSchema aPreprocessed = PSPreprocessor.createPreprocessorWithoutInformationLoss (PSXPath1QueryBinding.getInstance ())
+                                                   .getAsPreprocessedSchema (aSchema);
+      if (aPreprocessed == null)
+        continue;
+      try
+      {
+        // Schemas using XPath 2 features fail to bind
+        PSXPath1QueryBinding.getInstance ().bind (aPreprocessed, null, null);
+        aXPath1Schemas.add (aPreprocessed);
+      }
+      catch (final Exception ex)
+      {
+        // ignore
+      }
+    }
+    s_aLogger.info ("Using " + aXPath1Schemas.size () + " XPath 1.0 schematrons for binding");
+
+    final double dBind1 = benchmarkTask (new BindAll (PSXPathQueryBinding.getInstance (), aXPath1Schemas));
+    s_aLogger.info ("Time binding Saxon: " + BigDecimal.valueOf (dBind1).toString () + " us");
+    final double dBind2 = benchmarkTask (new BindAll (PSXPath1QueryBinding.getInstance (), aXPath1Schemas));
+    s_aLogger.info ("Time binding XPath 1.0: " + BigDecimal.valueOf (dBind2).toString () + " us");
+    s_aLogger.info ("XPath 1.0 binding time is " + BigDecimal.valueOf (dBind2 / dBind1 * 100).toString () + "%");
+
+    final double dValidate1 = benchmarkTask (new ValidateAll (PSXPathQueryBinding.getInstance ()));
+    s_aLogger.info ("Time validation Saxon: " + BigDecimal.valueOf (dValidate1).toString () + " us");
+    final double dValidate2 = benchmarkTask (new ValidateAll (PSXPath1QueryBinding.getInstance ()));
+    s_aLogger.info ("Time validation XPath 1.0: " + BigDecimal.valueOf (dValidate2).toString () + " us");
+    s_aLogger.info ("XPath 1.0 validation time is " +
+                    BigDecimal.valueOf (dValidate2 / dValidate1 * 100).toString () +
+                    "%");
+  }
+
+  private static final class BindAll implements Runnable
+  {
+    private final IPSQueryBinding m_aQueryBinding;
+    private final ICommonsList <PSSchema> m_aSchemas;
+
+    BindAll (final IPSQueryBinding aQueryBinding, final ICommonsList <PSSchema> aSchemas)
+    {
+      m_aQueryBinding = aQueryBinding;
+      m_aSchemas = aSchemas;
+    }
+
+    public void run ()
+    {
+      try
+      {
+        for (final PSSchema aSchema : m_aSchemas)
+          m_aQueryBinding.bind (aSchema, null, null, null, null);
+      }
+      catch (final Exception ex)
+      {
+        throw new IllegalStateException (ex);
+      }
+    }
+  }
+
+  private static final class ValidateAll implements Runnable
+  {
+    private final ICommonsList <IPSBoundSchema> m_aBoundSchemas = new CommonsArrayList <> ();
+    private final ICommonsList <Document> m_aDocs = new CommonsArrayList <> ();
+    private final ICommonsList <String> m_aBaseURIs = new CommonsArrayList <> ();
+
+    ValidateAll (final IPSQueryBinding aQueryBinding) throws Exception
+    {
+      for (int i = 0; i < SCH.length; ++i)
+      {
+        final IReadableResource aXmlRes = new ClassPathResource ("test-xml/" + XML[i]);
+        final PSSchema aSchema = new PSReader (new ClassPathResource ("test-sch/" + SCH[i])).readSchema ();
+        m_aBoundSchemas.add (aQueryBinding.bind (aSchema, null, null, null, null));
+        m_aDocs.add (DOMReader.readXMLDOM (aXmlRes));
+        m_aBaseURIs.add (aXmlRes.getAsURL ().toExternalForm ());
+      }
+    }
+
+    public void run ()
+    {
+      try
+      {
+        for (int i = 0; i < m_aBoundSchemas.size (); ++i)
+          m_aBoundSchemas.get (i).validateComplete (m_aDocs.get (i), m_aBaseURIs.get (i));
+      }
+      catch (final Exception ex)
+      {
+        throw new IllegalStateException (ex);
+      }
+    }
+  }
+}
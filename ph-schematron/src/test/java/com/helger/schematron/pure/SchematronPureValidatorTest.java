@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.w3c.dom.Document;
+
+import com.helger.commons.concurrent.ExecutorServiceHelper;
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.resource.inmemory.ReadableResourceString;
+import com.helger.schematron.SchematronDocumentCache;
+import com.helger.schematron.SchematronException;
+import com.helger.schematron.pure.binding.PSQueryBindingRegistry;
+import com.helger.schematron.pure.errorhandler.DoNothingPSErrorHandler;
+import com.helger.schematron.pure.exchange.PSReader;
+import com.helger.schematron.pure.model.PSSchema;
+import com.helger.schematron.svrl.SVRLSharedMarshaller;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * Test class for class {@link SchematronPureValidator}.
+ *
+ * @author Philip Helger
+ */
+public final class SchematronPureValidatorTest
+{
+  private static final int RUNS = 500;
+
+  private static void _testConcurrentValidation (@Nonnull final SchematronPureValidator aValidator) throws Exception
+  {
+    final ClassPathResource aXMLRes = new ClassPathResource ("test-xml/CellarBook.xml");
+
+    // Reference result, created on a separate DOM
+    final Document aRefDoc = DOMReader.readXMLDOM (aXMLRes.getInputStream (),
+                                                   SchematronDocumentCache.createDOMReaderSettings ());
+    assertNotNull (aRefDoc);
+    final String sRefSVRL = SVRLSharedMarshaller.getInstance ()
+                                                .getAsString (aValidator.applySchematronValidationToSVRL (aRefDoc,
+                                                                                                          null),
+                                                              false);
+    assertNotNull (sRefSVRL);
+
+    // The shared DOM is not touched before the threads start
+    final Document aDoc = DOMReader.readXMLDOM (aXMLRes.getInputStream (),
+                                                SchematronDocumentCache.createDOMReaderSettings ());
+    assertNotNull (aDoc);
+
+    // Share the validator and the DOM between many threads
+    final AtomicInteger aErrors = new AtomicInteger (0);
+    final ExecutorService aThreadPool = Executors.newFixedThreadPool (Runtime.getRuntime ().availableProcessors () * 2);
+    for (int i = 0; i < RUNS; ++i)
+      aThreadPool.submit ( () -> {
+        try
+        {
+          final SchematronOutputType aSVRL = aValidator.applySchematronValidationToSVRL (aDoc, null);
+          if (!sRefSVRL.equals (SVRLSharedMarshaller.getInstance ().getAsString (aSVRL, false)))
+            aErrors.incrementAndGet ();
+        }
+        catch (final Exception ex)
+        {
+          aErrors.incrementAndGet ();
+        }
+      });
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aThreadPool);
+    assertEquals (0, aErrors.get ());
+  }
+
+  @Test
+  public void testConcurrentValidation () throws Exception
+  {
+    final SchematronPureValidator aValidator = SchematronPureValidator.builder (new ClassPathResource ("test-sch/CellarBook.sch"))
+                                                                      .build ();
+    assertTrue (SchematronPureValidator.isConcurrentValidationSupported (aValidator.getBoundSchema ()));
+    _testConcurrentValidation (aValidator);
+  }
+
+  @Test
+  public void testConcurrentValidationXPath1 () throws Exception
+  {
+    // Use the JDK XPath implementation
+    final PSSchema aSchema = new PSReader (new ClassPathResource ("test-sch/CellarBook.sch")).readSchema ();
+    aSchema.setQueryBinding (PSQueryBindingRegistry.QUERY_BINDING_XPATH);
+    final SchematronPureValidator aValidator = SchematronPureValidator.builder (aSchema).build ();
+    assertFalse (SchematronPureValidator.isConcurrentValidationSupported (aValidator.getBoundSchema ()));
+    _testConcurrentValidation (aValidator);
+  }
+
+  @Test
+  public void testInvalidSchematron ()
+  {
+    try
+    {
+      // Rule without context
+      final String sSCH = "<schema xmlns='http://purl.oclc.org/dsdl/schematron'>" +
+                          "<pattern><rule><assert test='a'>a missing</assert></rule></pattern>" +
+                          "</schema>";
+      SchematronPureValidator.builder (new ReadableResourceString (sSCH, StandardCharsets.UTF_8))
+                             .setErrorHandler (new DoNothingPSErrorHandler ())
+                             .build ();
+      fail ();
+    }
+    catch (final SchematronException ex)
+    {
+      // expected
+    }
+  }
+}
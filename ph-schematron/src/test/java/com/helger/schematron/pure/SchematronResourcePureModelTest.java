@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.schematron.pure.exchange.PSReader;
+import com.helger.schematron.pure.model.PSPattern;
+import com.helger.schematron.pure.model.PSSchema;
+import com.helger.schematron.svrl.SVRLHelper;
+
+/**
+ * Test class for class {@link SchematronResourcePureModel}.
+ *
+ * @author Philip Helger
+ */
+public final class SchematronResourcePureModelTest
+{
+  @Test
+  public void testBasic () throws Exception
+  {
+    final IReadableResource aSchRes = new ClassPathResource ("test-sch/CellarBook.sch");
+    final IReadableResource aXmlRes = new ClassPathResource ("test-xml/CellarBook.xml");
+
+    // Read the same schema twice
+    final PSSchema aSchema1 = new PSReader (aSchRes).readSchema ();
+    final PSSchema aSchema2 = new PSReader (aSchRes).readSchema ();
+    assertTrue (aSchema1 != aSchema2);
+
+    final SchematronResourcePureModel aRes1 = new SchematronResourcePureModel (aSchema1);
+    final SchematronResourcePure aRes2 = SchematronResourcePure.fromSchema (aSchema2);
+    assertTrue (aRes2 instanceof SchematronResourcePureModel);
+    assertArrayEquals (aRes1.getModelDigest (), ((SchematronResourcePureModel) aRes2).getModelDigest ());
+    assertTrue (aRes1.isValidSchematron ());
+    assertTrue (aRes2.isValidSchematron ());
+
+    // Not cached by default
+    assertFalse (aRes1.isUseCache ());
+    assertNotSame (aRes1.getOrCreateBoundSchema (), aRes2.getOrCreateBoundSchema ());
+
+    // With caching, structurally equal models share the bound schema
+    final SchematronResourcePureModel aRes3 = new SchematronResourcePureModel (aSchema1);
+    aRes3.setUseCache (true);
+    final SchematronResourcePureModel aRes4 = new SchematronResourcePureModel (aSchema2);
+    aRes4.setUseCache (true);
+    assertSame (aRes3.getOrCreateBoundSchema (), aRes4.getOrCreateBoundSchema ());
+
+    // The model is copied, so later modifications don't change the resource
+    final byte [] aDigest = aRes1.getModelDigest ();
+    assertTrue (aRes1.getSchema () != aSchema1);
+    aSchema1.addPattern (new PSPattern ());
+    assertArrayEquals (aDigest, aRes1.getModelDigest ());
+    assertArrayEquals (aDigest, new SchematronResourcePureModel (aSchema2).getModelDigest ());
+    assertFalse (Arrays.equals (aDigest, new SchematronResourcePureModel (aSchema1).getModelDigest ()));
+
+    // Same result as the resource based version
+    final SchematronOutputType aSVRL1 = aRes1.applySchematronValidationToSVRL (aXmlRes);
+    assertNotNull (aSVRL1);
+    final SchematronOutputType aSVRL2 = new SchematronResourcePure (aSchRes).applySchematronValidationToSVRL (aXmlRes);
+    assertNotNull (aSVRL2);
+    assertEquals (SVRLHelper.getAllFailedAssertions (aSVRL2).size (),
+                  SVRLHelper.getAllFailedAssertions (aSVRL1).size ());
+    assertEquals (SVRLHelper.getAllSuccessfulReports (aSVRL2).size (),
+                  SVRLHelper.getAllSuccessfulReports (aSVRL1).size ());
+  }
+}
@@ -19,11 +19,18 @@ package com.helger.schematron.pure;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 
 import org.junit.Test;
@@ -35,7 +42,10 @@ import org.xml.sax.SAXException;
 import com.helger.commons.io.resource.ClassPathResource;
 import com.helger.commons.io.resource.IReadableResource;
 import com.helger.commons.io.stream.StringInputStream;
+import com.helger.commons.string.StringHelper;
 import com.helger.schematron.SchematronException;
+import com.helger.schematron.pure.bound.IPSBoundSchema;
+import com.helger.schematron.pure.bound.xpath.PSXPathBoundSchema;
 import com.helger.schematron.pure.errorhandler.CollectingPSErrorHandler;
 import com.helger.schematron.pure.errorhandler.DoNothingPSErrorHandler;
 import com.helger.schematron.pure.errorhandler.LoggingPSErrorHandler;
@@ -67,6 +77,57 @@ public final class SchematronResourcePureTest
     }
   }
 
+  @Test
+  public void testBindingSettingsAreCached ()
+  {
+    final IReadableResource aRes = new ClassPathResource ("test-sch/valid01.sch");
+    final IPSBoundSchema aDefault = new SchematronResourcePure (aRes).getOrCreateBoundSchema ();
+    assertSame (aDefault, new SchematronResourcePure (aRes).getOrCreateBoundSchema ());
+
+    // A different setting must not return the cached default schema
+    final IPSBoundSchema aFused = new SchematronResourcePure (aRes).setFusedRuleEvaluation (true)
+                                                                   .getOrCreateBoundSchema ();
+    assertNotSame (aDefault, aFused);
+    assertTrue (((PSXPathBoundSchema) aFused).getBindingSettings ().isFusedRuleEvaluation ());
+    assertSame (aFused,
+                new SchematronResourcePure (aRes).setFusedRuleEvaluation (true).getOrCreateBoundSchema ());
+    assertFalse (((PSXPathBoundSchema) new SchematronResourcePure (aRes).getOrCreateBoundSchema ()).getBindingSettings ()
+                                                                                                  .isFusedRuleEvaluation ());
+
+    // The URI resolver is part of the key as well
+    final URIResolver aURIResolver = (sHref, sBase) -> null;
+    final IPSBoundSchema aResolving = new SchematronResourcePure (aRes).setURIResolver (aURIResolver)
+                                                                       .getOrCreateBoundSchema ();
+    assertNotSame (aDefault, aResolving);
+    assertSame (aResolving,
+                new SchematronResourcePure (aRes).setURIResolver (aURIResolver).getOrCreateBoundSchema ());
+  }
+
+  @Test
+  public void testURIResolver () throws Exception
+  {
+    final String sTest = "<?xml version='1.0' encoding='iso-8859-1'?>\n" +
+                         "<schema xmlns='http://purl.oclc.org/dsdl/schematron'>\n" +
+                         "  <pattern>\n" +
+                         "    <rule context='chapter'>\n" +
+                         "      <assert test=\"doc('http://www.example.org/codes.xml')/codes/code = @code\">Invalid code</assert>\n" +
+                         "    </rule>\n" +
+                         "  </pattern>\n" +
+                         "</schema>";
+    final AtomicInteger aCount = new AtomicInteger (0);
+    final URIResolver aURIResolver = (sHref, sBase) -> {
+      aCount.incrementAndGet ();
+      return new StreamSource (new StringReader ("<codes><code>a</code></codes>"), sHref);
+    };
+    final Document aTestDoc = DOMReader.readXMLDOM ("<?xml version='1.0'?><chapter code='a' />");
+    final SchematronOutputType aOT = SchematronResourcePure.fromString (sTest, StandardCharsets.ISO_8859_1)
+                                                           .setURIResolver (aURIResolver)
+                                                           .applySchematronValidationToSVRL (aTestDoc, null);
+    assertNotNull (aOT);
+    assertTrue (SVRLHelper.getAllFailedAssertions (aOT).isEmpty ());
+    assertTrue (aCount.get () > 0);
+  }
+
   @Test
   public void testFromByteArray ()
   {
@@ -192,6 +253,76 @@ public final class SchematronResourcePureTest
     assertEquals ("\n      2 paragraphs found".trim (), SVRLHelper.getAllSuccessfulReports (aOT).get (0).getText ());
   }
 
+  @Test
+  public void testExternalParameters () throws Exception
+  {
+    final String sTest = "<?xml version=\"1.0\" encoding=\"iso-8859-1\"?>\n" +
+                         "<iso:schema xmlns=\"http://purl.oclc.org/dsdl/schematron\" \n" +
+                         "         xmlns:iso=\"http://purl.oclc.org/dsdl/schematron\" \n" +
+                         "         xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\"\n" +
+                         "         queryBinding='xslt2'\n" +
+                         "         schemaVersion=\"ISO19757-3\">\n" +
+                         "  <xsl:param name=\"version\" select=\"'1.0'\" />\n" +
+                         "  <iso:pattern >\n" +
+                         "    <iso:rule context=\"chapter\">\n" +
+                         "      <iso:assert test=\"@version = $version\">Version mismatch</iso:assert>\n" +
+                         "    </iso:rule>\n" +
+                         "  </iso:pattern>\n" +
+                         "</iso:schema>";
+
+    final SchematronResourcePure aSCH = SchematronResourcePure.fromString (sTest, StandardCharsets.UTF_8);
+    assertTrue (aSCH.isValidSchematron ());
+    final IPSBoundSchema aBoundSchema = aSCH.getOrCreateBoundSchema ();
+    assertEquals (1, aBoundSchema.getAllParameterNames ().size ());
+    assertTrue (aBoundSchema.getAllParameterNames ().contains ("version"));
+
+    final Document aTestDoc = DOMReader.readXMLDOM ("<?xml version='1.0'?><chapter version='2.0' />");
+
+    // Default value is used
+    SchematronOutputType aOT = aSCH.applySchematronValidationToSVRL (aTestDoc, null);
+    assertEquals (1, SVRLHelper.getAllFailedAssertions (aOT).size ());
+
+    // Per-validation values with the same bound schema
+    aOT = aSCH.applySchematronValidationToSVRL (aTestDoc, null, Collections.singletonMap ("version", "2.0"));
+    assertEquals (0, SVRLHelper.getAllFailedAssertions (aOT).size ());
+    aOT = aSCH.applySchematronValidationToSVRL (aTestDoc, null, Collections.singletonMap ("version", "3.0"));
+    assertEquals (1, SVRLHelper.getAllFailedAssertions (aOT).size ());
+    assertTrue (aSCH.getSchematronValidity (aTestDoc, null, Collections.singletonMap ("version", "2.0")).isValid ());
+    assertSame (aBoundSchema, aSCH.getOrCreateBoundSchema ());
+  }
+
+  @Test
+  public void testExternalParameterDefaults () throws Exception
+  {
+    final String sTest = "<iso:schema xmlns:iso=\"http://purl.oclc.org/dsdl/schematron\"\n" +
+                         "            xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">\n" +
+                         "  <xsl:param name=\"max\" select=\"2\" />\n" +
+                         "  <xsl:param name=\"strict\" select=\"false()\" />\n" +
+                         "  <iso:pattern >\n" +
+                         "    <iso:rule context=\"chapter\">\n" +
+                         "      <iso:assert test=\"count(page) &lt;= $max\">Too many pages</iso:assert>\n" +
+                         "      <iso:assert test=\"not($strict) or @version\">Version missing</iso:assert>\n" +
+                         "    </iso:rule>\n" +
+                         "  </iso:pattern>\n" +
+                         "</iso:schema>";
+    final SchematronResourcePure aSCH = SchematronResourcePure.fromString (sTest, StandardCharsets.UTF_8);
+    assertTrue (aSCH.isValidSchematron ());
+
+    final Document aTestDoc = DOMReader.readXMLDOM ("<chapter><page/><page/><page/></chapter>");
+    SchematronOutputType aOT = aSCH.applySchematronValidationToSVRL (aTestDoc, null);
+    assertEquals (1, SVRLHelper.getAllFailedAssertions (aOT).size ());
+    aOT = aSCH.applySchematronValidationToSVRL (aTestDoc, null, Collections.singletonMap ("strict", Boolean.TRUE));
+    assertEquals (2, SVRLHelper.getAllFailedAssertions (aOT).size ());
+
+    // Default values that need to be evaluated are rejected
+    final SchematronResourcePure aSCH2 = SchematronResourcePure.fromString (StringHelper.replaceAll (sTest,
+                                                                                                    "select=\"2\"",
+                                                                                                    "select=\"1 + 1\""),
+                                                                            StandardCharsets.UTF_8);
+    aSCH2.setErrorHandler (new CollectingPSErrorHandler ());
+    assertFalse (aSCH2.isValidSchematron ());
+  }
+
   @Test
   public void testResolveFunctions () throws SchematronException, SAXException
   {
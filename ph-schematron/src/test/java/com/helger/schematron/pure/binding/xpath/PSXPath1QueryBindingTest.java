@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.binding.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Comparator;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.w3c.dom.Document;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.schematron.pure.binding.PSQueryBindingRegistry;
+import com.helger.schematron.pure.bound.IPSBoundSchema;
+import com.helger.schematron.pure.exchange.PSReader;
+import com.helger.schematron.pure.model.PSSchema;
+import com.helger.schematron.svrl.AbstractSVRLMessage;
+import com.helger.schematron.svrl.SVRLHelper;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * Test class for class {@link PSXPath1QueryBinding}.
+ *
+ * @author Philip Helger
+ */
+public final class PSXPath1QueryBindingTest
+{
+  private static final String [] SCH = new String [] { "valid01.sch", "valid02.sch", "valid03.sch", "CellarBook.sch" };
+  private static final String [] XML = new String [] { "valid01.xml", "valid01.xml", "valid03.xml", "CellarBook.xml" };
+
+  @Nonnull
+  private static ICommonsList <String> _getAllSortedMessages (@Nonnull final SchematronOutputType aSVRL)
+  {
+    final ICommonsList <String> ret = new CommonsArrayList <> ();
+    for (final AbstractSVRLMessage aMsg : SVRLHelper.getAllFailedAssertionsAndSuccessfulReports (aSVRL))
+      ret.add (aMsg.getLocation () + " - " + aMsg.getTest ());
+    return ret.getSortedInline (Comparator.naturalOrder ());
+  }
+
+  @Test
+  public void testRegistry ()
+  {
+    assertSame (PSXPath1QueryBinding.getInstance (),
+                PSQueryBindingRegistry.getQueryBindingOfName (PSQueryBindingRegistry.QUERY_BINDING_XPATH));
+  }
+
+  @Test
+  public void testReplaceQueryBinding ()
+  {
+    final String sName = "xpath1-test";
+    assertNull (PSQueryBindingRegistry.replaceQueryBinding (sName, PSXPathQueryBinding.getInstance ()));
+    try
+    {
+      assertSame (PSXPathQueryBinding.getInstance (),
+                  PSQueryBindingRegistry.replaceQueryBinding (sName, PSXPath1QueryBinding.getInstance ()));
+      assertSame (PSXPath1QueryBinding.getInstance (), PSQueryBindingRegistry.getQueryBindingOfName (sName));
+    }
+    finally
+    {
+      PSQueryBindingRegistry.unregisterQueryBinding (sName);
+    }
+    assertNull (PSQueryBindingRegistry.getQueryBindingOfName (sName));
+  }
+
+  @Test
+  public void testCreateXPathFactory () throws Exception
+  {
+    assertNotNull (PSXPath1QueryBinding.createXPathFactoryDefault ());
+  }
+
+  @Test
+  public void testSameResultAsDefaultBinding () throws Exception
+  {
+    for (int i = 0; i < SCH.length; ++i)
+    {
+      final IReadableResource aSchRes = new ClassPathResource ("test-sch/" + SCH[i]);
+      final IReadableResource aXmlRes = new ClassPathResource ("test-xml/" + XML[i]);
+      final PSSchema aSchema = new PSReader (aSchRes).readSchema ();
+      final Document aXML = DOMReader.readXMLDOM (aXmlRes);
+      final String sBaseURI = aXmlRes.getAsURL ().toExternalForm ();
+
+      final IPSBoundSchema aSaxonSchema = PSXPathQueryBinding.getInstance ().bind (aSchema, null, null);
+      final IPSBoundSchema aXPath1Schema = PSXPath1QueryBinding.getInstance ().bind (aSchema, null, null);
+      assertNotNull (aXPath1Schema);
+      assertSame (PSXPath1QueryBinding.getInstance (), aXPath1Schema.getQueryBinding ());
+
+      final SchematronOutputType aSVRL = aXPath1Schema.validateComplete (aXML, sBaseURI);
+      assertTrue (SCH[i], aSVRL.getActivePatternAndFiredRuleAndFailedAssert ().size () > 0);
+      assertEquals (SCH[i],
+                    _getAllSortedMessages (aSaxonSchema.validateComplete (aXML, sBaseURI)),
+                    _getAllSortedMessages (aSVRL));
+    }
+  }
+}
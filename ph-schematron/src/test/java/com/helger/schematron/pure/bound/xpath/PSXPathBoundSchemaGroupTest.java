@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.w3c.dom.Document;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.schematron.pure.binding.xpath.PSXPathQueryBinding;
+import com.helger.schematron.pure.exchange.PSReader;
+import com.helger.schematron.svrl.AbstractSVRLMessage;
+import com.helger.schematron.svrl.SVRLHelper;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * Test class for class {@link PSXPathBoundSchemaGroup}.
+ *
+ * @author Philip Helger
+ */
+public final class PSXPathBoundSchemaGroupTest
+{
+  @Nonnull
+  private static ICommonsList <String> _getAllMessages (@Nonnull final SchematronOutputType aSVRL)
+  {
+    final ICommonsList <String> ret = new CommonsArrayList <> ();
+    for (final AbstractSVRLMessage aMsg : SVRLHelper.getAllFailedAssertionsAndSuccessfulReports (aSVRL))
+      ret.add (aMsg.getLocation () + " - " + aMsg.getTest () + " - " + aMsg.getText ());
+    return ret;
+  }
+
+  private static void _testGroup (@Nonnull final String sXML, @Nonnull final String... aSCHs) throws Exception
+  {
+    final IReadableResource aXmlRes = new ClassPathResource ("test-xml/" + sXML);
+    final Document aXML = DOMReader.readXMLDOM (aXmlRes);
+    final String sBaseURI = aXmlRes.getAsURL ().toExternalForm ();
+
+    final ICommonsList <PSXPathBoundSchema> aBoundSchemas = new CommonsArrayList <> ();
+    for (final String sSCH : aSCHs)
+      aBoundSchemas.add ((PSXPathBoundSchema) PSXPathQueryBinding.getInstance ()
+                                                                 .bind (new PSReader (new ClassPathResource ("test-sch/" +
+                                                                                                             sSCH)).readSchema (),
+                                                                        null,
+                                                                        null));
+
+    final PSXPathBoundSchemaGroup aGroup = new PSXPathBoundSchemaGroup (aBoundSchemas);
+    assertEquals (aSCHs.length, aGroup.getBoundSchemaCount ());
+
+    final PSXPathRuleContextCache aCache = new PSXPathRuleContextCache (aXML);
+    final ICommonsList <SchematronOutputType> aSVRLs = aGroup.validateComplete (aXML, sBaseURI, null, aCache);
+    assertEquals (aSCHs.length, aSVRLs.size ());
+
+    // Each rule context was evaluated only once
+    assertTrue (aCache.toString (), aCache.getHitCount () > 0);
+    assertEquals (aCache.size (), aCache.getMissCount ());
+
+    // Same results as the separate validation
+    for (int i = 0; i < aSCHs.length; ++i)
+      assertEquals (aSCHs[i],
+                    _getAllMessages (aBoundSchemas.get (i).validateComplete (aXML, sBaseURI)),
+                    _getAllMessages (aSVRLs.get (i)));
+  }
+
+  @Test
+  public void testBasic () throws Exception
+  {
+    _testGroup ("valid01.xml", "valid01.sch", "valid02.sch");
+    _testGroup ("goodOrder01.xml", "biicore/BIICORE-UBL-T01.sch", "biirules/BIIRULES-UBL-T01.sch");
+  }
+}
@@ -16,22 +16,37 @@
  */
 package com.helger.schematron.pure.bound.xpath;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+
+import javax.annotation.Nonnull;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.error.level.EErrorLevel;
 import com.helger.commons.io.resource.ClassPathResource;
 import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.io.resource.inmemory.ReadableResourceString;
 import com.helger.commons.junit.DebugModeTestRule;
 import com.helger.commons.mock.CommonsTestHelper;
 import com.helger.schematron.SchematronException;
 import com.helger.schematron.SchematronHelper;
+import com.helger.schematron.pure.binding.PSBindingSettings;
 import com.helger.schematron.pure.binding.xpath.PSXPathQueryBinding;
 import com.helger.schematron.pure.bound.IPSBoundSchema;
 import com.helger.schematron.pure.errorhandler.CollectingPSErrorHandler;
@@ -39,7 +54,11 @@ import com.helger.schematron.pure.errorhandler.IPSErrorHandler;
 import com.helger.schematron.pure.exchange.PSReader;
 import com.helger.schematron.pure.model.PSSchema;
 import com.helger.schematron.pure.preprocess.PSPreprocessor;
+import com.helger.schematron.pure.validation.SchematronValidationException;
+import com.helger.schematron.svrl.AbstractSVRLMessage;
+import com.helger.schematron.svrl.SVRLHelper;
 import com.helger.schematron.svrl.SVRLMarshaller;
+import com.helger.schematron.svrl.SVRLSharedMarshaller;
 import com.helger.schematron.testfiles.SchematronTestHelper;
 import com.helger.xml.microdom.IMicroDocument;
 import com.helger.xml.serialize.read.DOMReader;
@@ -99,6 +118,129 @@ public final class PSXPathBoundSchemaTest
     }
   }
 
+  @Nonnull
+  private static ICommonsList <String> _getAllSortedMessages (@Nonnull final SchematronOutputType aSVRL)
+  {
+    final ICommonsList <String> ret = new CommonsArrayList <> ();
+    for (final AbstractSVRLMessage aMsg : SVRLHelper.getAllFailedAssertionsAndSuccessfulReports (aSVRL))
+      ret.add (aMsg.getLocation () + " - " + aMsg.getTest () + " - " + aMsg.getText ());
+    return ret.getSortedInline (Comparator.naturalOrder ());
+  }
+
+  @Test
+  public void testFusedRuleEvaluation () throws Exception
+  {
+    for (int i = 0; i < SCH.length; ++i)
+    {
+      final IReadableResource aSchRes = new ClassPathResource ("test-sch/" + SCH[i]);
+      final IReadableResource aXmlRes = new ClassPathResource ("test-xml/" + XML[i]);
+      final PSSchema aSchema = new PSReader (aSchRes).readSchema ();
+      final Document aXML = DOMReader.readXMLDOM (aXmlRes);
+      final String sBaseURI = aXmlRes.getAsURL ().toExternalForm ();
+
+      // Default mode
+      final PSXPathBoundSchema aBoundSchema = (PSXPathBoundSchema) PSXPathQueryBinding.getInstance ()
+                                                                                      .bind (aSchema, null, null);
+      assertFalse (aBoundSchema.getBindingSettings ().isFusedRuleEvaluation ());
+      final ICommonsList <String> aExpected = _getAllSortedMessages (aBoundSchema.validateComplete (aXML, sBaseURI));
+
+      // Fused mode must find the same results
+      final PSXPathBoundSchema aFusedSchema = (PSXPathBoundSchema) PSXPathQueryBinding.getInstance ()
+                                                                                      .bind (aSchema,
+                                                                                             null,
+                                                                                             null,
+                                                                                             null,
+                                                                                             null,
+                                                                                             PSBindingSettings.DEFAULT.getWithFusedRuleEvaluation (true));
+      assertTrue (aFusedSchema.getBindingSettings ().isFusedRuleEvaluation ());
+      assertEquals (SCH[i], aExpected, _getAllSortedMessages (aFusedSchema.validateComplete (aXML, sBaseURI)));
+    }
+  }
+
+  @Test
+  public void testCompiledTestEvaluation () throws Exception
+  {
+    for (int i = 0; i < SCH.length; ++i)
+    {
+      final IReadableResource aSchRes = new ClassPathResource ("test-sch/" + SCH[i]);
+      final IReadableResource aXmlRes = new ClassPathResource ("test-xml/" + XML[i]);
+      final PSSchema aSchema = new PSReader (aSchRes).readSchema ();
+      final Document aXML = DOMReader.readXMLDOM (aXmlRes);
+      final String sBaseURI = aXmlRes.getAsURL ().toExternalForm ();
+
+      // Default mode
+      final PSXPathBoundSchema aBoundSchema = (PSXPathBoundSchema) PSXPathQueryBinding.getInstance ()
+                                                                                      .bind (aSchema, null, null);
+      assertFalse (aBoundSchema.getBindingSettings ().isCompiledTestEvaluation ());
+      final String sExpected = _getSVRLOrError (aBoundSchema, aXML, sBaseURI);
+
+      // Compiled mode must create the same SVRL
+      final IPSBoundSchema aCompiledSchema = _bindCompiled (aSchema);
+      assertEquals (SCH[i], sExpected, _getSVRLOrError (aCompiledSchema, aXML, sBaseURI));
+    }
+  }
+
+  @Nonnull
+  private static IPSBoundSchema _bindCompiled (@Nonnull final PSSchema aSchema) throws SchematronException
+  {
+    return PSXPathQueryBinding.getInstance ()
+                              .bind (aSchema,
+                                     null,
+                                     null,
+                                     null,
+                                     null,
+                                     PSBindingSettings.DEFAULT.getWithCompiledTestEvaluation (true));
+  }
+
+  /**
+   * @return The serialized SVRL or the class name of the validation exception,
+   *         so that failures can be compared as well.
+   */
+  @Nonnull
+  private static String _getSVRLOrError (@Nonnull final IPSBoundSchema aBoundSchema,
+                                         @Nonnull final Document aXML,
+                                         @Nonnull final String sBaseURI)
+  {
+    try
+    {
+      return SVRLSharedMarshaller.getInstance ().getAsString (aBoundSchema.validateComplete (aXML, sBaseURI), false);
+    }
+    catch (final SchematronValidationException | RuntimeException ex)
+    {
+      return ex.getClass ().getName ();
+    }
+  }
+
+  @Test
+  public void testCompiledTestEvaluationAllSchemas () throws Exception
+  {
+    final ICommonsList <Document> aXMLs = new CommonsArrayList <> ();
+    final ICommonsList <String> aBaseURIs = new CommonsArrayList <> ();
+    for (final IReadableResource aXmlRes : SchematronTestHelper.getAllValidXMLFiles ())
+    {
+      final Document aXML = DOMReader.readXMLDOM (aXmlRes);
+      if (aXML != null)
+      {
+        aXMLs.add (aXML);
+        aBaseURIs.add (aXmlRes.getAsURL ().toExternalForm ());
+      }
+    }
+    assertFalse (aXMLs.isEmpty ());
+
+    // Evaluating with the compiled expressions and with Saxon only must
+    // create the same SVRL for all test schemas
+    for (final IReadableResource aSchRes : SchematronTestHelper.getAllValidSchematronFiles ())
+    {
+      final PSSchema aSchema = new PSReader (aSchRes).readSchema ();
+      final IPSBoundSchema aBoundSchema = PSXPathQueryBinding.getInstance ().bind (aSchema, null, null);
+      final IPSBoundSchema aCompiledSchema = _bindCompiled (aSchema);
+      for (int i = 0; i < aXMLs.size (); ++i)
+        assertEquals (aSchRes.getPath () + " on " + aBaseURIs.get (i),
+                      _getSVRLOrError (aBoundSchema, aXMLs.get (i), aBaseURIs.get (i)),
+                      _getSVRLOrError (aCompiledSchema, aXMLs.get (i), aBaseURIs.get (i)));
+    }
+  }
+
   @Test
   public void testBindAllValidSchematrons () throws SchematronException
   {
@@ -121,6 +263,36 @@ public final class PSXPathBoundSchemaTest
     }
   }
 
+  @Test
+  public void testBoundAccessors () throws SchematronException
+  {
+    for (final IReadableResource aRes : SchematronTestHelper.getAllValidSchematronFiles ())
+    {
+      final PSSchema aSchema = new PSReader (aRes).readSchema ();
+      final PSXPathBoundSchema aBoundSchema = (PSXPathBoundSchema) PSXPathQueryBinding.getInstance ()
+                                                                                      .bind (aSchema, null, null);
+      for (final PSXPathBoundPattern aBoundPattern : aBoundSchema.getAllBoundPatterns ())
+      {
+        final ICommonsList <PSXPathBoundRule> aBoundRules = aBoundPattern.getAllBoundRules ();
+        assertEquals (aRes.getPath (), aBoundRules.size (), aBoundPattern.getBoundRuleCount ());
+        for (int i = 0; i < aBoundRules.size (); ++i)
+        {
+          final PSXPathBoundRule aBoundRule = aBoundPattern.getBoundRuleAtIndex (i);
+          assertSame (aBoundRules.get (i), aBoundRule);
+
+          final ICommonsList <PSXPathBoundAssertReport> aBoundAssertReports = aBoundRule.getAllBoundAssertReports ();
+          assertEquals (aRes.getPath (), aBoundAssertReports.size (), aBoundRule.getBoundAssertReportCount ());
+          for (int j = 0; j < aBoundAssertReports.size (); ++j)
+            assertSame (aBoundAssertReports.get (j), aBoundRule.getBoundAssertReportAtIndex (j));
+        }
+
+        // The returned lists are copies
+        aBoundRules.clear ();
+        assertEquals (aBoundPattern.getAllBoundRules ().size (), aBoundPattern.getBoundRuleCount ());
+      }
+    }
+  }
+
   @Test
   public void testBindAllInvalidSchematrons ()
   {
@@ -142,4 +314,93 @@ public final class PSXPathBoundSchemaTest
       }
     }
   }
+
+  @Test
+  public void testSharedRuleContexts () throws Exception
+  {
+    // All rules use the context "AAA"
+    final IReadableResource aSchRes = new ClassPathResource ("test-sch/valid01.sch");
+    final IReadableResource aXmlRes = new ClassPathResource ("test-xml/valid01.xml");
+    final PSSchema aSchema = new PSReader (aSchRes).readSchema ();
+    final Document aXML = DOMReader.readXMLDOM (aXmlRes);
+    final String sBaseURI = aXmlRes.getAsURL ().toExternalForm ();
+
+    final PSXPathBoundSchema aBoundSchema = (PSXPathBoundSchema) PSXPathQueryBinding.getInstance ()
+                                                                                    .bind (aSchema, null, null);
+    assertTrue (aBoundSchema.hasSharedRuleContexts ());
+
+    final PSXPathRuleContextCache aCache = new PSXPathRuleContextCache (aXML);
+    final SchematronOutputType aSVRL = aBoundSchema.validateComplete (aXML, sBaseURI, null, aCache);
+    assertEquals (1, aCache.size ());
+    assertEquals (1, aCache.getMissCount ());
+    assertEquals (2, aCache.getHitCount ());
+    assertEquals (_getAllSortedMessages (aBoundSchema.validateComplete (aXML, sBaseURI)),
+                  _getAllSortedMessages (aSVRL));
+  }
+
+  /**
+   * Bound schema that remembers the automatically created rule context cache
+   * or that disables it.
+   */
+  private static final class RuleContextCacheBoundSchema extends PSXPathBoundSchema
+  {
+    private final boolean m_bUseCache;
+    private PSXPathRuleContextCache m_aLastCache;
+
+    RuleContextCacheBoundSchema (@Nonnull final PSSchema aSchema, final boolean bUseCache) throws SchematronException
+    {
+      super (PSXPathQueryBinding.getInstance (),
+             PSPreprocessor.createPreprocessorWithoutInformationLoss (PSXPathQueryBinding.getInstance ())
+                           .getForcedPreprocessedSchema (aSchema),
+             null,
+             null,
+             null,
+             null,
+             PSXPathBoundSchema.createXPathFactorySaxonFirst ());
+      m_bUseCache = bUseCache;
+    }
+
+    @Override
+    protected PSXPathRuleContextCache createRuleContextCache (@Nonnull final Node aNode)
+    {
+      m_aLastCache = m_bUseCache ? super.createRuleContextCache (aNode) : null;
+      return m_aLastCache;
+    }
+  }
+
+  @Test
+  public void testAutomaticSharedRuleContextCache () throws Exception
+  {
+    // The contexts "a" and "b" are each used by two patterns
+    final String sSchema = "<schema xmlns='http://purl.oclc.org/dsdl/schematron'>" +
+                           "<pattern><rule context='a'><assert test='@x'>a without x</assert>" +
+                           "<report test='b'>a with b</report></rule></pattern>" +
+                           "<pattern><rule context='a'><assert test='count(b) &gt; 1'>a with few b</assert></rule>" +
+                           "<rule context='b'><assert test='@y'>b without y</assert></rule></pattern>" +
+                           "<pattern><rule context='b'><report test='@y'>b with y</report></rule></pattern>" +
+                           "</schema>";
+    final PSSchema aSchema = new PSReader (new ReadableResourceString (sSchema, StandardCharsets.UTF_8)).readSchema ();
+    final Document aXML = DOMReader.readXMLDOM ("<root><a x='1'><b y='1'/><b/></a><a><b/></a></root>");
+
+    final RuleContextCacheBoundSchema aCachedSchema = new RuleContextCacheBoundSchema (aSchema, true);
+    aCachedSchema.bind ();
+    assertTrue (aCachedSchema.hasSharedRuleContexts ());
+    final SchematronOutputType aCachedSVRL = aCachedSchema.validateComplete (aXML, null);
+
+    // Each distinct rule context was evaluated exactly once
+    final PSXPathRuleContextCache aCache = aCachedSchema.m_aLastCache;
+    assertNotNull (aCache);
+    assertEquals (2, aCache.size ());
+    assertEquals (2, aCache.getMissCount ());
+    assertEquals (2, aCache.getHitCount ());
+
+    final RuleContextCacheBoundSchema aUncachedSchema = new RuleContextCacheBoundSchema (aSchema, false);
+    aUncachedSchema.bind ();
+    final SchematronOutputType aUncachedSVRL = aUncachedSchema.validateComplete (aXML, null);
+    assertNull (aUncachedSchema.m_aLastCache);
+
+    // The cache must not change the result
+    assertEquals (SVRLSharedMarshaller.getInstance ().getAsString (aUncachedSVRL, false),
+                  SVRLSharedMarshaller.getInstance ().getAsString (aCachedSVRL, false));
+  }
 }
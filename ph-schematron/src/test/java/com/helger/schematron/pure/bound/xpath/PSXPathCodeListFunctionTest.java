@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import javax.xml.xpath.XPathFunctionException;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link PSXPathCodeListFunction}.
+ *
+ * @author Philip Helger
+ */
+public final class PSXPathCodeListFunctionTest
+{
+  private static boolean _eval (final PSXPathCodeListFunction aFunc,
+                                final int nIndex,
+                                final String sValue) throws XPathFunctionException
+  {
+    return ((Boolean) aFunc.evaluate (Arrays.asList (Integer.toString (nIndex), sValue))).booleanValue ();
+  }
+
+  @Test
+  public void testRewrite ()
+  {
+    final PSXPathCodeListFunction aFunc = new PSXPathCodeListFunction ();
+
+    // Not matching
+    final String sNoMatch = "contains(., 'x') and contains(' A B ', concat(' ', ., ' ', 'y'))";
+    assertSame (sNoMatch, aFunc.getRewrittenExpression (sNoMatch, () -> "p:f"));
+    assertEquals (0, aFunc.getCodeListCount ());
+
+    assertEquals ("not(p:f('0', string(normalize-space(@a))))",
+                  aFunc.getRewrittenExpression ("not(contains( ' A B C ' , concat(' ', normalize-space(@a), \" \")))",
+                                                () -> "p:f"));
+    // Same literal is reused
+    assertEquals ("p:f('0', string(.)) or p:f('1', string(x[contains(.,'a')]))",
+                  aFunc.getRewrittenExpression ("contains(' A B C ', concat(' ', ., ' ')) or contains(\" D \", concat(' ', x[contains(.,'a')], ' '))",
+                                                () -> "p:f"));
+    assertEquals (2, aFunc.getCodeListCount ());
+  }
+
+  @Test
+  public void testEvaluate () throws XPathFunctionException
+  {
+    final PSXPathCodeListFunction aFunc = new PSXPathCodeListFunction ();
+    final String [] aLiterals = { " AAA AB C ", "AAA  AB C", " ", "", "\tA B\n" };
+    final String [] aValues = { "AAA", "AB", "C", "A", "", "AAA AB", "AB C", " ", "B", "AAA  AB", "\tA" };
+    for (final String sLiteral : aLiterals)
+    {
+      final int nIndex = aFunc.registerCodeList (sLiteral);
+      // Must be identical to the original expression
+      for (final String sValue : aValues)
+        assertEquals (sLiteral + "/" + sValue,
+                      sLiteral.contains (" " + sValue + " "),
+                      _eval (aFunc, nIndex, sValue));
+    }
+  }
+}
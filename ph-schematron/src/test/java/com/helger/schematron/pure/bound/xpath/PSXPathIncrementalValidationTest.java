@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.schematron.pure.SchematronResourcePure;
+import com.helger.schematron.svrl.AbstractSVRLMessage;
+import com.helger.schematron.svrl.SVRLHelper;
+import com.helger.schematron.svrl.SVRLSharedMarshaller;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * Test class for class {@link PSXPathIncrementalValidator}.
+ *
+ * @author Philip Helger
+ */
+public final class PSXPathIncrementalValidationTest
+{
+  private static final String SCH = "<schema xmlns='http://purl.oclc.org/dsdl/schematron'>" +
+                                    "<pattern><rule context='inv'><assert test='line'>No lines</assert></rule></pattern>" +
+                                    "<pattern><rule context='line'><assert test='number(.) = number(.)'>NaN</assert></rule></pattern>" +
+                                    "<pattern><rule context='env'><assert test='count(//line) = 3'>Count</assert></rule></pattern>" +
+                                    "</schema>";
+  private static final String XML = "<env>" +
+                                    "<inv><line>1</line><line>2</line></inv>" +
+                                    "<inv><line>x</line></inv>" +
+                                    "<inv/>" +
+                                    "</env>";
+
+  @Nonnull
+  private static ICommonsList <String> _getAllSortedMessages (@Nonnull final SchematronOutputType aSVRL)
+  {
+    final ICommonsList <String> ret = new CommonsArrayList <> ();
+    for (final AbstractSVRLMessage aMsg : SVRLHelper.getAllFailedAssertionsAndSuccessfulReports (aSVRL))
+      ret.add (aMsg.getLocation () + " - " + aMsg.getText ());
+    return ret.getSortedInline (Comparator.naturalOrder ());
+  }
+
+  @Nonnull
+  private static PSXPathBoundSchema _getBoundSchema ()
+  {
+    return (PSXPathBoundSchema) SchematronResourcePure.fromString (SCH, StandardCharsets.UTF_8)
+                                                      .getOrCreateBoundSchema ();
+  }
+
+  @Test
+  public void testIncremental () throws Exception
+  {
+    final PSXPathBoundSchema aBoundSchema = _getBoundSchema ();
+    final Document aDoc = DOMReader.readXMLDOM (XML);
+    final Element eEnv = aDoc.getDocumentElement ();
+    final Element eInv3 = (Element) eEnv.getChildNodes ().item (2);
+    assertTrue (aBoundSchema.isIncrementallyLocal (aBoundSchema.getAllBoundPatterns ()
+                                                               .get (0)
+                                                               .getBoundRuleAtIndex (0)));
+    assertFalse (aBoundSchema.isIncrementallyLocal (aBoundSchema.getAllBoundPatterns ()
+                                                                .get (2)
+                                                                .getBoundRuleAtIndex (0)));
+
+    // Initial full validation
+    final PSXPathIncrementalResult aResult1 = aBoundSchema.validateIncrementally (aDoc, null, null, null, null);
+    assertEquals (7, aResult1.getEvaluatedNodeCount ());
+    assertEquals (0, aResult1.getReusedNodeCount ());
+    assertEquals (_getAllSortedMessages (aBoundSchema.validateComplete (aDoc, null)),
+                  _getAllSortedMessages (aResult1.getSVRL ()));
+    assertEquals (2, SVRLHelper.getAllFailedAssertions (aResult1.getSVRL ()).size ());
+
+    // Add a line to the third invoice
+    final Element eLine = aDoc.createElement ("line");
+    eLine.appendChild (aDoc.createTextNode ("3"));
+    eInv3.appendChild (eLine);
+
+    final PSXPathIncrementalResult aResult2 = aBoundSchema.validateIncrementally (aDoc,
+                                                                                  null,
+                                                                                  null,
+                                                                                  aResult1,
+                                                                                  new CommonsArrayList <> (eInv3));
+    // Third invoice, the new line and the non-local env rule
+    assertEquals (3, aResult2.getEvaluatedNodeCount ());
+    assertEquals (5, aResult2.getReusedNodeCount ());
+    assertEquals (_getAllSortedMessages (aBoundSchema.validateComplete (aDoc, null)),
+                  _getAllSortedMessages (aResult2.getSVRL ()));
+    // NaN and Count
+    assertEquals (2, SVRLHelper.getAllFailedAssertions (aResult2.getSVRL ()).size ());
+  }
+
+  @Test
+  public void testPreviousResultIsUnchanged () throws Exception
+  {
+    final PSXPathBoundSchema aBoundSchema = _getBoundSchema ();
+    final Document aDoc = DOMReader.readXMLDOM (XML);
+    final Element eEnv = aDoc.getDocumentElement ();
+
+    final PSXPathIncrementalResult aResult1 = aBoundSchema.validateIncrementally (aDoc, null, null, null, null);
+    final String sSVRL1 = SVRLSharedMarshaller.getInstance ().getAsString (aResult1.getSVRL (), false);
+
+    // Insert an invoice in front, so that the locations of all reused failed
+    // asserts change
+    final Element eInv = aDoc.createElement ("inv");
+    final Element eLine = aDoc.createElement ("line");
+    eLine.appendChild (aDoc.createTextNode ("4"));
+    eInv.appendChild (eLine);
+    eEnv.insertBefore (eInv, eEnv.getFirstChild ());
+
+    final PSXPathIncrementalResult aResult2 = aBoundSchema.validateIncrementally (aDoc,
+                                                                                  null,
+                                                                                  null,
+                                                                                  aResult1,
+                                                                                  new CommonsArrayList <> (eInv));
+    assertTrue (aResult2.getReusedNodeCount () > 0);
+    assertEquals (_getAllSortedMessages (aBoundSchema.validateComplete (aDoc, null)),
+                  _getAllSortedMessages (aResult2.getSVRL ()));
+
+    // The previous result must not be modified and shares no items
+    assertEquals (sSVRL1, SVRLSharedMarshaller.getInstance ().getAsString (aResult1.getSVRL (), false));
+    for (final Object aItem2 : aResult2.getSVRL ().getActivePatternAndFiredRuleAndFailedAssert ())
+      for (final Object aItem1 : aResult1.getSVRL ().getActivePatternAndFiredRuleAndFailedAssert ())
+        assertNotSame (aItem1, aItem2);
+  }
+
+  @Test
+  public void testFragment () throws Exception
+  {
+    final PSXPathBoundSchema aBoundSchema = _getBoundSchema ();
+    final Document aDoc = DOMReader.readXMLDOM (XML);
+    final Element eInv2 = (Element) aDoc.getDocumentElement ().getChildNodes ().item (1);
+
+    // Only the NaN of the second invoice
+    final SchematronOutputType aSVRL = aBoundSchema.validateFragmentComplete (eInv2, null, null);
+    assertEquals (1, SVRLHelper.getAllFailedAssertions (aSVRL).size ());
+    assertEquals ("NaN", SVRLHelper.getAllFailedAssertions (aSVRL).get (0).getText ().trim ());
+
+    // The whole document
+    assertEquals (_getAllSortedMessages (aBoundSchema.validateComplete (aDoc, null)),
+                  _getAllSortedMessages (aBoundSchema.validateFragmentComplete (aDoc, null, null)));
+  }
+}
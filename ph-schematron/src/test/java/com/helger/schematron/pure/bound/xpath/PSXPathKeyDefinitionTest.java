@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathFactory;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+
+import com.helger.schematron.pure.SchematronResourcePure;
+import com.helger.schematron.svrl.SVRLHelper;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * Test class for class {@link PSXPathKeyDefinition}.
+ *
+ * @author Philip Helger
+ */
+public final class PSXPathKeyDefinitionTest
+{
+  private static boolean _isNodeSet (final XPath aXPath, final String sExpr) throws Exception
+  {
+    return PSXPathKeyDefinition.isNodeSetExpression (aXPath.compile (sExpr), sExpr);
+  }
+
+  @Test
+  public void testIsNodeSetExpression () throws Exception
+  {
+    for (final XPath aXPath : new XPath [] { PSXPathBoundSchema.createXPathFactorySaxonFirst ().newXPath (),
+                                             XPathFactory.newInstance ().newXPath () })
+    {
+      assertTrue (_isNodeSet (aXPath, "@id"));
+      assertTrue (_isNodeSet (aXPath, "."));
+      assertTrue (_isNodeSet (aXPath, "ref/@id | @alias"));
+      assertTrue (_isNodeSet (aXPath, "child::a[@b = 'x']"));
+      assertTrue (_isNodeSet (aXPath, "(a | b)"));
+      assertFalse (_isNodeSet (aXPath, "concat(@a, '-', @b)"));
+      assertFalse (_isNodeSet (aXPath, "string(@id)"));
+      assertFalse (_isNodeSet (aXPath, "'x'"));
+      assertFalse (_isNodeSet (aXPath, "@a + 1"));
+      assertFalse (_isNodeSet (aXPath, "count(a)"));
+    }
+  }
+
+  @Test
+  public void testKeyValidation () throws Exception
+  {
+    final String sSCH = "<schema xmlns='http://purl.oclc.org/dsdl/schematron' xmlns:xsl='http://www.w3.org/1999/XSL/Transform'>" +
+                        "<xsl:key name='byId' match='item' use='@id'/>" +
+                        "<xsl:key name='byName' match='item' use='concat(@id, \"-\", @name)'/>" +
+                        "<pattern><rule context='ref'>" +
+                        "<assert test='key(\"byId\", @to)'>Missing</assert>" +
+                        "<assert test='key(\"byName\", concat(@to, \"-\", @name))'>Missing name</assert>" +
+                        "</rule></pattern></schema>";
+    final String sXML = "<root><item id='a' name='x'/><item id='b' name='y'/>" +
+                        "<ref to='a' name='x'/><ref to='b' name='x'/><ref to='c' name='z'/></root>";
+    final SchematronResourcePure aSch = SchematronResourcePure.fromString (sSCH, StandardCharsets.UTF_8);
+    assertTrue (aSch.isValidSchematron ());
+    final SchematronOutputType aSVRL = aSch.applySchematronValidationToSVRL (DOMReader.readXMLDOM (sXML), null);
+    // b-x and c-z are missing by name, c is missing by ID
+    assertEquals (3, SVRLHelper.getAllFailedAssertions (aSVRL).size ());
+  }
+}
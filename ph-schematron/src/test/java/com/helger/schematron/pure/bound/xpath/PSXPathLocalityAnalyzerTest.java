@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsTreeSet;
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.schematron.pure.binding.xpath.PSXPathQueryBinding;
+import com.helger.schematron.pure.bound.EPSAxisUsage;
+import com.helger.schematron.pure.bound.PSLocality;
+import com.helger.schematron.pure.bound.PSLocalityReport;
+import com.helger.schematron.pure.exchange.PSReader;
+
+/**
+ * Test class for class {@link PSXPathLocalityAnalyzer}.
+ *
+ * @author Philip Helger
+ */
+public final class PSXPathLocalityAnalyzerTest
+{
+  private static void _assertLocal (final String sExpr, final String... aElementNames)
+  {
+    final PSLocality aLocality = PSXPathLocalityAnalyzer.getLocality (sExpr);
+    assertTrue (sExpr + " - " + aLocality, aLocality.isSubtreeLocal ());
+    assertEquals (sExpr, new CommonsTreeSet <> (aElementNames), aLocality.getAllElementNames ());
+  }
+
+  private static void _assertUsage (final String sExpr, final EPSAxisUsage... aUsages)
+  {
+    final PSLocality aLocality = PSXPathLocalityAnalyzer.getLocality (sExpr);
+    assertFalse (sExpr, aLocality.isSubtreeLocal ());
+    for (final EPSAxisUsage eUsage : aUsages)
+      assertTrue (sExpr + " - " + aLocality, aLocality.hasUsage (eUsage));
+    assertEquals (sExpr + " - " + aLocality, aUsages.length, aLocality.getAllUsages ().size ());
+  }
+
+  @Test
+  public void testGetLocality ()
+  {
+    _assertLocal (".");
+    _assertLocal ("cbc:ID = 'x'", "cbc:ID");
+    _assertLocal ("a and b", "a", "b");
+    _assertLocal (".//d | x/*", "d", "x");
+    _assertLocal ("@id and child::e[@type]", "e");
+    _assertLocal ("'//preceding::x' != y/text()", "y");
+    _assertLocal ("for $i in c return $i", "c");
+    _assertLocal ("count(cac:Line) > 0.5", "cac:Line");
+
+    _assertUsage ("../a", EPSAxisUsage.ANCESTOR);
+    _assertUsage ("ancestor::b", EPSAxisUsage.ANCESTOR);
+    _assertUsage ("count(preceding-sibling::c) = 0", EPSAxisUsage.PRECEDING_FOLLOWING);
+    _assertUsage ("count(//x) > 0", EPSAxisUsage.ROOT_DESCENDANT);
+    _assertUsage ("key('k', @id)", EPSAxisUsage.KEY);
+    _assertUsage ("id('x')", EPSAxisUsage.ID);
+    _assertUsage ("document('x.xml')/y", EPSAxisUsage.EXTERNAL_DOCUMENT);
+    _assertUsage ("$foo = 1", EPSAxisUsage.VARIABLE);
+    _assertUsage ("lang('en')", EPSAxisUsage.ANCESTOR);
+    _assertUsage ("namespace-uri-for-prefix('p', .) != ''", EPSAxisUsage.ANCESTOR);
+    _assertUsage ("count(in-scope-prefixes(.)) > 1", EPSAxisUsage.ANCESTOR);
+
+    final PSLocality aLocality = PSXPathLocalityAnalyzer.getLocality ("a[. = /h/id]");
+    assertTrue (aLocality.hasUsage (EPSAxisUsage.ABSOLUTE_PATH));
+    assertEquals (new CommonsTreeSet <> ("a", "h", "id"), aLocality.getAllElementNames ());
+    assertEquals (new CommonsTreeSet <> ("h", "id"), aLocality.getAllAbsolutePathElementNames ());
+  }
+
+  @Test
+  public void testLocalityReport () throws Exception
+  {
+    final PSLocalityReport aReport = PSXPathQueryBinding.getInstance ()
+                                                        .bind (new PSReader (new ClassPathResource ("test-sch/valid01.sch")).readSchema (),
+                                                               null,
+                                                               null)
+                                                        .getLocalityReport ();
+    assertEquals (3, aReport.getRuleCount ());
+    assertTrue (aReport.getAsString ().length () > 0);
+  }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.bound.xpath.compiled;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.helger.xml.namespace.MapBasedNamespaceContext;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * Test class for class {@link PSCompiledXPathCompiler}.
+ *
+ * @author Philip Helger
+ */
+public final class PSCompiledXPathCompilerTest
+{
+  private static final MapBasedNamespaceContext NSCTX = new MapBasedNamespaceContext ();
+  static
+  {
+    NSCTX.addMapping ("x", "urn:example:x");
+  }
+
+  private static boolean _eval (final String sExpr, final Element aContext)
+  {
+    final IPSCompiledExpression aExpr = PSCompiledXPathCompiler.compile (sExpr, NSCTX);
+    assertNotNull (sExpr, aExpr);
+    return aExpr.evaluateBoolean (aContext);
+  }
+
+  @Test
+  public void testUnsupported ()
+  {
+    for (final String sExpr : new String [] { "$a",
+                                              "1 + 2",
+                                              "a | b",
+                                              "following-sibling::a",
+                                              "key('k', .)",
+                                              "matches(., 'a')",
+                                              "a eq 'b'",
+                                              "if (a) then b else c",
+                                              "y:a",
+                                              "(a)[1]",
+                                              "a = true()",
+                                              "'1' = 1",
+                                              "a < 'b'",
+                                              "a < b",
+                                              "-a",
+                                              "'it''s'" })
+      assertNull (sExpr, PSCompiledXPathCompiler.compile (sExpr, NSCTX));
+  }
+
+  @Test
+  public void testEvaluate () throws Exception
+  {
+    final Document aDoc = DOMReader.readXMLDOM ("<root xmlns:x='urn:example:x' id='r'>" +
+                                                "<a n='1'>foo</a><a n='2'> bar  baz </a>" +
+                                                "<x:b>3</x:b><c/><d>abc</d>" +
+                                                "</root>");
+    final Element aRoot = aDoc.getDocumentElement ();
+
+    assertTrue (_eval ("a", aRoot));
+    assertTrue (_eval ("count(a) = 2", aRoot));
+    assertTrue (_eval ("count(//a[@n]) = 2 and not(e)", aRoot));
+    assertTrue (_eval ("a[2]/@n = '2'", aRoot));
+    assertTrue (_eval ("a[@n = 1] = 'foo'", aRoot));
+    assertTrue (_eval ("a = 'foo'", aRoot));
+    assertTrue (_eval ("a != 'foo'", aRoot));
+    assertFalse (_eval ("a = 'bar'", aRoot));
+    assertTrue (_eval ("normalize-space(a[2]) = 'bar baz'", aRoot));
+    assertTrue (_eval ("x:b > 2 and x:b <= 3", aRoot));
+    assertTrue (_eval ("count(x:*) = 1 and count(*) = 5", aRoot));
+    assertFalse (_eval ("b", aRoot));
+    assertTrue (_eval ("string-length(d) = 3 and starts-with(d, 'ab') and contains(d, 'bc')", aRoot));
+    assertTrue (_eval ("concat(local-name(), '-', @id) = 'root-r'", aRoot));
+    assertTrue (_eval ("not(c/node()) and c/.. = . and count(a/text()) = 2", aRoot));
+    assertTrue (_eval ("/root/@id = 'r' and count(descendant::*) = 5", aRoot));
+    assertTrue (_eval ("number(x:b) = 3 and string(number(c)) = 'NaN'", aRoot));
+    // Nothing in common
+    assertFalse (_eval ("a/@n = d", aRoot));
+    // Namespace declarations are no attributes
+    assertTrue (_eval ("count(@*) = 1", aRoot));
+
+    // Different results in XPath 1.0 and 2.0
+    try
+    {
+      _eval ("string(a) = 'foo'", aRoot);
+      fail ();
+    }
+    catch (final PSCompiledFallbackException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testTypes ()
+  {
+    assertEquals (EPSCompiledType.NODESET, PSCompiledXPathCompiler.compile ("//a", NSCTX).getType ());
+    assertEquals (EPSCompiledType.BOOLEAN, PSCompiledXPathCompiler.compile ("a or b", NSCTX).getType ());
+    assertEquals (EPSCompiledType.NUMBER, PSCompiledXPathCompiler.compile ("count(a)", NSCTX).getType ());
+    assertEquals (EPSCompiledType.STRING, PSCompiledXPathCompiler.compile ("name(..)", NSCTX).getType ());
+  }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.helger.commons.io.file.FileOperations;
+import com.helger.commons.io.file.SimpleFileIO;
+import com.helger.commons.io.resource.FileSystemResource;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.io.resource.inmemory.ReadableResourceByteArray;
+import com.helger.commons.io.resource.inmemory.ReadableResourceString;
+import com.helger.schematron.pure.binding.xpath.PSXPathQueryBinding;
+import com.helger.schematron.pure.model.PSSchema;
+import com.helger.schematron.pure.preprocess.PSPreprocessor;
+import com.helger.schematron.testfiles.SchematronTestHelper;
+
+/**
+ * Test class for class {@link PSBinaryReader} and {@link PSBinaryWriter}.
+ *
+ * @author Philip Helger
+ */
+public final class PSBinaryReaderTest
+{
+  @Test
+  public void testReadAll () throws Exception
+  {
+    final PSPreprocessor aPreprocessor = PSPreprocessor.createPreprocessorWithoutInformationLoss (PSXPathQueryBinding.getInstance ());
+    final PSWriter aXMLWriter = new PSWriter ();
+    final PSBinaryWriter aWriter = new PSBinaryWriter ();
+
+    for (final IReadableResource aRes : SchematronTestHelper.getAllValidSchematronFiles ())
+    {
+      // Parse and preprocess the schema
+      final PSSchema aSchema = new PSReader (aRes).readSchema ();
+      final PSSchema aPreprocessedSchema = aPreprocessor.getAsPreprocessedSchema (aSchema);
+      assertNotNull (aRes.getPath (), aPreprocessedSchema);
+
+      // Create the snapshot
+      final byte [] aSnapshot = aWriter.getAsBytes (aPreprocessedSchema, PSSourceDigest.getAllSourceResources (aRes));
+      assertNotNull (aSnapshot);
+
+      // Read it back
+      final PSBinaryReader aReader = new PSBinaryReader (aRes);
+      assertTrue (aRes.getPath (), aReader.isUpToDate (new ReadableResourceByteArray (aSnapshot)));
+      final PSSchema aReadSchema = aReader.readSchema (aSnapshot);
+      assertNotNull (aReadSchema);
+      assertEquals (aRes, aReadSchema.getResource ());
+      assertTrue (aRes.getPath (), aReadSchema.isPreprocessed ());
+
+      // Both must serialize to the same XML
+      assertEquals (aXMLWriter.getXMLStringNotNull (aPreprocessedSchema), aXMLWriter.getXMLStringNotNull (aReadSchema));
+    }
+  }
+
+  @Test
+  public void testOutdated () throws Exception
+  {
+    final File aDir = new File ("target/test-snapshot");
+    FileOperations.createDirRecursiveIfNotExisting (aDir);
+    final File aSCH = new File (aDir, "snapshot.sch");
+    SimpleFileIO.writeFile (aSCH,
+                            "<schema xmlns='http://purl.oclc.org/dsdl/schematron'>" +
+                                  "<pattern><rule context='a'><assert test='b'>b missing</assert></rule></pattern>" +
+                                  "</schema>",
+                            StandardCharsets.UTF_8);
+    final IReadableResource aRes = new FileSystemResource (aSCH);
+
+    final PSSchema aSchema = new PSReader (aRes).readSchema ();
+    final byte [] aSnapshot = new PSBinaryWriter ().getAsBytes (aSchema, PSSourceDigest.getAllSourceResources (aRes));
+    final PSBinaryReader aReader = new PSBinaryReader (aRes);
+    assertTrue (aReader.isUpToDate (new ReadableResourceByteArray (aSnapshot)));
+
+    // Modify the source
+    SimpleFileIO.writeFile (aSCH,
+                            "<schema xmlns='http://purl.oclc.org/dsdl/schematron'>" +
+                                  "<pattern><rule context='a'><assert test='c'>c missing</assert></rule></pattern>" +
+                                  "</schema>",
+                            StandardCharsets.UTF_8);
+    assertFalse (aReader.isUpToDate (new ReadableResourceByteArray (aSnapshot)));
+
+    // A snapshot without digest is never up to date
+    assertFalse (aReader.isUpToDate (new ReadableResourceByteArray (new PSBinaryWriter ().getAsBytes (aSchema,
+                                                                                                        null))));
+  }
+
+  @Test
+  public void testInvalidLength () throws Exception
+  {
+    // Oversized length
+    ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+    PSBinaryWriter.writeVarInt (aBAOS, PSBinaryReader.MAX_LENGTH + 1);
+    try
+    {
+      PSBinaryReader.readBytes (new ByteArrayInputStream (aBAOS.toByteArray ()));
+      fail ();
+    }
+    catch (final IOException ex)
+    {
+      // expected
+    }
+
+    // Negative length (5 byte varint with the sign bit set)
+    try
+    {
+      PSBinaryReader.readBytes (new ByteArrayInputStream (new byte [] { (byte) 0xff,
+                                                                         (byte) 0xff,
+                                                                         (byte) 0xff,
+                                                                         (byte) 0xff,
+                                                                         0x0f }));
+      fail ();
+    }
+    catch (final IOException ex)
+    {
+      // expected
+    }
+
+    // Large but valid length without the data must not allocate the full
+    // length
+    aBAOS = new ByteArrayOutputStream ();
+    PSBinaryWriter.writeVarInt (aBAOS, PSBinaryReader.MAX_LENGTH);
+    aBAOS.write (new byte [] { 1, 2, 3 });
+    try
+    {
+      PSBinaryReader.readBytes (new ByteArrayInputStream (aBAOS.toByteArray ()));
+      fail ();
+    }
+    catch (final IOException ex)
+    {
+      // expected - EOF
+    }
+
+    // Corrupt snapshot
+    final byte [] aSnapshot = new PSBinaryWriter ().getAsBytes (new PSReader (new ReadableResourceString ("<schema xmlns='http://purl.oclc.org/dsdl/schematron'>" +
+                                                                                                         "<pattern><rule context='a'><assert test='b'>b missing</assert></rule></pattern>" +
+                                                                                                         "</schema>",
+                                                                                                         StandardCharsets.UTF_8)).readSchema (),
+                                                                null);
+    // Header is magic, version, empty digest, no dependencies
+    final byte [] aCorrupt = Arrays.copyOf (aSnapshot, aSnapshot.length);
+    aCorrupt[PSBinaryWriter.MAGIC.length + 3] = (byte) 0xff;
+    try
+    {
+      new PSBinaryReader (new ReadableResourceByteArray (aSnapshot)).readSchema (aCorrupt);
+      fail ();
+    }
+    catch (final SchematronReadException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testDigestWithLengths ()
+  {
+    final byte [] aDigest1 = PSSourceDigest.createDigest (new CommonsArrayList <> (new ReadableResourceString ("ab",
+                                                                                                               StandardCharsets.UTF_8),
+                                                                                   new ReadableResourceString ("c",
+                                                                                                               StandardCharsets.UTF_8)));
+    final byte [] aDigest2 = PSSourceDigest.createDigest (new CommonsArrayList <> (new ReadableResourceString ("a",
+                                                                                                               StandardCharsets.UTF_8),
+                                                                                   new ReadableResourceString ("bc",
+                                                                                                               StandardCharsets.UTF_8)));
+    final byte [] aDigest3 = PSSourceDigest.createDigest (new CommonsArrayList <> (new ReadableResourceString ("abc",
+                                                                                                               StandardCharsets.UTF_8)));
+    assertNotNull (aDigest1);
+    assertNotNull (aDigest2);
+    assertNotNull (aDigest3);
+    assertFalse (Arrays.equals (aDigest1, aDigest2));
+    assertFalse (Arrays.equals (aDigest1, aDigest3));
+    assertFalse (Arrays.equals (aDigest2, aDigest3));
+  }
+}
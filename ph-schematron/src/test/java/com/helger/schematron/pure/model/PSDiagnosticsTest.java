@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link PSDiagnostics}.
+ *
+ * @author Philip Helger
+ */
+public final class PSDiagnosticsTest
+{
+  @Test
+  public void testDiagnosticOfID ()
+  {
+    final PSDiagnostics aDiagnostics = new PSDiagnostics ();
+    assertTrue (aDiagnostics.getAllDiagnostics ().isEmpty ());
+    assertNull (aDiagnostics.getDiagnosticOfID ("d1"));
+
+    final PSDiagnostic aDiagnostic = new PSDiagnostic ();
+    aDiagnostic.setID ("d1");
+    aDiagnostic.addText ("Details");
+    aDiagnostics.addDiagnostic (aDiagnostic);
+
+    assertSame (aDiagnostic, aDiagnostics.getDiagnosticOfID ("d1"));
+    assertNull (aDiagnostics.getDiagnosticOfID ("d2"));
+    assertNull (aDiagnostics.getDiagnosticOfID (null));
+    assertEquals (1, aDiagnostics.getAllDiagnostics ().size ());
+  }
+
+  @Test
+  public void testIncludeInSchema ()
+  {
+    final PSSchema aSchema = new PSSchema ();
+    aSchema.addPattern (new PSPattern ());
+    final PSDiagnostics aDiagnostics = new PSDiagnostics ();
+    aSchema.setDiagnostics (aDiagnostics);
+    assertFalse (aDiagnostics.hasAnyInclude ());
+    assertTrue (aSchema.isPreprocessed ());
+
+    // An include inside the diagnostics requires pre-processing
+    final PSInclude aInclude = new PSInclude ();
+    aInclude.setHref ("other.sch");
+    aDiagnostics.addInclude (aInclude);
+    assertTrue (aDiagnostics.hasAnyInclude ());
+    assertFalse (aSchema.isPreprocessed ());
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link PSPattern}.
+ *
+ * @author Philip Helger
+ */
+public final class PSPatternTest
+{
+  @Test
+  public void testRules ()
+  {
+    final PSPattern aPattern = new PSPattern ();
+    assertEquals (0, aPattern.getRuleCount ());
+    assertNull (aPattern.getRuleOfID ("r1"));
+
+    final PSRule aRule1 = new PSRule ();
+    aRule1.setID ("r1");
+    aPattern.addRule (aRule1);
+    final PSRule aRule2 = new PSRule ();
+    aPattern.addRule (aRule2);
+
+    assertEquals (2, aPattern.getRuleCount ());
+    assertSame (aRule1, aPattern.getRuleOfID ("r1"));
+    assertNull (aPattern.getRuleOfID ("r2"));
+    assertEquals (2, aPattern.getAllRules ().size ());
+
+    // The returned list is a copy
+    aPattern.getAllRules ().clear ();
+    assertEquals (2, aPattern.getRuleCount ());
+  }
+
+  @Test
+  public void testAbstractAndParams ()
+  {
+    final PSSchema aSchema = new PSSchema ();
+    final PSPattern aPattern = new PSPattern ();
+    aSchema.addPattern (aPattern);
+    assertFalse (aPattern.hasAnyParam ());
+    assertTrue (aSchema.isPreprocessed ());
+
+    // An abstract pattern requires pre-processing
+    aPattern.setAbstract (true);
+    assertFalse (aSchema.isPreprocessed ());
+    aPattern.setAbstract (false);
+
+    // So does a pattern with parameters
+    final PSParam aParam = new PSParam ();
+    aParam.setName ("x");
+    aParam.setValue ("1");
+    aPattern.addParam (aParam);
+    assertTrue (aPattern.hasAnyParam ());
+    assertEquals ("x", aPattern.getAllParams ().getFirst ().getName ());
+    assertFalse (aSchema.isPreprocessed ());
+  }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link PSPhase}.
+ *
+ * @author Philip Helger
+ */
+public final class PSPhaseTest
+{
+  @Test
+  public void testActivesAndLets ()
+  {
+    final PSPhase aPhase = new PSPhase ();
+    aPhase.setID ("p1");
+    assertTrue (aPhase.getAllActives ().isEmpty ());
+    assertFalse (aPhase.hasAnyLet ());
+
+    final PSActive aActive = new PSActive ();
+    aActive.setPattern ("pattern1");
+    aPhase.addActive (aActive);
+    final PSLet aLet = new PSLet ();
+    aLet.setName ("x");
+    aLet.setValue ("1");
+    aPhase.addLet (aLet);
+
+    assertEquals (1, aPhase.getAllActives ().size ());
+    assertEquals ("pattern1", aPhase.getAllActives ().getFirst ().getPattern ());
+    assertTrue (aPhase.hasAnyLet ());
+    assertEquals ("1", aPhase.getAllLetsAsMap ().get ("x"));
+    // Lets and actives are both part of the content
+    assertEquals (2, aPhase.getAllContentElements ().size ());
+  }
+
+  @Test
+  public void testPhaseInSchema ()
+  {
+    final PSSchema aSchema = new PSSchema ();
+    aSchema.addPattern (new PSPattern ());
+    assertTrue (aSchema.getAllPhases ().isEmpty ());
+    assertTrue (aSchema.getAllPhaseIDs ().isEmpty ());
+    assertNull (aSchema.getPhaseOfID ("p1"));
+    assertTrue (aSchema.isPreprocessed ());
+
+    final PSPhase aPhase = new PSPhase ();
+    aPhase.setID ("p1");
+    aSchema.addPhase (aPhase);
+    assertSame (aPhase, aSchema.getPhaseOfID ("p1"));
+    assertEquals ("p1", aSchema.getAllPhaseIDs ().getFirst ());
+    assertTrue (aSchema.isPreprocessed ());
+
+    // An include inside a phase requires pre-processing
+    final PSInclude aInclude = new PSInclude ();
+    aInclude.setHref ("other.sch");
+    aPhase.addInclude (aInclude);
+    assertTrue (aPhase.hasAnyInclude ());
+    assertFalse (aSchema.isPreprocessed ());
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.helger.schematron.CSchematron;
+import com.helger.schematron.CSchematronXML;
+import com.helger.schematron.pure.errorhandler.CollectingPSErrorHandler;
+import com.helger.xml.microdom.IMicroElement;
+
+/**
+ * Test class for class {@link PSRule}.
+ *
+ * @author Philip Helger
+ */
+public final class PSRuleTest
+{
+  @Test
+  public void testIncludesAndLets ()
+  {
+    final PSRule aRule = new PSRule ();
+    aRule.setContext ("a");
+    final PSAssertReport aAssert = new PSAssertReport (true);
+    aAssert.setTest ("b");
+    aAssert.addText ("b missing");
+    aRule.addAssertReport (aAssert);
+
+    // No include and no let present
+    assertFalse (aRule.hasAnyInclude ());
+    assertTrue (aRule.getAllIncludes ().isEmpty ());
+    assertFalse (aRule.hasAnyLet ());
+    assertTrue (aRule.getAllLets ().isEmpty ());
+    assertTrue (aRule.getAllLetsAsMap ().isEmpty ());
+    assertTrue (aRule.isValid (new CollectingPSErrorHandler ()));
+    assertTrue (aRule.isMinimal ());
+    final CollectingPSErrorHandler aErrorHandler = new CollectingPSErrorHandler ();
+    aRule.validateCompletely (aErrorHandler);
+    assertTrue (aErrorHandler.isEmpty ());
+    IMicroElement e = aRule.getAsMicroElement ();
+    assertEquals (0, e.getAllChildElements (CSchematron.NAMESPACE_SCHEMATRON, CSchematronXML.ELEMENT_INCLUDE).size ());
+    assertEquals (0, e.getAllChildElements (CSchematron.NAMESPACE_SCHEMATRON, CSchematronXML.ELEMENT_LET).size ());
+
+    // The returned lists are copies
+    aRule.getAllLets ().add (new PSLet ());
+    assertFalse (aRule.hasAnyLet ());
+
+    // Add a let
+    final PSLet aLet = new PSLet ();
+    aLet.setName ("x");
+    aLet.setValue ("1");
+    aRule.addLet (aLet);
+    assertTrue (aRule.hasAnyLet ());
+    assertEquals (1, aRule.getAllLets ().size ());
+    assertEquals ("1", aRule.getAllLetsAsMap ().get ("x"));
+    assertTrue (aRule.isMinimal ());
+
+    // Add an include
+    final PSInclude aInclude = new PSInclude ();
+    aInclude.setHref ("other.sch");
+    aRule.addInclude (aInclude);
+    assertTrue (aRule.hasAnyInclude ());
+    assertEquals (1, aRule.getAllIncludes ().size ());
+    // Includes must be resolved in a minimal schema
+    assertFalse (aRule.isMinimal ());
+    e = aRule.getAsMicroElement ();
+    assertEquals (1, e.getAllChildElements (CSchematron.NAMESPACE_SCHEMATRON, CSchematronXML.ELEMENT_INCLUDE).size ());
+    assertEquals (1, e.getAllChildElements (CSchematron.NAMESPACE_SCHEMATRON, CSchematronXML.ELEMENT_LET).size ());
+  }
+}
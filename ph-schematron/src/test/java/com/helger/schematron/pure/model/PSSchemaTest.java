@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.helger.schematron.CSchematron;
+import com.helger.schematron.CSchematronXML;
+import com.helger.xml.microdom.IMicroElement;
+
+/**
+ * Test class for class {@link PSSchema}.
+ *
+ * @author Philip Helger
+ */
+public final class PSSchemaTest
+{
+  @Test
+  public void testIncludesAndLets ()
+  {
+    final PSSchema aSchema = new PSSchema ();
+    final PSPattern aPattern = new PSPattern ();
+    final PSRule aRule = new PSRule ();
+    aRule.setContext ("a");
+    final PSAssertReport aAssert = new PSAssertReport (true);
+    aAssert.setTest ("b");
+    aAssert.addText ("b missing");
+    aRule.addAssertReport (aAssert);
+    aPattern.addRule (aRule);
+    aSchema.addPattern (aPattern);
+
+    // No include and no let present
+    assertFalse (aSchema.hasAnyInclude ());
+    assertTrue (aSchema.getAllIncludes ().isEmpty ());
+    assertFalse (aSchema.hasAnyLet ());
+    assertTrue (aSchema.getAllLets ().isEmpty ());
+    assertTrue (aSchema.getAllLetsAsMap ().isEmpty ());
+    assertTrue (aSchema.isMinimal ());
+    IMicroElement e = aSchema.getAsMicroElement ();
+    assertEquals (0, e.getAllChildElements (CSchematron.NAMESPACE_SCHEMATRON, CSchematronXML.ELEMENT_INCLUDE).size ());
+    assertEquals (0, e.getAllChildElements (CSchematron.NAMESPACE_SCHEMATRON, CSchematronXML.ELEMENT_LET).size ());
+
+    // Add a let
+    final PSLet aLet = new PSLet ();
+    aLet.setName ("x");
+    aLet.setValue ("1");
+    aSchema.addLet (aLet);
+    assertTrue (aSchema.hasAnyLet ());
+    assertEquals ("1", aSchema.getAllLetsAsMap ().get ("x"));
+
+    // Add an include
+    final PSInclude aInclude = new PSInclude ();
+    aInclude.setHref ("other.sch");
+    aSchema.addInclude (aInclude);
+    assertTrue (aSchema.hasAnyInclude ());
+    assertEquals (1, aSchema.getAllIncludes ().size ());
+    assertFalse (aSchema.isMinimal ());
+    e = aSchema.getAsMicroElement ();
+    assertEquals (1, e.getAllChildElements (CSchematron.NAMESPACE_SCHEMATRON, CSchematronXML.ELEMENT_INCLUDE).size ());
+    assertEquals (1, e.getAllChildElements (CSchematron.NAMESPACE_SCHEMATRON, CSchematronXML.ELEMENT_LET).size ());
+  }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.preprocess;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.w3c.dom.Document;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.schematron.pure.binding.xpath.PSXPathQueryBinding;
+import com.helger.schematron.pure.bound.IPSBoundSchema;
+import com.helger.schematron.pure.exchange.PSReader;
+import com.helger.schematron.pure.model.PSSchema;
+import com.helger.schematron.svrl.AbstractSVRLMessage;
+import com.helger.schematron.svrl.SVRLHelper;
+import com.helger.schematron.testfiles.SchematronTestHelper;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * Test class for class {@link PSXPathOptimizer}.
+ *
+ * @author Philip Helger
+ */
+public final class PSXPathOptimizerTest
+{
+  @Test
+  public void testRules ()
+  {
+    final PSXPathOptimizer aOptimizer = PSXPathOptimizer.createDefault ().setTraceEnabled (true);
+
+    // Constant folding
+    assertEquals ("'ab c'", aOptimizer.getOptimizedExpression ("concat('a', \"b\", ' c')", null));
+    assertEquals ("'a b'", aOptimizer.getOptimizedExpression ("normalize-space('  a \n b ')", null));
+    assertEquals ("x or false()", aOptimizer.getOptimizedExpression ("x or not(true())", null));
+    assertEquals ("concat('a', .)", aOptimizer.getOptimizedExpression ("concat('a', .)", null));
+
+    // Double negation
+    assertEquals ("boolean(a/b)", aOptimizer.getOptimizedExpression ("not(not(a/b))", null));
+    assertEquals ("not(not(a) and b)", aOptimizer.getOptimizedExpression ("not(not(a) and b)", null));
+
+    // Count comparison
+    assertEquals ("exists(x) and empty(y)",
+                  aOptimizer.getOptimizedExpression ("count(x) > 0 and count(y)=0", "xslt2"));
+    assertEquals ("a[boolean(b/@c)]", aOptimizer.getOptimizedExpression ("a[count(b/@c) >= 1]", "xslt"));
+    // No simple path in XPath 1
+    assertEquals ("count(tokenize(.,' ')) > 0",
+                  aOptimizer.getOptimizedExpression ("count(tokenize(.,' ')) > 0", "xslt"));
+    // Precedence
+    assertEquals ("1 + count(x) > 0", aOptimizer.getOptimizedExpression ("1 + count(x) > 0", "xslt2"));
+    assertEquals ("count(x) > 0 + 1", aOptimizer.getOptimizedExpression ("count(x) > 0 + 1", "xslt2"));
+    assertEquals ("count(x) > 01", aOptimizer.getOptimizedExpression ("count(x) > 01", "xslt2"));
+
+    // Combined and multiple passes
+    assertEquals ("boolean(exists(x))", aOptimizer.getOptimizedExpression ("not(not(count(x) != 0))", "xslt2"));
+    assertTrue (aOptimizer.getAllTraceItems ().isNotEmpty ());
+
+    // Switch off
+    aOptimizer.setRuleEnabled (PSXPathCountComparisonRule.ID, false);
+    assertFalse (aOptimizer.isRuleEnabled (PSXPathCountComparisonRule.ID));
+    assertEquals ("count(x) > 0", aOptimizer.getOptimizedExpression ("count(x) > 0", "xslt2"));
+    aOptimizer.clearTrace ();
+    assertTrue (aOptimizer.getAllTraceItems ().isEmpty ());
+  }
+
+  @Nonnull
+  private static ICommonsList <String> _getAllMessages (@Nonnull final SchematronOutputType aSVRL)
+  {
+    final ICommonsList <String> ret = new CommonsArrayList <> ();
+    for (final AbstractSVRLMessage aMsg : SVRLHelper.getAllFailedAssertionsAndSuccessfulReports (aSVRL))
+      ret.add (aMsg.getLocation () + " - " + aMsg.getText ());
+    return ret;
+  }
+
+  @Test
+  public void testDifferentialOnAllTestFiles () throws Exception
+  {
+    final PSXPathQueryBinding aQueryBinding = PSXPathQueryBinding.getInstance ();
+    final PSPreprocessor aPlain = PSPreprocessor.createPreprocessorWithoutInformationLoss (aQueryBinding);
+    final PSPreprocessor aOptimized = PSPreprocessor.createPreprocessorWithoutInformationLoss (aQueryBinding)
+                                                    .setXPathOptimizer (PSXPathOptimizer.createDefault ());
+
+    final ICommonsList <Document> aXMLs = new CommonsArrayList <> ();
+    for (final IReadableResource aXMLRes : SchematronTestHelper.getAllValidXMLFiles ())
+      aXMLs.add (DOMReader.readXMLDOM (aXMLRes));
+
+    for (final IReadableResource aRes : SchematronTestHelper.getAllValidSchematronFiles ())
+    {
+      final PSSchema aSchema = new PSReader (aRes).readSchema ();
+      final PSSchema aPlainSchema = aPlain.getForcedPreprocessedSchema (aSchema);
+      final PSSchema aOptimizedSchema = aOptimized.getForcedPreprocessedSchema (aSchema);
+      assertNotNull (aPlainSchema);
+      assertNotNull (aOptimizedSchema);
+
+      // The optimized version must bind as well
+      final IPSBoundSchema aPlainBound = aQueryBinding.bind (aPlainSchema, null, null, null, null);
+      final IPSBoundSchema aOptimizedBound = aQueryBinding.bind (aOptimizedSchema, null, null, null, null);
+
+      // And produce the same results
+      for (final Document aXML : aXMLs)
+      {
+        ICommonsList <String> aExpected;
+        try
+        {
+          aExpected = _getAllMessages (aPlainBound.validateComplete (aXML, aRes.getPath ()));
+        }
+        catch (final Exception ex)
+        {
+          // Not applicable to this combination
+          aExpected = null;
+        }
+        if (aExpected != null)
+          assertEquals (aRes.getPath (),
+                        aExpected,
+                        _getAllMessages (aOptimizedBound.validateComplete (aXML, aRes.getPath ())));
+      }
+    }
+  }
+}
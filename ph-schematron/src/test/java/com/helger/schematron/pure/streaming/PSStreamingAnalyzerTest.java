@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.streaming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Test;
+
+import com.helger.schematron.pure.SchematronResourcePure;
+import com.helger.schematron.pure.bound.xpath.PSXPathBoundSchema;
+
+/**
+ * Test class for class {@link PSStreamingAnalyzer}.
+ *
+ * @author Philip Helger
+ */
+public final class PSStreamingAnalyzerTest
+{
+  private static final QName SPLIT = new QName ("Invoice");
+
+  @Test
+  public void testGetNonStreamableReason ()
+  {
+    assertNull (PSStreamingAnalyzer.getNonStreamableReason ("Line/Amount > 0", SPLIT, true));
+    assertNull (PSStreamingAnalyzer.getNonStreamableReason ("/Envelope/Header/ID", SPLIT, true));
+
+    assertNotNull (PSStreamingAnalyzer.getNonStreamableReason ("following-sibling::Invoice", SPLIT, true));
+    assertNotNull (PSStreamingAnalyzer.getNonStreamableReason ("key('k', @id)", SPLIT, true));
+    assertNotNull (PSStreamingAnalyzer.getNonStreamableReason ("count(//Invoice) > 1", SPLIT, true));
+    // Only one split element is visible per chunk
+    assertNotNull (PSStreamingAnalyzer.getNonStreamableReason ("count(../Invoice) > 1", SPLIT, true));
+    assertNotNull (PSStreamingAnalyzer.getNonStreamableReason ("ancestor::Envelope//X", SPLIT, true));
+    assertNotNull (PSStreamingAnalyzer.getNonStreamableReason ("parent::*/Invoice", SPLIT, false));
+  }
+
+  @Test
+  public void testGetAllNonStreamableRules ()
+  {
+    final String sSCH = "<schema xmlns='http://purl.oclc.org/dsdl/schematron'>" +
+                        "<pattern><rule context='Invoice'><assert test='Line'>No lines</assert></rule></pattern>" +
+                        "<pattern><rule context='Line'><assert test='count(../../Invoice) = 1'>Single</assert></rule></pattern>" +
+                        "</schema>";
+    final PSXPathBoundSchema aBoundSchema = (PSXPathBoundSchema) SchematronResourcePure.fromString (sSCH,
+                                                                                                    StandardCharsets.UTF_8)
+                                                                                        .getOrCreateBoundSchema ();
+    assertEquals (1, PSStreamingAnalyzer.getAllNonStreamableRules (aBoundSchema, SPLIT).size ());
+  }
+}
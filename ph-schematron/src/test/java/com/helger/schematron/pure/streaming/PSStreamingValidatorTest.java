@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.pure.streaming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nonnull;
+import javax.xml.namespace.QName;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.resource.inmemory.ReadableResourceString;
+import com.helger.schematron.SchematronException;
+import com.helger.schematron.pure.SchematronResourcePure;
+import com.helger.schematron.pure.bound.IPSBoundSchema;
+import com.helger.schematron.svrl.SVRLHelper;
+
+/**
+ * Test class for class {@link PSStreamingValidator}.
+ *
+ * @author Philip Helger
+ */
+public final class PSStreamingValidatorTest
+{
+  private static final String SCH = "<schema xmlns='http://purl.oclc.org/dsdl/schematron'>" +
+                                    "<pattern><rule context='header'><report test='id'>Header</report></rule></pattern>" +
+                                    "<pattern><rule context='inv'><assert test='line'>No lines</assert></rule></pattern>" +
+                                    "<pattern><rule context='line'><assert test='number(.) = number(.)'>NaN</assert></rule></pattern>" +
+                                    "<pattern><rule context='env'><assert test='count(//inv) = 3'>Count</assert></rule></pattern>" +
+                                    "</schema>";
+  private static final String XML = "<env>" +
+                                    "<header><id>H1</id></header>" +
+                                    "<inv><line>1</line><line>2</line></inv>\n" +
+                                    "<inv><line>x</line></inv>\n" +
+                                    "<inv/>" +
+                                    "</env>";
+  private static final QName SPLIT = new QName ("inv");
+
+  @Nonnull
+  private static IPSBoundSchema _getBoundSchema ()
+  {
+    return SchematronResourcePure.fromString (SCH, StandardCharsets.UTF_8).getOrCreateBoundSchema ();
+  }
+
+  private static int _getFailedAssertCount (@Nonnull final Iterable <SchematronOutputType> aSVRLs)
+  {
+    int ret = 0;
+    for (final SchematronOutputType aSVRL : aSVRLs)
+      ret += SVRLHelper.getAllFailedAssertions (aSVRL).size ();
+    return ret;
+  }
+
+  private static int _getSuccessfulReportCount (@Nonnull final Iterable <SchematronOutputType> aSVRLs)
+  {
+    int ret = 0;
+    for (final SchematronOutputType aSVRL : aSVRLs)
+      ret += SVRLHelper.getAllSuccessfulReports (aSVRL).size ();
+    return ret;
+  }
+
+  @Test
+  public void testBasic () throws Exception
+  {
+    final PSStreamingValidator aValidator = new PSStreamingValidator (_getBoundSchema (), SPLIT, false);
+    // The count over the whole document is not streamable
+    assertEquals (1, aValidator.getAllNonStreamableRules ().size ());
+
+    final ICommonsList <SchematronOutputType> aSVRLs = aValidator.validateToSVRL (new ReadableResourceString (XML,
+                                                                                                               StandardCharsets.UTF_8));
+    assertNotNull (aSVRLs);
+    assertEquals (3, aSVRLs.size ());
+    // Missing line and NaN
+    assertEquals (2, _getFailedAssertCount (aSVRLs));
+    // Header is only reported once
+    assertEquals (1, _getSuccessfulReportCount (aSVRLs));
+  }
+
+  @Test
+  public void testParallel () throws Exception
+  {
+    final PSStreamingValidator aValidator = new PSStreamingValidator (_getBoundSchema (), SPLIT, false);
+    final Map <Integer, SchematronOutputType> aResults = new ConcurrentHashMap <> ();
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (2);
+    try
+    {
+      aValidator.validate (new ReadableResourceString (XML, StandardCharsets.UTF_8),
+                           aExecutor,
+                           2,
+                           (nIndex, aSVRL) -> aResults.put (Integer.valueOf (nIndex), aSVRL));
+    }
+    finally
+    {
+      aExecutor.shutdown ();
+    }
+    assertEquals (3, aResults.size ());
+    assertEquals (2, _getFailedAssertCount (aResults.values ()));
+    assertEquals (1, _getSuccessfulReportCount (aResults.values ()));
+  }
+
+  @Test
+  public void testRejectNonStreamable ()
+  {
+    try
+    {
+      new PSStreamingValidator (_getBoundSchema (), SPLIT, true);
+      fail ();
+    }
+    catch (final SchematronException ex)
+    {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.resolve;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.dom.DOMSource;
+
+import org.junit.Test;
+
+import com.helger.commons.io.file.FileOperations;
+import com.helger.commons.io.file.SimpleFileIO;
+import com.helger.commons.io.resource.ClassPathResource;
+
+/**
+ * Test class for class {@link CachingTransformURIResolver}.
+ *
+ * @author Philip Helger
+ */
+public final class CachingTransformURIResolverTest
+{
+  @Test
+  public void testFile () throws Exception
+  {
+    final File aDir = new File ("target/test-uriresolver");
+    FileOperations.createDirRecursiveIfNotExisting (aDir);
+    final File aFile = new File (aDir, "codes.xml");
+    SimpleFileIO.writeFile (aFile, "<codes><code>A</code></codes>", StandardCharsets.UTF_8);
+    final String sBase = new File (aDir, "base.sch").toURI ().toString ();
+
+    final CachingTransformURIResolver aResolver = new CachingTransformURIResolver ();
+    final Source aSrc1 = aResolver.resolve ("codes.xml", sBase);
+    assertTrue (aSrc1 instanceof DOMSource);
+    final Source aSrc2 = aResolver.resolve ("codes.xml", sBase);
+    assertSame (((DOMSource) aSrc1).getNode (), ((DOMSource) aSrc2).getNode ());
+    assertEquals (1, aResolver.getHitCount ());
+    assertEquals (1, aResolver.getMissCount ());
+
+    // Modify the file
+    SimpleFileIO.writeFile (aFile, "<codes><code>A</code><code>B</code></codes>", StandardCharsets.UTF_8);
+    final Source aSrc3 = aResolver.resolve ("codes.xml", sBase);
+    assertNotSame (((DOMSource) aSrc1).getNode (), ((DOMSource) aSrc3).getNode ());
+    assertEquals (2, aResolver.getMissCount ());
+    assertEquals (1, aResolver.size ());
+  }
+
+  @Test
+  public void testClassPath () throws Exception
+  {
+    final String sBase = new ClassPathResource ("test-sch/xfront/example02-b/check-reserved-words.sch").getAsURL ()
+                                                                                                           .toExternalForm ();
+    final CachingTransformURIResolver aResolver = new CachingTransformURIResolver ();
+    final Source aSrc1 = aResolver.resolve ("reserved-words-list.xml", sBase);
+    assertNotNull (aSrc1);
+    final Source aSrc2 = aResolver.resolve ("reserved-words-list.xml", sBase);
+    assertSame (((DOMSource) aSrc1).getNode (), ((DOMSource) aSrc2).getNode ());
+    assertEquals (1, aResolver.getHitCount ());
+  }
+}
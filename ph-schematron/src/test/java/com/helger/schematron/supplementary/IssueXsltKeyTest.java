@@ -16,18 +16,24 @@
  */
 package com.helger.schematron.supplementary;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 
 import org.junit.Test;
 import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.w3c.dom.Document;
 
 import com.helger.commons.io.resource.FileSystemResource;
 import com.helger.commons.io.resource.IReadableResource;
 import com.helger.schematron.AbstractSchematronResource;
+import com.helger.schematron.pure.SchematronResourcePure;
+import com.helger.schematron.svrl.SVRLHelper;
 import com.helger.schematron.svrl.SVRLMarshaller;
 import com.helger.schematron.xslt.SchematronResourceSCH;
+import com.helger.xml.serialize.read.DOMReader;
 
 public final class IssueXsltKeyTest
 {
@@ -38,6 +44,31 @@ public final class IssueXsltKeyTest
                             new File ("src/test/resources/issues/xslt-key/test.xml"));
   }
 
+  @Test
+  public void testIssueXsltKeyPure () throws Exception
+  {
+    final IReadableResource aSchematron = new FileSystemResource (new File ("src/test/resources/issues/xslt-key/schematron.sch").getAbsoluteFile ());
+    final IReadableResource aXML = new FileSystemResource (new File ("src/test/resources/issues/xslt-key/test.xml").getAbsoluteFile ());
+
+    // Same result as XSLT
+    final SchematronOutputType aSVRLXSLT = new SchematronResourceSCH (aSchematron).applySchematronValidationToSVRL (aXML);
+    assertNotNull (aSVRLXSLT);
+    final SchematronResourcePure aPure = new SchematronResourcePure (aSchematron);
+    assertTrue (aPure.isValidSchematron ());
+    final SchematronOutputType aSVRLPure = aPure.applySchematronValidationToSVRL (aXML);
+    assertNotNull (aSVRLPure);
+    assertEquals (SVRLHelper.getAllFailedAssertions (aSVRLXSLT).size (),
+                  SVRLHelper.getAllFailedAssertions (aSVRLPure).size ());
+
+    // Duplicate titles
+    final Document aDoc = DOMReader.readXMLDOM ("<Plan><DataSets><DataSet Name='Books'>" +
+                                                "<Property Name='Textbook' Value='1'><Property Name='Title' Value='Hello'/></Property>" +
+                                                "<Property Name='Textbook' Value='2'><Property Name='Title' Value='Hello'/></Property>" +
+                                                "<Property Name='Textbook' Value='3'><Property Name='Title' Value='World'/></Property>" +
+                                                "</DataSet></DataSets></Plan>");
+    assertEquals (2, SVRLHelper.getAllFailedAssertions (aPure.applySchematronValidationToSVRL (aDoc, null)).size ());
+  }
+
   public static void validateAndProduceSVRL (final File schematron, final File xml) throws Exception
   {
     final IReadableResource aSchematron = new FileSystemResource (schematron.getAbsoluteFile ());
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.svrl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.w3c.dom.Document;
+
+import com.helger.commons.state.ESuccess;
+import com.helger.schematron.pure.SchematronResourcePure;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * Test class for class {@link SVRLJsonWriter}.
+ *
+ * @author Philip Helger
+ */
+public final class SVRLJsonWriterTest
+{
+  private static final String SCH = "<schema xmlns='http://purl.oclc.org/dsdl/schematron'>" +
+                                    "<pattern id='p1'><rule context='inv'><assert test='line' flag='error'>No lines</assert></rule></pattern>" +
+                                    "<pattern><rule context='line'><report test='. = \"x\"'>Line \"x\"</report></rule></pattern>" +
+                                    "</schema>";
+  private static final String XML = "<root><inv/><inv/><inv><line>x</line></inv></root>";
+
+  @Test
+  public void testPure () throws Exception
+  {
+    final SchematronResourcePure aSch = SchematronResourcePure.fromString (SCH, StandardCharsets.UTF_8);
+    final Document aDoc = DOMReader.readXMLDOM (XML);
+    assertNotNull (aDoc);
+
+    final StringWriter aSW = new StringWriter ();
+    assertEquals (ESuccess.SUCCESS, aSch.applySchematronValidationToJson (aDoc, null, null, aSW));
+    final String sJson = aSW.toString ();
+    assertTrue (sJson,
+                sJson.startsWith ("{\"results\":[{\"type\":\"assert\",\"rule\":0,\"flag\":\"error\",\"location\":"));
+    assertTrue (sJson, sJson.contains ("{\"type\":\"report\",\"rule\":1,"));
+    assertTrue (sJson, sJson.contains ("\"text\":\"Line \\\"x\\\"\""));
+    // Each rule and pattern is contained only once. Like in the SVRL, the pure
+    // implementation reports the absolute context it evaluated
+    assertTrue (sJson,
+                sJson.endsWith ("\"rules\":[{\"pattern\":0,\"context\":\"//inv\"},{\"pattern\":1,\"context\":\"//line\"}]," +
+                                "\"patterns\":[{\"id\":\"p1\"},{}]}"));
+
+    // Same result when converting the SVRL
+    final SchematronOutputType aSVRL = aSch.applySchematronValidationToSVRL (aDoc, null);
+    assertNotNull (aSVRL);
+    final StringWriter aSW2 = new StringWriter ();
+    final SVRLJsonWriter aWriter = new SVRLJsonWriter (aSW2);
+    aWriter.writeSVRL (aSVRL);
+    aWriter.finish ();
+    assertEquals (2, aWriter.getFailedAssertCount ());
+    assertEquals (1, aWriter.getSuccessfulReportCount ());
+    assertEquals (sJson, aSW2.toString ());
+  }
+
+  @Test
+  public void testEmpty () throws Exception
+  {
+    final StringWriter aSW = new StringWriter ();
+    final SVRLJsonWriter aWriter = new SVRLJsonWriter (aSW);
+    aWriter.onText ("Title");
+    aWriter.finish ();
+    // Second call has no effect
+    aWriter.finish ();
+    assertTrue (aWriter.isFinished ());
+    assertEquals ("{\"results\":[],\"rules\":[],\"patterns\":[],\"texts\":[\"Title\"]}", aSW.toString ());
+    assertEquals ("\"a\\u0001\\n\"", SVRLJsonWriter.getAsJsonString ("a\u0001\n"));
+  }
+}
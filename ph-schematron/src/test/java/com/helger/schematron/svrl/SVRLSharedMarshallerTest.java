@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.svrl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.w3c.dom.Document;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.resource.inmemory.ReadableResourceByteArray;
+import com.helger.schematron.xslt.SchematronResourceSCH;
+
+/**
+ * Test class for class {@link SVRLSharedMarshaller}.
+ *
+ * @author Philip Helger
+ */
+public final class SVRLSharedMarshallerTest
+{
+  private static final String VALID_SCHEMATRON = "test-sch/valid01.sch";
+  private static final String VALID_XMLINSTANCE = "test-xml/valid01.xml";
+
+  @Test
+  public void testRoundTrip () throws Exception
+  {
+    final SVRLSharedMarshaller aMarshaller = SVRLSharedMarshaller.getInstance ();
+    final SchematronOutputType aSO = SchematronResourceSCH.fromClassPath (VALID_SCHEMATRON)
+                                                          .applySchematronValidationToSVRL (new ClassPathResource (VALID_XMLINSTANCE));
+    assertNotNull (aSO);
+
+    for (final boolean bCheckXSD : new boolean [] { false, true })
+    {
+      final Document aDoc = aMarshaller.getAsDocument (aSO, bCheckXSD);
+      assertNotNull (aDoc);
+      assertEquals (CSVRL.SVRL_NAMESPACE_URI, aDoc.getDocumentElement ().getNamespaceURI ());
+
+      final byte [] aBytes = aMarshaller.getAsBytes (aSO, bCheckXSD);
+      assertNotNull (aBytes);
+      final SchematronOutputType aSO2 = aMarshaller.read (new ReadableResourceByteArray (aBytes), bCheckXSD);
+      assertNotNull (aSO2);
+      assertEquals (aSO.getActivePatternAndFiredRuleAndFailedAssert ().size (),
+                    aSO2.getActivePatternAndFiredRuleAndFailedAssert ().size ());
+
+      final SchematronOutputType aSO3 = aMarshaller.read (aDoc, bCheckXSD);
+      assertNotNull (aSO3);
+      assertEquals (aMarshaller.getAsString (aSO2, false), aMarshaller.getAsString (aSO3, false));
+    }
+
+    // Read XML that is not SVRL
+    assertNull (aMarshaller.read (new ClassPathResource ("test-xml/goodOrder01.xml"), false));
+  }
+
+  @Test
+  public void testConcurrent () throws Exception
+  {
+    final SchematronOutputType aSO = SchematronResourceSCH.fromClassPath (VALID_SCHEMATRON)
+                                                          .applySchematronValidationToSVRL (new ClassPathResource (VALID_XMLINSTANCE));
+    assertNotNull (aSO);
+    final SVRLSharedMarshaller aMarshaller = new SVRLSharedMarshaller (2);
+    final String sExpected = aMarshaller.getAsString (aSO, false);
+    assertNotNull (sExpected);
+
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (4);
+    try
+    {
+      final ICommonsList <Future <String>> aFutures = new CommonsArrayList <> ();
+      for (int i = 0; i < 100; ++i)
+        aFutures.add (aExecutor.submit ( () -> {
+          final SchematronOutputType aRead = aMarshaller.read (aMarshaller.getAsDocument (aSO, false), false);
+          return aRead == null ? null : aMarshaller.getAsString (aRead, false);
+        }));
+      for (final Future <String> aFuture : aFutures)
+        assertEquals (sExpected, aFuture.get ());
+    }
+    finally
+    {
+      aExecutor.shutdown ();
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.schematron.svrl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.FailedAssert;
+import org.oclc.purl.dsdl.svrl.FiredRule;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.oclc.purl.dsdl.svrl.SuccessfulReport;
+
+import com.helger.commons.error.level.EErrorLevel;
+
+/**
+ * Test class for class {@link SVRLSummary}.
+ *
+ * @author Philip Helger
+ */
+public final class SVRLSummaryTest
+{
+  @Nonnull
+  private static FailedAssert _createFailedAssert (@Nullable final String sFlag, @Nullable final String sRole)
+  {
+    final FailedAssert ret = new FailedAssert ();
+    ret.setFlag (sFlag);
+    ret.setRole (sRole);
+    ret.setTest ("true()");
+    ret.setLocation ("/a");
+    return ret;
+  }
+
+  @Nonnull
+  private static SuccessfulReport _createSuccessfulReport (@Nullable final String sFlag, @Nullable final String sRole)
+  {
+    final SuccessfulReport ret = new SuccessfulReport ();
+    ret.setFlag (sFlag);
+    ret.setRole (sRole);
+    ret.setTest ("true()");
+    ret.setLocation ("/a");
+    return ret;
+  }
+
+  @Test
+  public void testBasic ()
+  {
+    final SchematronOutputType aSVRL = new SchematronOutputType ();
+    aSVRL.getActivePatternAndFiredRuleAndFailedAssert ().add (new FiredRule ());
+    aSVRL.getActivePatternAndFiredRuleAndFailedAssert ().add (_createFailedAssert ("error", null));
+    aSVRL.getActivePatternAndFiredRuleAndFailedAssert ().add (_createFailedAssert ("warning", null));
+    aSVRL.getActivePatternAndFiredRuleAndFailedAssert ().add (_createSuccessfulReport ("info", null));
+    aSVRL.getActivePatternAndFiredRuleAndFailedAssert ().add (_createFailedAssert ("error", null));
+    aSVRL.getActivePatternAndFiredRuleAndFailedAssert ().add (_createFailedAssert (null, "fatal"));
+    // Role is used for successful reports as well
+    aSVRL.getActivePatternAndFiredRuleAndFailedAssert ().add (_createSuccessfulReport (null, "warning"));
+
+    final AtomicInteger aCalls = new AtomicInteger (0);
+    final ISVRLErrorLevelDeterminator aELD = s -> {
+      aCalls.incrementAndGet ();
+      return new DefaultSVRLErrorLevelDeterminator ().getErrorLevelFromString (s);
+    };
+    final SVRLSummary aSummary = new SVRLSummary (aSVRL, aELD);
+    // One call per distinct flag/role
+    assertEquals (4, aCalls.get ());
+
+    assertEquals (4, aSummary.getFailedAssertionCount ());
+    assertEquals (2, aSummary.getSuccessfulReportCount ());
+    assertEquals (6, aSummary.getAllFailedAssertionsAndSuccessfulReports ().size ());
+    assertEquals (2, aSummary.getFailedAssertionCount (EErrorLevel.ERROR));
+    assertEquals (0, aSummary.getFailedAssertionCount (EErrorLevel.INFO));
+    assertEquals (3, aSummary.getFailedAssertionCountMoreOrEqualSevereThan (EErrorLevel.ERROR));
+    assertEquals (3, aSummary.getAllFailedAssertionsMoreOrEqualSevereThan (EErrorLevel.ERROR).size ());
+    assertEquals (1, aSummary.getSuccessfulReportCount (EErrorLevel.WARN));
+    assertEquals (1, aSummary.getSuccessfulReportCountMoreOrEqualSevereThan (EErrorLevel.WARN));
+    assertEquals (1, aSummary.getAllSuccessfulReportsMoreOrEqualSevereThan (EErrorLevel.WARN).size ());
+    assertEquals (5, aSummary.getMessageCountMoreOrEqualSevereThan (EErrorLevel.WARN));
+    assertEquals (4, aSummary.getAllErrorLevels ().size ());
+    assertSame (EErrorLevel.FATAL_ERROR, aSummary.getMostSevereErrorLevel ());
+
+    // Same result as the single helper methods
+    final SVRLSummary aSummary2 = SVRLHelper.getSummary (aSVRL);
+    assertEquals (SVRLHelper.getAllFailedAssertions (aSVRL).size (), aSummary2.getFailedAssertionCount ());
+    assertEquals (SVRLHelper.getAllFailedAssertionsMoreOrEqualSevereThan (aSVRL, EErrorLevel.WARN).size (),
+                  aSummary2.getFailedAssertionCountMoreOrEqualSevereThan (EErrorLevel.WARN));
+    assertEquals (SVRLHelper.getAllSuccessfulReportsMoreOrEqualSevereThan (aSVRL, EErrorLevel.WARN).size (),
+                  aSummary2.getSuccessfulReportCountMoreOrEqualSevereThan (EErrorLevel.WARN));
+  }
+
+  @Test
+  public void testEmpty ()
+  {
+    final SVRLSummary aSummary = SVRLHelper.getSummary (new SchematronOutputType ());
+    assertEquals (0, aSummary.getFailedAssertionCount ());
+    assertEquals (0, aSummary.getSuccessfulReportCount ());
+    assertEquals (0, aSummary.getMessageCountMoreOrEqualSevereThan (EErrorLevel.INFO));
+    assertNull (aSummary.getMostSevereErrorLevel ());
+  }
+}